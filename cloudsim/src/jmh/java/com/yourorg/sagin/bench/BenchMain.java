@@ -0,0 +1,31 @@
+package com.yourorg.sagin.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmarks.jar 的入口：参数与 JMH 自带的命令行一致（正则选基准、-p 改参数、-f/-wi/-i …），
+ * 另外默认挂上 gc profiler，每个场景都报分配率（gc.alloc.rate.norm = 每次操作分配的字节数）。
+ *
+ * 用法：
+ *   java -jar target/benchmarks.jar                         全部场景
+ *   java -jar target/benchmarks.jar NetworkProfileBench     只跑链路查询
+ *   java -jar target/benchmarks.jar ProfileLoadBench -p rows=10000000
+ *   java -jar target/benchmarks.jar -rf json -rff jmh.json  结果另存 JSON，方便前后对比
+ */
+public final class BenchMain {
+
+    private BenchMain(){ }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder b = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty()) b.addProfiler(GCProfiler.class);
+        new Runner(b.build()).run();
+    }
+}
@@ -0,0 +1,75 @@
+package com.yourorg.sagin.bench;
+
+import com.yourorg.sagin.io.ActionReader;
+import com.yourorg.sagin.io.StateFormat;
+import com.yourorg.sagin.io.StateSnapshot;
+import com.yourorg.sagin.io.StateWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 桥接一来一回：StateWriter.write（快照编码 + 交给传输层）和 ActionReader.read（action JSON 解析），
+ * 传输层是进程内回环（LoopbackTransport），不含 IO / 等待。
+ * action 把全部任务分配一遍（assign 条数 = cloudlets），另带 patches 条 link_patch。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BridgeRoundTripBench {
+
+    private static final long[] VM_IDS = {101, 201};
+
+    @Param({"64", "1024", "16384"})
+    public int cloudlets;
+
+    @Param({"BINARY", "JSON"})
+    public StateFormat format;
+
+    @Param({"16"})
+    public int patches;
+
+    private final StateSnapshot snapshot = new StateSnapshot();
+    private StateWriter writer;
+    private ActionReader reader;
+    private long k;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        snapshot.clear(0, 0.0);
+        for (int i = 0; i < VM_IDS.length; i++) {
+            snapshot.addVm(VM_IDS[i], 10_000, 2 - i, 64_000, 500_000, 10_000, 0.5, 1000.0 * i, (int) VM_IDS[i]);
+        }
+        for (int i = 0; i < cloudlets; i++) {
+            snapshot.addCloudlet(i, 4_000 + i % 1000, 500_000, 50_000, i % 3 == 0 ? -1 : VM_IDS[i & 1],
+                    i % 3 == 0 ? StateSnapshot.PHASE_WAITING : StateSnapshot.PHASE_RUNNING,
+                    Synthetic.NODE_BASE + i % Synthetic.FANOUT);
+        }
+        LoopbackTransport t = new LoopbackTransport(
+                Synthetic.actionJson(0, 0, cloudlets, VM_IDS, patches, 1024, 42));
+        writer = new StateWriter(t).format(format);
+        reader = new ActionReader(t, 1.0);
+    }
+
+    @Benchmark
+    public void writeState(){
+        snapshot.k = k++;
+        writer.write(snapshot);
+    }
+
+    @Benchmark
+    public Map<String, Object> readAction(){
+        return reader.read(k++);
+    }
+
+    @Benchmark
+    public Map<String, Object> roundTrip(){
+        snapshot.k = k;
+        writer.write(snapshot);
+        return reader.read(k++);
+    }
+}
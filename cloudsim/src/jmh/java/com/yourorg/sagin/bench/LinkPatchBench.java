@@ -0,0 +1,51 @@
+package com.yourorg.sagin.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yourorg.sagin.net.LinkPatchApplier;
+import com.yourorg.sagin.net.NetworkProfileCsv;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LinkPatchApplier.applyFromAction 处理一条带 patches 条 link_patch 的 action。
+ * action 由 Jackson 从 JSON 解析（字段类型与真实桥接一致：Integer / Double）；
+ * put 只追加，每次调用前换一个空画像，免得时间序列越积越长（首次出现的边要建序列，这部分也算在内）。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinkPatchBench {
+
+    @Param({"1000", "10000", "100000"})
+    public int patches;
+
+    @Param({"1024"})
+    public int edges;
+
+    private Map<String, Object> action;
+    private LinkPatchApplier applier;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        byte[] json = Synthetic.actionJson(1, 0, 0, new long[]{101}, patches, edges, 42);
+        action = new ObjectMapper().readValue(json, Map.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void freshProfile(){
+        applier = new LinkPatchApplier(new NetworkProfileCsv());
+    }
+
+    @Benchmark
+    public LinkPatchApplier applyFromAction(){
+        applier.applyFromAction(action);
+        return applier;
+    }
+}
@@ -0,0 +1,40 @@
+package com.yourorg.sagin.bench;
+
+import com.yourorg.sagin.io.BridgeTransport;
+import com.yourorg.sagin.io.StateFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 进程内回环传输层（基准用）：state 拷进复用的字节数组（相当于写共享内存槽位），
+ * action 每次都回同一份预先编码好的载荷，不等待、不走 IO，只剩编码 / 解析本身的开销。
+ */
+public final class LoopbackTransport implements BridgeTransport {
+
+    private byte[] state = new byte[64 * 1024];
+    private int stateBytes;
+    private final ByteBuffer action;
+
+    /** action = null 时回 null（ActionReader 按超时处理，回退为空动作） */
+    public LoopbackTransport(byte[] action){
+        this.action = action == null ? null : ByteBuffer.wrap(action);
+    }
+
+    @Override
+    public void publishState(long tick, StateFormat format, ByteBuffer payload){
+        int n = payload.remaining();
+        if (state.length < n) state = new byte[Math.max(n, state.length * 2)];
+        payload.get(state, 0, n);
+        stateBytes = n;
+    }
+
+    @Override
+    public ByteBuffer awaitAction(long tick, long timeoutMillis){
+        if (action == null) return null;
+        action.rewind();
+        return action;
+    }
+
+    /** 最近一帧 state 的字节数 */
+    public int stateBytes(){ return stateBytes; }
+}
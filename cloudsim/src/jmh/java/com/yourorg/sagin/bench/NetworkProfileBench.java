@@ -0,0 +1,94 @@
+package com.yourorg.sagin.bench;
+
+import com.yourorg.sagin.net.LinkMetrics;
+import com.yourorg.sagin.net.MappedNetworkProfile;
+import com.yourorg.sagin.net.NetworkProfile;
+import com.yourorg.sagin.net.NetworkProfileCsv;
+import com.yourorg.sagin.net.ProfileCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * link(u, v, t) 单次查询：
+ * - monotonic：时间缓慢前进（broker 每 tick 的访问模式），边随机
+ * - random   ：边和时间都随机（回放 / 乱序查询）
+ * impl = csv（堆内列存）/ mapped（预编译 *.sgnp，mmap）；timeCursor 切换游标顺序查找与二分。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkProfileBench {
+
+    private static final int QUERIES = 1 << 16;
+
+    @Param({"1024"})
+    public int edges;
+
+    @Param({"1024"})
+    public int rowsPerEdge;
+
+    @Param({"csv", "mapped"})
+    public String impl;
+
+    @Param({"true", "false"})
+    public boolean timeCursor;
+
+    private NetworkProfile profile;
+    private Path compiled;
+    private final int[] qu = new int[QUERIES];
+    private final int[] qv = new int[QUERIES];
+    private final double[] qt = new double[QUERIES];
+    private double horizon;
+    private double dt;
+    private double clock;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        NetworkProfileCsv np = Synthetic.profile(edges, rowsPerEdge, 42);
+        if ("mapped".equals(impl)) {
+            compiled = Files.createTempFile("bench-", MappedNetworkProfile.EXT);
+            ProfileCompiler.write(np, compiled);
+            profile = MappedNetworkProfile.open(compiled).timeCursor(timeCursor);
+        } else {
+            profile = np.timeCursor(timeCursor);
+        }
+        horizon = rowsPerEdge * Synthetic.STEP_SEC;
+        // 单调访问：一轮 QUERIES 次查询走完一个 tick（每条边约 QUERIES / edges 次）
+        dt = Synthetic.STEP_SEC / QUERIES;
+        SplittableRandom rnd = new SplittableRandom(7);
+        for (int i = 0; i < QUERIES; i++) {
+            int e = rnd.nextInt(edges);
+            qu[i] = Synthetic.src(e);
+            qv[i] = Synthetic.dst(e);
+            qt[i] = rnd.nextDouble() * horizon;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (compiled != null) Files.deleteIfExists(compiled);
+    }
+
+    @Benchmark
+    public LinkMetrics monotonic(){
+        int i = next++ & (QUERIES - 1);
+        clock += dt;
+        if (clock >= horizon) clock = 0;
+        return profile.link(qu[i], qv[i], clock);
+    }
+
+    @Benchmark
+    public LinkMetrics random(){
+        int i = next++ & (QUERIES - 1);
+        return profile.link(qu[i], qv[i], qt[i]);
+    }
+}
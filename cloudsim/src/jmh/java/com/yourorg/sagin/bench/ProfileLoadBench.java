@@ -0,0 +1,46 @@
+package com.yourorg.sagin.bench;
+
+import com.yourorg.sagin.net.NetworkProfileCsv;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NetworkProfileCsv.loadCsv 整文件加载（解析 + 建列 + seal）。
+ * 轨迹在 trial 开始前生成到临时目录，不计时；10^7 行约 400 MB，生成要几十秒。
+ * 单次就是秒级，用 SingleShotTime 取每次加载的耗时分布，吞吐 = 行数 / 耗时。
+ */
+@BenchmarkMode({Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ProfileLoadBench {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public long rows;
+
+    @Param({"1024"})
+    public int edges;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        csv = Synthetic.writeCsv(Files.createTempFile("bench-profile-", ".csv"), rows, edges, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public NetworkProfileCsv loadCsv() throws IOException {
+        return NetworkProfileCsv.loadCsv(csv);
+    }
+}
@@ -0,0 +1,95 @@
+package com.yourorg.sagin.bench;
+
+import com.yourorg.sagin.net.LinkMetrics;
+import com.yourorg.sagin.net.NetworkProfileCsv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * 基准用的合成数据：固定种子，同样的参数每次生成同样的画像 / 轨迹。
+ * 边 i 连 (src, dst) = (NODE_BASE + i / FANOUT, NODE_BASE + i % FANOUT)，每条边每 STEP_SEC 秒一行。
+ */
+public final class Synthetic {
+
+    public static final int NODE_BASE = 100;
+    public static final int FANOUT = 64;
+    public static final double STEP_SEC = 1.0;
+
+    private Synthetic(){ }
+
+    public static int src(int edge){ return NODE_BASE + edge / FANOUT; }
+    public static int dst(int edge){ return NODE_BASE + edge % FANOUT; }
+
+    /** edges 条边、每条 rowsPerEdge 行的画像（已 seal） */
+    public static NetworkProfileCsv profile(int edges, int rowsPerEdge, long seed){
+        SplittableRandom rnd = new SplittableRandom(seed);
+        NetworkProfileCsv np = new NetworkProfileCsv();
+        for (int r = 0; r < rowsPerEdge; r++) {
+            for (int e = 0; e < edges; e++) {
+                np.put(src(e), dst(e), r * STEP_SEC, metrics(rnd));
+            }
+        }
+        return np.seal();
+    }
+
+    /** 按时间递增写一份 rows 行的画像 CSV（列同 NetworkProfileCsv），约 10^4 行 / 0.4 MB */
+    public static Path writeCsv(Path file, long rows, int edges, long seed) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        StringBuilder sb = new StringBuilder(96);
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            w.write("# t_start,src,dst,rtt_ms,up_mbps,down_mbps,loss,up_flag\n");
+            for (long i = 0; i < rows; i++) {
+                int e = (int) (i % edges);
+                LinkMetrics m = metrics(rnd);
+                sb.setLength(0);
+                sb.append((i / edges) * STEP_SEC).append(',').append(src(e)).append(',').append(dst(e)).append(',')
+                  .append(m.getRttMs()).append(',').append(m.getBwUpMbps()).append(',').append(m.getBwDownMbps()).append(',')
+                  .append(m.getLoss()).append(',').append(m.isUp() ? 1 : 0).append('\n');
+                w.append(sb);
+            }
+        }
+        return file;
+    }
+
+    /** 策略进程回的 action：前 assigns 个任务（id 从 firstId 起）轮流分到 vmIds，外加 patches 条 link_patch */
+    public static byte[] actionJson(long k, long firstId, int assigns, long[] vmIds, int patches, int edges, long seed){
+        SplittableRandom rnd = new SplittableRandom(seed);
+        StringBuilder sb = new StringBuilder(64 + assigns * 32 + patches * 128);
+        sb.append("{\"k\":").append(k).append(",\"assign\":[");
+        for (int i = 0; i < assigns; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"cloudlet_id\":").append(firstId + i)
+              .append(",\"vm_id\":").append(vmIds[i % vmIds.length]).append('}');
+        }
+        sb.append("],\"link_patch\":[");
+        for (int i = 0; i < patches; i++) {
+            int e = rnd.nextInt(edges);
+            LinkMetrics m = metrics(rnd);
+            if (i > 0) sb.append(',');
+            sb.append("{\"src\":").append(src(e)).append(",\"dst\":").append(dst(e))
+              .append(",\"t_start\":").append(k * STEP_SEC)
+              .append(",\"rtt_ms\":").append(m.getRttMs())
+              .append(",\"bw_up_mbps\":").append(m.getBwUpMbps())
+              .append(",\"bw_down_mbps\":").append(m.getBwDownMbps())
+              .append(",\"loss\":").append(m.getLoss())
+              .append(",\"up\":").append(m.isUp() ? 1 : 0).append('}');
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** 一条看起来像星地链路的随机指标（约 5% 断链） */
+    public static LinkMetrics metrics(SplittableRandom rnd){
+        double rtt = 20 + rnd.nextDouble() * 80;
+        double up = 50 + rnd.nextDouble() * 450;
+        double down = up * (1 + rnd.nextDouble() * 2);
+        double loss = rnd.nextDouble() * 0.05;
+        return new LinkMetrics(Math.rint(rtt * 10) / 10, Math.rint(up), Math.rint(down),
+                Math.rint(loss * 1e4) / 1e4, rnd.nextDouble() >= 0.05);
+    }
+}
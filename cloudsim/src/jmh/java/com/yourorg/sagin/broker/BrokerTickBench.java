@@ -0,0 +1,112 @@
+package com.yourorg.sagin.broker;
+
+import com.yourorg.sagin.bench.LoopbackTransport;
+import com.yourorg.sagin.bench.Synthetic;
+import com.yourorg.sagin.io.StateFormat;
+import com.yourorg.sagin.sched.CloudletSchedulerX;
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.DatacenterSimple;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.hosts.HostSimple;
+import org.cloudsimplus.resources.Pe;
+import org.cloudsimplus.resources.PeSimple;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+import org.cloudsimplus.util.Log;
+import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * STHGNNBroker 一个完整 tick（画像游标推进 + 路由刷新 + 索引同步 + 完成任务结算 + 建快照 + 编码 state
+ * + 解析 action + 应用 assign / link_patch），不经 CloudSim 事件循环，直接调 onTick。
+ *
+ * 拓扑同 SagEnv（2 主机、VM 101 / 201，2 + 1 个 PE）；先把仿真跑到 VM 建好、depth 个长任务都提交到 VM 上，
+ * 之后冻结时钟，每次调用把 tick 时刻往前推一格。空间共享调度下同时只有 3 个任务在跑，其余在 VM 队列里等，
+ * depth 量的是 broker 每 tick 要扫的未完成任务数（队列深度），不是并发执行数。action 的 assign 指向不存在的任务（只走解析和查表，不改绑），
+ * 不带 link_patch（另见 LinkPatchBench），保证每次迭代的状态相同。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BrokerTickBench {
+
+    private static final long[] VM_IDS = {101, 201};
+    private static final double TICK_SEC = 1.0;
+    /** action 里 assign 的条数上限 */
+    private static final int ASSIGNS = 64;
+
+    @Param({"100", "1000", "10000"})
+    public int depth;
+
+    @Param({"BINARY", "JSON"})
+    public StateFormat format;
+
+    private STHGNNBroker broker;
+    private double time;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        Log.setLevel(ch.qos.logback.classic.Level.WARN);
+        CloudSimPlus sim = new CloudSimPlus();
+        new DatacenterSimple(sim, hosts(), new VmAllocationPolicySimple());
+
+        long firstMissing = 1L << 40;
+        LoopbackTransport transport = new LoopbackTransport(
+                Synthetic.actionJson(0, firstMissing, Math.min(depth, ASSIGNS), VM_IDS, 0, 1, 42));
+        broker = new STHGNNBroker(sim, Path.of("bridge"), TICK_SEC, transport);
+        broker.setStateFormat(format);
+
+        List<Vm> vms = new ArrayList<>();
+        for (int i = 0; i < VM_IDS.length; i++) {
+            Vm vm = new VmSimple(10_000, 2 - i).setRam(64_000).setBw(500_000).setSize(10_000)
+                    .setCloudletScheduler(new CloudletSchedulerX());
+            vm.setId(VM_IDS[i]);
+            vms.add(vm);
+        }
+        broker.submitVmList(vms);
+
+        sim.startSync();
+        while (broker.getVmCreatedList().size() < VM_IDS.length) sim.runFor(TICK_SEC);
+
+        List<Cloudlet> cls = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            Cloudlet c = new CloudletSimple(i, Long.MAX_VALUE / 4, 1)
+                    .setFileSize(500_000).setOutputSize(50_000)
+                    .setUtilizationModelCpu(new UtilizationModelFull());
+            cls.add(c);
+        }
+        broker.submitCloudletList(cls);
+        sim.runFor(TICK_SEC);
+        time = sim.clock();
+    }
+
+    @Benchmark
+    public STHGNNBroker tick(){
+        time += TICK_SEC;
+        broker.onTick(time);
+        return broker;
+    }
+
+    private static List<Host> hosts(){
+        List<Host> hs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            List<Pe> pes = new ArrayList<>();
+            for (int p = 0; p < 8; p++) pes.add(new PeSimple(10_000));
+            HostSimple h = new HostSimple(128_000, 1_000_000, 1_000_000, pes);
+            h.setId(1 + i);
+            hs.add(h);
+        }
+        return hs;
+    }
+}
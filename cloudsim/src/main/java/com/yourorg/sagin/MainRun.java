@@ -1,9 +1,20 @@
 package com.yourorg.sagin;
 
 import com.yourorg.sagin.broker.STHGNNBroker;
+import com.yourorg.sagin.energy.EnergyMeter;
+import com.yourorg.sagin.model.NodeRegistry;
 import com.yourorg.sagin.gen.PoissonTaskGenerator;
+import com.yourorg.sagin.gen.TraceReplayGenerator;
+import com.yourorg.sagin.io.BridgeTransport;
+import com.yourorg.sagin.io.PipelinedBridge;
+import com.yourorg.sagin.io.ResultsSink;
+import com.yourorg.sagin.io.StateFormat;
+import com.yourorg.sagin.metrics.MetricsReporter;
+import com.yourorg.sagin.net.MappedNetworkProfile;
 import com.yourorg.sagin.net.NetworkProfile;
 import com.yourorg.sagin.net.NetworkProfileCsv;
+import com.yourorg.sagin.policy.StHgnnPolicy;
+import com.yourorg.sagin.sched.CloudletSchedulerX;
 
 import org.cloudsimplus.core.CloudSimPlus;
 import org.cloudsimplus.core.Simulation;
@@ -18,7 +29,6 @@ import org.cloudsimplus.power.models.PowerModelHostSimple;
 import org.cloudsimplus.resources.Pe;
 import org.cloudsimplus.resources.PeSimple;
 
-import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerSpaceShared;
 
 import org.cloudsimplus.cloudlets.Cloudlet;
 import org.cloudsimplus.cloudlets.CloudletSimple;
@@ -33,7 +43,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class MainRun {
 
@@ -53,12 +62,13 @@ public class MainRun {
     private static final double HOST_IDLE_RATIO       = 0.50;  // 空载功率比例
     private static final double HOST_STATIC_POWER_W   = HOST_MAX_POWER_W * HOST_IDLE_RATIO;
 
-    // ------------ 网络能耗(演示常数) ------------
-    private static final double JOULE_PER_BIT = 0.1e-6; // 0.1 微焦/比特，仅演示
-
-    // 任务“软”截止时间预算（秒），供打印展示
+    // 任务“软”截止时间预算（秒）：deadline = 到达 + 预算，统计超时率用
     private static final double DEADLINE_BUDGET_SEC = 20.0;
 
+    // 演示 Cloudlet 的 id 号段 [DEMO_ID_BASE, DEMO_ID_BASE + DEMO_COUNT)；生成器从号段之后开始分配
+    private static final long DEMO_ID_BASE = 1000;
+    private static final int  DEMO_COUNT   = 6;
+
     public static void main(String[] args) {
         // 1) 仿真引擎
         Simulation sim = new CloudSimPlus();
@@ -68,63 +78,89 @@ public class MainRun {
         List<Host> hosts = createHosts(2);
         DatacenterSimple dc = new DatacenterSimple(sim, hosts, new VmAllocationPolicySimple());
 
-        // 3) Broker
+        // 3) Broker（桥接模式：-Dsagin.bridge=file|mmap|socket[:addr]，默认 file；
+        //    -Dsagin.policy=权重文件（*.sgpw / *.npz）时进程内推理，桥接默认 none）
+        //    网络画像：-Dsagin.net.profile=*.csv / *.sgnp，默认带的演示画像（节点 id 与 mapping.yaml 对应）；
+        //    上下行时延、路由、link_patch 都基于它
+        String policyPath = System.getProperty("sagin.policy");
         Path bridgeDir = Paths.get("bridge");
-        STHGNNBroker broker = new STHGNNBroker(sim, bridgeDir, 1.0);
-
-        // 4) 网络画像（可选 CSV，若不存在则空画像）——加载但不在此直接使用
-        loadNetworkProfileCsv(Paths.get("cloudsim", "src", "main", "resources", "network", "network_profile.csv"));
-
-        // 5) VM（mips=10_000 与主机核能力匹配）
+        NetworkProfile profile = loadNetworkProfile(Paths.get(System.getProperty("sagin.net.profile",
+                Paths.get("cloudsim", "src", "main", "resources", "network", "demo_profile.csv").toString())));
+        STHGNNBroker broker = new STHGNNBroker(sim, bridgeDir, 1.0,
+                openBridge(bridgeDir, policyPath == null || policyPath.isBlank() ? "file" : "none"), profile);
+        if (policyPath != null && !policyPath.isBlank()) broker.setPolicy(loadPolicy(policyPath));
+        broker.setStateFormat(StateFormat.parse(System.getProperty("sagin.state", "json"))); // json | bin
+        broker.setIncrementalState(Integer.getInteger("sagin.state.keyframe", 0));          // 0 = 每 tick 全量
+        broker.setPipelined(Integer.getInteger("sagin.bridge.lag", 0),                        // 0 = 同步
+                PipelinedBridge.LatePolicy.parse(System.getProperty("sagin.bridge.late", "drop")));
+        broker.setFlowModel(Boolean.getBoolean("sagin.net.flows"));                         // 并发传输共享带宽
+        // 结果流水线：在线统计 + 可选结果日志（*.csv / *.sgrl，可加 .gz）；有日志时默认完成即释放（长时运行）
+        String resultsPath = System.getProperty("sagin.results.log");
+        ResultsSink results = openResults(resultsPath);
+        broker.setResultsSink(results)
+              .setRetireFinished(Boolean.parseBoolean(System.getProperty("sagin.results.retire", String.valueOf(resultsPath != null))))
+              .setDeadlineBudget(DEADLINE_BUDGET_SEC);
+
+        // 3b) 节点映射（Cloudlet / VM → 节点 id；没有文件就用占位规则）
+        NodeRegistry nodes = NodeRegistry.loadOrEmpty(Paths.get("cloudsim", "src", "main", "resources", "mapping.yaml"));
+        broker.setNodeRegistry(nodes);
+
+        // 4) VM（mips=10_000 与主机核能力匹配）
         List<Vm> vms = new ArrayList<>();
         Vm vmGs = new VmSimple(/*mips*/10_000, /*pes*/2)
                 .setRam(VM_RAM_MB).setBw(VM_BW).setSize(VM_STO)
-                .setCloudletScheduler(new CloudletSchedulerSpaceShared());
+                .setCloudletScheduler(new CloudletSchedulerX());
         vmGs.setId(101);
 
         Vm vmSat = new VmSimple(/*mips*/10_000, /*pes*/1)
                 .setRam(VM_RAM_MB).setBw(VM_BW).setSize(VM_STO)
-                .setCloudletScheduler(new CloudletSchedulerSpaceShared());
+                .setCloudletScheduler(new CloudletSchedulerX());
         vmSat.setId(201);
 
         vms.add(vmGs);
         vms.add(vmSat);
         broker.submitVmList(vms);
 
-        // 6) 任务生成器（与你仓库一致）
-        PoissonTaskGenerator gen = new PoissonTaskGenerator(sim, broker);
-        gen.lambdaGs(0.15).lambdaSat(0.10);
+        // 5) 任务来源：-Dsagin.tasks.trace=轨迹 CSV（可 .gz）时回放轨迹，否则泊松生成（与你仓库一致）
+        String tracePath = System.getProperty("sagin.tasks.trace");
+        TraceReplayGenerator replay = null;
+        if (tracePath != null && !tracePath.isBlank()) {
+            replay = new TraceReplayGenerator(sim, broker, Paths.get(tracePath)).idBase(DEMO_ID_BASE + DEMO_COUNT);
+        } else {
+            new PoissonTaskGenerator(sim, broker).lambdaGs(0.15).lambdaSat(0.10).idBase(DEMO_ID_BASE + DEMO_COUNT);
+        }
 
         // === 为了立刻看到“任务明细”，追加一批演示 Cloudlet（可随时删除这段） ===
-        List<Cloudlet> demo = demoCloudlets(sim);
-        Map<Long, Double> deadlineMap = demo.stream()
-                .collect(Collectors.toMap(Cloudlet::getId,
-                        c -> c.getSubmissionDelay() + DEADLINE_BUDGET_SEC));
-        broker.submitCloudletList(demo);
+        broker.submitCloudletList(demoCloudlets(sim));
         // ========================================================
 
-        // 7) 能耗统计（CPU + 粗略网络），分主机统计
-        final double[] lastT = {0.0};
-        Map<Long, Double> hostEnergyJ = new LinkedHashMap<>(); // key=hostId
-        for (Host h : hosts) hostEnergyJ.put(h.getId(), 0.0);
-
-        sim.addOnClockTickListener(ev -> {
-            double t  = sim.clock();
-            double dt = Math.max(0.0, t - lastT[0]); // 秒
-            lastT[0]  = t;
-
-            for (Host h: dc.getHostList()){
-                double util = h.getCpuPercentUtilization(); // 0~1
-                double w    = h.getPowerModel().getPower(util); // W（注意：这里不再强转 HostSimple）
-                hostEnergyJ.put(h.getId(), hostEnergyJ.get(h.getId()) + w * dt);
-            }
-        });
-
-        // 8) 跑
-        sim.start();
+        // 6) 能耗统计（主机 / VM / 链路）：broker 的 EnergyMeter 按利用率变化事件积分，不再每 tick 遍历主机
+        EnergyMeter energy = broker.getEnergyMeter().trackHosts(dc.getHostList());
+
+        // 6b) 指标：默认注册 JMX（-Dsagin.metrics.jmx=false 关）；-Dsagin.metrics.file=… 时每 sagin.metrics.interval 秒追加一行
+        if (Boolean.parseBoolean(System.getProperty("sagin.metrics.jmx", "true"))) broker.getMetrics().registerJmx("main");
+        MetricsReporter metricsDump = openMetrics(broker);
+
+        // 7) 跑
+        try {
+            sim.start();
+        } finally {
+            broker.closeBridge();
+            if (replay != null) replay.close();
+            results.close();
+            if (metricsDump != null) metricsDump.close();
+            broker.getMetrics().unregisterJmx();
+        }
+        if (replay != null) System.out.println("\n" + replay);
+        if (broker.getPipeline() != null) System.out.println("\n" + broker.getPipeline());
+        if (broker.getFlowNetwork() != null) System.out.println("\n" + broker.getFlowNetwork());
+        System.out.println("\n===== Tick Phases =====");
+        System.out.print(broker.getMetrics().summary());
+        if (metricsDump != null) System.out.println("metrics -> " + metricsDump.getFile());
 
         // ------- 打印 VM→Host 绑定 -------
         System.out.println("\n===== VM → Host Bindings =====");
+        System.out.println(nodes);
         for (Vm vm : vms) {
             Host h = vm.getHost();
             System.out.printf("VM %d -> Host %d | mips=%,.0f x %d PE, RAM=%dMB, BW=%dB/s%n",
@@ -136,46 +172,27 @@ public class MainRun {
                     vm.getBw().getCapacity());
         }
 
-        // ------- 打印 Cloudlet 明细 -------
-        var finished = broker.getCloudletFinishedList();
-        finished.sort(Comparator.comparingLong(Cloudlet::getId));
-
+        // ------- 任务汇总（ResultsSink 边跑边统计，这里 O(1) 取数；逐条明细在结果日志里） -------
         System.out.println("\n===== Cloudlet Execution Summary =====");
-        if (finished.isEmpty()){
+        if (results.getStats().count() == 0){
             System.out.println("(no cloudlets were executed)");
         }else{
-            System.out.printf("%-6s %-6s %-6s %8s %8s %8s %8s %8s%n",
-                    "CL", "VM", "HOST", "r(sec)", "start", "finish", "run", "deadline");
-            for (Cloudlet c : finished){
-                Vm   vm = c.getVm();
-                Host h  = vm == null ? null : vm.getHost();
-                double r   = c.getSubmissionDelay();
-                double st  = c.getExecStartTime();
-                double ft  = c.getFinishTime();
-                double run = Math.max(0.0, ft - st);
-                Double ddl = deadlineMap.getOrDefault(c.getId(), Double.NaN);
-
-                System.out.printf("%-6d %-6d %-6d %8.3f %8.3f %8.3f %8.3f %8.3f%n",
-                        c.getId(),
-                        vm == null ? -1 : vm.getId(),
-                        h  == null ? -1 : h.getId(),
-                        r, st, ft, run, ddl);
-            }
+            System.out.print(results.getStats().summary());
         }
+        if (results.getLog() != null) System.out.println("records -> " + results.getLog());
 
-        // ------- 估算网络能耗（按 Cloudlet 的 input+output 字节） -------
-        long totalBytes = finished.stream()
-                .mapToLong(c -> c.getFileSize() + c.getOutputSize())
-                .sum();
-        double netEnergyJ = totalBytes * 8.0 * JOULE_PER_BIT;
+        // ------- 网络能耗（EnergyMeter 逐跳按 bit 计） -------
+        double netEnergyJ = energy.netEnergyJ();
 
         // ------- 能耗汇总 -------
         System.out.println("\n===== Energy Summary =====");
+        double now = sim.clock();
         double hostTotalJ = 0.0;
-        for (var e : hostEnergyJ.entrySet()){
-            hostTotalJ += e.getValue();
+        for (int i = 0; i < energy.hostCount(); i++){
+            double j = energy.hostEnergyJ(i, now);
+            hostTotalJ += j;
             System.out.printf("Host %d energy: %.6f J (%.6f Wh)%n",
-                    e.getKey(), e.getValue(), e.getValue()/3600.0);
+                    energy.hostId(i), j, j/3600.0);
         }
         System.out.printf("TOTAL host energy: %.6f J (%.6f Wh, %.6f kJ)%n",
                 hostTotalJ, hostTotalJ/3600.0, hostTotalJ/1000.0);
@@ -203,13 +220,53 @@ public class MainRun {
         return hs;
     }
 
-    private static NetworkProfile loadNetworkProfileCsv(Path csv){
+    private static BridgeTransport openBridge(Path bridgeDir, String defaultMode){
+        String mode = System.getProperty("sagin.bridge", defaultMode);
+        try {
+            return BridgeTransport.open(mode, bridgeDir);
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("cannot open bridge (" + mode + ")", e);
+        }
+    }
+
+    private static StHgnnPolicy loadPolicy(String path){
+        try {
+            StHgnnPolicy p = StHgnnPolicy.load(Paths.get(path));
+            System.out.println(p + " <- " + path);
+            return p;
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("cannot load policy weights: " + path, e);
+        }
+    }
+
+    private static ResultsSink openResults(String path){
+        try {
+            return ResultsSink.open(path == null || path.isBlank() ? null : Paths.get(path));
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("cannot create result log: " + path, e);
+        }
+    }
+
+    private static MetricsReporter openMetrics(STHGNNBroker broker){
+        String path = System.getProperty("sagin.metrics.file");
+        if (path == null || path.isBlank()) return null;
+        double interval = Double.parseDouble(System.getProperty("sagin.metrics.interval", "10"));
+        return MetricsReporter.start(broker.getMetrics(), Paths.get(path), interval);
+    }
+
+    private static NetworkProfile loadNetworkProfile(Path csv){
         try{
             if(Files.exists(csv)){
-                return NetworkProfileCsv.loadCsv(csv);
+                // 预编译的二进制画像直接映射，否则解析 CSV
+                return csv.toString().endsWith(MappedNetworkProfile.EXT)
+                        ? MappedNetworkProfile.open(csv)
+                        : NetworkProfileCsv.loadCsv(csv);
             }
-        }catch(Exception ignore){}
-        return new NetworkProfileCsv(); // 没 CSV 就给一个空实现
+        }catch(Exception e){
+            throw new RuntimeException("cannot load network profile: " + csv, e);
+        }
+        System.err.println("[MainRun] no network profile at " + csv + ", all links unavailable");
+        return new NetworkProfileCsv(); // 没画像就给一个空实现
     }
 
     /** 追加一批“演示用”的 Cloudlet，保证你能看到任务明细（随时可以删） */
@@ -219,7 +276,7 @@ public class MainRun {
         var uRam = new UtilizationModelDynamic(0.25); // 25% 平均
         var uBw  = new UtilizationModelDynamic(0.35); // 35% 平均
 
-        int n = 6;                  // 6 个 cloudlet
+        int n = DEMO_COUNT;         // 6 个 cloudlet
         long lenMI = 12_000;        // 计算量（MI）
         int  pes   = 1;
         long inB   = 2_000;         // 输入/输出字节
@@ -232,7 +289,7 @@ public class MainRun {
             c.setUtilizationModelRam(uRam);
             c.setUtilizationModelBw(uBw);
             c.setSubmissionDelay(i * 1.0); // r：每1秒放一个
-            c.setId(1000 + i);
+            c.setId(DEMO_ID_BASE + i);
             list.add(c);
         }
         return list;
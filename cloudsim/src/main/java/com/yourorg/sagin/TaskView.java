@@ -1,4 +0,0 @@
-package com.yourorg.sagin;
-
-public class TaskView {
-}
@@ -0,0 +1,216 @@
+package com.yourorg.sagin.broker;
+
+import com.yourorg.sagin.energy.EnergyMeter;
+import com.yourorg.sagin.model.TaskTable;
+import com.yourorg.sagin.util.LongIntHashMap;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.vms.Vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * broker 的原生索引：cloudletId → 槽位（TaskTable 的行 + Cloudlet 引用）、vmId → VM、每个 VM 上正在跑的 Cloudlet 数。
+ * 由 Cloudlet 的 start/finish 监听增量维护，tick 里只处理变化量，不再扫描 CloudSim 的各个列表；
+ * 同一组监听顺带把利用率变化报给 EnergyMeter。
+ * 长时运行时已写出结果的任务由 retire 释放：id 映射、Cloudlet 引用和任务表的行一起放掉，槽位给后来的任务复用。
+ * 只在仿真线程里用。
+ */
+final class BrokerIndex {
+
+    /* ---------- Cloudlet（槽位与 TaskTable 的行一一对应）---------- */
+    private final TaskTable tasks = new TaskTable();
+    private final LongIntHashMap cloudletSlot = new LongIntHashMap(256);
+    private Cloudlet[] cloudlets = new Cloudlet[256];
+    private int[] vmOf = new int[256];          // 开始运行时所在 VM 的下标，-1 = 还没开始
+    private int[] stamp = new int[256];         // 打标用（每次遍历换一个 stamp，不必清数组）
+    private int curStamp;
+
+    /** 自上次 drainFinished 以来完成的 Cloudlet */
+    private List<Cloudlet> finished = new ArrayList<>();
+    private List<Cloudlet> drained = new ArrayList<>();
+
+    /* ---------- VM ---------- */
+    private final LongIntHashMap vmSlot = new LongIntHashMap(16);
+    private Vm[] vms = new Vm[16];
+    private int[] running = new int[16];
+    private int nVms;
+    private int vmsSynced;
+
+    private final EnergyMeter energy;
+
+    BrokerIndex(EnergyMeter energy){
+        this.energy = energy;
+    }
+
+    /* ======================= Cloudlet ======================= */
+
+    /**
+     * 第一次见到的 Cloudlet 登记进任务表并挂上监听；重复提交（重新分配）只刷新绑定的 VM。
+     * 到达时刻 = now + submissionDelay，deadline = 到达 + deadlineBudget。
+     * id 已被另一个还没释放的 Cloudlet 占用时抛 IllegalArgumentException（否则旧任务的行会成孤儿）。
+     */
+    void register(Cloudlet c, int srcNode, double now, double deadlineBudget){
+        int s = cloudletSlot.get(c.getId());
+        if (s >= 0) {
+            if (cloudlets[s] != c) {
+                throw new IllegalArgumentException("duplicate cloudlet id " + c.getId()
+                        + ": already registered to another cloudlet that has not been retired");
+            }
+            tasks.assign(s, c.getVm().getId());
+            return;
+        }
+
+        double arrival = now + c.getSubmissionDelay();
+        s = tasks.add(c.getId(), c.getLength(), c.getFileSize(), c.getOutputSize(),
+                arrival, arrival + deadlineBudget, srcNode, c.getVm().getId());
+        if (s == cloudlets.length) grow(s * 2);
+        cloudlets[s] = c;
+        vmOf[s] = -1;
+        cloudletSlot.put(c.getId(), s);
+        if (c.isFinished()) tasks.finish(s, c.getFinishTime());
+
+        final int slot = s;
+        c.addOnStartListener(ev -> onStart(slot, c, ev.getVm(), ev.getTime()));
+        c.addOnFinishListener(ev -> onFinish(slot, c, ev.getTime()));
+    }
+
+    // 槽位可能已被释放并给了别的任务，先核对是不是同一个 Cloudlet
+    private void onStart(int s, Cloudlet c, Vm vm, double t){
+        if (cloudlets[s] != c || tasks.phase(s) != TaskTable.SUBMITTED) return;
+        tasks.start(s, vm == null ? -1 : vm.getId());
+        int v = vmIndex(vm);
+        vmOf[s] = v;
+        if (v >= 0) running[v]++;
+        energy.cloudletStarted(vm, (int) cloudlets[s].getPesNumber(), t);
+    }
+
+    private void onFinish(int s, Cloudlet c, double t){
+        if (cloudlets[s] != c || tasks.phase(s) == TaskTable.FINISHED) return;
+        if (vmOf[s] >= 0) {
+            running[vmOf[s]]--;
+            energy.cloudletFinished(vms[vmOf[s]], (int) cloudlets[s].getPesNumber(), t);
+        }
+        tasks.finish(s, t);
+        finished.add(cloudlets[s]);
+    }
+
+    /** id 对应的未完成 Cloudlet；不存在或已完成返回 null */
+    Cloudlet findUnfinished(long id){
+        int s = cloudletSlot.get(id);
+        return s < 0 || tasks.phase(s) == TaskTable.FINISHED ? null : cloudlets[s];
+    }
+
+    /** 覆盖来源节点与 deadline（NaN = 保留默认）；没登记过的 id 忽略 */
+    void annotate(long id, int srcNode, double deadline){
+        int s = cloudletSlot.get(id);
+        if (s < 0) return;
+        tasks.setSrcNode(s, srcNode);
+        if (!Double.isNaN(deadline)) tasks.setDeadline(s, deadline);
+    }
+
+    /** 任务表里记录的来源节点；没登记过返回 Integer.MIN_VALUE */
+    int srcNode(long id){
+        int s = cloudletSlot.get(id);
+        return s < 0 ? Integer.MIN_VALUE : tasks.srcNode(s);
+    }
+
+    /** 结果在 t 送回来源节点 */
+    void delivered(Cloudlet c, double t){
+        int s = slotOf(c);
+        if (s >= 0) tasks.deliver(s, t);
+    }
+
+    /** 给任务记上链路比特数（已按跳数乘过） */
+    void linkBits(Cloudlet c, double bits){
+        int s = slotOf(c);
+        if (s >= 0) tasks.addLinkBits(s, bits);
+    }
+
+    /** c 在任务表里的槽位；没登记过或已释放返回 -1 */
+    int slotOf(Cloudlet c){
+        int s = cloudletSlot.get(c.getId());
+        return s >= 0 && cloudlets[s] == c ? s : -1;
+    }
+
+    /** 释放已完成的任务（id 映射、Cloudlet 引用、任务表的行）；没完成或已释放返回 false */
+    boolean retire(Cloudlet c){
+        int s = slotOf(c);
+        if (s < 0 || tasks.phase(s) != TaskTable.FINISHED) return false;
+        cloudletSlot.remove(c.getId());
+        cloudlets[s] = null;
+        vmOf[s] = -1;
+        tasks.release(s);
+        return true;
+    }
+
+    /** 已经 retire 过（或从没登记过）的 Cloudlet */
+    boolean isRetired(Cloudlet c){ return slotOf(c) < 0; }
+
+    /** 取走自上次调用以来完成的 Cloudlet（返回的列表下次调用前有效） */
+    List<Cloudlet> drainFinished(){
+        List<Cloudlet> out = finished;
+        finished = drained;
+        drained = out;
+        finished.clear();
+        return out;
+    }
+
+    TaskTable tasks(){ return tasks; }
+
+    /** 开一轮打标：之后 mark(c) 的 Cloudlet 在本轮 isMarked 为真 */
+    void newStamp(){
+        if (++curStamp == Integer.MAX_VALUE) { Arrays.fill(stamp, 0); curStamp = 1; }
+    }
+
+    void mark(Cloudlet c){
+        int s = cloudletSlot.get(c.getId());
+        if (s >= 0) stamp[s] = curStamp;
+    }
+
+    boolean isMarked(int slot){ return stamp[slot] == curStamp; }
+
+    private void grow(int n){
+        cloudlets = Arrays.copyOf(cloudlets, n);
+        vmOf = Arrays.copyOf(vmOf, n);
+        stamp = Arrays.copyOf(stamp, n);
+    }
+
+    /* ======================= VM ======================= */
+
+    /** 已创建 VM 列表只增不减时，按长度增量同步 */
+    void syncVms(List<? extends Vm> created, double t){
+        for (; vmsSynced < created.size(); vmsSynced++) {
+            Vm vm = created.get(vmsSynced);
+            vmIndex(vm);
+            energy.trackVm(vm, t);
+        }
+    }
+
+    Vm vm(long id){
+        int v = vmSlot.get(id);
+        return v < 0 ? null : vms[v];
+    }
+
+    /** VM 上正在运行的 Cloudlet 数 */
+    int running(Vm vm){
+        int v = vmSlot.get(vm.getId());
+        return v < 0 ? 0 : running[v];
+    }
+
+    private int vmIndex(Vm vm){
+        if (vm == null || vm == Vm.NULL) return -1;
+        int v = vmSlot.get(vm.getId());
+        if (v >= 0) return v;
+        v = nVms++;
+        if (v == vms.length) {
+            vms = Arrays.copyOf(vms, v * 2);
+            running = Arrays.copyOf(running, v * 2);
+        }
+        vms[v] = vm;
+        vmSlot.put(vm.getId(), v);
+        return v;
+    }
+}
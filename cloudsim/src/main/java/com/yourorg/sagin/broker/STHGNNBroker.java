@@ -1,155 +1,432 @@
 package com.yourorg.sagin.broker;
 
+import com.yourorg.sagin.energy.EnergyMeter;
 import com.yourorg.sagin.io.ActionReader;
+import com.yourorg.sagin.io.BridgeTransport;
+import com.yourorg.sagin.io.FileBridgeTransport;
+import com.yourorg.sagin.io.PipelinedBridge;
+import com.yourorg.sagin.io.ResultsSink;
+import com.yourorg.sagin.io.ResultRecord;
+import com.yourorg.sagin.io.StateFormat;
+import com.yourorg.sagin.io.StateSnapshot;
 import com.yourorg.sagin.io.StateWriter;
+import com.yourorg.sagin.metrics.TickMetrics;
+import com.yourorg.sagin.metrics.TickMetrics.Phase;
+import com.yourorg.sagin.model.NodeRegistry;
+import com.yourorg.sagin.model.TaskTable;
+import com.yourorg.sagin.model.TaskView;
+import com.yourorg.sagin.net.FlowNetwork;
 import com.yourorg.sagin.net.LinkMetrics;
 import com.yourorg.sagin.net.LinkPatchApplier;
 import com.yourorg.sagin.net.NetworkProfile;
+import com.yourorg.sagin.net.Router;
+import com.yourorg.sagin.policy.Assignments;
+import com.yourorg.sagin.policy.InferencePolicy;
+import com.yourorg.sagin.sched.CloudletSchedulerX;
 
+import org.cloudsimplus.brokers.DatacenterBroker;
 import org.cloudsimplus.brokers.DatacenterBrokerSimple;
 import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.core.CloudSimTag;
 import org.cloudsimplus.core.Simulation;
 import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.events.SimEvent;
+import org.cloudsimplus.hosts.Host;
 import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 /**
  * STHGNNBroker（签名对齐你的工程）
- * - 每 tick：累计 CPU 能耗；写 state_{k}.json；读 action_{k}.json 并应用
- * - 网络能耗：按 bit 计（常数 J_PER_BIT），上行在提交时累加，下行在 Cloudlet 完成后(在 tick 中扫描)累加
- * - 时延：由 NetworkProfile.link(u,v,t) 获取链路指标后粗算
+ * - 每 tick：填 StateSnapshot 并发布 state（JSON / 二进制列式）；读 action 并应用
+ * - 能耗：EnergyMeter 在 Cloudlet 开始/结束时分段积分 VM / 主机功率，state 里取快照（不再按 tick 采样）
+ * - 可选流水线模式：state 在后台线程编码发布，第 k 步的 action 在第 k+lag 个 tick 应用（仿真不等 agent）
+ * - 网络能耗：按 bit 计（EnergyMeter.J_PER_BIT，逐跳计入链路），上行在分配时累加，下行在 Cloudlet 完成后累加
+ * - 时延：Router 在时变链路图上找多跳路径（按拓扑 epoch 缓存），没有路径时退回直连 link(u,v,t) 粗算
+ *   直连边也不可用时不编时延（流级模型下也不起流）：上行分配被拒绝，结果记为送不回（getResultsUndeliverable）
+ * - 索引：cloudletId / vmId / 每 VM 运行数由 BrokerIndex 按生命周期监听增量维护，分配结果每 tick 批量提交
+ * - 可选流级模型（setFlowModel）：上/下行传输按 max-min 公平共享链路带宽，上行传完（+RTT）才提交 Cloudlet
+ * - 三段估时：VM 用 CloudletSchedulerX 时，派发即按上行完成时刻预约执行段；expectedCompletion 给出
+ *   上行 + 排队 + 执行 + 下行的预计送回时刻（O(1)，供分配策略逐候选比较）
+ * - 结果流水线（setResultsSink）：结果送回时任务写成一条 ResultRecord 交给 ResultsSink（在线统计 + 结果日志）；
+ *   长时运行（setRetireFinished）时随即从任务表、broker 与 VM 调度器的各个列表里释放，
+ *   内存只跟在途任务数有关，与已完成的任务数无关
+ * - 指标（getMetrics）：tick 各阶段耗时直方图、等 action 的次数 / 超时 / 空动作回退、每 tick 分配量
+ * - 进程内推理（setPolicy）：快照直接交给 InferencePolicy（如加载训练好权重的 StHgnnPolicy），
+ *   决策当场应用，不写 state、不等 action，也就不跨进程
  */
 public class STHGNNBroker extends DatacenterBrokerSimple {
 
     private final Path bridgeDir;
     private final double tickSeconds;
 
+    private final BridgeTransport transport;
     private final StateWriter stateWriter;
     private final ActionReader actionReader;
-
-    /** 处理 link_patch；内部自带一个可变的 NetworkProfile 实例 */
-    public final LinkPatchApplier linkApplier = new LinkPatchApplier();
-    public final NetworkProfile profile = linkApplier.profile;
+    /** 每 tick 复用的状态快照（原生列存，不再逐个构造 Map） */
+    private final StateSnapshot snapshot = new StateSnapshot();
+    /** null = 同步模式（写 state → 等 action → 应用，全部在时钟回调里串行） */
+    private PipelinedBridge pipeline;
+    /** 非空时走进程内推理，不经桥接 */
+    private InferencePolicy policy;
+    private final Assignments decisions = new Assignments();
+
+    /** 处理 link_patch；默认内部自带一个可变的 NetworkProfile 实例 */
+    public final LinkPatchApplier linkApplier;
+    public final NetworkProfile profile;
+    /** 多跳路由（每 tick refresh 一次，拓扑不变时复用缓存的路径） */
+    private final Router router;
+    /** null = 不建模并发（上行按独占带宽算一个固定提交延迟） */
+    private FlowNetwork flows;
+    /** 正在上行的 Cloudlet（传完前不接受重复分配） */
+    private final Set<Long> uploading = new HashSet<>();
+    /** 已安排的最早一次流完成事件时刻 */
+    private double flowTimerAt = Double.POSITIVE_INFINITY;
+    private static final Object FLOW_TIMER = new Object();
+    private long resultsDelivered;
+    private double downloadSecondsSum;
+    /** 没有可用链路：结果送不回 / 拒绝的上行分配 */
+    private long resultsUndeliverable;
+    private long uploadsRejected;
 
     private long lastK = -1;
 
-    /** CPU 能耗参数（W） */
-    private static final double P_IDLE_W = 10.0;
-    private static final double P_MAX_W  = 35.0;
+    /** 分阶段计时 / 桥接计数 / 每 tick 分配量（常开；JMX 与指标文件见 TickMetrics、MetricsReporter） */
+    private final TickMetrics metrics = new TickMetrics();
+
+    /** 节点注册表（mapping.yaml）：Cloudlet / VM → 节点 id；空表 = 占位规则 */
+    private NodeRegistry nodes = new NodeRegistry();
+
+    /** VM / 主机 / 链路能耗（事件驱动积分）；主机由建数据中心的一方 trackHosts 登记 */
+    private final EnergyMeter energy = new EnergyMeter();
+    /** cloudletId / vmId 索引 + 每 VM 运行数，由 Cloudlet 生命周期监听增量维护 */
+    private final BrokerIndex index = new BrokerIndex(energy);
+    /** state 导出用的任务游标（复用） */
+    private final TaskView taskCursor;
+    private double deadlineBudgetSec = TaskTable.DEFAULT_DEADLINE_BUDGET_SEC;
+    /** 本 tick 分配好的 Cloudlet，tick 末尾一次 submitCloudletList */
+    private final List<Cloudlet> submitBatch = new ArrayList<>();
+
+    /** null = 不产出结果记录 */
+    private ResultsSink results;
+    /** 记录交出去之后释放任务（须有 results）；false = 完成的 Cloudlet 一直留在 broker 的列表里 */
+    private boolean retireFinished;
+    private final ResultRecord record = new ResultRecord();
+    /**
+     * 长时运行时交回的 Cloudlet 记在这里而不进父类的完成列表（那个列表私有、只能加不能删）；
+     * getCloudletFinishedList 把两边合起来返回
+     */
+    private final List<Cloudlet> finished = new ArrayList<>();
+    private final Predicate<Cloudlet> retired;
+    private long retiredSincePurge;
+    /** 攒够这么多（且不少于在途任务数）才扫一遍列表，均摊到每个任务 O(1) */
+    private static final int PURGE_MIN = 1024;
+
+    /** 兼容旧用法：文件桥接（state_{k}.json / action_{k}.json） */
+    public STHGNNBroker(Simulation sim, Path bridgeDir, double tickSeconds) {
+        this(sim, bridgeDir, tickSeconds, new FileBridgeTransport(bridgeDir));
+    }
 
-    /** 网络能耗参数（J/bit，可按文献调整） */
-    private static final double J_PER_BIT = 5e-9;
+    /** 指定桥接传输层（file / mmap …）；仿真结束后调用 closeBridge() */
+    public STHGNNBroker(Simulation sim, Path bridgeDir, double tickSeconds, BridgeTransport transport) {
+        this(sim, bridgeDir, tickSeconds, transport, new LinkPatchApplier());
+    }
 
-    /** VM -> 累计能耗（J） */
-    private final Map<Long, Double> vmEnergyJ = new HashMap<>();
-    /** 全网累计链路能耗（J） */
-    private double netEnergyJ = 0.0;
-    /** 已经按“下行能耗”计过账的 Cloudlet 集合，防止重复统计 */
-    private final Set<Long> downEnergyAccounted = new HashSet<>();
+    /** 指定桥接传输层 + 网络画像（例如从 CSV 加载的画像，link_patch 也打在它上面） */
+    public STHGNNBroker(Simulation sim, Path bridgeDir, double tickSeconds, BridgeTransport transport,
+                        NetworkProfile profile) {
+        this(sim, bridgeDir, tickSeconds, transport, new LinkPatchApplier(profile));
+    }
 
-    public STHGNNBroker(Simulation sim, Path bridgeDir, double tickSeconds) {
+    private STHGNNBroker(Simulation sim, Path bridgeDir, double tickSeconds, BridgeTransport transport,
+                         LinkPatchApplier linkApplier) {
         super((CloudSimPlus) sim);
         this.bridgeDir = bridgeDir;
         this.tickSeconds = tickSeconds;
+        this.transport = transport;
+        this.linkApplier = linkApplier;
+        this.profile = linkApplier.profile;
+        this.router = new Router(profile);
+        this.taskCursor = index.tasks().view();
+        this.retired = index::isRetired;
+
+        if (transport instanceof FileBridgeTransport) {
+            try { Files.createDirectories(bridgeDir.resolve("tmp")); } catch (Exception ignored) {}
+        }
 
-        try { Files.createDirectories(bridgeDir.resolve("tmp")); } catch (Exception ignored) {}
-
-        this.stateWriter = new StateWriter(bridgeDir);
-        this.actionReader = new ActionReader(bridgeDir, tickSeconds * 0.9);
+        this.stateWriter = transport instanceof FileBridgeTransport
+                ? new StateWriter(transport, true)   // 文件模式保持原来的缩进 JSON，方便肉眼调试
+                : new StateWriter(transport);
+        this.actionReader = new ActionReader(transport, tickSeconds * 0.9).metrics(metrics);
+        energy.metrics(metrics);
 
         // 每 tick 回调
         sim.addOnClockTickListener(ev -> onTick(ev.getTime()));
     }
 
+    /** state 编码：JSON（默认，调试）或 BINARY（列式，Python 侧 numpy 零拷贝读取） */
+    public STHGNNBroker setStateFormat(StateFormat f){
+        stateWriter.format(f);
+        return this;
+    }
+
+    /** 增量 state：只发变化的 VM/Cloudlet，每 keyframeEvery 个 tick 发一次关键帧；<= 0 关闭（mmap 桥接不支持） */
+    public STHGNNBroker setIncrementalState(int keyframeEvery){
+        stateWriter.incremental(keyframeEvery);
+        return this;
+    }
+
+    /** 开启流水线模式：action 延迟 lag 个 tick 应用；lag <= 0 保持同步模式 */
+    public STHGNNBroker setPipelined(int lag, PipelinedBridge.LatePolicy latePolicy){
+        if (pipeline != null) pipeline.close();
+        pipeline = lag > 0 ? new PipelinedBridge(stateWriter, actionReader, lag, latePolicy) : null;
+        return this;
+    }
+
+    public PipelinedBridge getPipeline(){ return pipeline; }
+
+    /** 设了策略就每 tick 在本进程内前向并应用分配，桥接（state / action）不再使用；null = 回到桥接 */
+    public STHGNNBroker setPolicy(InferencePolicy p){
+        this.policy = p;
+        if (p != null) p.reset();
+        return this;
+    }
+
+    public InferencePolicy getPolicy(){ return policy; }
+
+    public Router getRouter(){ return router; }
+
+    /** 开启流级带宽共享模型；须在仿真开始前调用 */
+    public STHGNNBroker setFlowModel(boolean on){
+        this.flows = on ? new FlowNetwork(profile) : null;
+        return this;
+    }
+
+    /** null = 未开启流级模型 */
+    public FlowNetwork getFlowNetwork(){ return flows; }
+
+    /** 已送回的结果数，以及平均下行耗时（含 RTT，秒）；非流级模型下按独占带宽粗算 */
+    public long getResultsDelivered(){ return resultsDelivered; }
+    public double getMeanDownloadSeconds(){ return resultsDelivered == 0 ? 0.0 : downloadSecondsSum / resultsDelivered; }
+    /** 执行完了但来源与 VM 之间没有可用链路、结果没能送回的任务数 */
+    public long getResultsUndeliverable(){ return resultsUndeliverable; }
+    /** 因来源到 VM 没有可用链路而拒绝的分配数 */
+    public long getUploadsRejected(){ return uploadsRejected; }
+
+    /** 全网累计链路能耗（J） */
+    public double getNetEnergyJ(){ return energy.netEnergyJ(); }
+
+    public EnergyMeter getEnergyMeter(){ return energy; }
+
+    /** 换节点映射（一般在仿真开始前，从 mapping.yaml 加载） */
+    public STHGNNBroker setNodeRegistry(NodeRegistry r){
+        this.nodes = r == null ? new NodeRegistry() : r;
+        return this;
+    }
+
+    public NodeRegistry getNodeRegistry(){ return nodes; }
+
+    /** 任务表（每个提交过的 Cloudlet 一行，含已完成的） */
+    public TaskTable getTaskTable(){ return index.tasks(); }
+
+    /**
+     * 给已提交的任务指定来源节点与绝对 deadline（轨迹回放用；NaN = 沿用 到达 + 预算）。
+     * 之后上/下行都从这个节点算，不再查 mapping.yaml。
+     */
+    public void annotateTask(long cloudletId, int srcNode, double deadline){
+        index.annotate(cloudletId, srcNode, deadline);
+    }
+
+    /** 软截止预算（秒）：之后登记的任务 deadline = 到达时刻 + 预算 */
+    public STHGNNBroker setDeadlineBudget(double sec){ this.deadlineBudgetSec = sec; return this; }
+
+    /** 每个任务的结果送回时交一条 ResultRecord 给 sink；null 关闭。sink 由调用方在仿真结束后关闭 */
+    public STHGNNBroker setResultsSink(ResultsSink sink){
+        this.results = sink;
+        return this;
+    }
+
+    public ResultsSink getResultsSink(){ return results; }
+
+    /**
+     * 长时运行：记录交给 ResultsSink 之后把任务从 broker 释放（getCloudletFinishedList 之后只剩还没送回的）。
+     * 没设 ResultsSink 时不释放。开启后 Cloudlet 交回由本类处理（见 processEvent），不再进父类的完成列表。
+     */
+    public STHGNNBroker setRetireFinished(boolean on){
+        this.retireFinished = on;
+        return this;
+    }
+
+    /** 父类列表（开启长时运行之前交回的）+ 本类记的、还没释放的 */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Cloudlet> List<T> getCloudletFinishedList(){
+        List<T> list = super.getCloudletFinishedList();
+        list.addAll((List<T>) finished);
+        return list;
+    }
+
+    /** 分阶段计时与桥接计数（MainRun 按需注册 JMX / 定期写指标文件） */
+    public TickMetrics getMetrics(){ return metrics; }
+
+    /** 仿真结束后调用：释放桥接资源（后台线程、mmap 映射、socket 等），结果日志落盘 */
+    public void closeBridge(){
+        if (pipeline != null) pipeline.close();
+        try { transport.close(); } catch (Exception ignored) {}
+        if (results != null) {
+            purgeRetired(true);
+            results.flush();
+        }
+    }
+
     /* ======================= Tick 主循环 ======================= */
 
-    private void onTick(double time){
+    /** 时钟回调；包内可见是为了让基准（src/jmh）不经事件循环直接驱动一个 tick */
+    void onTick(double time){
         long k = (long)Math.floor(time / tickSeconds);
         if (k == lastK) return;
         lastK = k;
+        long t0 = metrics.beginTick();
+        try {
+            tick(k, time, t0);
+        } finally {
+            metrics.endTick(t0);
+        }
+    }
 
-        // 1) 累计 CPU 能耗
-        accumulateCpuEnergyForTick();
-
-        // 2) 对“刚完成”的 Cloudlet 计下行能耗（只记一次）
-        for (Cloudlet c : getCloudletFinishedList()) {
-            if (downEnergyAccounted.add(c.getId())) {
-                Vm vm = c.getVm();
-                if (vm != null) {
-                    int src = resolveSrcId(c);
-                    int dst = resolveDstId(vm);
-                    double bitsDown = bytesToBits(c.getOutputSize());
-                    // 这里只按 bit 计能耗；时延用于提交延迟，完成时无需再延迟
-                    netEnergyJ += bitsDown * J_PER_BIT;
+    private void tick(long k, double time, long t){
+        // 0) 网络画像的时间游标推进到当前时刻（本 tick 内的 link 查询都从这里起步）
+        profile.advanceAll(time);
+        router.refresh(time);
+        if (flows != null) {
+            flows.refresh(time);
+            armFlowTimer(time);
+        }
+        t = metrics.lap(Phase.NETWORK, t);
+
+        // 1) 新建好的 VM 进索引 / 能耗计量（CPU 能耗本身由 Cloudlet 开始/结束事件驱动，这里不采样）
+        index.syncVms(getVmCreatedList(), time);
+
+        // 1b) 节点注册表的动态列：承载 VM 的节点取该 VM 的运行数与能耗
+        refreshNodes(time);
+        t = metrics.lap(Phase.SYNC, t);
+
+        // 2) 对“刚完成”的 Cloudlet 计下行能耗（finish 监听只报一次）
+        for (Cloudlet c : index.drainFinished()) {
+            Vm vm = c.getVm();
+            if (vm != null) {
+                int src = resolveSrcId(c);
+                int dst = resolveDstId(vm);
+                double bitsDown = bytesToBits(c.getOutputSize());
+                chargeTransfer(c, src, dst, bitsDown);
+                // 流级模型：结果回传占下行带宽（与其他回传竞争）；否则按链路粗算下行时延，直接记送回时刻
+                if (flows != null) {
+                    if (!startTransfer(new Transfer(c, vm, true), src, dst, bitsDown, time)) {
+                        resultsUndeliverable++;
+                        retire(c);
+                    }
+                } else {
+                    // 按执行完成时刻取链路，与加到的时间戳一致；没有可用链路时结果送不回（doneAt 留 NaN）
+                    double tDown = calcDownSeconds(src, dst, bitsDown, c.getFinishTime());
+                    if (Double.isNaN(tDown)) {
+                        resultsUndeliverable++;
+                    } else {
+                        resultsDelivered++;
+                        downloadSecondsSum += tDown;
+                        index.delivered(c, c.getFinishTime() + tDown);
+                    }
+                    retire(c);
                 }
+            } else {
+                retire(c);
+            }
+        }
+        purgeRetired(false);
+        t = metrics.lap(Phase.FINISHED, t);
+
+        StateSnapshot state = buildState(k, time);
+        t = metrics.lap(Phase.BUILD_STATE, t);
+
+        // 3)+4) 进程内推理：快照直接前向，决策当场应用
+        if (policy != null) {
+            decisions.clear();
+            policy.decide(state, decisions);
+            t = metrics.lap(Phase.INFERENCE, t);
+            for (int i = 0, n = decisions.size(); i < n; i++) {
+                long clId = decisions.cloudletId(i);
+                if (!assign(clId, decisions.vmId(i), time)) policy.rejected(clId);
             }
+            flushSubmitBatch();
+            metrics.lap(Phase.APPLY, t);
+            return;
         }
 
-        // 3) 写 state
-        Map<String,Object> state = buildState(k, time);
-        stateWriter.write(k, state);
+        // 3)+4) 流水线模式：交出快照即返回，应用之前到达的 action（等 action 在后台线程，由 ActionReader 计时）
+        if (pipeline != null) {
+            pipeline.submit(state);
+            t = metrics.lap(Phase.WRITE_STATE, t);
+            List<Map<String,Object>> due = pipeline.poll(k);
+            if (due.isEmpty() && k >= pipeline.getLag()) metrics.actionFallback();
+            for (Map<String,Object> action : due) {
+                applyAssignments(action, time);
+                linkApplier.applyFromAction(action);
+            }
+            metrics.lap(Phase.APPLY, t);
+            return;
+        }
 
-        // 4) 读并应用 action
-        Map<String,Object> action = actionReader.read(k);
+        // 3) 写 state
+        stateWriter.write(state);
+        t = metrics.lap(Phase.WRITE_STATE, t);
+
+        // 4) 读并应用 action；超时按空动作继续（ActionReader 自己记等待耗时）
+        Map<String,Object> action = actionReader.readOrNull(k);
+        if (action == null) {
+            // 对端可能没收到这一帧：增量模式下一帧改发关键帧，免得它在旧基线上叠 delta
+            stateWriter.requestKeyframe();
+            metrics.actionFallback();
+            return;
+        }
+        t = System.nanoTime();
         applyAssignments(action, time);
         linkApplier.applyFromAction(action); // link_patch
+        metrics.lap(Phase.APPLY, t);
     }
 
     /* ======================= 构建 state ======================= */
 
-    private Map<String,Object> buildState(long k, double time){
-        Map<String,Object> m = new LinkedHashMap<>();
-        m.put("k", k);
-        m.put("time", time);
+    private StateSnapshot buildState(long k, double time){
+        StateSnapshot m = snapshot.clear(k, time);
 
         // VM 视图（含能耗）
-        List<Map<String,Object>> vms = getVmCreatedList().stream()
-                .map(this::vmInfo)
-                .collect(Collectors.toList());
-        m.put("vms", vms);
+        for (Vm vm : getVmCreatedList()) {
+            m.addVm(vm.getId(), vm.getMips(), (int) vm.getPesNumber(),
+                    vm.getRam().getCapacity(), vm.getBw().getCapacity(), vm.getStorage().getCapacity(),
+                    vmUtilizationApprox(vm), energy.vmEnergyJ(vm.getId(), time), resolveDstId(vm));
+        }
 
-        // Cloudlet 视图
-        List<Map<String,Object>> cls = new ArrayList<>();
-        getCloudletWaitingList().forEach(c -> cls.add(clInfo(c, "WAITING")));
-        getCloudletSubmittedList().forEach(c -> { if (!c.isFinished()) cls.add(clInfo(c, "RUNNING")); });
-        m.put("cloudlets", cls);
+        // Cloudlet 视图：遍历任务表里未完成的行（TaskView 游标，不碰 Cloudlet 对象）；
+        // 还在 broker 等待列表里的记 WAITING，其余 RUNNING；生成器预先提交、还没到达的不发
+        index.newStamp();
+        for (Cloudlet c : getCloudletWaitingList()) index.mark(c);
+        TaskTable tasks = index.tasks();
+        for (int i = 0, n = tasks.liveCount(); i < n; i++) {
+            TaskView t = taskCursor.live(i);
+            if (t.getArrival() > time) continue;
+            m.addCloudlet(t.getId(), t.getLengthMi(), t.getUpBytes(), t.getDownBytes(), t.getVmId(),
+                    index.isMarked(t.slot()) ? StateSnapshot.PHASE_WAITING : StateSnapshot.PHASE_RUNNING,
+                    t.getSrcNode());  // 方便 Python 侧构图
+        }
 
         // 网络累计能耗（J）
-        m.put("net_energy_j", netEnergyJ);
+        m.netEnergyJ = energy.netEnergyJ();
         return m;
     }
 
-    private Map<String,Object> vmInfo(Vm vm){
-        Map<String,Object> x = new LinkedHashMap<>();
-        x.put("id", vm.getId());
-        x.put("mips", vm.getMips());
-        x.put("pes", vm.getPesNumber());
-        x.put("ram", vm.getRam().getCapacity());
-        x.put("bw", vm.getBw().getCapacity());
-        x.put("size", vm.getStorage().getCapacity());
-
-        double util = vmUtilizationApprox(vm);
-        x.put("cpu_util", util);
-        x.put("energy_j", vmEnergyJ.getOrDefault(vm.getId(), 0.0));
-        return x;
-    }
-
-    private Map<String,Object> clInfo(Cloudlet c, String phase){
-        Map<String,Object> x = new LinkedHashMap<>();
-        x.put("id", c.getId());
-        x.put("len", c.getLength());
-        x.put("in_bytes",  c.getFileSize());
-        x.put("out_bytes", c.getOutputSize());
-        x.put("vm",   c.getVm() == null ? -1 : c.getVm().getId());
-        x.put("phase", phase);
-        x.put("src_id", resolveSrcId(c));  // 方便 Python 侧构图
-        return x;
-    }
-
     /* ======================= 应用 action（assign） ======================= */
 
     @SuppressWarnings("unchecked")
@@ -164,39 +441,258 @@ public class STHGNNBroker extends DatacenterBrokerSimple {
 
             long clId = num(e.getOrDefault("cloudlet_id", e.getOrDefault("id", -1))).longValue();
             long vmId = num(e.get("vm_id")).longValue();
+            assign(clId, vmId, now);
+        }
+        flushSubmitBatch();
+    }
 
-            Cloudlet c = findCloudletInQueues(clId);
-            Vm vm = getVmCreatedList().stream().filter(v -> v.getId() == vmId).findFirst().orElse(null);
-            if (c == null || vm == null) continue;
+    /**
+     * 一条分配：上行计费 + 传输，绑定后放进提交批（由调用方 flushSubmitBatch）。
+     * 任务 / VM 不存在时忽略并返回 false；任务正在上行（之前的分配已生效）时忽略但返回 true。
+     */
+    private boolean assign(long clId, long vmId, double now){
+        if (uploading.contains(clId)) return true;
+        Cloudlet c = index.findUnfinished(clId);
+        Vm vm = index.vm(vmId);
+        if (c == null || vm == null) return false;
+
+        int src = resolveSrcId(c);
+        int dst = resolveDstId(vm);
+
+        double bitsUp = bytesToBits(c.getFileSize());
+
+        // 上行：按链路指标粗算时延；来源到 VM 没有可用链路时拒绝这条分配（任务留在原处，策略可以改派）
+        double tUp = calcUpSeconds(src, dst, bitsUp, now);
+        if (Double.isNaN(tUp)) {
+            uploadsRejected++;
+            return false;
+        }
+        unreserveOld(c, vm);
 
-            int src = resolveSrcId(c);
-            int dst = resolveDstId(vm);
+        // 上行能耗：按 bit 计
+        chargeTransfer(c, src, dst, bitsUp);
 
-            // 上行：按链路指标粗算时延
-            double bitsUp = bytesToBits(c.getFileSize());
-            double tUp = calcUpSeconds(src, dst, bitsUp, now);
+        // 流级模型：开始上行，传完后在 onTransferDone 里提交
+        if (flows != null) {
+            if (!startTransfer(new Transfer(c, vm, false), src, dst, bitsUp, now)) {
+                uploadsRejected++;
+                return false;
+            }
+            uploading.add(clId);
+            return true;
+        }
 
-            // 上行能耗：按 bit 计
-            netEnergyJ += bitsUp * J_PER_BIT;
+        // 让 Cloudlet 在上行完成后进入执行；执行段按到达时刻预约进 VM 的估时
+        c.setSubmissionDelay(tUp);
+        CloudletSchedulerX x = schedulerX(vm);
+        if (x != null) x.reserve(c, now + tUp);
 
-            // 让 Cloudlet 在上行完成后进入执行
-            c.setSubmissionDelay(tUp);
+        // 绑定；提交留到循环结束一起做
+        bindCloudletToVm(c, vm);
+        submitBatch.add(c);
+        return true;
+    }
 
-            // 绑定 & 提交
-            bindCloudletToVm(c, vm);
-            submitCloudlet(c);
+    /** 改派：原 VM 上的预约不会等到 cloudletFinish 释放，先撤掉，免得它的估时一直偏大 */
+    private static void unreserveOld(Cloudlet c, Vm vm){
+        Vm old = c.getVm();
+        if (old != vm && old != null && old != Vm.NULL) {
+            CloudletSchedulerX ox = schedulerX(old);
+            if (ox != null) ox.cancel(c);
         }
     }
 
-    /* ======================= 能耗 & 利用率 ======================= */
+    /** 本轮攒下的 Cloudlet 一次提交（broker 只排一次派发） */
+    private void flushSubmitBatch(){
+        if (submitBatch.isEmpty()) return;
+        submitCloudletList(submitBatch);
+        submitBatch.clear();
+    }
+
+    /** 所有提交路径（submitCloudlet / 生成器 / 批量）最终都走这里：先登记进索引 */
+    @Override
+    public DatacenterBroker submitCloudletList(List<? extends Cloudlet> list){
+        double now = getSimulation().clock();
+        for (Cloudlet c : list) index.register(c, resolveSrcId(c), now, deadlineBudgetSec);
+        return super.submitCloudletList(list);
+    }
+
+    /* ======================= 流级传输 ======================= */
+
+    /** 一次上行（输入）或下行（结果）传输 */
+    private static final class Transfer {
+        final Cloudlet cloudlet;
+        final Vm vm;
+        final boolean down;
+        double latencySec;
+        Transfer(Cloudlet cloudlet, Vm vm, boolean down){ this.cloudlet = cloudlet; this.vm = vm; this.down = down; }
+    }
+
+    /**
+     * 有路由走多跳路径，否则走直连边；传播时延按路径 RTT 在交付时另加。
+     * 直连边也不可用（没有 / 断开 / 该方向没带宽）时不起流——速率为 0 的流永远传不完——返回 false。
+     */
+    private boolean startTransfer(Transfer tr, int src, int dst, double bits, double now){
+        Router.Route r = router.route(src, dst);
+        if (r != null && r.isAvailable()) {
+            tr.latencySec = r.getRttMs() / 1000.0;
+            flows.start(r, tr.down, bits, now, tr);
+        } else {
+            LinkMetrics lm = profile.link(src, dst, now);
+            if (Double.isNaN(directSeconds(lm, bits, tr.down))) return false;
+            tr.latencySec = lm.getRttMs() / 1000.0;
+            flows.start(src, dst, tr.down, bits, now, tr);
+        }
+        armFlowTimer(now);
+        return true;
+    }
+
+    /** 最早的完成时刻提前了就补一个事件（旧事件到点时发现没流完成，什么也不做） */
+    private void armFlowTimer(double now){
+        double next = flows.nextCompletionTime();
+        if (next == Double.POSITIVE_INFINITY || next >= flowTimerAt) return;
+        flowTimerAt = next;
+        schedule(this, Math.max(0.0, next - now), CloudSimTag.NONE, FLOW_TIMER);
+    }
+
+    @Override
+    public void processEvent(SimEvent evt){
+        if (evt.getData() == FLOW_TIMER) {
+            onFlowTimer(evt.getTime());
+            return;
+        }
+        if (retireFinished && evt.getTag() == CloudSimTag.CLOUDLET_RETURN && evt.getData() instanceof Cloudlet c) {
+            onCloudletReturn(c);
+            return;
+        }
+        super.processEvent(evt);
+    }
 
-    private void accumulateCpuEnergyForTick(){
+    /**
+     * 长时运行时代替父类处理 Cloudlet 交回：记进本类的完成列表（purgeRetired 再删），其余照父类做——
+     * 归还 VM 的预期空闲 PE，请求销毁已空闲的 VM。父类此时还会重试创建等待中的 VM，本仿真的 VM
+     * 都在开始时建好，不涉及。
+     */
+    private void onCloudletReturn(Cloudlet c){
+        finished.add(c);
+        Vm vm = c.getVm();
+        if (vm instanceof VmSimple v) v.addExpectedFreePesNumber(c.getPesNumber());
+        if (vm.getCloudletScheduler().isEmpty()) {
+            requestIdleVmDestruction(vm);
+            return;
+        }
+        List<Vm> exec = getVmExecList();
+        for (int i = exec.size() - 1; i >= 0; i--) requestIdleVmDestruction(exec.get(i));
+    }
+
+    private void onFlowTimer(double now){
+        if (now >= flowTimerAt) flowTimerAt = Double.POSITIVE_INFINITY;
+        for (int f = flows.pollCompleted(now); f >= 0; f = flows.pollCompleted(now)) {
+            Transfer tr = (Transfer) flows.completedPayload();
+            double started = flows.startedAt(f);
+            onTransferDone(tr, now - started);
+        }
+        flushSubmitBatch();
+        armFlowTimer(now);
+    }
+
+    private void onTransferDone(Transfer tr, double txSeconds){
+        if (tr.down) {
+            resultsDelivered++;
+            downloadSecondsSum += txSeconds + tr.latencySec;
+            index.delivered(tr.cloudlet, getSimulation().clock() + tr.latencySec);
+            retire(tr.cloudlet);
+            return;
+        }
+        // 上行传完：再过一个传播时延进入执行
+        Cloudlet c = tr.cloudlet;
+        uploading.remove(c.getId());
+        c.setSubmissionDelay(tr.latencySec);
+        CloudletSchedulerX x = schedulerX(tr.vm);
+        if (x != null) x.reserve(c, getSimulation().clock() + tr.latencySec);
+        bindCloudletToVm(c, tr.vm);
+        submitBatch.add(c);
+    }
+
+    /* ======================= 结果记录 / 长时运行释放 ======================= */
+
+    /** 结果已送回：交一条记录给 ResultsSink；长时运行时再从任务表释放（列表里的引用攒一批再清） */
+    private void retire(Cloudlet c){
+        if (results == null) return;
+        int s = index.slotOf(c);
+        if (s < 0) return;
+        TaskTable t = index.tasks();
+        Vm vm = c.getVm();
+        Host h = vm == null ? null : vm.getHost();
+        ResultRecord r = record;
+        r.id = c.getId();
+        r.vmId = vm == null || vm == Vm.NULL ? -1 : vm.getId();
+        r.hostId = h == null || h == Host.NULL ? -1 : h.getId();
+        r.srcNode = t.srcNode(s);
+        r.pes = (int) c.getPesNumber();
+        r.arrival = t.arrival(s);
+        r.start = c.getExecStartTime();
+        r.finish = t.finishAt(s);
+        r.done = t.doneAt(s);
+        r.deadline = t.deadline(s);
+        r.upBytes = t.upBytes(s);
+        r.downBytes = t.downBytes(s);
+        r.energyJ = energy.execEnergyJ(r.vmId, r.pes, r.finish - r.start) + t.linkBits(s) * EnergyMeter.J_PER_BIT;
+        results.accept(r);
+        if (retireFinished && index.retire(c)) retiredSincePurge++;
+    }
+
+    /**
+     * 把已释放的任务从 broker 的提交 / 创建 / 完成列表和各 VM 调度器的完成列表里删掉。
+     * 非 CloudletSchedulerX 的调度器只能清完成列表（父类的“已交回”集合只能加不能删，会留着）。
+     */
+    private void purgeRetired(boolean force){
+        if (retiredSincePurge == 0) return;
+        if (!force && retiredSincePurge < Math.max(PURGE_MIN, index.tasks().liveCount())) return;
+        finished.removeIf(retired);
+        getCloudletSubmittedList().removeIf(retired);
+        getCloudletCreatedList().removeIf(retired);
         for (Vm vm : getVmCreatedList()) {
-            double util = vmUtilizationApprox(vm); // [0,1]
-            double powerW = P_IDLE_W + (P_MAX_W - P_IDLE_W) * util;
-            double incJ = powerW * tickSeconds;    // W*s = J
-            vmEnergyJ.merge(vm.getId(), incJ, Double::sum);
+            if (vm.getCloudletScheduler() instanceof CloudletSchedulerX x) x.purgeReturned();
+            else vm.getCloudletScheduler().getCloudletFinishedList().removeIf(ce -> retired.test(ce.getCloudlet()));
+        }
+        retiredSincePurge = 0;
+    }
+
+    /* ======================= 三段估时 ======================= */
+
+    /**
+     * 把 c 分到 vm 的预计结果送回时刻：上行（路由粗算）→ 排队 + 执行（CloudletSchedulerX 的 lane 估计）→ 下行。
+     * VM 不是 CloudletSchedulerX 时不计排队。流级模型下上/下行仍按独占带宽估，不含并发争用。
+     * 来源与 VM 之间没有可用链路（结果送不回）时返回 +∞。
+     */
+    public double expectedCompletion(Cloudlet c, Vm vm, double now){
+        int src = resolveSrcId(c);
+        int dst = resolveDstId(vm);
+        double up = calcUpSeconds(src, dst, bytesToBits(c.getFileSize()), now);
+        double down = calcDownSeconds(src, dst, bytesToBits(c.getOutputSize()), now);
+        if (Double.isNaN(up) || Double.isNaN(down)) return Double.POSITIVE_INFINITY;
+        CloudletSchedulerX x = schedulerX(vm);
+        if (x != null) return x.estimateCompletion(c.getLength(), (int) c.getPesNumber(), now, up, down);
+        return now + up + c.getLength() / Math.max(1e-9, vm.getMips()) + down;
+    }
+
+    private static CloudletSchedulerX schedulerX(Vm vm){
+        return vm.getCloudletScheduler() instanceof CloudletSchedulerX x ? x : null;
+    }
+
+    /* ======================= 能耗 & 利用率 ======================= */
+
+    /** 链路能耗逐跳计入（有路由走路由，否则记在直连边上），同时记到任务自己的链路比特数上 */
+    private void chargeTransfer(Cloudlet c, int src, int dst, double bits){
+        Router.Route r = router.route(src, dst);
+        if (r == null || !r.isAvailable() || r.getHops() == 0) {
+            energy.transfer(src, dst, bits);
+            index.linkBits(c, bits);
+            return;
         }
+        for (int i = 0; i < r.getHops(); i++) energy.transfer(r.node(i), r.node(i + 1), bits);
+        index.linkBits(c, bits * r.getHops());
     }
 
     /** 优先用 API；否则退化为 (#running / pes) 估算 */
@@ -205,39 +701,37 @@ public class STHGNNBroker extends DatacenterBrokerSimple {
             double u = vm.getCpuPercentUtilization(); // 期望 [0,1]
             if (!Double.isNaN(u) && u >= 0 && u <= 1) return u;
         } catch (Throwable ignore) { }
-        long running = getCloudletSubmittedList().stream()
-                .filter(c -> !c.isFinished() && c.getVm() == vm)
-                .count();
+        int running = index.running(vm);
         return Math.max(0.0, Math.min(1.0, running / Math.max(1.0, (double)vm.getPesNumber())));
     }
 
     /* ======================= NetworkProfile 辅助 ======================= */
 
-    /** 使用你的接口：link(int u, int v, double t) → LinkMetrics */
+    /**
+     * 传输耗时（秒）：优先走 Router 的多跳路径（拓扑取本 tick 的），两端不在链路图里或不可达时退回直连 link(u,v,t)。
+     * 直连边也断了（或没有这条边、该方向带宽为 0）时返回 NaN：调用方按“传不了”处理，不编一个时延出来。
+     */
     private double calcUpSeconds(int u, int v, double bits, double t){
-        LinkMetrics lm = profile.link(u, v, t);
-        if (lm == null) return 0.0;
-        double bwMbps = Math.max(1e-6, lm.getBwUpMbps());
-        double sec = (bits / 1e6) / bwMbps + lm.getRttMs() / 1000.0;
-        return sec;
+        Router.Route r = router.route(u, v);
+        if (r != null && r.isAvailable()) return r.upSeconds(bits);
+        return directSeconds(profile.link(u, v, t), bits, false);
     }
 
     private double calcDownSeconds(int u, int v, double bits, double t){
-        LinkMetrics lm = profile.link(u, v, t);
-        if (lm == null) return 0.0;
-        double bwMbps = Math.max(1e-6, lm.getBwDownMbps());
-        double sec = (bits / 1e6) / bwMbps + lm.getRttMs() / 1000.0;
-        return sec;
+        Router.Route r = router.route(u, v);
+        if (r != null && r.isAvailable()) return r.downSeconds(bits);
+        return directSeconds(profile.link(u, v, t), bits, true);
     }
 
-    /* ======================= 查找/工具 ======================= */
-
-    private Cloudlet findCloudletInQueues(long id){
-        for (Cloudlet c : getCloudletWaitingList()) if (c.getId() == id) return c;
-        for (Cloudlet c : getCloudletSubmittedList()) if (!c.isFinished() && c.getId() == id) return c;
-        return null;
+    private static double directSeconds(LinkMetrics lm, double bits, boolean down){
+        if (lm == null || !lm.isUp()) return Double.NaN;
+        double bwMbps = down ? lm.getBwDownMbps() : lm.getBwUpMbps();
+        if (!(bwMbps > 0)) return Double.NaN;
+        return (bits / 1e6) / bwMbps + lm.getRttMs() / 1000.0;
     }
 
+    /* ======================= 查找/工具 ======================= */
+
     private static double bytesToBits(long bytes){ return bytes * 8.0; }
 
     private static Number num(Object o){
@@ -247,15 +741,24 @@ public class STHGNNBroker extends DatacenterBrokerSimple {
         catch (Exception e){ return 0; }
     }
 
-    /** 解析源节点 id（占位：先用 cloudletId 映射；后续替换成真实映射，比如从 Cloudlet 自定义字段拿） */
+    /** Cloudlet 的来源节点 id：任务表里登记的（含 annotateTask 指定的），否则查 mapping.yaml（没配时是 id % 10000） */
     private int resolveSrcId(Cloudlet c){
-        // TODO: 从 Cloudlet 的自定义属性或你的映射表读取真实 srcId
-        return (int)(c.getId() % 10_000); // 占位
+        int n = index.srcNode(c.getId());
+        return n != Integer.MIN_VALUE ? n : nodes.srcNodeOfCloudlet(c.getId());
     }
 
-    /** 解析目的节点 id（占位：先用 vmId 映射；后续替换为 mapping.yaml 中的真实节点 id） */
+    /** 承载 VM 的节点 id（mapping.yaml 里 vm 字段；没配时是 id % 10000） */
     private int resolveDstId(Vm vm){
-        // TODO: 从你的映射表将 VM 映射到节点 id
-        return (int)(vm.getId() % 10_000); // 占位
+        return nodes.nodeOfVm(vm.getId());
+    }
+
+    private void refreshNodes(double time){
+        if (nodes.isEmpty()) return;
+        for (Vm vm : getVmCreatedList()) {
+            int n = nodes.indexOfVm(vm.getId());
+            if (n < 0) continue;
+            nodes.setQueueLen(n, index.running(vm));
+            nodes.setEnergyJ(n, energy.vmEnergyJ(vm.getId(), time));
+        }
     }
 }
@@ -0,0 +1,245 @@
+package com.yourorg.sagin.energy;
+
+import com.yourorg.sagin.metrics.TickMetrics;
+import com.yourorg.sagin.metrics.TickMetrics.Phase;
+import com.yourorg.sagin.net.NetworkProfile;
+import com.yourorg.sagin.util.LongIntHashMap;
+
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.vms.Vm;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 统一的能耗计量（主机 / VM / 链路），取代 MainRun、SagEnv、broker 里各自按 tick 采样的写法。
+ *
+ * - 主机、VM：功率只在利用率变化时（Cloudlet 开始 / 结束）重算；两次变化之间功率恒定，
+ *   按 P × Δt 精确分段积分，与 tick 大小无关，也不必每 tick 遍历所有主机
+ * - 利用率自己记账：VM 忙碌 PE 数（space-shared + UtilizationModelFull 下即 CloudSim 的 CPU 利用率），
+ *   主机利用率 = 其上 VM 忙碌 MIPS / 主机总 MIPS；主机功率用主机自己的 PowerModel
+ * - 链路：按 bit 计，全局一个常数 J_PER_BIT，多跳传输每一跳各记一次
+ * - 查询 xxxEnergyJ(i, t) = 已积分 + 当前功率 × (t - 上次变化)，O(1)、不改状态，可随时给 state / 报表取快照
+ *
+ * 只在仿真线程里用。
+ */
+public class EnergyMeter {
+
+    /** 链路传输能耗（J/bit，可按文献调整） */
+    public static final double J_PER_BIT = 5e-9;
+
+    /** VM 线性功耗模型（W） */
+    public static final double VM_P_IDLE_W = 10.0;
+    public static final double VM_P_MAX_W  = 35.0;
+
+    /* ---------- 主机 ---------- */
+    private final LongIntHashMap hostIndex = new LongIntHashMap(16);
+    private Host[] hosts = new Host[8];
+    private double[] hostCapMips = new double[8];
+    private double[] hostBusyMips = new double[8];
+    private double[] hostPowerW = new double[8];
+    private double[] hostLastT = new double[8];
+    private double[] hostJ = new double[8];
+    private int nHosts;
+
+    /* ---------- VM ---------- */
+    private final LongIntHashMap vmIndex = new LongIntHashMap(16);
+    private long[] vmIds = new long[8];
+    private int[] vmHost = new int[8];          // -1 = 没有主机（不计主机功率）
+    private int[] vmPes = new int[8];
+    private int[] vmBusyPes = new int[8];
+    private double[] vmMipsPerPe = new double[8];
+    private double[] vmPowerW = new double[8];
+    private double[] vmLastT = new double[8];
+    private double[] vmJ = new double[8];
+    private int nVms;
+
+    /* ---------- 链路 ---------- */
+    private final LongIntHashMap linkIndex = new LongIntHashMap(64);
+    private long[] linkKeys = new long[16];
+    private double[] linkBits = new double[16];
+    private int nLinks;
+    private double netBits;
+
+    private long events;
+    /** null = 不计时 */
+    private TickMetrics metrics;
+
+    /** 事件处理耗时记进 metrics（Phase.ENERGY） */
+    public EnergyMeter metrics(TickMetrics m){ this.metrics = m; return this; }
+
+    /* ======================= 登记 ======================= */
+
+    /** 登记主机（从 t=0 起按空载功率计） */
+    public EnergyMeter trackHosts(List<? extends Host> list){
+        for (Host h : list) hostIdx(h);
+        return this;
+    }
+
+    /** 登记 VM（从 t 起按 VM 空载功率计）；已登记的忽略 */
+    public void trackVm(Vm vm, double t){
+        vmIdx(vm, t);
+    }
+
+    /* ======================= 事件 ======================= */
+
+    /** Cloudlet 在 vm 上开始运行，占 pes 个 PE */
+    public void cloudletStarted(Vm vm, int pes, double t){ timedBusyChanged(vm, pes, t); }
+
+    /** Cloudlet 运行结束，释放 pes 个 PE */
+    public void cloudletFinished(Vm vm, int pes, double t){ timedBusyChanged(vm, -pes, t); }
+
+    private void timedBusyChanged(Vm vm, int dPes, double t){
+        if (metrics == null) { busyChanged(vm, dPes, t); return; }
+        long t0 = System.nanoTime();
+        busyChanged(vm, dPes, t);
+        metrics.lap(Phase.ENERGY, t0);
+    }
+
+    private void busyChanged(Vm vm, int dPes, double t){
+        if (vm == null || vm == Vm.NULL) return;
+        events++;
+        int v = vmIdx(vm, t);
+        int before = Math.min(vmBusyPes[v], vmPes[v]);
+        vmBusyPes[v] = Math.max(0, vmBusyPes[v] + dPes);
+        int after = Math.min(vmBusyPes[v], vmPes[v]);
+        if (after == before) return;
+
+        vmJ[v] += vmPowerW[v] * Math.max(0.0, t - vmLastT[v]);
+        vmLastT[v] = t;
+        vmPowerW[v] = vmPower(v);
+
+        int h = vmHost[v];
+        if (h < 0) return;
+        hostJ[h] += hostPowerW[h] * Math.max(0.0, t - hostLastT[h]);
+        hostLastT[h] = t;
+        hostBusyMips[h] += (after - before) * vmMipsPerPe[v];
+        hostPowerW[h] = hostPower(h);
+    }
+
+    /** 一跳传输 bits（u→v）；多跳路径由调用方逐跳调用 */
+    public void transfer(int u, int v, double bits){
+        long key = NetworkProfile.edgeKey(u, v);
+        int l = linkIndex.get(key);
+        if (l < 0) {
+            l = nLinks++;
+            if (l == linkKeys.length) {
+                linkKeys = Arrays.copyOf(linkKeys, l * 2);
+                linkBits = Arrays.copyOf(linkBits, l * 2);
+            }
+            linkKeys[l] = key;
+            linkIndex.put(key, l);
+        }
+        linkBits[l] += bits;
+        netBits += bits;
+    }
+
+    /* ======================= 快照 ======================= */
+
+    public int hostCount(){ return nHosts; }
+    public long hostId(int i){ return hosts[i].getId(); }
+    public double hostPowerW(int i){ return hostPowerW[i]; }
+    public double hostEnergyJ(int i, double t){ return hostJ[i] + hostPowerW[i] * Math.max(0.0, t - hostLastT[i]); }
+
+    public double totalHostEnergyJ(double t){
+        double s = 0.0;
+        for (int i = 0; i < nHosts; i++) s += hostEnergyJ(i, t);
+        return s;
+    }
+
+    public int vmCount(){ return nVms; }
+    public long vmId(int i){ return vmIds[i]; }
+
+    /** 没登记过的 VM 返回 0 */
+    public double vmEnergyJ(long vmId, double t){
+        int v = vmIndex.get(vmId);
+        return v < 0 ? 0.0 : vmJ[v] + vmPowerW[v] * Math.max(0.0, t - vmLastT[v]);
+    }
+
+    /**
+     * 单个任务分摊的 VM 能耗（J）：占 pes 个 PE 跑了 seconds 秒对应的那部分动态功耗（空载功耗不分摊）。
+     * 没登记过的 VM 返回 0。
+     */
+    public double execEnergyJ(long vmId, int pes, double seconds){
+        int v = vmIndex.get(vmId);
+        if (v < 0 || vmPes[v] == 0 || !(seconds > 0)) return 0.0;
+        return (VM_P_MAX_W - VM_P_IDLE_W) * Math.min(pes, vmPes[v]) / vmPes[v] * seconds;
+    }
+
+    public int linkCount(){ return nLinks; }
+    public long linkKeyAt(int i){ return linkKeys[i]; }
+    public double linkBits(int i){ return linkBits[i]; }
+    public double linkEnergyJ(int i){ return linkBits[i] * J_PER_BIT; }
+    public double netEnergyJ(){ return netBits * J_PER_BIT; }
+
+    /** 处理过的利用率事件数 */
+    public long getEvents(){ return events; }
+
+    @Override public String toString(){
+        return "EnergyMeter{hosts=" + nHosts + ", vms=" + nVms + ", links=" + nLinks +
+                ", events=" + events + ", netJ=" + netEnergyJ() + "}";
+    }
+
+    /* ======================= 内部 ======================= */
+
+    private int hostIdx(Host h){
+        int i = hostIndex.get(h.getId());
+        if (i >= 0) return i;
+        i = nHosts++;
+        if (i == hosts.length) {
+            int n = i * 2;
+            hosts = Arrays.copyOf(hosts, n);
+            hostCapMips = Arrays.copyOf(hostCapMips, n);
+            hostBusyMips = Arrays.copyOf(hostBusyMips, n);
+            hostPowerW = Arrays.copyOf(hostPowerW, n);
+            hostLastT = Arrays.copyOf(hostLastT, n);
+            hostJ = Arrays.copyOf(hostJ, n);
+        }
+        hosts[i] = h;
+        hostCapMips[i] = h.getTotalMipsCapacity();
+        hostLastT[i] = 0.0;
+        hostPowerW[i] = hostPower(i);
+        hostIndex.put(h.getId(), i);
+        return i;
+    }
+
+    private int vmIdx(Vm vm, double t){
+        int v = vmIndex.get(vm.getId());
+        if (v >= 0) {
+            // 先见到 VM、后放到主机上时补上主机
+            if (vmHost[v] < 0 && vm.getHost() != null && vm.getHost() != Host.NULL) vmHost[v] = hostIdx(vm.getHost());
+            return v;
+        }
+        v = nVms++;
+        if (v == vmIds.length) {
+            int n = v * 2;
+            vmIds = Arrays.copyOf(vmIds, n);
+            vmHost = Arrays.copyOf(vmHost, n);
+            vmPes = Arrays.copyOf(vmPes, n);
+            vmBusyPes = Arrays.copyOf(vmBusyPes, n);
+            vmMipsPerPe = Arrays.copyOf(vmMipsPerPe, n);
+            vmPowerW = Arrays.copyOf(vmPowerW, n);
+            vmLastT = Arrays.copyOf(vmLastT, n);
+            vmJ = Arrays.copyOf(vmJ, n);
+        }
+        vmIds[v] = vm.getId();
+        Host h = vm.getHost();
+        vmHost[v] = h == null || h == Host.NULL ? -1 : hostIdx(h);
+        vmPes[v] = (int) vm.getPesNumber();
+        vmMipsPerPe[v] = vm.getMips();
+        vmLastT[v] = t;
+        vmPowerW[v] = vmPower(v);
+        vmIndex.put(vm.getId(), v);
+        return v;
+    }
+
+    private double vmPower(int v){
+        double u = vmPes[v] == 0 ? 0.0 : Math.min(vmBusyPes[v], vmPes[v]) / (double) vmPes[v];
+        return VM_P_IDLE_W + (VM_P_MAX_W - VM_P_IDLE_W) * u;
+    }
+
+    private double hostPower(int h){
+        double u = hostCapMips[h] <= 0 ? 0.0 : Math.max(0.0, Math.min(1.0, hostBusyMips[h] / hostCapMips[h]));
+        return hosts[h].getPowerModel().getPower(u);
+    }
+}
@@ -0,0 +1,150 @@
+package com.yourorg.sagin.env;
+
+import com.yourorg.sagin.io.StateFormat;
+
+import java.nio.file.Path;
+
+/**
+ * 单个仿真实例的参数（默认值与 MainRun 一致），供多环境/参数扫描批量构建。
+ * 用法：new EnvConfig().seed(7).lambdaGs(0.3).hosts(4)
+ */
+public class EnvConfig {
+
+    private long   seed            = 42;
+    private double tickSeconds     = 1.0;
+    private double terminateAt     = 120;
+
+    private int    hosts           = 2;
+    private int    hostPes         = 8;
+    private long   hostMipsPerPe   = 10_000;
+    private double hostMaxPowerW   = 250.0;
+    private double hostIdleRatio   = 0.50;
+
+    private double lambdaGs        = 0.15;
+    private double lambdaSat       = 0.10;
+    /** 任务轨迹 CSV（可 .gz，见 TraceReplayGenerator）；非空时回放轨迹，代替泊松生成器 */
+    private Path   taskTrace       = null;
+
+    /** 网络画像 CSV 或预编译的 *.sgnp；null = 空画像 */
+    private Path   profileCsv      = null;
+    /** 星座轨迹 CSV（流式按窗口加载，见 TrajectoryLoader）；非空时代替 profileCsv */
+    private Path   trajectory      = null;
+    private double trajectoryHorizon = 300;
+    private StateFormat stateFormat = StateFormat.BINARY;
+    /** 节点映射 mapping.yaml；null = 占位规则（id % 10000） */
+    private Path   mapping         = null;
+    /** 流级带宽共享（并发传输 max-min 公平分带宽）；false = 每次传输独占带宽 */
+    private boolean flowModel      = false;
+    /** 长时运行：完成的任务写进这个结果日志后即释放；null = 全部留在 broker 里。并行跑多个实例时见 forRun */
+    private Path   resultLog       = null;
+    /** 策略权重（*.sgpw / *.npz）：非空时 broker 进程内推理（StHgnnPolicy），不经桥接 */
+    private Path   policy          = null;
+
+    public EnvConfig copy(){
+        EnvConfig c = new EnvConfig();
+        c.seed = seed; c.tickSeconds = tickSeconds; c.terminateAt = terminateAt;
+        c.hosts = hosts; c.hostPes = hostPes; c.hostMipsPerPe = hostMipsPerPe;
+        c.hostMaxPowerW = hostMaxPowerW; c.hostIdleRatio = hostIdleRatio;
+        c.lambdaGs = lambdaGs; c.lambdaSat = lambdaSat; c.taskTrace = taskTrace;
+        c.profileCsv = profileCsv; c.stateFormat = stateFormat;
+        c.trajectory = trajectory; c.trajectoryHorizon = trajectoryHorizon;
+        c.flowModel = flowModel; c.mapping = mapping; c.resultLog = resultLog;
+        c.policy = policy;
+        return c;
+    }
+
+    /**
+     * 并行批量跑时给本实例的输出文件加上实例标记：results.csv.gz → results-{tag}.csv.gz。
+     * ResultLog 打开时会截断文件，多个实例共用一个路径会互相覆盖。
+     */
+    public EnvConfig forRun(String tag){
+        if (resultLog != null) {
+            String name = resultLog.getFileName().toString();
+            int dot = name.indexOf('.', 1);
+            String tagged = dot < 0 ? name + "-" + tag : name.substring(0, dot) + "-" + tag + name.substring(dot);
+            resultLog = resultLog.resolveSibling(tagged);
+        }
+        return this;
+    }
+
+    /* ------------------ 链式设置 ------------------ */
+
+    public EnvConfig seed(long v){ this.seed = v; return this; }
+    public EnvConfig tickSeconds(double v){ this.tickSeconds = v; return this; }
+    public EnvConfig terminateAt(double v){ this.terminateAt = v; return this; }
+    public EnvConfig hosts(int v){ this.hosts = v; return this; }
+    public EnvConfig hostPes(int v){ this.hostPes = v; return this; }
+    public EnvConfig hostMipsPerPe(long v){ this.hostMipsPerPe = v; return this; }
+    public EnvConfig hostMaxPowerW(double v){ this.hostMaxPowerW = v; return this; }
+    public EnvConfig hostIdleRatio(double v){ this.hostIdleRatio = v; return this; }
+    public EnvConfig lambdaGs(double v){ this.lambdaGs = v; return this; }
+    public EnvConfig lambdaSat(double v){ this.lambdaSat = v; return this; }
+    public EnvConfig taskTrace(Path v){ this.taskTrace = v; return this; }
+    public EnvConfig profileCsv(Path v){ this.profileCsv = v; return this; }
+    public EnvConfig stateFormat(StateFormat v){ this.stateFormat = v; return this; }
+    public EnvConfig trajectory(Path v){ this.trajectory = v; return this; }
+    public EnvConfig trajectoryHorizon(double v){ this.trajectoryHorizon = v; return this; }
+    public EnvConfig flowModel(boolean v){ this.flowModel = v; return this; }
+    public EnvConfig mapping(Path v){ this.mapping = v; return this; }
+    public EnvConfig resultLog(Path v){ this.resultLog = v; return this; }
+    public EnvConfig policy(Path v){ this.policy = v; return this; }
+
+    /** 按参数名设置（扫描配置里的 key 与上面的方法名一致） */
+    public EnvConfig set(String name, Object v){
+        switch (name) {
+            case "seed":          return seed(num(v).longValue());
+            case "tickSeconds":   return tickSeconds(num(v).doubleValue());
+            case "terminateAt":   return terminateAt(num(v).doubleValue());
+            case "hosts":         return hosts(num(v).intValue());
+            case "hostPes":       return hostPes(num(v).intValue());
+            case "hostMipsPerPe": return hostMipsPerPe(num(v).longValue());
+            case "hostMaxPowerW": return hostMaxPowerW(num(v).doubleValue());
+            case "hostIdleRatio": return hostIdleRatio(num(v).doubleValue());
+            case "lambdaGs":      return lambdaGs(num(v).doubleValue());
+            case "lambdaSat":     return lambdaSat(num(v).doubleValue());
+            case "taskTrace":     return taskTrace(v == null ? null : Path.of(v.toString()));
+            case "profileCsv":    return profileCsv(v == null ? null : Path.of(v.toString()));
+            case "stateFormat":   return stateFormat(StateFormat.parse(String.valueOf(v)));
+            case "trajectory":    return trajectory(v == null ? null : Path.of(v.toString()));
+            case "trajectoryHorizon": return trajectoryHorizon(num(v).doubleValue());
+            case "flowModel":     return flowModel(Boolean.parseBoolean(String.valueOf(v)));
+            case "mapping":       return mapping(v == null ? null : Path.of(v.toString()));
+            case "resultLog":     return resultLog(v == null ? null : Path.of(v.toString()));
+            case "policy":        return policy(v == null ? null : Path.of(v.toString()));
+            default: throw new IllegalArgumentException("unknown env parameter: " + name);
+        }
+    }
+
+    private static Number num(Object v){
+        if (v instanceof Number) return (Number) v;
+        return Double.valueOf(String.valueOf(v));
+    }
+
+    /* ------------------ 读取 ------------------ */
+
+    public long getSeed(){ return seed; }
+    public double getTickSeconds(){ return tickSeconds; }
+    public double getTerminateAt(){ return terminateAt; }
+    public int getHosts(){ return hosts; }
+    public int getHostPes(){ return hostPes; }
+    public long getHostMipsPerPe(){ return hostMipsPerPe; }
+    public double getHostMaxPowerW(){ return hostMaxPowerW; }
+    public double getHostIdleRatio(){ return hostIdleRatio; }
+    public double getLambdaGs(){ return lambdaGs; }
+    public double getLambdaSat(){ return lambdaSat; }
+    public Path getTaskTrace(){ return taskTrace; }
+    public Path getProfileCsv(){ return profileCsv; }
+    public StateFormat getStateFormat(){ return stateFormat; }
+    public Path getTrajectory(){ return trajectory; }
+    public double getTrajectoryHorizon(){ return trajectoryHorizon; }
+    public boolean isFlowModel(){ return flowModel; }
+    public Path getMapping(){ return mapping; }
+    public Path getResultLog(){ return resultLog; }
+    public Path getPolicy(){ return policy; }
+
+    @Override public String toString(){
+        return "EnvConfig{seed=" + seed + ", hosts=" + hosts + "x" + hostPes + "PE@" + hostMipsPerPe +
+                ", lambdaGs=" + lambdaGs + ", lambdaSat=" + lambdaSat + ", terminateAt=" + terminateAt +
+                ", trace=" + taskTrace + ", profile=" + profileCsv + "}";
+    }
+}
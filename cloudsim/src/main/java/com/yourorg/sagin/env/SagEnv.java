@@ -0,0 +1,194 @@
+package com.yourorg.sagin.env;
+
+import com.yourorg.sagin.broker.STHGNNBroker;
+import com.yourorg.sagin.gen.PoissonTaskGenerator;
+import com.yourorg.sagin.gen.TraceReplayGenerator;
+import com.yourorg.sagin.io.BridgeTransport;
+import com.yourorg.sagin.io.ResultsSink;
+import com.yourorg.sagin.model.NodeRegistry;
+import com.yourorg.sagin.model.TaskTable;
+import com.yourorg.sagin.net.MappedNetworkProfile;
+import com.yourorg.sagin.net.NetworkProfile;
+import com.yourorg.sagin.net.NetworkProfileCsv;
+import com.yourorg.sagin.net.TrajectoryLoader;
+import com.yourorg.sagin.policy.StHgnnPolicy;
+import com.yourorg.sagin.sched.CloudletSchedulerX;
+
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.DatacenterSimple;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.hosts.HostSimple;
+import org.cloudsimplus.power.models.PowerModelHostSimple;
+import org.cloudsimplus.resources.Pe;
+import org.cloudsimplus.resources.PeSimple;
+import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个完整的仿真实例（引擎 + 数据中心 + broker + 任务生成器），拓扑与 MainRun 相同。
+ * 每个实例自带 CloudSimPlus，实例之间不共享可变状态，可以在不同线程里并行 run()。
+ */
+public class SagEnv {
+
+    private static final long HOST_RAM  = 128_000;   // MB
+    private static final long HOST_BW   = 1_000_000; // B/s
+    private static final long HOST_STO  = 1_000_000; // MB
+    private static final long VM_RAM_MB = 64_000;
+    private static final long VM_BW     = 500_000;
+    private static final long VM_STO    = 10_000;
+
+    /** 任务“软”截止时间预算（秒），与 MainRun 一致 */
+    public static final double DEADLINE_BUDGET_SEC = TaskTable.DEFAULT_DEADLINE_BUDGET_SEC;
+
+    private final EnvConfig cfg;
+    private final CloudSimPlus sim;
+    private final DatacenterSimple dc;
+    private final STHGNNBroker broker;
+    /** 任务来源：配了 taskTrace 时回放轨迹（replay），否则泊松生成（gen）；另一个为 null */
+    private final PoissonTaskGenerator gen;
+    private final TraceReplayGenerator replay;
+    /** 配了 trajectory 时才有 */
+    private final TrajectoryLoader trajectory;
+    /** 结果流水线（在线统计；配了 resultLog 时另写结果日志，并且完成即释放） */
+    private final ResultsSink results;
+
+    public SagEnv(EnvConfig cfg, Path bridgeDir, BridgeTransport transport){
+        this.cfg = cfg;
+        this.sim = new CloudSimPlus();
+        sim.terminateAt(cfg.getTerminateAt());
+
+        this.dc = new DatacenterSimple(sim, createHosts(cfg), new VmAllocationPolicySimple());
+
+        NetworkProfile profile;
+        if (cfg.getTrajectory() != null) {
+            NetworkProfileCsv np = new NetworkProfileCsv();
+            double horizon = Math.max(cfg.getTrajectoryHorizon(), cfg.getTickSeconds());
+            this.trajectory = new TrajectoryLoader(cfg.getTrajectory(), np, horizon, cfg.getTickSeconds()).attach(sim);
+            profile = np;
+        } else {
+            this.trajectory = null;
+            profile = loadProfile(cfg.getProfileCsv());
+        }
+
+        this.broker = new STHGNNBroker(sim, bridgeDir, cfg.getTickSeconds(), transport, profile);
+        broker.setStateFormat(cfg.getStateFormat());
+        broker.setFlowModel(cfg.isFlowModel());
+        broker.setNodeRegistry(NodeRegistry.loadOrEmpty(cfg.getMapping()));
+        this.results = openResults(cfg.getResultLog());
+        broker.setResultsSink(results).setRetireFinished(cfg.getResultLog() != null);
+        if (cfg.getPolicy() != null) broker.setPolicy(loadPolicy(cfg.getPolicy()));
+
+        List<Vm> vms = new ArrayList<>();
+        Vm vmGs = new VmSimple(10_000, 2)
+                .setRam(VM_RAM_MB).setBw(VM_BW).setSize(VM_STO)
+                .setCloudletScheduler(new CloudletSchedulerX());
+        vmGs.setId(101);
+        Vm vmSat = new VmSimple(10_000, 1)
+                .setRam(VM_RAM_MB).setBw(VM_BW).setSize(VM_STO)
+                .setCloudletScheduler(new CloudletSchedulerX());
+        vmSat.setId(201);
+        vms.add(vmGs);
+        vms.add(vmSat);
+        broker.submitVmList(vms);
+
+        if (cfg.getTaskTrace() != null) {
+            this.gen = null;
+            this.replay = new TraceReplayGenerator(sim, broker, cfg.getTaskTrace());
+        } else {
+            this.replay = null;
+            this.gen = new PoissonTaskGenerator(sim, broker)
+                    .seed(cfg.getSeed())
+                    .lambdaGs(cfg.getLambdaGs())
+                    .lambdaSat(cfg.getLambdaSat());
+        }
+
+        // 主机能耗：交给 broker 的 EnergyMeter，按利用率变化事件分段积分
+        broker.getEnergyMeter().trackHosts(dc.getHostList());
+    }
+
+    /** 跑到结束（terminateAt 或无事件），并释放桥接 */
+    public SagEnv run(){
+        try {
+            sim.start();
+        } finally {
+            broker.closeBridge();
+            if (trajectory != null) trajectory.close();
+            if (replay != null) replay.close();
+            results.close();
+        }
+        return this;
+    }
+
+    /* ------------------ 结果 ------------------ */
+
+    public EnvConfig getConfig(){ return cfg; }
+    public CloudSimPlus getSimulation(){ return sim; }
+    public STHGNNBroker getBroker(){ return broker; }
+    /** 回放的任务轨迹（行数 / 坏行 / 乱序计数）；没配 taskTrace 时为 null */
+    public TraceReplayGenerator getTraceReplay(){ return replay; }
+    public double getHostEnergyJ(){ return broker.getEnergyMeter().totalHostEnergyJ(sim.clock()); }
+
+    /** 完成的任务数（取任务表的累计计数，开了 resultLog 时也包括已释放的） */
+    public long getFinished(){ return broker.getTaskTable().finishedCount(); }
+
+    /** 最后一个完成任务的完成时刻（秒）；没有任务完成时为 0 */
+    public double getMakespan(){ return broker.getTaskTable().lastFinishAt(); }
+
+    /** 结果送回时刻超过 到达时刻 + DEADLINE_BUDGET_SEC 的任务数（任务表在结果送回时累计） */
+    public int getDeadlineMisses(){ return (int) broker.getTaskTable().deadlineMisses(); }
+
+    /** 送回结果的任务的在线统计（时延分位数、deadline 超时率、每 VM 吞吐）与结果日志 */
+    public ResultsSink getResults(){ return results; }
+
+    /* ------------------ 构建 ------------------ */
+
+    private static List<Host> createHosts(EnvConfig cfg){
+        List<Host> hs = new ArrayList<>();
+        for (int i = 0; i < cfg.getHosts(); i++) {
+            List<Pe> pes = new ArrayList<>();
+            for (int p = 0; p < cfg.getHostPes(); p++) pes.add(new PeSimple(cfg.getHostMipsPerPe()));
+            HostSimple h = new HostSimple(HOST_RAM, HOST_BW, HOST_STO, pes);
+            h.setPowerModel(new PowerModelHostSimple(cfg.getHostMaxPowerW(), cfg.getHostMaxPowerW() * cfg.getHostIdleRatio()));
+            h.setId(1 + i);
+            hs.add(h);
+        }
+        return hs;
+    }
+
+    private static StHgnnPolicy loadPolicy(Path p){
+        try {
+            return StHgnnPolicy.load(p);
+        } catch (IOException e) {
+            throw new RuntimeException("cannot load policy weights: " + p, e);
+        }
+    }
+
+    private static ResultsSink openResults(Path p){
+        try {
+            return ResultsSink.open(p);
+        } catch (IOException e) {
+            throw new RuntimeException("cannot create result log: " + p, e);
+        }
+    }
+
+    private static NetworkProfile loadProfile(Path csv){
+        try {
+            if (csv != null && Files.exists(csv)) {
+                // 预编译的二进制画像直接映射，否则解析 CSV
+                return csv.toString().endsWith(MappedNetworkProfile.EXT)
+                        ? MappedNetworkProfile.open(csv)
+                        : NetworkProfileCsv.loadCsv(csv);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("cannot load network profile: " + csv, e);
+        }
+        return new NetworkProfileCsv();
+    }
+}
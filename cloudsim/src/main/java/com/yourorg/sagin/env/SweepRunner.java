@@ -0,0 +1,191 @@
+package com.yourorg.sagin.env;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yourorg.sagin.io.NullBridgeTransport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 参数扫描：从 JSON 配置读参数网格，每个网格点 × 每个重复各跑一个独立仿真（不连策略进程），
+ * 在 ForkJoinPool 上并行，最后按网格点顺序写一张汇总 CSV。
+ *
+ * 配置示例（key 与 EnvConfig 的方法名一致，网格按 key 顺序展开，最后一个 key 变化最快）：
+ * <pre>
+ * {
+ *   "baseSeed": 42, "replicates": 3, "threads": 0, "out": "sweep_results.csv",
+ *   "base": { "terminateAt": 120 },
+ *   "grid": { "hosts": [2, 4], "lambdaGs": [0.1, 0.15, 0.3] }
+ * }
+ * </pre>
+ * 可复现：第 r 次重复的种子只由 baseSeed 和 r 决定（各网格点共用同一组种子，差异只来自参数），
+ * 结果按下标落位，与线程数和完成顺序无关。
+ *
+ * 用法：java ... com.yourorg.sagin.env.SweepRunner sweep.json [threads]
+ */
+public class SweepRunner {
+
+    /** 一次仿真的结果 */
+    public static final class Result {
+        public final long finished;
+        public final int deadlineMisses;
+        public final double makespan;
+        public final double hostEnergyJ;
+        public final double netEnergyJ;
+
+        Result(SagEnv e){
+            this.finished = e.getFinished();
+            this.deadlineMisses = e.getDeadlineMisses();
+            this.makespan = e.getMakespan();
+            this.hostEnergyJ = e.getHostEnergyJ();
+            this.netEnergyJ = e.getBroker().getNetEnergyJ();
+        }
+    }
+
+    private final EnvConfig base;
+    private final LinkedHashMap<String, List<Object>> grid;
+    private final int replicates;
+    private final long[] seeds;
+
+    public SweepRunner(EnvConfig base, LinkedHashMap<String, List<Object>> grid, int replicates, long baseSeed){
+        this.base = base;
+        this.grid = grid;
+        this.replicates = Math.max(1, replicates);
+        this.seeds = new long[this.replicates];
+        SplittableRandom rnd = new SplittableRandom(baseSeed);
+        for (int r = 0; r < this.replicates; r++) seeds[r] = rnd.nextLong();
+    }
+
+    /** 网格点总数 */
+    public int points(){
+        int n = 1;
+        for (List<Object> vs : grid.values()) n *= vs.size();
+        return n;
+    }
+
+    /** 第 p 个网格点上各参数的取值（按 grid 的 key 顺序） */
+    public Object[] valuesOf(int p){
+        Object[] out = new Object[grid.size()];
+        int i = out.length - 1;
+        List<List<Object>> axes = new ArrayList<>(grid.values());
+        for (; i >= 0; i--) {
+            List<Object> vs = axes.get(i);
+            out[i] = vs.get(p % vs.size());
+            p /= vs.size();
+        }
+        return out;
+    }
+
+    public EnvConfig configOf(int p, int r){
+        EnvConfig c = base.copy().seed(seeds[r]);
+        Object[] vs = valuesOf(p);
+        int i = 0;
+        for (String k : grid.keySet()) c.set(k, vs[i++]);
+        return c.forRun("p" + p + "-r" + r);
+    }
+
+    /** 跑完整个网格，返回 [point][replicate] */
+    public Result[][] run(int threads){
+        int nPoints = points();
+        Result[][] res = new Result[nPoints][replicates];
+        List<Callable<Void>> tasks = new ArrayList<>(nPoints * replicates);
+        for (int p = 0; p < nPoints; p++) {
+            for (int r = 0; r < replicates; r++) {
+                final int pp = p, rr = r;
+                tasks.add(() -> {
+                    SagEnv e = new SagEnv(configOf(pp, rr), Paths.get("bridge"), new NullBridgeTransport()).run();
+                    res[pp][rr] = new Result(e);
+                    return null;
+                });
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+        } catch (Exception e) {
+            throw new RuntimeException("sweep failed", e);
+        } finally {
+            pool.shutdown();
+        }
+        return res;
+    }
+
+    /** 每个网格点一行：参数取值 + 各指标在重复间的均值 */
+    public void writeCsv(Path out, Result[][] res) throws IOException {
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        try (BufferedWriter w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            StringBuilder sb = new StringBuilder("point");
+            for (String k : grid.keySet()) sb.append(',').append(k);
+            sb.append(",replicates,finished,makespan,deadline_misses,host_energy_j,net_energy_j,total_energy_j");
+            w.write(sb.toString());
+            w.newLine();
+
+            for (int p = 0; p < res.length; p++) {
+                double fin = 0, mk = 0, miss = 0, hj = 0, nj = 0;
+                for (Result r : res[p]) {
+                    fin += r.finished; mk += r.makespan; miss += r.deadlineMisses;
+                    hj += r.hostEnergyJ; nj += r.netEnergyJ;
+                }
+                int n = res[p].length;
+                sb.setLength(0);
+                sb.append(p);
+                for (Object v : valuesOf(p)) sb.append(',').append(v);
+                sb.append(',').append(n)
+                  .append(',').append(fmt(fin / n))
+                  .append(',').append(fmt(mk / n))
+                  .append(',').append(fmt(miss / n))
+                  .append(',').append(fmt(hj / n))
+                  .append(',').append(fmt(nj / n))
+                  .append(',').append(fmt((hj + nj) / n));
+                w.write(sb.toString());
+                w.newLine();
+            }
+        }
+    }
+
+    private static String fmt(double v){ return String.format(Locale.ROOT, "%.6f", v); }
+
+    /* ======================= 入口 ======================= */
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: SweepRunner <sweep.json> [threads]");
+            System.exit(2);
+        }
+        Map<String,Object> cfg = new ObjectMapper().readValue(Paths.get(args[0]).toFile(), LinkedHashMap.class);
+
+        EnvConfig base = new EnvConfig();
+        Map<String,Object> b = (Map<String,Object>) cfg.getOrDefault("base", Collections.emptyMap());
+        for (var e : b.entrySet()) base.set(e.getKey(), e.getValue());
+
+        LinkedHashMap<String, List<Object>> grid = new LinkedHashMap<>();
+        Map<String,Object> g = (Map<String,Object>) cfg.getOrDefault("grid", Collections.emptyMap());
+        for (var e : g.entrySet()) {
+            Object v = e.getValue();
+            grid.put(e.getKey(), v instanceof List ? (List<Object>) v : List.of(v));
+        }
+
+        int replicates = ((Number) cfg.getOrDefault("replicates", 1)).intValue();
+        long baseSeed  = ((Number) cfg.getOrDefault("baseSeed", 42)).longValue();
+        int threads    = args.length > 1 ? Integer.parseInt(args[1])
+                                         : ((Number) cfg.getOrDefault("threads", 0)).intValue();
+        Path out = Paths.get(String.valueOf(cfg.getOrDefault("out", "sweep_results.csv")));
+
+        SweepRunner sweep = new SweepRunner(base, grid, replicates, baseSeed);
+        long t0 = System.nanoTime();
+        Result[][] res = sweep.run(threads);
+        sweep.writeCsv(out, res);
+        System.out.printf("%n[Sweep] %d points x %d replicates -> %s (%.2fs)%n",
+                sweep.points(), replicates, out.toAbsolutePath(), (System.nanoTime() - t0) / 1e9);
+    }
+}
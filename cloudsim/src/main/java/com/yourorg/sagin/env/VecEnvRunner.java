@@ -0,0 +1,90 @@
+package com.yourorg.sagin.env;
+
+import com.yourorg.sagin.io.BatchedBridge;
+import com.yourorg.sagin.io.BridgeTransport;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 一个 JVM 里并行跑 N 个独立仿真实例（PPO 并行采样）：
+ * 各实例在自己的线程里推进，每个 tick 在 BatchedBridge 上汇合，整批 state 一次发给策略进程，
+ * 一次收回整批 action。种子由 baseSeed 派生，同一 (N, baseSeed) 每次得到相同的实例序列。
+ *
+ * 用法：java -Dsagin.bridge=socket[:addr] ... com.yourorg.sagin.env.VecEnvRunner [N] [baseSeed]
+ */
+public class VecEnvRunner {
+
+    private final List<SagEnv> envs = new ArrayList<>();
+    private final BatchedBridge bridge;
+
+    public VecEnvRunner(EnvConfig base, int n, long baseSeed, BridgeTransport upstream, Path bridgeDir){
+        this.bridge = new BatchedBridge(upstream, n, base.getTickSeconds() * 0.9);
+        SplittableRandom seeds = new SplittableRandom(baseSeed);
+        for (int i = 0; i < n; i++) {
+            EnvConfig cfg = base.copy().seed(seeds.nextLong()).forRun("env" + i);
+            envs.add(new SagEnv(cfg, bridgeDir.resolve("env" + i), bridge.view(i)));
+        }
+    }
+
+    /** 所有实例跑完后返回；实例之间靠屏障同步推进，所以每个实例独占一个线程 */
+    public List<SagEnv> run(){
+        ExecutorService pool = Executors.newFixedThreadPool(envs.size(), r -> {
+            Thread t = new Thread(r, "sagin-env");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<SagEnv>> fs = new ArrayList<>();
+            for (SagEnv e : envs) fs.add(pool.submit(e::run));
+            for (Future<SagEnv> f : fs) f.get();
+        } catch (Exception e) {
+            throw new RuntimeException("vec env run failed", e);
+        } finally {
+            pool.shutdownNow();
+            try { bridge.close(); } catch (Exception ignored) {}
+        }
+        return envs;
+    }
+
+    public BatchedBridge getBridge(){ return bridge; }
+
+    public static void main(String[] args){
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long baseSeed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        Path bridgeDir = Paths.get("bridge");
+        String mode = System.getProperty("sagin.bridge", "file");
+        BridgeTransport upstream;
+        try {
+            upstream = BridgeTransport.open(mode, bridgeDir);
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("cannot open bridge (" + mode + ")", e);
+        }
+
+        EnvConfig base = new EnvConfig();
+        String csv = System.getProperty("sagin.profile");
+        if (csv != null) base.profileCsv(Paths.get(csv));
+
+        long t0 = System.nanoTime();
+        VecEnvRunner runner = new VecEnvRunner(base, n, baseSeed, upstream, bridgeDir);
+        List<SagEnv> done = runner.run();
+        double wall = (System.nanoTime() - t0) / 1e9;
+
+        System.out.println("\n===== VecEnv Summary =====");
+        System.out.printf("envs=%d steps=%d timeouts=%d wall=%.3fs%n",
+                n, runner.getBridge().getSteps(), runner.getBridge().getTimeouts(), wall);
+        for (int i = 0; i < done.size(); i++) {
+            SagEnv e = done.get(i);
+            System.out.printf("env %-3d seed=%-20d finished=%-4d makespan=%8.3f misses=%-3d hostJ=%.3f netJ=%.6f%n",
+                    i, e.getConfig().getSeed(), e.getFinished(),
+                    e.getMakespan(), e.getDeadlineMisses(), e.getHostEnergyJ(), e.getBroker().getNetEnergyJ());
+        }
+    }
+}
@@ -1,33 +1,81 @@
 package com.yourorg.sagin.gen;
 
+import com.yourorg.sagin.broker.STHGNNBroker;
+import com.yourorg.sagin.metrics.TickMetrics;
+import com.yourorg.sagin.metrics.TickMetrics.Phase;
 import org.cloudsimplus.core.Simulation;
 import org.cloudsimplus.brokers.DatacenterBrokerSimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
 import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
 import org.cloudsimplus.vms.Vm;
 import org.cloudsimplus.cloudlets.CloudletSimple;
 import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
 import org.cloudsimplus.listeners.EventInfo;
 
-// 事件参数类型
-import org.cloudsimplus.listeners.EventInfo;
-
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
+/**
+ * 泊松任务生成器：按来源类别（GS、SAT，以及 addClass 加的任意类别）各自一条泊松流。
+ *
+ * - 预采样：每次把下一个窗口（window 秒）里所有到达一次采好，按到达时刻归并排序，
+ *   每个任务的 submissionDelay = 到达时刻 − 现在，整窗一次 submitCloudletList；
+ *   broker 按各自的 delay 发精确时刻的事件，不再被 tick 粒度量化
+ * - broker 的 VM 建好时采第一个窗口（之前提交会被 broker 当成无 VM 可映射而推迟，还连带重试
+ *   已在等待的 Cloudlet）；窗口里最后一个到达发生时（那一刻一定有事件）采下一个窗口，
+ *   不依赖别处有没有时钟事件；泊松流跨窗口连续（无记忆）
+ * - id 由单调递增的 AtomicLong 分配（起点 idBase），不再扫 broker 的列表；同一生成器内不会重号，
+ *   broker 里还有别的来源提交的 Cloudlet 时须用 idBase 错开号段（STHGNNBroker 遇到重号直接报错）
+ *
+ * 到达时间轴从 VM 建好那一刻算起。
+ */
 public class PoissonTaskGenerator {
     private final Simulation sim;
     private final DatacenterBrokerSimple broker;
-    private final Random rng = new Random(42);
+    private Random rng = new Random(42);
+
+    /** 一类任务：到达率 + 长度 / 上下行大小分布 */
+    private static final class TaskClass {
+        final String name;
+        double lambda;
+        final long minMi, spanMi;
+        final long upBytes, downBytes;   // < 0 = 沿用 cloudletTemplate 的设置
+        double next;                     // 下一个到达时刻
+        long generated;
+
+        TaskClass(String name, double lambda, long minMi, long maxMi, long upBytes, long downBytes){
+            this.name = name;
+            this.lambda = lambda;
+            this.minMi = minMi;
+            this.spanMi = Math.max(1, maxMi - minMi);
+            this.upBytes = upBytes;
+            this.downBytes = downBytes;
+        }
+    }
 
-    private double lambdaGs = 0.0;
-    private double lambdaSat = 0.0;
+    private final List<TaskClass> classes = new ArrayList<>();
+    private final TaskClass gs;
+    private final TaskClass sat;
 
-    private double nextGs = 0.0;
-    private double nextSat = 0.0;
+    /** 预采样窗口（秒） */
+    private double window = 10.0;
+    /** 已采样到的时刻；下一窗口从这里接着采 */
+    private double sampledUntil = 0.0;
+    /** 到这个时刻（本窗口最后一个到达）采下一窗口 */
+    private double refillAt = Double.POSITIVE_INFINITY;
+    private boolean started;
+
+    private final AtomicLong ids = new AtomicLong(1);
+    private final List<Cloudlet> batch = new ArrayList<>();
+    private long batches;
 
     private final List<Vm> bindVms = new ArrayList<>();
     private int rr = 0;
 
+    /** tick 回调耗时记到这里（Phase.GENERATOR）；broker 是 STHGNNBroker 时默认用它的，null = 不计时 */
+    private TickMetrics metrics;
+
 
     private Function<Long, CloudletSimple> factory =
             (len) -> {
@@ -46,13 +94,39 @@ public class PoissonTaskGenerator {
     public PoissonTaskGenerator(Simulation sim, DatacenterBrokerSimple broker) {
         this.sim = sim;
         this.broker = broker;
+        this.metrics = broker instanceof STHGNNBroker b ? b.getMetrics() : null;
+        this.gs = addClassInternal("GS", 0.0, 40_000L, 60_000L, -1, -1);
+        this.sat = addClassInternal("SAT", 0.0, 20_000L, 30_000L, -1, -1);
+        broker.addOnVmsCreatedListener(this::onVmsCreated);
         sim.addOnClockTickListener(this::onTick);
-        this.nextGs = 0.0;
-        this.nextSat = 0.0;
     }
 
-    public PoissonTaskGenerator lambdaGs(double l){ this.lambdaGs = l; return this; }
-    public PoissonTaskGenerator lambdaSat(double l){ this.lambdaSat = l; return this; }
+    public PoissonTaskGenerator metrics(TickMetrics m){ this.metrics = m; return this; }
+
+    /** 换随机种子（多环境/参数扫描时每个实例独立的随机流） */
+    public PoissonTaskGenerator seed(long seed){ this.rng = new Random(seed); return this; }
+
+    public PoissonTaskGenerator lambdaGs(double l){ gs.lambda = l; return this; }
+    public PoissonTaskGenerator lambdaSat(double l){ sat.lambda = l; return this; }
+
+    /**
+     * 追加一类任务：到达率 lambda（个/秒），长度在 [minMi, maxMi) 均匀，
+     * 上/下行字节固定（< 0 沿用 cloudletTemplate 的设置）。须在仿真开始前调用。
+     */
+    public PoissonTaskGenerator addClass(String name, double lambda, long minMi, long maxMi, long upBytes, long downBytes){
+        addClassInternal(name, lambda, minMi, maxMi, upBytes, downBytes);
+        return this;
+    }
+
+    /** 预采样窗口长度（秒）；λ 很大时调小可以减少一次性建的 Cloudlet 数 */
+    public PoissonTaskGenerator window(double sec){
+        if (sec <= 0) throw new IllegalArgumentException("window must be > 0: " + sec);
+        this.window = sec;
+        return this;
+    }
+
+    /** 第一个分配的 Cloudlet id（默认 1）；与其他来源的 Cloudlet 共用 broker 时错开号段 */
+    public PoissonTaskGenerator idBase(long first){ ids.set(first); return this; }
 
     public PoissonTaskGenerator bindRoundRobin(List<Vm> vms){
         this.bindVms.clear();
@@ -66,35 +140,93 @@ public class PoissonTaskGenerator {
         return this;
     }
 
+    /** 已生成的任务数（全部类别 / 按类别名）与提交批次数 */
+    public long getGenerated(){
+        long n = 0;
+        for (TaskClass k : classes) n += k.generated;
+        return n;
+    }
+
+    public long getGenerated(String name){
+        for (TaskClass k : classes) if (k.name.equals(name)) return k.generated;
+        return 0;
+    }
+
+    public long getBatches(){ return batches; }
+
+    private TaskClass addClassInternal(String name, double lambda, long minMi, long maxMi, long upBytes, long downBytes){
+        if (started) throw new IllegalStateException("task classes must be added before the simulation starts");
+        TaskClass k = new TaskClass(name, lambda, minMi, maxMi, upBytes, downBytes);
+        classes.add(k);
+        return k;
+    }
+
+    private void onVmsCreated(EventInfo info){
+        if (started) return;
+        started = true;
+        double time = sim.clock();   // 监听里给的时刻可能落后于时钟；delay 要按 broker 发事件用的 clock 算
+        for (TaskClass k : classes) k.next = k.lambda > 0 ? time + exp(k.lambda) : Double.POSITIVE_INFINITY;
+        sampledUntil = time;
+        refill(time);
+    }
+
     private void onTick(EventInfo info){
-        double time = info.getTime();
+        long t0 = metrics == null ? 0 : System.nanoTime();
+        double time = sim.clock();   // 监听里给的时刻可能落后于时钟；delay 要按 broker 发事件用的 clock 算
+        // 到了 terminateAt 就不再补：CloudSim 收尾时会把队列里剩下的事件跑完，一直补就永远停不下来
+        if (started && time >= refillAt && !sim.isTimeToTerminateSimulationUnderRequest()) refill(time);
+        if (metrics != null) metrics.lap(Phase.GENERATOR, t0);
+    }
 
-        while(lambdaGs > 0 && time >= nextGs){
-            submitOne("GS");
-            nextGs = time + exp(lambdaGs);
+    /**
+     * 采样 (sampledUntil, sampledUntil + window] 里的到达并一次提交；窗口里一个都没有就接着往后延，
+     * 保证至少有一个到达事件来触发下一次采样。所有类别 λ 都是 0 时什么也不做。
+     */
+    private void refill(double now){
+        double end = Math.max(sampledUntil, now) + window;
+        while (true) {
+            // 多条流按到达时刻归并（类别很少，逐个比较即可）
+            while (true) {
+                TaskClass k = null;
+                for (TaskClass x : classes) if (x.next <= end && (k == null || x.next < k.next)) k = x;
+                if (k == null) break;
+                batch.add(create(k, k.next, now));
+                k.next += exp(k.lambda);
+            }
+            sampledUntil = end;
+            if (!batch.isEmpty() || !anyActive()) break;
+            end += window;
         }
-        while(lambdaSat > 0 && time >= nextSat){
-            submitOne("SAT");
-            nextSat = time + exp(lambdaSat);
+        if (batch.isEmpty()) {
+            refillAt = Double.POSITIVE_INFINITY;
+            return;
         }
+        refillAt = batch.get(batch.size() - 1).getSubmissionDelay() + now;
+        broker.submitCloudletList(batch);
+        batch.clear();
+        batches++;
     }
 
-    private void submitOne(String src){
-        long len = src.equals("GS") ? 40_000L + rng.nextInt(20_000) : 20_000L + rng.nextInt(10_000);
+    private CloudletSimple create(TaskClass k, double arrival, double now){
+        long len = k.minMi + (long) (rng.nextDouble() * k.spanMi);
         CloudletSimple c = factory.apply(len);
-        c.setId(broker.getCloudletSubmittedList().size() + broker.getCloudletWaitingList().size() + 1);
+        c.setId(ids.getAndIncrement());
+        if (k.upBytes >= 0) c.setFileSize(k.upBytes);
+        if (k.downBytes >= 0) c.setOutputSize(k.downBytes);
+        c.setSubmissionDelay(Math.max(0.0, arrival - now));
+        k.generated++;
 
         if(!bindVms.isEmpty()){
             Vm vm = bindVms.get(rr % bindVms.size());
             rr++;
-            // 根据 VM 给出“占比”需求（每个 cloudlet 都不同）
-//            double ramFrac = rng.nextDouble(0.15, 0.30);  // 用 VM RAM 的 15%~30%
-//            double bwFrac  = rng.nextDouble(0.20, 0.45);  // 用 VM BW 的 20%~45%
-//            c.setUtilizationModelRam(new UtilizationModelDynamic(ramFrac));
-//            c.setUtilizationModelBw (new UtilizationModelDynamic(bwFrac));
             broker.bindCloudletToVm(c, vm);
         }
-        broker.submitCloudlet(c);
+        return c;
+    }
+
+    private boolean anyActive(){
+        for (TaskClass k : classes) if (k.lambda > 0) return true;
+        return false;
     }
 
     private double exp(double lambda){
@@ -0,0 +1,244 @@
+package com.yourorg.sagin.gen;
+
+import com.yourorg.sagin.broker.STHGNNBroker;
+import com.yourorg.sagin.metrics.TickMetrics;
+import com.yourorg.sagin.metrics.TickMetrics.Phase;
+
+import org.cloudsimplus.brokers.DatacenterBrokerSimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.core.Simulation;
+import org.cloudsimplus.listeners.EventInfo;
+import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 卸载轨迹回放：按到达顺序流式读 CSV（可 .gz），只把 [now, now + horizon] 内的行建成 CloudletSimple，
+ * 与 PoissonTaskGenerator 一样整窗一次提交、submissionDelay 精确到达；窗口里最后一个到达发生时读下一窗。
+ * 文件只往前读一行（lookahead），本类不持有已提交的 Cloudlet，驻留内存只跟 horizon 内的行数有关，
+ * 几百万行的轨迹也是打开即跑。
+ *
+ * CSV 列：t_arrival, src, mi, up_bytes, down_bytes, deadline[, id[, pes]]
+ * 例：
+ * 0.35, 1, 42000, 1048576, 65536, 20.35
+ * 0.80, 3, 25000,  524288, 65536, 0
+ * - deadline 是绝对时刻（秒，和 t_arrival 同一时间轴）；<= 0 表示用 broker 的默认预算
+ * - 没有 id 列时由 AtomicLong 分配（起点 idBase）；# 开头的行和表头跳过
+ * - broker 是 STHGNNBroker 时来源节点与 deadline 直接写进它的任务表（不经 mapping.yaml）
+ */
+public class TraceReplayGenerator implements Closeable {
+
+    private final Simulation sim;
+    private final DatacenterBrokerSimple broker;
+    private final Path trace;
+    private BufferedReader in;
+
+    /** 预读窗口（秒） */
+    private double horizon = 10.0;
+    /** 轨迹时间 − shift = 仿真时间；rebase 时取第一行的 t */
+    private double shift;
+    private boolean rebase;
+
+    /* ---------- lookahead 一行 ---------- */
+    private boolean hasNext;
+    private double nT, nDeadline;
+    private int nSrc, nPes;
+    private long nMi, nUp, nDown, nId;
+
+    private double refillAt = Double.POSITIVE_INFINITY;
+    private double lastT = Double.NEGATIVE_INFINITY;
+    private boolean started;
+
+    private final AtomicLong ids = new AtomicLong(1);
+    private final List<Cloudlet> batch = new ArrayList<>();
+    private int[] batchSrc = new int[256];
+    private double[] batchDeadline = new double[256];
+
+    private long rowsRead, badRows, rowsOutOfOrder, batches;
+
+    /** tick 回调耗时记到这里（Phase.GENERATOR）；broker 是 STHGNNBroker 时默认用它的，null = 不计时 */
+    private TickMetrics metrics;
+
+    public TraceReplayGenerator(Simulation sim, DatacenterBrokerSimple broker, Path trace) {
+        this.sim = sim;
+        this.broker = broker;
+        this.trace = trace;
+        this.metrics = broker instanceof STHGNNBroker b ? b.getMetrics() : null;
+        broker.addOnVmsCreatedListener(this::onVmsCreated);
+        sim.addOnClockTickListener(this::onTick);
+    }
+
+    public TraceReplayGenerator metrics(TickMetrics m){ this.metrics = m; return this; }
+
+    /** 预读窗口长度（秒） */
+    public TraceReplayGenerator horizon(double sec){
+        if (sec <= 0) throw new IllegalArgumentException("horizon must be > 0: " + sec);
+        this.horizon = sec;
+        return this;
+    }
+
+    /** 把轨迹第一行的到达时刻对齐到开始回放的时刻（VM 建好时）（轨迹用的是墙钟 / epoch 时间时） */
+    public TraceReplayGenerator rebase(boolean on){ this.rebase = on; return this; }
+
+    /** 没有 id 列时第一个分配的 Cloudlet id（默认 1） */
+    public TraceReplayGenerator idBase(long first){ ids.set(first); return this; }
+
+    public long getRowsRead(){ return rowsRead; }
+    public long getBadRows(){ return badRows; }
+    public long getRowsOutOfOrder(){ return rowsOutOfOrder; }
+    public long getBatches(){ return batches; }
+    public boolean isExhausted(){ return started && !hasNext; }
+
+    /** 读到末尾会自己关；提前结束仿真时调用 */
+    @Override
+    public void close(){
+        hasNext = false;
+        if (in == null) return;
+        try { in.close(); } catch (IOException ignored) {}
+        in = null;
+    }
+
+    /* ======================= 回放 ======================= */
+
+    /** broker 的 VM 建好才开始读：之前提交的 Cloudlet 无 VM 可映射，只会被推迟 */
+    private void onVmsCreated(EventInfo info){
+        if (started) return;
+        started = true;
+        try {
+            in = open(trace);
+        } catch (IOException e) {
+            throw new RuntimeException("cannot open task trace: " + trace, e);
+        }
+        readNext();
+        double time = sim.clock();
+        if (rebase && hasNext) shift = nT - time;
+        refill(time);
+    }
+
+    private void onTick(EventInfo info){
+        long t0 = metrics == null ? 0 : System.nanoTime();
+        double time = sim.clock();   // 监听里给的时刻可能落后于时钟；delay 要按 broker 发事件用的 clock 算
+        // 到了 terminateAt 就不再补：CloudSim 收尾时会把队列里剩下的事件跑完，一直补就永远停不下来
+        if (started && time >= refillAt && !sim.isTimeToTerminateSimulationUnderRequest()) refill(time);
+        if (metrics != null) metrics.lap(Phase.GENERATOR, t0);
+    }
+
+    /** 提交到达时刻 <= now + horizon 的行；一行都没有就至少取下一行，保证有事件触发下一次读取 */
+    private void refill(double now){
+        double end = now + horizon;
+        while (hasNext && (batch.isEmpty() || nT - shift <= end)) {
+            add(now);
+            readNext();
+        }
+        if (batch.isEmpty()) {
+            refillAt = Double.POSITIVE_INFINITY;
+            return;
+        }
+        refillAt = batch.get(batch.size() - 1).getSubmissionDelay() + now;
+        broker.submitCloudletList(batch);
+        if (broker instanceof STHGNNBroker b) {
+            for (int i = 0; i < batch.size(); i++) b.annotateTask(batch.get(i).getId(), batchSrc[i], batchDeadline[i]);
+        }
+        batch.clear();
+        batches++;
+    }
+
+    private void add(double now){
+        CloudletSimple c = new CloudletSimple(nMi, nPes);
+        c.setFileSize(nUp);
+        c.setOutputSize(nDown);
+        c.setUtilizationModelCpu(new UtilizationModelFull());
+        c.setUtilizationModelRam(new UtilizationModelDynamic(0.05));
+        c.setUtilizationModelBw(new UtilizationModelDynamic(0.10));
+        c.setId(nId >= 0 ? nId : ids.getAndIncrement());
+        c.setSubmissionDelay(Math.max(0.0, nT - shift - now));
+
+        int i = batch.size();
+        if (i == batchSrc.length) {
+            batchSrc = Arrays.copyOf(batchSrc, i * 2);
+            batchDeadline = Arrays.copyOf(batchDeadline, i * 2);
+        }
+        batchSrc[i] = nSrc;
+        batchDeadline[i] = nDeadline > 0 ? nDeadline - shift : Double.NaN;
+        batch.add(c);
+    }
+
+    /* ======================= 读文件 ======================= */
+
+    private static BufferedReader open(Path p) throws IOException {
+        if (p.getFileName().toString().endsWith(".gz")) {
+            return new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(p), 1 << 16), StandardCharsets.UTF_8), 1 << 16);
+        }
+        return new BufferedReader(Files.newBufferedReader(p, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /** 读下一条有效行到 lookahead；文件读完就关 */
+    private void readNext(){
+        hasNext = false;
+        if (in == null) return;
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split(",");
+                if (f.length < 6) { badRows++; continue; }
+                try {
+                    nT = Double.parseDouble(f[0].trim());
+                } catch (NumberFormatException e) {
+                    if (rowsRead > 0) badRows++;   // 数据行之前的当表头
+                    continue;
+                }
+                nSrc = parseInt(f[1]);
+                nMi = Math.max(1, parseLong(f[2]));
+                nUp = Math.max(0, parseLong(f[3]));
+                nDown = Math.max(0, parseLong(f[4]));
+                nDeadline = parseDouble(f[5]);
+                nId = f.length > 6 && !f[6].isBlank() ? parseLong(f[6]) : -1;
+                nPes = f.length > 7 ? Math.max(1, parseInt(f[7])) : 1;
+
+                if (nT < lastT) rowsOutOfOrder++;   // 乱序行照样回放（delay 按 0 截断），只计数
+                lastT = Math.max(lastT, nT);
+                rowsRead++;
+                hasNext = true;
+                return;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("task trace read failed: " + trace, e);
+        }
+        close();
+    }
+
+    private static double parseDouble(String s){
+        try { return Double.parseDouble(s.trim()); }
+        catch (Exception ignore){ return 0.0; }
+    }
+
+    private static long parseLong(String s){
+        try { return Long.parseLong(s.trim()); }
+        catch (Exception ignore){ return (long) parseDouble(s); }
+    }
+
+    private static int parseInt(String s){
+        return (int) parseLong(s);
+    }
+
+    @Override public String toString(){
+        return "TraceReplayGenerator{trace=" + trace.getFileName() + ", rows=" + rowsRead + ", batches=" + batches +
+                ", bad=" + badRows + ", outOfOrder=" + rowsOutOfOrder + ", exhausted=" + isExhausted() + "}";
+    }
+}
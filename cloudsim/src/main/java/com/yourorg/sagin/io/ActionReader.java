@@ -1,35 +1,86 @@
 package com.yourorg.sagin.io;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yourorg.sagin.metrics.TickMetrics;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+/** 从 BridgeTransport 等待 action（JSON）并解析；超时回退为空动作 */
 public class ActionReader {
-    private final Path bridgeDir;
+    private final BridgeTransport transport;
     private final long timeoutMillis;
     private final ObjectMapper om = new ObjectMapper();
+    /** 传输层给的是 direct buffer 时，拷到这里再解析 */
+    private byte[] scratch = new byte[4096];
+    /** null = 不计时 */
+    private TickMetrics metrics;
 
+    /** 兼容旧用法：文件桥接 */
     public ActionReader(Path bridgeDir, double timeoutSimSeconds){
-        this.bridgeDir = bridgeDir;
+        this(new FileBridgeTransport(bridgeDir), timeoutSimSeconds);
+    }
+
+    public ActionReader(BridgeTransport transport, double timeoutSimSeconds){
+        this.transport = transport;
         this.timeoutMillis = (long)(timeoutSimSeconds * 1000);
     }
 
+    /** 每次等待记进 metrics（耗时、超时、重试），见 TickMetrics.bridgeWait */
+    public ActionReader metrics(TickMetrics m){ this.metrics = m; return this; }
+
     @SuppressWarnings("unchecked")
     public Map<String,Object> read(long tick){
-        String fileName = String.format("action_%06d.json", tick);
-        Path fin = bridgeDir.resolve(fileName);
+        Map<String,Object> m = readOrNull(tick);
+        if (m != null) return m;
+        return (Map)Collections.singletonMap("actions", Collections.<Map<String,Object>>emptyList());
+    }
+
+    /** 同 read，但超时或坏帧返回 null（供调用方区分“没拿到 action”和“空动作”并计数） */
+    public Map<String,Object> readOrNull(long tick){
+        long t0 = System.nanoTime();
         long start = System.currentTimeMillis();
-        while(System.currentTimeMillis() - start < timeoutMillis){
-            if(Files.exists(fin)){
-                try { return om.readValue(fin.toFile(), Map.class); }
-                catch (IOException ignored) {}
+        long left;
+        int retries = 0;
+        boolean malformed = false;
+        Map<String,Object> m = null;
+        while((left = timeoutMillis - (System.currentTimeMillis() - start)) > 0){
+            ByteBuffer bb;
+            try { bb = transport.awaitAction(tick, left); }
+            catch (IOException e) { break; }
+            if (bb == null) break;
+            try { m = parse(bb); break; }
+            catch (IOException e) {
+                // 文件桥接的对端可能还没写完（非原子写），在剩余时间内重读同一帧；
+                // 其余传输层这一帧已经被消费，重读只会空等到超时：记一个坏帧，按空动作继续
+                if (!transport.mayReturnPartialAction()) {
+                    malformed = true;
+                    System.err.println("[bridge] malformed action for tick " + tick + ": " + e.getMessage());
+                    break;
+                }
             }
-            try { Thread.sleep(10); } catch (InterruptedException ignored) {}
+            retries++;
+            try { Thread.sleep(1); } catch (InterruptedException ignored) {}
         }
-        return (Map)Collections.singletonMap("actions", Collections.<Map<String,Object>>emptyList());
+        if (metrics != null) {
+            metrics.bridgeWait(System.nanoTime() - t0, m == null && !malformed, retries);
+            if (malformed) metrics.malformedAction();
+        }
+        return m;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String,Object> parse(ByteBuffer bb) throws IOException {
+        if (bb.hasArray()) {
+            return om.readValue(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining(), Map.class);
+        }
+        int len = bb.remaining();
+        if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+        bb.get(bb.position(), scratch, 0, len);
+        return om.readValue(scratch, 0, len, Map.class);
     }
 }
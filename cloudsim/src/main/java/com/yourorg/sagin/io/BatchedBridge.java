@@ -0,0 +1,184 @@
+package com.yourorg.sagin.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.Phaser;
+
+/**
+ * 多环境批量桥接：N 个环境各自拿一个 view() 当作自己的 BridgeTransport，
+ * 每一步等所有存活环境都交了 state 后，合成一帧 BATCH 经上游传输层发给策略进程，
+ * 收到一帧批量 action 再拆回各环境。策略侧每步只做一次批量前向。
+ *
+ * 批量 state（StateFormat.BATCH，小端）：
+ * <pre>
+ * magic 'SGVB'(u32) | n(i32) | step(i64)
+ * n × [ env(i32) | format(i32) | tick(i64) | len(i32) | 0(i32) | payload[len]，补齐到 8 字节 ]
+ * </pre>
+ * 批量 action（策略进程回写，step 与 state 相同）：
+ * <pre>
+ * magic 'SGVA'(u32) | n(i32)
+ * n × [ env(i32) | len(i32) | payload[len]（JSON），补齐到 8 字节 ]
+ * </pre>
+ * 环境仿真结束时关闭自己的 view（注销），之后的批次里不再出现该环境。
+ * 上游读写失败时终止屏障，所有环境在各自的 awaitAction 里抛出同一个错误（不会有线程卡在屏障上）。
+ */
+public final class BatchedBridge implements Closeable {
+
+    public static final int STATE_MAGIC  = 0x42564753; // "SGVB"
+    public static final int ACTION_MAGIC = 0x41564753; // "SGVA"
+
+    private final BridgeTransport upstream;
+    private final long timeoutMillis;
+    private final Slot[] slots;
+    private final Phaser phaser;
+
+    private ByteBuffer batch = ByteBuffer.allocate(256 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private long step = 0;
+    private long timeouts = 0;
+    /** 批量交换失败的原因；非 null 后屏障已终止 */
+    private volatile Throwable failure;
+
+    /** 每个环境一格：本步 state + 拆回的 action */
+    private static final class Slot {
+        boolean ready;
+        long tick;
+        StateFormat format;
+        byte[] state = new byte[64 * 1024];
+        int stateLen;
+        byte[] action = new byte[4 * 1024];
+        int actionLen = -1;   // -1 = 本步没有 action（超时或策略未给）
+    }
+
+    public BatchedBridge(BridgeTransport upstream, int nEnvs, double timeoutSeconds){
+        this.upstream = upstream;
+        this.timeoutMillis = (long) (timeoutSeconds * 1000);
+        this.slots = new Slot[nEnvs];
+        for (int i = 0; i < nEnvs; i++) slots[i] = new Slot();
+        // 最后一个到达的线程在 onAdvance 里完成整批交换，其余线程此时都停在屏障上
+        this.phaser = new Phaser(nEnvs) {
+            @Override protected boolean onAdvance(int phase, int parties){
+                exchange();
+                return parties == 0;
+            }
+        };
+    }
+
+    /** 第 env 个环境使用的传输层 */
+    public BridgeTransport view(int env){ return new View(env); }
+
+    public long getSteps(){ return step; }
+    public long getTimeouts(){ return timeouts; }
+
+    @Override
+    public void close() throws IOException { upstream.close(); }
+
+    /* ======================= 批量交换（屏障内执行） ======================= */
+
+    private void exchange(){
+        int n = 0, bytes = 16;
+        for (Slot s : slots) {
+            if (!s.ready) continue;
+            n++;
+            bytes += 24 + pad8(s.stateLen);
+        }
+        if (n == 0) return;
+
+        if (batch.capacity() < bytes) {
+            batch = ByteBuffer.allocate(Integer.highestOneBit(bytes) << 1).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer b = batch;
+        b.clear();
+        b.putInt(STATE_MAGIC).putInt(n).putLong(step);
+        for (int i = 0; i < slots.length; i++) {
+            Slot s = slots[i];
+            s.actionLen = -1;
+            if (!s.ready) continue;
+            b.putInt(i).putInt(s.format.code).putLong(s.tick).putInt(s.stateLen).putInt(0);
+            b.put(s.state, 0, s.stateLen);
+            while ((b.position() & 7) != 0) b.put((byte) 0);
+        }
+        b.flip();
+
+        try {
+            upstream.publishState(step, StateFormat.BATCH, b);
+            ByteBuffer a = upstream.awaitAction(step, timeoutMillis);
+            if (a == null) timeouts++;
+            else scatterActions(a.order(ByteOrder.LITTLE_ENDIAN));
+        } catch (IOException | RuntimeException e) {
+            // 不能从 onAdvance 里抛出：相位推不过去，其他环境会永远停在 awaitAdvance 上
+            failure = e;
+            phaser.forceTermination();
+        } finally {
+            for (Slot s : slots) s.ready = false;
+            step++;
+        }
+    }
+
+    private void scatterActions(ByteBuffer a){
+        int p = a.position();
+        if (a.remaining() < 8 || a.getInt(p) != ACTION_MAGIC) return;
+        int n = a.getInt(p + 4);
+        p += 8;
+        for (int j = 0; j < n && p + 8 <= a.limit(); j++) {
+            int env = a.getInt(p);
+            int len = a.getInt(p + 4);
+            p += 8;
+            if (env >= 0 && env < slots.length && len >= 0 && p + len <= a.limit()) {
+                Slot s = slots[env];
+                if (s.action.length < len) s.action = new byte[Math.max(len, s.action.length * 2)];
+                a.get(p, s.action, 0, len);
+                s.actionLen = len;
+            }
+            p += pad8(len);
+        }
+    }
+
+    private static int pad8(int n){ return (n + 7) & ~7; }
+
+    /* ======================= 单环境视图 ======================= */
+
+    private final class View implements BridgeTransport {
+        private final Slot slot;
+        private long lastAwaited = Long.MIN_VALUE;
+        private boolean closed = false;
+
+        View(int env){ this.slot = slots[env]; }
+
+        @Override
+        public void publishState(long tick, StateFormat format, ByteBuffer payload){
+            int len = payload.remaining();
+            if (slot.state.length < len) slot.state = Arrays.copyOf(slot.state, Math.max(len, slot.state.length * 2));
+            payload.get(slot.state, 0, len);
+            slot.stateLen = len;
+            slot.tick = tick;
+            slot.format = format;
+            slot.ready = true;
+        }
+
+        @Override
+        public ByteBuffer awaitAction(long tick, long timeoutMillis){
+            // 同一步只参与一次屏障（ActionReader 解析失败重试时直接判超时）
+            if (tick == lastAwaited || closed) return null;
+            lastAwaited = tick;
+            phaser.awaitAdvance(phaser.arrive());
+            Throwable f = failure;
+            if (f != null) {
+                if (f instanceof IOException) throw new UncheckedIOException("batched bridge exchange failed", (IOException) f);
+                throw new IllegalStateException("batched bridge exchange failed", f);
+            }
+            return slot.actionLen < 0 ? null : ByteBuffer.wrap(slot.action, 0, slot.actionLen);
+        }
+
+        @Override
+        public void close(){
+            if (closed) return;
+            closed = true;
+            slot.ready = false;
+            phaser.arriveAndDeregister();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.yourorg.sagin.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 二进制列式 state 编码（小端），Python 侧可用 numpy.frombuffer 零拷贝读取。
+ *
+ * 文件头 64 字节：
+ * <pre>
+ *  0  u32 magic 'SGST'        4  u16 version   6  u16 flags(= 帧类型 kind)
+ *  8  i64 k                  16  f64 time     24  f64 net_energy_j
+ * 32  i32 n_vm               36  i32 n_cl     40  i32 header_bytes(=64)   44  i32 total_bytes
+ * 48  i32 n_vm_removed       52  i32 n_cl_removed                        56..63 保留
+ * </pre>
+ * 之后按固定顺序排列各列，每列起点 8 字节对齐（i32/u8 列末尾补零）：
+ * <pre>
+ * vm_id i64 | vm_mips f64 | vm_pes i32 | vm_ram i64 | vm_bw i64 | vm_size i64 | vm_cpu_util f64 | vm_energy_j f64 | vm_node i32
+ * cl_id i64 | cl_len i64 | cl_in_bytes i64 | cl_out_bytes i64 | cl_vm i64 | cl_src_id i32 | cl_phase u8
+ * vm_removed i64[n_vm_removed] | cl_removed i64[n_cl_removed]
+ * </pre>
+ * vm_node / cl_src_id 是 mapping.yaml 里的节点 id（v2 起有 vm_node）。
+ * cl_phase：0 = WAITING，1 = RUNNING。kind：0 = FULL，1 = KEYFRAME，2 = DELTA（行只含新增/变化条目）。
+ */
+public final class BinaryStateEncoder {
+
+    public static final int MAGIC = 0x54534753; // 小端字节序即 "SGST"
+    public static final short VERSION = 2;
+    public static final int HEADER_BYTES = 64;
+
+    private ByteBuffer buf = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    /** 编码后的字节数（按上面的布局精确计算） */
+    public static int encodedSize(int nVm, int nCl, int nVmRemoved, int nClRemoved){
+        return HEADER_BYTES
+                + 7 * pad8(8 * nVm) + 2 * pad8(4 * nVm)
+                + 5 * pad8(8 * nCl) + pad8(4 * nCl) + pad8(nCl)
+                + 8 * nVmRemoved + 8 * nClRemoved;
+    }
+
+    /** 编码进内部复用缓冲区；返回的 ByteBuffer 在下一次 encode 前有效 */
+    public ByteBuffer encode(StateSnapshot s){
+        int nVm = s.vmCount, nCl = s.clCount;
+        int total = encodedSize(nVm, nCl, s.vmRemovedCount, s.clRemovedCount);
+        if (buf.capacity() < total) {
+            buf = ByteBuffer.allocate(Integer.highestOneBit(total) << 1).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer b = buf;
+        b.clear();
+
+        b.putInt(MAGIC).putShort(VERSION).putShort((short) s.kind);
+        b.putLong(s.k).putDouble(s.time).putDouble(s.netEnergyJ);
+        b.putInt(nVm).putInt(nCl).putInt(HEADER_BYTES).putInt(total);
+        b.putInt(s.vmRemovedCount).putInt(s.clRemovedCount).putLong(0L);
+
+        putLongs(b, s.vmId, nVm);
+        putDoubles(b, s.vmMips, nVm);
+        putInts(b, s.vmPes, nVm);
+        putLongs(b, s.vmRam, nVm);
+        putLongs(b, s.vmBw, nVm);
+        putLongs(b, s.vmSize, nVm);
+        putDoubles(b, s.vmUtil, nVm);
+        putDoubles(b, s.vmEnergy, nVm);
+        putInts(b, s.vmNode, nVm);
+
+        putLongs(b, s.clId, nCl);
+        putLongs(b, s.clLen, nCl);
+        putLongs(b, s.clIn, nCl);
+        putLongs(b, s.clOut, nCl);
+        putLongs(b, s.clVm, nCl);
+        putInts(b, s.clSrc, nCl);
+        b.put(s.clPhase, 0, nCl);
+        padTo8(b);
+
+        putLongs(b, s.vmRemoved, s.vmRemovedCount);
+        putLongs(b, s.clRemoved, s.clRemovedCount);
+
+        b.flip();
+        return b;
+    }
+
+    /* ------------------ 列写入 ------------------ */
+    // 绝对位置逐个 put：as*Buffer() 每列都会新建一个视图对象，一帧十几列、每 tick 一帧
+
+    private static void putLongs(ByteBuffer b, long[] a, int n){
+        int p = b.position();
+        for (int i = 0; i < n; i++) b.putLong(p + 8 * i, a[i]);
+        b.position(p + 8 * n);
+    }
+
+    private static void putDoubles(ByteBuffer b, double[] a, int n){
+        int p = b.position();
+        for (int i = 0; i < n; i++) b.putDouble(p + 8 * i, a[i]);
+        b.position(p + 8 * n);
+    }
+
+    private static void putInts(ByteBuffer b, int[] a, int n){
+        int p = b.position();
+        for (int i = 0; i < n; i++) b.putInt(p + 4 * i, a[i]);
+        b.position(p + 4 * n);
+        padTo8(b);
+    }
+
+    private static void padTo8(ByteBuffer b){
+        while ((b.position() & 7) != 0) b.put((byte) 0);
+    }
+
+    private static int pad8(int n){ return (n + 7) & ~7; }
+}
@@ -0,0 +1,60 @@
+package com.yourorg.sagin.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Java ↔ Python 桥接的传输层（只负责搬字节，不关心 state/action 的编码）
+ * - publishState：发布第 tick 步的 state 载荷（读取 payload 的 position..limit），附带编码格式
+ * - awaitAction ：等待第 tick 步的 action 载荷；超时返回 null
+ *
+ * 实现：
+ *  file — state_{k}.json / action_{k}.json（原子写 + 轮询，兜底/调试用）
+ *  mmap — bridge/ring.mmap 共享内存槽位（state 槽 + action 槽，带序号）
+ *  socket — 常驻 TCP loopback / Unix-domain 连接，长度前缀帧
+ *  none — 不连策略进程（离线扫描），action 恒为空
+ */
+public interface BridgeTransport extends Closeable {
+
+    void publishState(long tick, StateFormat format, ByteBuffer payload) throws IOException;
+
+    /** 返回的 ByteBuffer 可能复用内部缓冲区，只保证在下一次调用前有效 */
+    ByteBuffer awaitAction(long tick, long timeoutMillis) throws IOException;
+
+    /**
+     * 对端还没读到的 state 帧会不会被后来的帧覆盖（单槽共享内存）。
+     * 会丢帧的传输层不能配增量 state：丢一个 delta，对端之后就在过期的基线上叠加。
+     */
+    default boolean mayDropFrames(){ return false; }
+
+    /**
+     * awaitAction 会不会返回对端还没写完的 action（非原子写），并且再调一次能重新读到同一帧。
+     * 只有这种传输层值得在解析失败后重读；其余的帧一旦交出就被消费了，解析失败就是坏帧。
+     */
+    default boolean mayReturnPartialAction(){ return false; }
+
+    @Override
+    default void close() throws IOException { }
+
+    /** 按名字创建传输层：file（默认）/ mmap / socket[:host:port | :unix:/path] / none */
+    static BridgeTransport open(String mode, Path bridgeDir) throws IOException {
+        String m = mode == null ? "file" : mode.trim();
+        if (m.startsWith("socket")) {
+            String addr = m.length() > 7 ? m.substring(7) : SocketBridgeTransport.DEFAULT_ADDRESS;
+            return new SocketBridgeTransport(addr);
+        }
+        switch (m.toLowerCase()) {
+            case "mmap":
+                return new MmapBridgeTransport(bridgeDir.resolve(MmapBridgeTransport.FILE_NAME));
+            case "none":
+                return new NullBridgeTransport();
+            case "file":
+            case "":
+                return new FileBridgeTransport(bridgeDir);
+            default:
+                throw new IllegalArgumentException("unknown bridge mode: " + mode);
+        }
+    }
+}
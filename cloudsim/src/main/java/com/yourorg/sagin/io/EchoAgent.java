@@ -0,0 +1,113 @@
+package com.yourorg.sagin.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+
+/**
+ * 本地替身策略进程（联调 socket 桥接用，不需要 Python）：
+ * 监听地址，接受一条连接；每收到一帧 STATE(k) 就回一帧 ACTION(k) = {"k":k,"assign":[]}。
+ * 批量帧（StateFormat.BATCH，见 BatchedBridge）按环境逐个回同样的空 action，打包成 'SGVA' 容器。
+ *
+ * 用法：java -cp ... com.yourorg.sagin.io.EchoAgent [host:port | unix:/path/to.sock]
+ */
+public class EchoAgent {
+
+    public static void main(String[] args) throws IOException {
+        String address = args.length > 0 ? args[0] : SocketBridgeTransport.DEFAULT_ADDRESS;
+        SocketAddress addr = SocketBridgeTransport.parseAddress(address);
+        serve(addr);
+    }
+
+    public static void serve(SocketAddress addr) throws IOException {
+        boolean unix = addr instanceof UnixDomainSocketAddress;
+        if (unix) Files.deleteIfExists(((UnixDomainSocketAddress) addr).getPath());
+        try (ServerSocketChannel server = unix
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open()) {
+            server.bind(addr);
+            System.out.println("[EchoAgent] listening on " + addr);
+            try (SocketChannel ch = server.accept()) {
+                long n = echo(ch);
+                System.out.println("[EchoAgent] peer closed after " + n + " state frames");
+            }
+        } finally {
+            if (unix) Files.deleteIfExists(((UnixDomainSocketAddress) addr).getPath());
+        }
+    }
+
+    /** 阻塞式收发循环，返回处理的 state 帧数 */
+    static long echo(SocketChannel ch) throws IOException {
+        ByteBuffer head = ByteBuffer.allocateDirect(SocketBridgeTransport.FRAME_HEAD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer body = ByteBuffer.allocateDirect(64 * 1024);
+        ByteBuffer out  = ByteBuffer.allocateDirect(4 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        long frames = 0;
+        while (true) {
+            head.clear();
+            if (!readFully(ch, head)) return frames;
+            int len = head.getInt(0);
+            int type = head.getShort(4) & 0xFFFF;
+            int format = head.getShort(6) & 0xFFFF;
+            long k = head.getLong(8);
+            if (body.capacity() < len) body = ByteBuffer.allocateDirect(Integer.highestOneBit(len) << 1);
+            body.clear().limit(len);
+            if (!readFully(ch, body)) return frames;
+            if (type != SocketBridgeTransport.TYPE_STATE) continue;
+            frames++;
+
+            out.clear();
+            out.putInt(0).putShort((short) SocketBridgeTransport.TYPE_ACTION).putShort((short) 0).putLong(k);
+            if (format == StateFormat.BATCH.code) {
+                body.order(ByteOrder.LITTLE_ENDIAN);
+                int n = body.getInt(4);
+                out = ensure(out, 8 + n * 64);
+                out.putInt(BatchedBridge.ACTION_MAGIC).putInt(n);
+                int p = 16;
+                for (int j = 0; j < n; j++) {
+                    int env = body.getInt(p);
+                    long tick = body.getLong(p + 8);
+                    int sl = body.getInt(p + 16);
+                    p += 24 + ((sl + 7) & ~7);
+                    byte[] a = emptyAction(tick);
+                    out.putInt(env).putInt(a.length).put(a);
+                    while ((out.position() & 7) != 0) out.put((byte) 0);
+                }
+            } else {
+                out.put(emptyAction(k));
+            }
+            out.putInt(0, out.position() - SocketBridgeTransport.FRAME_HEAD_BYTES);
+            out.flip();
+            while (out.hasRemaining()) ch.write(out);
+        }
+    }
+
+    private static byte[] emptyAction(long k){
+        return ("{\"k\":" + k + ",\"assign\":[]}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer ensure(ByteBuffer b, int extra){
+        if (b.remaining() >= extra) return b;
+        ByteBuffer nb = ByteBuffer.allocateDirect(Integer.highestOneBit(b.position() + extra) << 1).order(ByteOrder.LITTLE_ENDIAN);
+        b.flip();
+        return nb.put(b);
+    }
+
+    private static boolean readFully(SocketChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            if (ch.read(b) < 0) {
+                if (b.position() == 0) return false;
+                throw new EOFException("truncated frame");
+            }
+        }
+        b.flip();
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.yourorg.sagin.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * 文件桥接（原有行为，作为兜底）：
+ * - 写 bridge/tmp/state_{k}.{json|bin}.tmp 后原子改名为 bridge/state_{k}.{json|bin}
+ * - 轮询 bridge/action_{k}.json（10ms 间隔）直到超时
+ */
+public class FileBridgeTransport implements BridgeTransport {
+    private final Path bridgeDir;
+
+    public FileBridgeTransport(Path bridgeDir){ this.bridgeDir = bridgeDir; }
+
+    @Override
+    public void publishState(long tick, StateFormat format, ByteBuffer payload) throws IOException {
+        Files.createDirectories(bridgeDir.resolve("tmp"));
+        String tmpName = String.format("state_%06d.%s.tmp", tick, format.ext);
+        String finName = String.format("state_%06d.%s", tick, format.ext);
+        Path tmp = bridgeDir.resolve("tmp").resolve(tmpName);
+        Path fin = bridgeDir.resolve(finName);
+        try (FileChannel ch = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (payload.hasRemaining()) ch.write(payload);
+        }
+        Files.move(tmp, fin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public ByteBuffer awaitAction(long tick, long timeoutMillis) throws IOException {
+        String fileName = String.format("action_%06d.json", tick);
+        Path fin = bridgeDir.resolve(fileName);
+        long start = System.currentTimeMillis();
+        while(System.currentTimeMillis() - start < timeoutMillis){
+            if(Files.exists(fin)){
+                try { return ByteBuffer.wrap(Files.readAllBytes(fin)); }
+                catch (IOException ignored) {}
+            }
+            try { Thread.sleep(10); } catch (InterruptedException ignored) {}
+        }
+        return null;
+    }
+
+    /** 对端直接写 action_{k}.json（不一定先写临时文件再改名），可能读到半个文件；文件还在，可以重读 */
+    @Override
+    public boolean mayReturnPartialAction(){ return true; }
+}
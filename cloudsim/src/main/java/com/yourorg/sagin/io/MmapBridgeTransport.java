@@ -0,0 +1,150 @@
+package com.yourorg.sagin.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 共享内存桥接：bridge/ring.mmap，一个 state 槽 + 一个 action 槽，靠序号握手。
+ *
+ * 布局（小端，所有偏移 8 字节对齐）：
+ * <pre>
+ * [0,   64)              文件头：magic 'SGRB'(i32) | version(i32) | stateCap(i32) | actionCap(i32) | 保留
+ * [64,  80)              state 槽头：seq(i64) | len(i32) | format(i32)，format 见 StateFormat.code
+ * [80,  80+stateCap)     state 载荷
+ * [A,   A+16)            action 槽头：seq(i64) | len(i32) | format(i32)，A = 80 + stateCap
+ * [A+16, A+16+actionCap) action 载荷
+ * </pre>
+ * 写方协议（seqlock）：seq ← -2（写入中）→ 写载荷/len/format → seq ← k（release）。
+ * 读方协议：读 seq == k → 拷贝载荷 → 再读 seq 仍为 k 才算有效。seq = -1 表示空槽。
+ * Java 写 state 槽、读 action 槽；Python 反之。
+ *
+ * 打开时不截断：对端可能已映射着这个文件，截短会让它的映射越界（SIGBUS）。文件只在不够大时由
+ * map 扩展；两个槽先复位成空，magic 最后写（release），对端看到 magic 才按头里的容量映射。
+ */
+public class MmapBridgeTransport implements BridgeTransport {
+
+    public static final String FILE_NAME = "ring.mmap";
+
+    public static final int MAGIC   = 0x53475242; // 'SGRB'
+    public static final int VERSION = 1;
+
+    public static final int HEADER_BYTES    = 64;
+    public static final int SLOT_HEAD_BYTES = 16;
+
+    public static final long SEQ_EMPTY   = -1L;
+    public static final long SEQ_WRITING = -2L;
+
+    /** 默认容量：state 8MiB / action 1MiB */
+    public static final int DEFAULT_STATE_CAP  = 8 << 20;
+    public static final int DEFAULT_ACTION_CAP = 1 << 20;
+
+    /** 先自旋这么多次，再转入 parkNanos 退避 */
+    private static final int SPIN_TRIES = 2_000;
+    private static final long PARK_NANOS = 20_000L;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int stateCap;
+    private final int actionCap;
+    private final int stateSlot;
+    private final int actionSlot;
+
+    /** 读 action 的复用缓冲区 */
+    private byte[] actionBuf = new byte[4096];
+
+    public MmapBridgeTransport(Path file) throws IOException {
+        this(file, DEFAULT_STATE_CAP, DEFAULT_ACTION_CAP);
+    }
+
+    public MmapBridgeTransport(Path file, int stateCap, int actionCap) throws IOException {
+        this.stateCap = align8(stateCap);
+        this.actionCap = align8(actionCap);
+        this.stateSlot = HEADER_BYTES;
+        this.actionSlot = stateSlot + SLOT_HEAD_BYTES + this.stateCap;
+        long size = (long) actionSlot + SLOT_HEAD_BYTES + this.actionCap;
+
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // 比 size 短时扩展，长了不动
+        this.map.order(ByteOrder.LITTLE_ENDIAN);
+
+        LONGS.setRelease(map, stateSlot, SEQ_EMPTY);
+        LONGS.setRelease(map, actionSlot, SEQ_EMPTY);
+        map.putInt(4, VERSION);
+        map.putInt(8, this.stateCap);
+        map.putInt(12, this.actionCap);
+        INTS.setRelease(map, 0, MAGIC);
+    }
+
+    /* ======================= state 槽（Java 写） ======================= */
+
+    @Override
+    public void publishState(long tick, StateFormat format, ByteBuffer payload) throws IOException {
+        int len = payload.remaining();
+        if (len > stateCap) {
+            throw new IOException("state payload " + len + "B exceeds mmap slot capacity " + stateCap + "B");
+        }
+        LONGS.setRelease(map, stateSlot, SEQ_WRITING);
+        VarHandle.storeStoreFence(); // 载荷写入不得越过“写入中”标记
+        map.put(stateSlot + SLOT_HEAD_BYTES, payload, payload.position(), len);
+        payload.position(payload.limit());
+        map.putInt(stateSlot + 8, len);
+        map.putInt(stateSlot + 12, format.code);
+        LONGS.setRelease(map, stateSlot, tick);
+    }
+
+    /** 只有一个 state 槽：对端没来得及读的帧会被下一帧覆盖 */
+    @Override
+    public boolean mayDropFrames(){ return true; }
+
+    /* ======================= action 槽（Java 读） ======================= */
+
+    @Override
+    public ByteBuffer awaitAction(long tick, long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        int spins = 0;
+        while (true) {
+            ByteBuffer got = tryReadAction(tick);
+            if (got != null) return got;
+            if (System.nanoTime() - deadline >= 0) return null;
+            if (spins < SPIN_TRIES) { spins++; Thread.onSpinWait(); }
+            else LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private ByteBuffer tryReadAction(long tick){
+        long s1 = (long) LONGS.getAcquire(map, actionSlot);
+        if (s1 != tick) return null;
+        int len = map.getInt(actionSlot + 8);
+        if (len < 0 || len > actionCap) return null;
+        if (actionBuf.length < len) actionBuf = new byte[Math.max(len, actionBuf.length * 2)];
+        map.get(actionSlot + SLOT_HEAD_BYTES, actionBuf, 0, len);
+        VarHandle.loadLoadFence();
+        long s2 = (long) LONGS.getAcquire(map, actionSlot);
+        if (s2 != tick) return null; // 读的过程中被改写，下一轮重试
+        return ByteBuffer.wrap(actionBuf, 0, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    private static int align8(int n){ return (Math.max(n, 8) + 7) & ~7; }
+}
@@ -0,0 +1,18 @@
+package com.yourorg.sagin.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 空传输层：state 直接丢弃，action 立即判超时（broker 回退为空动作）。
+ * 离线参数扫描等不需要策略进程的场景使用。
+ */
+public final class NullBridgeTransport implements BridgeTransport {
+
+    @Override
+    public void publishState(long tick, StateFormat format, ByteBuffer payload){
+        payload.position(payload.limit());
+    }
+
+    @Override
+    public ByteBuffer awaitAction(long tick, long timeoutMillis){ return null; }
+}
@@ -0,0 +1,195 @@
+package com.yourorg.sagin.io;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 流水线桥接：仿真线程只负责把快照交出去，编码/发布/等待 action 都在后台线程完成，
+ * 第 k 步的 action 在第 k+lag 个 tick 应用，仿真与推理重叠执行。
+ *
+ * - 快照双缓冲：一块在后台线程编码，一块在邮箱里排队；后台还没取走时新快照覆盖旧快照（计 coalesced）
+ * - 迟到策略：action 到达时它应生效的 tick 已经过去 → DROP 丢弃 / QUEUE 下一个 tick 补应用
+ * - 计数：按时 / 迟到丢弃 / 迟到补应用 / 等待超时 / 快照合并
+ * - 增量 state：等 action 超时或快照被合并掉后，下一帧发关键帧（StateWriter 只在后台线程上用）
+ * - 后台线程出错即退出，错误在仿真线程下一次 submit/poll 时抛出
+ */
+public final class PipelinedBridge implements Closeable {
+
+    public enum LatePolicy {
+        DROP, QUEUE;
+
+        public static LatePolicy parse(String s){
+            return s != null && s.trim().equalsIgnoreCase("queue") ? QUEUE : DROP;
+        }
+    }
+
+    /** 后台线程交回的 action（按 k 递增到达） */
+    private static final class Arrival {
+        final long k;
+        final Map<String,Object> action;
+        Arrival(long k, Map<String,Object> action){ this.k = k; this.action = action; }
+    }
+
+    private final StateWriter writer;
+    private final ActionReader reader;
+    private final int lag;
+    private final LatePolicy latePolicy;
+
+    /* ---------- 快照双缓冲 ---------- */
+    private final ArrayBlockingQueue<StateSnapshot> free = new ArrayBlockingQueue<>(2);
+    private final AtomicReference<StateSnapshot> mailbox = new AtomicReference<>();
+
+    /* ---------- action 回传 ---------- */
+    private final ConcurrentLinkedQueue<Arrival> arrivals = new ConcurrentLinkedQueue<>();
+    /** 仅仿真线程访问 */
+    private final ArrayDeque<Arrival> pending = new ArrayDeque<>();
+    private final List<Map<String,Object>> due = new ArrayList<>();
+    private long lastTick = Long.MIN_VALUE;
+
+    private final Thread worker;
+    private volatile boolean running = true;
+    /** 仿真线程合并掉快照后置位，后台线程在下一次编码前请求关键帧 */
+    private volatile boolean keyframeWanted;
+    /** 后台线程的致命错误；非 null 后后台线程已退出 */
+    private volatile Throwable failure;
+
+    /* ---------- 计数 ---------- */
+    private final AtomicLong statesCoalesced = new AtomicLong();
+    private final AtomicLong actionTimeouts = new AtomicLong();
+    private long actionsOnTime = 0;
+    private long actionsLateDropped = 0;
+    private long actionsLateQueued = 0;
+
+    public PipelinedBridge(StateWriter writer, ActionReader reader, int lag, LatePolicy latePolicy){
+        this.writer = writer;
+        this.reader = reader;
+        this.lag = Math.max(1, lag);
+        this.latePolicy = latePolicy;
+        free.add(new StateSnapshot());
+        free.add(new StateSnapshot());
+
+        this.worker = new Thread(this::workerLoop, "bridge-pipeline");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /* ======================= 仿真线程 ======================= */
+
+    /** 交出第 s.k 步的快照（内容会被拷贝，调用方可立即复用 s） */
+    public void submit(StateSnapshot s){
+        checkWorker();
+        StateSnapshot buf = free.poll();
+        if (buf == null) {
+            // 两块都在用：抢回邮箱里还没发出的旧帧直接覆盖
+            buf = mailbox.getAndSet(null);
+            if (buf != null) frameCoalesced();
+            else buf = takeFree(); // 后台刚取走邮箱，编码完就会归还
+        }
+        buf.copyFrom(s);
+        StateSnapshot old = mailbox.getAndSet(buf);
+        if (old != null) { frameCoalesced(); free.offer(old); }
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * 取出第 tick 步应当应用的 action（对应第 tick-lag 步及更早的 state），按 k 升序。
+     * 返回的列表在下一次调用前有效。
+     */
+    public List<Map<String,Object>> poll(long tick){
+        checkWorker();
+        Arrival a;
+        while ((a = arrivals.poll()) != null) pending.add(a);
+
+        due.clear();
+        while (!pending.isEmpty() && pending.peekFirst().k + lag <= tick) {
+            Arrival e = pending.pollFirst();
+            boolean late = lastTick != Long.MIN_VALUE && e.k + lag <= lastTick;
+            if (!late) { actionsOnTime++; due.add(e.action); }
+            else if (latePolicy == LatePolicy.QUEUE) { actionsLateQueued++; due.add(e.action); }
+            else actionsLateDropped++;
+        }
+        lastTick = tick;
+        return due;
+    }
+
+    private void frameCoalesced(){
+        statesCoalesced.incrementAndGet();
+        keyframeWanted = true;
+    }
+
+    /* ======================= 后台线程 ======================= */
+
+    private void workerLoop(){
+        try {
+            while (running) {
+                StateSnapshot s = mailbox.getAndSet(null);
+                if (s == null) { LockSupport.park(this); continue; }
+
+                long k = s.k;
+                if (keyframeWanted) {
+                    keyframeWanted = false;
+                    writer.requestKeyframe();
+                }
+                try {
+                    writer.write(s);
+                } finally {
+                    free.offer(s); // 编码完即可归还，等待 action 期间仿真线程可继续填快照
+                }
+                Map<String,Object> action = reader.readOrNull(k);
+                if (action == null) {
+                    actionTimeouts.incrementAndGet();
+                    writer.requestKeyframe();
+                } else arrivals.add(new Arrival(k, action));
+            }
+        } catch (Throwable t) {
+            failure = t;
+        }
+    }
+
+    /** 后台线程已经挂掉就在仿真线程上报错，而不是一直拿空 action 跑下去 */
+    private void checkWorker(){
+        Throwable f = failure;
+        if (f == null) return;
+        if (f instanceof Error) throw (Error) f;
+        throw new IllegalStateException("bridge pipeline worker failed", f);
+    }
+
+    private StateSnapshot takeFree(){
+        try { return free.take(); }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new StateSnapshot();
+        }
+    }
+
+    @Override
+    public void close(){
+        running = false;
+        LockSupport.unpark(worker);
+        try { worker.join(2_000); } catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
+    }
+
+    /* ======================= 计数 ======================= */
+
+    public int getLag(){ return lag; }
+    public long getStatesCoalesced(){ return statesCoalesced.get(); }
+    public long getActionTimeouts(){ return actionTimeouts.get(); }
+    public long getActionsOnTime(){ return actionsOnTime; }
+    public long getActionsLateDropped(){ return actionsLateDropped; }
+    public long getActionsLateQueued(){ return actionsLateQueued; }
+
+    @Override public String toString(){
+        return "PipelinedBridge{lag=" + lag + ", late=" + latePolicy +
+                ", onTime=" + actionsOnTime + ", lateDropped=" + actionsLateDropped +
+                ", lateQueued=" + actionsLateQueued + ", timeouts=" + actionTimeouts.get() +
+                ", coalesced=" + statesCoalesced.get() + "}";
+    }
+}
@@ -0,0 +1,171 @@
+package com.yourorg.sagin.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 结果日志：已完成任务逐条追加到文件（定长二进制或 CSV，可 gzip），写入经 64 KB 缓冲区成批落盘，
+ * 驻留内存与已写的记录数无关。格式按扩展名定：*.csv / *.csv.gz 为 CSV，其余（*.sgrl / *.sgrl.gz）为二进制。
+ *
+ * 二进制（小端）文件头 32 字节：
+ * <pre>
+ *  0  u32 magic 'SGRL'   4  u16 version   6  u16 record_bytes(=96)
+ *  8  i64 n_records（非压缩文件 close 时回填；压缩文件或中途退出时为 0，按 (解压后长度 − 32) / 96 算）
+ * 16  i32 header_bytes(=32)             20..31 保留
+ * </pre>
+ * 每条记录 96 字节：
+ * <pre>
+ *  0 id i64 | 8 vm i64 | 16 host i64 | 24 arrival f64 | 32 start f64 | 40 finish f64 | 48 done f64
+ * 56 deadline f64 | 64 up_bytes i64 | 72 down_bytes i64 | 80 energy_j f64 | 88 src i32 | 92 pes i32
+ * </pre>
+ * Python 侧：numpy.fromfile(path, dtype=..., offset=32) 直接读成结构化数组；CSV 第一行是列名（同上）。
+ */
+public final class ResultLog implements Closeable {
+
+    public static final int MAGIC = 0x4C524753; // 小端字节序即 "SGRL"
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int RECORD_BYTES = 96;
+
+    public static final String CSV_HEADER =
+            "id,vm,host,src,pes,arrival,start,finish,done,deadline,up_bytes,down_bytes,energy_j\n";
+
+    public enum Format {
+        BINARY, CSV;
+
+        /** *.csv / *.csv.gz → CSV，其余 → BINARY */
+        public static Format of(Path p){
+            String n = p.getFileName().toString().toLowerCase();
+            if (n.endsWith(".gz")) n = n.substring(0, n.length() - 3);
+            return n.endsWith(".csv") ? CSV : BINARY;
+        }
+    }
+
+    private final Path path;
+    private final Format format;
+    private final boolean gzip;
+    private final OutputStream out;
+    private final byte[] bytes = new byte[1 << 16];
+    private final ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    /** CSV 一行的拼装区（复用） */
+    private final StringBuilder line = new StringBuilder(160);
+    private long count;
+    private boolean closed;
+
+    private ResultLog(Path path, Format format, boolean gzip, OutputStream out){
+        this.path = path;
+        this.format = format;
+        this.gzip = gzip;
+        this.out = out;
+    }
+
+    /** 按扩展名决定格式与压缩（*.gz 压缩） */
+    public static ResultLog create(Path path) throws IOException {
+        return create(path, Format.of(path), path.getFileName().toString().toLowerCase().endsWith(".gz"));
+    }
+
+    /** 新建（覆盖）结果日志并写好文件头 / 列名 */
+    public static ResultLog create(Path path, Format format, boolean gzip) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        OutputStream os = Files.newOutputStream(path);
+        if (gzip) os = new GZIPOutputStream(os, 1 << 16);
+        ResultLog log = new ResultLog(path, format, gzip, os);
+        if (format == Format.BINARY) {
+            log.buf.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES)
+                   .putLong(0L).putInt(HEADER_BYTES).putInt(0).putLong(0L);
+        } else {
+            log.putAscii(CSV_HEADER);
+        }
+        return log;
+    }
+
+    /** 追加一条；缓冲区满时落盘 */
+    public void append(ResultRecord r){
+        if (closed) throw new IllegalStateException("result log closed: " + path);
+        if (format == Format.BINARY) {
+            if (buf.remaining() < RECORD_BYTES) drain();
+            buf.putLong(r.id).putLong(r.vmId).putLong(r.hostId)
+               .putDouble(r.arrival).putDouble(r.start).putDouble(r.finish).putDouble(r.done)
+               .putDouble(r.deadline).putLong(r.upBytes).putLong(r.downBytes).putDouble(r.energyJ)
+               .putInt(r.srcNode).putInt(r.pes);
+        } else {
+            StringBuilder sb = line;
+            sb.setLength(0);
+            sb.append(r.id).append(',').append(r.vmId).append(',').append(r.hostId).append(',')
+              .append(r.srcNode).append(',').append(r.pes).append(',')
+              .append(r.arrival).append(',').append(r.start).append(',').append(r.finish).append(',')
+              .append(r.done).append(',').append(r.deadline).append(',')
+              .append(r.upBytes).append(',').append(r.downBytes).append(',').append(r.energyJ).append('\n');
+            putAscii(sb);
+        }
+        count++;
+    }
+
+    /** 已写（含还在缓冲区里）的记录数 */
+    public long getCount(){ return count; }
+
+    public Path getPath(){ return path; }
+    public Format getFormat(){ return format; }
+    public boolean isGzip(){ return gzip; }
+
+    /** 缓冲区交给底层流（不 fsync；gzip 时只保证交给压缩器） */
+    public void flush(){
+        if (closed) return;
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("result log flush failed: " + path, e);
+        }
+    }
+
+    /** 落盘；非压缩的二进制日志回填记录数 */
+    @Override
+    public void close(){
+        if (closed) return;
+        drain();
+        closed = true;
+        try {
+            out.close();
+            if (format == Format.BINARY && !gzip) {
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    ch.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, count), 8);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("result log close failed: " + path, e);
+        }
+    }
+
+    /** CSV 只有 ASCII，逐字符写进缓冲区，不经 String / 编码器 */
+    private void putAscii(CharSequence s){
+        int n = s.length();
+        if (buf.remaining() < n) drain();
+        int p = buf.position();
+        for (int i = 0; i < n; i++) bytes[p + i] = (byte) s.charAt(i);
+        buf.position(p + n);
+    }
+
+    private void drain(){
+        if (buf.position() == 0) return;
+        try {
+            out.write(bytes, 0, buf.position());
+        } catch (IOException e) {
+            throw new RuntimeException("result log write failed: " + path, e);
+        }
+        buf.clear();
+    }
+
+    @Override public String toString(){
+        return "ResultLog{path=" + path + ", format=" + format + (gzip ? "+gzip" : "") + ", records=" + count + "}";
+    }
+}
@@ -0,0 +1,32 @@
+package com.yourorg.sagin.io;
+
+/**
+ * 一个已完成任务的紧凑结果（写结果日志用）。由 broker 复用同一个实例逐个填好再交出去，不为每个任务分配对象。
+ * 时刻单位秒；没有的时刻为 NaN（例如结果没送回）；能耗 = VM 动态功耗分摊 + 上/下行链路能耗（J）。
+ */
+public final class ResultRecord {
+
+    public long id;
+    public long vmId;
+    public long hostId;
+    public int srcNode;
+    public int pes;
+    /** 到达（提交）/ 开始执行 / 执行完成 / 结果送回来源节点 */
+    public double arrival;
+    public double start;
+    public double finish;
+    public double done;
+    public double deadline;
+    public long upBytes;
+    public long downBytes;
+    public double energyJ;
+
+    /** 结果送回是否晚于 deadline（没送回的 done 为 NaN，这里为 false，由调用方另计） */
+    public boolean missed(){ return done > deadline; }
+
+    @Override public String toString(){
+        return "ResultRecord{id=" + id + ", vm=" + vmId + ", host=" + hostId + ", src=" + srcNode +
+                ", arrival=" + arrival + ", start=" + start + ", finish=" + finish + ", done=" + done +
+                ", deadline=" + deadline + ", up=" + upBytes + ", down=" + downBytes + ", energyJ=" + energyJ + "}";
+    }
+}
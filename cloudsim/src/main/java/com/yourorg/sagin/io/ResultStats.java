@@ -0,0 +1,110 @@
+package com.yourorg.sagin.io;
+
+import com.yourorg.sagin.util.LongIntHashMap;
+import com.yourorg.sagin.util.QuantileSketch;
+
+import java.util.Arrays;
+
+/**
+ * 结果的在线统计：每来一条 ResultRecord 更新一次，O(1)，不保留记录本身。
+ *
+ * - 时延 = 结果送回 − 到达：均值精确，p50 / p95 / p99 由 QuantileSketch 给出（相对误差 1%）
+ * - deadline：结果送回晚于 deadline 记一次超时，与时延用同一个时刻（与 TaskTable 的口径一致）
+ * - 结果没送回（done 不是有限值，例如来源与 VM 之间没有可用链路）的记录另计 undelivered，不进时延和超时统计
+ * - 每 VM：完成数与能耗；吞吐 = 完成数 / 统计时长
+ */
+public final class ResultStats {
+
+    private long count;
+    private long undelivered;
+    private long misses;
+    private double latencySum;
+    private double energySum;
+    private double firstArrival = Double.POSITIVE_INFINITY;
+    private double lastFinish;
+    private final QuantileSketch latency = new QuantileSketch();
+
+    /* ---------- 每 VM ---------- */
+    private final LongIntHashMap vmIndex = new LongIntHashMap(16);
+    private long[] vmIds = new long[8];
+    private long[] vmCount = new long[8];
+    private double[] vmEnergy = new double[8];
+    private int nVms;
+
+    public void add(ResultRecord r){
+        count++;
+        if (!Double.isFinite(r.done)) {
+            undelivered++;
+        } else {
+            if (r.missed()) misses++;
+            double lat = r.done - r.arrival;
+            if (lat >= 0) {
+                latencySum += lat;
+                latency.add(lat);
+            }
+        }
+        energySum += r.energyJ;
+        if (r.arrival < firstArrival) firstArrival = r.arrival;
+        if (r.finish > lastFinish) lastFinish = r.finish;
+
+        int v = vmIndex.get(r.vmId);
+        if (v < 0) {
+            v = nVms++;
+            if (v == vmIds.length) {
+                vmIds = Arrays.copyOf(vmIds, v * 2);
+                vmCount = Arrays.copyOf(vmCount, v * 2);
+                vmEnergy = Arrays.copyOf(vmEnergy, v * 2);
+            }
+            vmIds[v] = r.vmId;
+            vmIndex.put(r.vmId, v);
+        }
+        vmCount[v]++;
+        vmEnergy[v] += r.energyJ;
+    }
+
+    /** 全部记录数 / 其中结果送回的 / 没送回的 */
+    public long count(){ return count; }
+    public long delivered(){ return count - undelivered; }
+    public long undelivered(){ return undelivered; }
+    /** 送回的结果里超过 deadline 的数与比例 */
+    public long deadlineMisses(){ return misses; }
+    public double missRate(){ long n = delivered(); return n == 0 ? 0.0 : misses / (double) n; }
+    public double meanLatency(){ return latency.count() == 0 ? Double.NaN : latencySum / latency.count(); }
+    public double latencyQuantile(double q){ return latency.quantile(q); }
+    public double p50(){ return latency.quantile(0.50); }
+    public double p95(){ return latency.quantile(0.95); }
+    public double p99(){ return latency.quantile(0.99); }
+    public double maxLatency(){ return latency.max(); }
+    public double energyJ(){ return energySum; }
+    /** 统计时长：第一个到达 → 最后一个执行完成（没有记录为 0） */
+    public double span(){ return count == 0 ? 0.0 : Math.max(0.0, lastFinish - firstArrival); }
+    public double lastFinish(){ return lastFinish; }
+
+    public int vmCount(){ return nVms; }
+    public long vmId(int i){ return vmIds[i]; }
+    public long vmFinished(int i){ return vmCount[i]; }
+    public double vmEnergyJ(int i){ return vmEnergy[i]; }
+    /** 每秒完成数（按 span 算） */
+    public double vmThroughput(int i){
+        double s = span();
+        return s <= 0 ? 0.0 : vmCount[i] / s;
+    }
+
+    /** 多行汇总（VM 数很少，整体 O(VM 数)） */
+    public String summary(){
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("tasks=%d (undelivered=%d)  latency mean=%.4f p50=%.4f p95=%.4f p99=%.4f max=%.4f (s)%n",
+                count, undelivered, meanLatency(), p50(), p95(), p99(), maxLatency()));
+        sb.append(String.format("deadline misses=%d (%.2f%%)  energy=%.6f J  span=%.3f s%n",
+                misses, 100.0 * missRate(), energySum, span()));
+        for (int i = 0; i < nVms; i++) {
+            sb.append(String.format("VM %-6d finished=%-8d throughput=%.4f/s energy=%.6f J%n",
+                    vmIds[i], vmCount[i], vmThroughput(i), vmEnergy[i]));
+        }
+        return sb.toString();
+    }
+
+    @Override public String toString(){
+        return "ResultStats{n=" + count + ", undelivered=" + undelivered + ", mean=" + meanLatency() + ", p95=" + p95() + ", missRate=" + missRate() + "}";
+    }
+}
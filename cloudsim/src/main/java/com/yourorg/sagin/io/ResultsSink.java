@@ -0,0 +1,49 @@
+package com.yourorg.sagin.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 结果流水线的出口：broker 每送回一个任务的结果就交来一条 ResultRecord，这里同时
+ * 更新在线统计（ResultStats）并写进结果日志（ResultLog，可选）。
+ * 不保留记录，跑完的汇总直接取统计量，不用再排序 / 逐条打印整个完成列表。
+ */
+public final class ResultsSink implements Closeable {
+
+    private final ResultLog log;
+    private final ResultStats stats = new ResultStats();
+
+    /** 只做统计，不写文件 */
+    public ResultsSink(){ this(null); }
+
+    public ResultsSink(ResultLog log){ this.log = log; }
+
+    /** path 为 null 时只做统计；否则按扩展名建结果日志（见 ResultLog.create） */
+    public static ResultsSink open(Path path) throws IOException {
+        return new ResultsSink(path == null ? null : ResultLog.create(path));
+    }
+
+    public void accept(ResultRecord r){
+        stats.add(r);
+        if (log != null) log.append(r);
+    }
+
+    public ResultStats getStats(){ return stats; }
+
+    /** null = 没有结果日志 */
+    public ResultLog getLog(){ return log; }
+
+    public void flush(){
+        if (log != null) log.flush();
+    }
+
+    @Override
+    public void close(){
+        if (log != null) log.close();
+    }
+
+    @Override public String toString(){
+        return "ResultsSink{" + stats + (log == null ? "" : ", " + log) + "}";
+    }
+}
@@ -0,0 +1,166 @@
+package com.yourorg.sagin.io;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * 常驻 socket 桥接：与策略进程保持一条 loopback TCP 或 Unix-domain 连接，按帧收发。
+ *
+ * 帧格式（小端）：
+ * <pre>
+ * len(i32) | type(u16) | format(u16) | tick(i64) | payload[len]
+ * type：1 = STATE（Java → Python），2 = ACTION（Python → Java）；format 见 StateFormat.code（ACTION 恒为 0 = JSON）
+ * </pre>
+ * - 收发各用一块 direct ByteBuffer，跨 tick 复用（不够时倍增）
+ * - 背压：对端不读时内核发送缓冲会写满，publishState 阻塞等待可写，不会无界堆积
+ * - 等待 action 时丢弃 tick 小于当前步的过期帧
+ *
+ * 地址写法：host:port（TCP loopback）或 unix:/path/to.sock
+ */
+public class SocketBridgeTransport implements BridgeTransport {
+
+    public static final int TYPE_STATE  = 1;
+    public static final int TYPE_ACTION = 2;
+    public static final int FRAME_HEAD_BYTES = 16;
+
+    public static final String DEFAULT_ADDRESS = "127.0.0.1:7788";
+
+    private static final long CONNECT_TIMEOUT_MS = 30_000;
+
+    private final SocketChannel channel;
+    private final Selector readSel;
+    private final Selector writeSel;
+
+    private ByteBuffer sendBuf = ByteBuffer.allocateDirect(256 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer recvBuf = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    /** 过期（tick < 当前步）被丢弃的 action 帧数 */
+    private long staleActions = 0;
+
+    public SocketBridgeTransport(String address) throws IOException {
+        this(parseAddress(address));
+    }
+
+    public SocketBridgeTransport(SocketAddress addr) throws IOException {
+        this.channel = connect(addr);
+        this.channel.configureBlocking(false);
+        this.readSel = Selector.open();
+        this.writeSel = Selector.open();
+        channel.register(readSel, SelectionKey.OP_READ);
+        channel.register(writeSel, SelectionKey.OP_WRITE);
+        recvBuf.flip(); // 约定：recvBuf 平时处于“读模式”
+    }
+
+    /* ======================= state：发送 ======================= */
+
+    @Override
+    public void publishState(long tick, StateFormat format, ByteBuffer payload) throws IOException {
+        int len = payload.remaining();
+        if (sendBuf.capacity() < FRAME_HEAD_BYTES + len) {
+            sendBuf = ByteBuffer.allocateDirect(Integer.highestOneBit(FRAME_HEAD_BYTES + len) << 1)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        sendBuf.clear();
+        sendBuf.putInt(len).putShort((short) TYPE_STATE).putShort((short) format.code).putLong(tick).put(payload);
+        sendBuf.flip();
+        while (sendBuf.hasRemaining()) {
+            if (channel.write(sendBuf) == 0) {
+                writeSel.select(); // 发送缓冲满：阻塞到可写（背压）
+                writeSel.selectedKeys().clear();
+            }
+        }
+    }
+
+    /* ======================= action：接收 ======================= */
+
+    @Override
+    public ByteBuffer awaitAction(long tick, long timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            // 先消费缓冲里已有的完整帧
+            while (recvBuf.remaining() >= FRAME_HEAD_BYTES) {
+                int p = recvBuf.position();
+                int len = recvBuf.getInt(p);
+                int type = recvBuf.getShort(p + 4) & 0xFFFF;
+                long k = recvBuf.getLong(p + 8);
+                if (len < 0) throw new IOException("bad frame length " + len);
+                if (recvBuf.remaining() < FRAME_HEAD_BYTES + len) {
+                    ensureRecvCapacity(FRAME_HEAD_BYTES + len);
+                    break;
+                }
+                if (type == TYPE_ACTION && k > tick) return null; // 对端超前：留给下一步
+                recvBuf.position(p + FRAME_HEAD_BYTES + len);
+                if (type != TYPE_ACTION) continue;
+                if (k < tick) { staleActions++; continue; }
+                return recvBuf.slice(p + FRAME_HEAD_BYTES, len);
+            }
+
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return null;
+            if (readSel.select(left) > 0) {
+                readSel.selectedKeys().clear();
+                recvBuf.compact();
+                int n = channel.read(recvBuf);
+                recvBuf.flip();
+                if (n < 0) throw new IOException("policy process closed the bridge socket");
+            }
+        }
+    }
+
+    public long getStaleActions(){ return staleActions; }
+
+    @Override
+    public void close() throws IOException {
+        readSel.close();
+        writeSel.close();
+        channel.close();
+    }
+
+    /* ======================= 工具 ======================= */
+
+    /** recvBuf（读模式）容量不足以放下一整帧时扩容，保留未读数据 */
+    private void ensureRecvCapacity(int frameBytes){
+        if (recvBuf.capacity() >= frameBytes) return;
+        ByteBuffer nb = ByteBuffer.allocateDirect(Integer.highestOneBit(frameBytes) << 1)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        nb.put(recvBuf);
+        nb.flip();
+        recvBuf = nb;
+    }
+
+    /** 策略进程可能晚于仿真启动：在超时内重试连接 */
+    private static SocketChannel connect(SocketAddress addr) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (true) {
+            SocketChannel ch = addr instanceof UnixDomainSocketAddress
+                    ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                    : SocketChannel.open();
+            try {
+                ch.connect(addr);
+                if (!(addr instanceof UnixDomainSocketAddress)) ch.socket().setTcpNoDelay(true);
+                return ch;
+            } catch (IOException e) {
+                ch.close();
+                if (System.currentTimeMillis() > deadline) throw e;
+                try { Thread.sleep(200); } catch (InterruptedException ie) { throw e; }
+            }
+        }
+    }
+
+    public static SocketAddress parseAddress(String address){
+        String a = address == null || address.isBlank() ? DEFAULT_ADDRESS : address.trim();
+        if (a.startsWith("unix:")) return UnixDomainSocketAddress.of(Path.of(a.substring(5)));
+        int i = a.lastIndexOf(':');
+        if (i < 0) return new InetSocketAddress("127.0.0.1", Integer.parseInt(a));
+        return new InetSocketAddress(a.substring(0, i), Integer.parseInt(a.substring(i + 1)));
+    }
+}
@@ -0,0 +1,107 @@
+package com.yourorg.sagin.io;
+
+import com.yourorg.sagin.util.LongIntHashMap;
+
+/**
+ * 增量 state：保留上一帧已发布的快照，只输出新增/变化的 VM 与 Cloudlet 以及被移除的 id，
+ * 每 keyframeEvery 帧（或 requestKeyframe() 之后）输出一次完整关键帧。
+ *
+ * Python 侧重建规则：KEYFRAME 整体替换；DELTA 按 id upsert 行，再删除 removed 中的 id。
+ */
+public final class StateDelta {
+
+    private final int keyframeEvery;
+
+    /** 上一帧已发布的完整内容 + id → 行号索引 */
+    private final StateSnapshot prev = new StateSnapshot();
+    private final LongIntHashMap prevVmRow = new LongIntHashMap(64);
+    private final LongIntHashMap prevClRow = new LongIntHashMap(1024);
+    /** 本帧出现过的 id，用于找出被移除的条目 */
+    private final LongIntHashMap seenVm = new LongIntHashMap(64);
+    private final LongIntHashMap seenCl = new LongIntHashMap(1024);
+
+    /** 输出帧（复用） */
+    private final StateSnapshot out = new StateSnapshot();
+
+    private boolean hasPrev = false;
+    private int sinceKeyframe = 0;
+
+    public StateDelta(int keyframeEvery){
+        this.keyframeEvery = Math.max(1, keyframeEvery);
+    }
+
+    /** 下一帧强制输出关键帧（例如对端重连后） */
+    public void requestKeyframe(){ hasPrev = false; }
+
+    /** 计算 cur 相对上一帧的差分；返回的快照在下一次 diff 前有效 */
+    public StateSnapshot diff(StateSnapshot cur){
+        StateSnapshot result;
+        if (!hasPrev || sinceKeyframe >= keyframeEvery) {
+            out.copyFrom(cur);
+            out.kind = StateSnapshot.KIND_KEYFRAME;
+            sinceKeyframe = 0;
+            result = out;
+        } else {
+            result = delta(cur);
+        }
+        sinceKeyframe++;
+        remember(cur);
+        return result;
+    }
+
+    private StateSnapshot delta(StateSnapshot cur){
+        StateSnapshot d = out.clear(cur.k, cur.time);
+        d.kind = StateSnapshot.KIND_DELTA;
+        d.netEnergyJ = cur.netEnergyJ;
+
+        seenVm.clear();
+        for (int i = 0; i < cur.vmCount; i++) {
+            seenVm.put(cur.vmId[i], i);
+            int j = prevVmRow.get(cur.vmId[i]);
+            if (j < 0 || vmChanged(cur, i, prev, j)) d.addVmFrom(cur, i);
+        }
+        for (int j = 0; j < prev.vmCount; j++) {
+            if (!seenVm.containsKey(prev.vmId[j])) d.addVmRemoved(prev.vmId[j]);
+        }
+
+        seenCl.clear();
+        for (int i = 0; i < cur.clCount; i++) {
+            seenCl.put(cur.clId[i], i);
+            int j = prevClRow.get(cur.clId[i]);
+            if (j < 0 || clChanged(cur, i, prev, j)) d.addCloudletFrom(cur, i);
+        }
+        for (int j = 0; j < prev.clCount; j++) {
+            if (!seenCl.containsKey(prev.clId[j])) d.addCloudletRemoved(prev.clId[j]);
+        }
+        return d;
+    }
+
+    private void remember(StateSnapshot cur){
+        prev.copyFrom(cur);
+        prevVmRow.clear();
+        for (int i = 0; i < prev.vmCount; i++) prevVmRow.put(prev.vmId[i], i);
+        prevClRow.clear();
+        for (int i = 0; i < prev.clCount; i++) prevClRow.put(prev.clId[i], i);
+        hasPrev = true;
+    }
+
+    private static boolean vmChanged(StateSnapshot a, int i, StateSnapshot b, int j){
+        return Double.compare(a.vmMips[i], b.vmMips[j]) != 0
+                || a.vmPes[i] != b.vmPes[j]
+                || a.vmRam[i] != b.vmRam[j]
+                || a.vmBw[i] != b.vmBw[j]
+                || a.vmSize[i] != b.vmSize[j]
+                || Double.compare(a.vmUtil[i], b.vmUtil[j]) != 0
+                || Double.compare(a.vmEnergy[i], b.vmEnergy[j]) != 0
+                || a.vmNode[i] != b.vmNode[j];
+    }
+
+    private static boolean clChanged(StateSnapshot a, int i, StateSnapshot b, int j){
+        return a.clLen[i] != b.clLen[j]
+                || a.clIn[i] != b.clIn[j]
+                || a.clOut[i] != b.clOut[j]
+                || a.clVm[i] != b.clVm[j]
+                || a.clPhase[i] != b.clPhase[j]
+                || a.clSrc[i] != b.clSrc[j];
+    }
+}
@@ -0,0 +1,27 @@
+package com.yourorg.sagin.io;
+
+/**
+ * state 载荷编码：JSON（调试/兼容）或二进制列式（见 BinaryStateEncoder）；
+ * BATCH 为多环境批量帧（见 BatchedBridge），内部每个环境各带自己的编码。
+ */
+public enum StateFormat {
+    JSON(0, "json"),
+    BINARY(1, "bin"),
+    BATCH(2, "vec");
+
+    /** 写进 mmap 槽头 / socket 帧头的编码号 */
+    public final int code;
+    /** 文件桥接下 state_{k}.{ext} 的扩展名 */
+    public final String ext;
+
+    StateFormat(int code, String ext){ this.code = code; this.ext = ext; }
+
+    public static StateFormat parse(String s){
+        if (s == null) return JSON;
+        switch (s.trim().toLowerCase()) {
+            case "bin": case "binary": return BINARY;
+            case "json": case "": return JSON;
+            default: throw new IllegalArgumentException("unknown state format: " + s);
+        }
+    }
+}
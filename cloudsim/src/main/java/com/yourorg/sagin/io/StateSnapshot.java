@@ -0,0 +1,159 @@
+package com.yourorg.sagin.io;
+
+import java.util.Arrays;
+
+/**
+ * 每 tick 的系统状态快照：VM / Cloudlet 按列（struct-of-arrays）存放在原生数组里，
+ * 跨 tick 复用（只增不缩），由 Broker 填充、StateWriter 编码，填充过程不产生装箱对象。
+ * 增量模式下同一结构也用来承载差分帧：行只含新增/变化的条目，另带被移除的 id 列表。
+ */
+public final class StateSnapshot {
+
+    public static final byte PHASE_WAITING = 0;
+    public static final byte PHASE_RUNNING = 1;
+
+    /** 帧类型：FULL = 非增量模式的完整帧；KEYFRAME = 增量模式的关键帧；DELTA = 差分帧 */
+    public static final int KIND_FULL     = 0;
+    public static final int KIND_KEYFRAME = 1;
+    public static final int KIND_DELTA    = 2;
+
+    public long k;
+    public double time;
+    public double netEnergyJ;
+    public int kind = KIND_FULL;
+
+    /* ---------- VM 列 ---------- */
+    public int vmCount;
+    public long[]   vmId     = new long[8];
+    public double[] vmMips   = new double[8];
+    public int[]    vmPes    = new int[8];
+    public long[]   vmRam    = new long[8];
+    public long[]   vmBw     = new long[8];
+    public long[]   vmSize   = new long[8];
+    public double[] vmUtil   = new double[8];
+    public double[] vmEnergy = new double[8];
+    public int[]    vmNode   = new int[8];
+
+    /* ---------- Cloudlet 列 ---------- */
+    public int clCount;
+    public long[] clId    = new long[64];
+    public long[] clLen   = new long[64];
+    public long[] clIn    = new long[64];
+    public long[] clOut   = new long[64];
+    public long[] clVm    = new long[64];
+    public int[]  clSrc   = new int[64];
+    public byte[] clPhase = new byte[64];
+
+    /* ---------- 差分帧：被移除的 id ---------- */
+    public int vmRemovedCount;
+    public long[] vmRemoved = new long[8];
+    public int clRemovedCount;
+    public long[] clRemoved = new long[64];
+
+    public StateSnapshot clear(long k, double time){
+        this.k = k;
+        this.time = time;
+        this.netEnergyJ = 0.0;
+        this.kind = KIND_FULL;
+        this.vmCount = 0;
+        this.clCount = 0;
+        this.vmRemovedCount = 0;
+        this.clRemovedCount = 0;
+        return this;
+    }
+
+    public void addVm(long id, double mips, int pes, long ram, long bw, long size, double util, double energyJ, int node){
+        if (vmCount == vmId.length) growVms(vmCount * 2);
+        int i = vmCount++;
+        vmId[i] = id; vmMips[i] = mips; vmPes[i] = pes;
+        vmRam[i] = ram; vmBw[i] = bw; vmSize[i] = size;
+        vmUtil[i] = util; vmEnergy[i] = energyJ; vmNode[i] = node;
+    }
+
+    public void addCloudlet(long id, long len, long inBytes, long outBytes, long vm, byte phase, int src){
+        if (clCount == clId.length) growCloudlets(clCount * 2);
+        int i = clCount++;
+        clId[i] = id; clLen[i] = len; clIn[i] = inBytes; clOut[i] = outBytes;
+        clVm[i] = vm; clPhase[i] = phase; clSrc[i] = src;
+    }
+
+    /** 拷贝 o 的第 i 行 VM */
+    public void addVmFrom(StateSnapshot o, int i){
+        addVm(o.vmId[i], o.vmMips[i], o.vmPes[i], o.vmRam[i], o.vmBw[i], o.vmSize[i], o.vmUtil[i], o.vmEnergy[i], o.vmNode[i]);
+    }
+
+    /** 拷贝 o 的第 i 行 Cloudlet */
+    public void addCloudletFrom(StateSnapshot o, int i){
+        addCloudlet(o.clId[i], o.clLen[i], o.clIn[i], o.clOut[i], o.clVm[i], o.clPhase[i], o.clSrc[i]);
+    }
+
+    public void addVmRemoved(long id){
+        if (vmRemovedCount == vmRemoved.length) vmRemoved = Arrays.copyOf(vmRemoved, vmRemovedCount * 2);
+        vmRemoved[vmRemovedCount++] = id;
+    }
+
+    public void addCloudletRemoved(long id){
+        if (clRemovedCount == clRemoved.length) clRemoved = Arrays.copyOf(clRemoved, clRemovedCount * 2);
+        clRemoved[clRemovedCount++] = id;
+    }
+
+    /** 把 other 的内容完整拷到本快照（异步/增量模式下保留上一帧用；不含差分字段） */
+    public StateSnapshot copyFrom(StateSnapshot o){
+        clear(o.k, o.time);
+        netEnergyJ = o.netEnergyJ;
+        kind = o.kind;
+        if (vmId.length < o.vmCount) growVms(o.vmCount);
+        if (clId.length < o.clCount) growCloudlets(o.clCount);
+        int n = o.vmCount;
+        System.arraycopy(o.vmId, 0, vmId, 0, n);
+        System.arraycopy(o.vmMips, 0, vmMips, 0, n);
+        System.arraycopy(o.vmPes, 0, vmPes, 0, n);
+        System.arraycopy(o.vmRam, 0, vmRam, 0, n);
+        System.arraycopy(o.vmBw, 0, vmBw, 0, n);
+        System.arraycopy(o.vmSize, 0, vmSize, 0, n);
+        System.arraycopy(o.vmUtil, 0, vmUtil, 0, n);
+        System.arraycopy(o.vmEnergy, 0, vmEnergy, 0, n);
+        System.arraycopy(o.vmNode, 0, vmNode, 0, n);
+        vmCount = n;
+        int m = o.clCount;
+        System.arraycopy(o.clId, 0, clId, 0, m);
+        System.arraycopy(o.clLen, 0, clLen, 0, m);
+        System.arraycopy(o.clIn, 0, clIn, 0, m);
+        System.arraycopy(o.clOut, 0, clOut, 0, m);
+        System.arraycopy(o.clVm, 0, clVm, 0, m);
+        System.arraycopy(o.clSrc, 0, clSrc, 0, m);
+        System.arraycopy(o.clPhase, 0, clPhase, 0, m);
+        clCount = m;
+        return this;
+    }
+
+    public static String kindName(int kind){
+        return kind == KIND_DELTA ? "delta" : kind == KIND_KEYFRAME ? "keyframe" : "full";
+    }
+
+    public static String phaseName(byte phase){
+        return phase == PHASE_RUNNING ? "RUNNING" : "WAITING";
+    }
+
+    private void growVms(int cap){
+        vmId = Arrays.copyOf(vmId, cap);
+        vmMips = Arrays.copyOf(vmMips, cap);
+        vmPes = Arrays.copyOf(vmPes, cap);
+        vmRam = Arrays.copyOf(vmRam, cap);
+        vmBw = Arrays.copyOf(vmBw, cap);
+        vmSize = Arrays.copyOf(vmSize, cap);
+        vmUtil = Arrays.copyOf(vmUtil, cap);
+        vmEnergy = Arrays.copyOf(vmEnergy, cap);
+        vmNode = Arrays.copyOf(vmNode, cap);
+    }
+
+    private void growCloudlets(int cap){
+        clId = Arrays.copyOf(clId, cap);
+        clLen = Arrays.copyOf(clLen, cap);
+        clIn = Arrays.copyOf(clIn, cap);
+        clOut = Arrays.copyOf(clOut, cap);
+        clVm = Arrays.copyOf(clVm, cap);
+        clSrc = Arrays.copyOf(clSrc, cap);
+        clPhase = Arrays.copyOf(clPhase, cap);
+    }
+}
@@ -1,26 +1,150 @@
 package com.yourorg.sagin.io;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.Map;
 
+/**
+ * state 编码 + 交给 BridgeTransport 发布
+ * - BINARY：StateSnapshot 按列直接写进复用缓冲区（见 BinaryStateEncoder）
+ * - JSON  ：调试/兼容，字段与原先 buildState 的 Map 结构一致，用流式生成器输出，不再构造 Map
+ * - 可选增量模式（见 StateDelta）：只发新增/变化/移除的条目，周期性发关键帧
+ */
 public class StateWriter {
-    private final Path bridgeDir;
+    private final BridgeTransport transport;
     private final ObjectMapper om = new ObjectMapper();
+    private final ObjectWriter writer;
+    private final boolean pretty;
+    private final Buf buf = new Buf();
+    private final BinaryStateEncoder binary = new BinaryStateEncoder();
 
-    public StateWriter(Path bridgeDir){ this.bridgeDir = bridgeDir; }
+    private StateFormat format = StateFormat.JSON;
+    /** null = 每帧都发完整快照 */
+    private StateDelta delta;
 
+    /** 兼容旧用法：文件桥接 + 缩进 JSON */
+    public StateWriter(Path bridgeDir){
+        this(new FileBridgeTransport(bridgeDir), true);
+    }
+
+    /** 紧凑 JSON，走任意传输层 */
+    public StateWriter(BridgeTransport transport){
+        this(transport, false);
+    }
+
+    public StateWriter(BridgeTransport transport, boolean pretty){
+        this.transport = transport;
+        this.pretty = pretty;
+        this.writer = pretty ? om.writerWithDefaultPrettyPrinter() : om.writer();
+    }
+
+    public StateWriter format(StateFormat f){ this.format = f; return this; }
+    public StateFormat getFormat(){ return format; }
+
+    /** 开启增量模式：每 keyframeEvery 帧一个关键帧；<= 0 关闭。会丢帧的传输层（mmap）不支持 */
+    public StateWriter incremental(int keyframeEvery){
+        if (keyframeEvery > 0 && transport.mayDropFrames()) {
+            throw new IllegalArgumentException("incremental state needs a transport that never drops frames; "
+                    + transport.getClass().getSimpleName() + " may overwrite unread frames");
+        }
+        this.delta = keyframeEvery > 0 ? new StateDelta(keyframeEvery) : null;
+        return this;
+    }
+
+    /** 增量模式下让下一帧发关键帧（对端可能没收到上一帧时调用，例如等 action 超时） */
+    public void requestKeyframe(){
+        if (delta != null) delta.requestKeyframe();
+    }
+
+    /** 发布一帧快照（按当前 format 编码） */
+    public void write(StateSnapshot s){
+        if (delta != null) s = delta.diff(s);
+        try{
+            ByteBuffer payload;
+            if (format == StateFormat.BINARY) {
+                payload = binary.encode(s);
+            } else {
+                buf.reset();
+                writeJson(s);
+                payload = buf.view();
+            }
+            transport.publishState(s.k, format, payload);
+        }catch (IOException e){ throw new RuntimeException(e); }
+    }
+
+    /** 任意 Map 按 JSON 发布（兼容旧接口） */
     public void write(long tick, Map<String,Object> state){
         try{
-            Files.createDirectories(bridgeDir.resolve("tmp"));
-            String tmpName = String.format("state_%06d.json.tmp", tick);
-            String finName = String.format("state_%06d.json", tick);
-            Path tmp = bridgeDir.resolve("tmp").resolve(tmpName);
-            Path fin = bridgeDir.resolve(finName);
-            om.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), state);
-            Files.move(tmp, fin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            buf.reset();
+            writer.writeValue(buf, state);
+            transport.publishState(tick, StateFormat.JSON, buf.view());
         }catch (IOException e){ throw new RuntimeException(e); }
     }
+
+    /* ======================= JSON（调试） ======================= */
+
+    private void writeJson(StateSnapshot s) throws IOException {
+        try (JsonGenerator g = om.getFactory().createGenerator(buf, JsonEncoding.UTF8)) {
+            if (pretty) g.useDefaultPrettyPrinter();
+            g.writeStartObject();
+            g.writeNumberField("k", s.k);
+            g.writeNumberField("time", s.time);
+            if (s.kind != StateSnapshot.KIND_FULL) g.writeStringField("kind", StateSnapshot.kindName(s.kind));
+
+            g.writeArrayFieldStart("vms");
+            for (int i = 0; i < s.vmCount; i++) {
+                g.writeStartObject();
+                g.writeNumberField("id", s.vmId[i]);
+                g.writeNumberField("mips", s.vmMips[i]);
+                g.writeNumberField("pes", s.vmPes[i]);
+                g.writeNumberField("ram", s.vmRam[i]);
+                g.writeNumberField("bw", s.vmBw[i]);
+                g.writeNumberField("size", s.vmSize[i]);
+                g.writeNumberField("cpu_util", s.vmUtil[i]);
+                g.writeNumberField("energy_j", s.vmEnergy[i]);
+                g.writeNumberField("node_id", s.vmNode[i]);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+
+            g.writeArrayFieldStart("cloudlets");
+            for (int i = 0; i < s.clCount; i++) {
+                g.writeStartObject();
+                g.writeNumberField("id", s.clId[i]);
+                g.writeNumberField("len", s.clLen[i]);
+                g.writeNumberField("in_bytes", s.clIn[i]);
+                g.writeNumberField("out_bytes", s.clOut[i]);
+                g.writeNumberField("vm", s.clVm[i]);
+                g.writeStringField("phase", StateSnapshot.phaseName(s.clPhase[i]));
+                g.writeNumberField("src_id", s.clSrc[i]);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+
+            if (s.kind == StateSnapshot.KIND_DELTA) {
+                g.writeArrayFieldStart("vms_removed");
+                for (int i = 0; i < s.vmRemovedCount; i++) g.writeNumber(s.vmRemoved[i]);
+                g.writeEndArray();
+                g.writeArrayFieldStart("cloudlets_removed");
+                for (int i = 0; i < s.clRemovedCount; i++) g.writeNumber(s.clRemoved[i]);
+                g.writeEndArray();
+            }
+
+            g.writeNumberField("net_energy_j", s.netEnergyJ);
+            g.writeEndObject();
+        }
+    }
+
+    /** 复用底层数组的输出流，避免每 tick 重新分配 */
+    private static final class Buf extends ByteArrayOutputStream {
+        Buf(){ super(64 * 1024); }
+        ByteBuffer view(){ return ByteBuffer.wrap(buf, 0, count); }
+    }
 }
@@ -0,0 +1,130 @@
+package com.yourorg.sagin.metrics;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把 TickMetrics 定期追加到指标文件（JSON Lines，每行一份累计快照），不用挂 profiler 也能看线上跑得慢在哪。
+ * 后台守护线程按墙钟间隔写；close 时停掉定时器并补写一行 "final": true。
+ *
+ * 每行：
+ * <pre>
+ * {"wall_ms":…, "ticks":…, "final":false,
+ *  "alloc_per_tick":{"mean":…, "p50":…, "p99":…, "total":…},
+ *  "bridge":{"waits":…, "timeouts":…, "retries":…, "malformed":…, "fallbacks":…},
+ *  "phases":{"tick":{"n":…, "mean_us":…, "p50_us":…, "p95_us":…, "p99_us":…, "max_us":…, "total_ms":…}, …}}
+ * </pre>
+ */
+public final class MetricsReporter implements Closeable {
+
+    private final TickMetrics metrics;
+    private final Path file;
+    private final JsonFactory json = new JsonFactory();
+    private final ScheduledExecutorService timer;
+    private boolean closed;
+
+    private MetricsReporter(TickMetrics metrics, Path file, double intervalSec){
+        this.metrics = metrics;
+        this.file = file;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        long ms = Math.max(1L, (long) (intervalSec * 1000));
+        timer.scheduleAtFixedRate(this::dumpQuietly, ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    /** 每 intervalSec 秒（墙钟）往 file 追加一行；文件已存在时接着写 */
+    public static MetricsReporter start(TickMetrics metrics, Path file, double intervalSec){
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("cannot create metrics dir: " + file, e);
+        }
+        return new MetricsReporter(metrics, file, intervalSec);
+    }
+
+    public Path getFile(){ return file; }
+
+    /** 立即追加一行 */
+    public synchronized void dump(){ write(false); }
+
+    @Override
+    public void close(){
+        // 不打断正在写的一行（中断会让写到一半的 JSON 行留在文件里）：取消后续定时，等当前这次写完
+        timer.shutdown();
+        try { timer.awaitTermination(2, TimeUnit.SECONDS); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            write(true);
+        }
+    }
+
+    private synchronized void dumpQuietly(){
+        if (closed) return;
+        try { write(false); }
+        catch (RuntimeException e) { System.err.println("[metrics] " + e.getMessage()); }
+    }
+
+    private void write(boolean last){
+        try (Writer w = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             JsonGenerator g = json.createGenerator(w)) {
+            g.writeStartObject();
+            g.writeNumberField("wall_ms", System.currentTimeMillis());
+            g.writeNumberField("ticks", metrics.getTicks());
+            g.writeBooleanField("final", last);
+
+            g.writeObjectFieldStart("alloc_per_tick");
+            g.writeNumberField("mean", metrics.getAllocBytesPerTickMean());
+            g.writeNumberField("p50", metrics.getAllocBytesPerTickP50());
+            g.writeNumberField("p99", metrics.getAllocBytesPerTickP99());
+            g.writeNumberField("total", metrics.getAllocBytesTotal());
+            g.writeEndObject();
+
+            g.writeObjectFieldStart("bridge");
+            g.writeNumberField("waits", metrics.getBridgeWaits());
+            g.writeNumberField("timeouts", metrics.getBridgeTimeouts());
+            g.writeNumberField("retries", metrics.getBridgeRetries());
+            g.writeNumberField("malformed", metrics.getMalformedActions());
+            g.writeNumberField("fallbacks", metrics.getActionFallbacks());
+            g.writeEndObject();
+
+            g.writeObjectFieldStart("phases");
+            for (TickMetrics.PhaseStats p : metrics.getPhases()) {
+                if (p.getCount() == 0) continue;
+                g.writeObjectFieldStart(p.getName());
+                g.writeNumberField("n", p.getCount());
+                g.writeNumberField("mean_us", p.getMeanMicros());
+                g.writeNumberField("p50_us", p.getP50Micros());
+                g.writeNumberField("p95_us", p.getP95Micros());
+                g.writeNumberField("p99_us", p.getP99Micros());
+                g.writeNumberField("max_us", p.getMaxMicros());
+                g.writeNumberField("total_ms", p.getTotalMillis());
+                g.writeEndObject();
+            }
+            g.writeEndObject();
+
+            g.writeEndObject();
+            g.flush();
+            w.write('\n');
+        } catch (IOException e) {
+            throw new RuntimeException("metrics dump failed: " + file, e);
+        }
+    }
+
+    @Override public String toString(){ return "MetricsReporter{file=" + file + "}"; }
+}
@@ -0,0 +1,259 @@
+package com.yourorg.sagin.metrics;
+
+import com.yourorg.sagin.util.QuantileSketch;
+
+import javax.management.ConstructorParameters;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 仿真主循环的分阶段计时（常开，开销是每段两次 nanoTime + 一次无竞争加锁）：
+ * - 每个阶段一条耗时直方图（QuantileSketch，相对误差 1%）+ 次数 / 总耗时 / 最大值
+ * - 桥接：等 action 的次数、超时次数、半截载荷重试次数；broker 因超时 / 没有到期 action 走空动作的次数
+ * - 每 tick 分配的字节数（HotSpot 的线程分配计数；不支持的 JVM 上为 NaN）
+ *
+ * 写入方是仿真线程（流水线模式下等 action 的是后台线程），读取方是 JMX / MetricsReporter，全部方法同步。
+ * 通过 registerJmx 挂到平台 MBeanServer（com.yourorg.sagin:type=TickMetrics,name=...）。
+ */
+public final class TickMetrics implements TickMetricsMXBean {
+
+    /** 计时的阶段（name 用作 JMX / 指标文件里的键） */
+    public enum Phase {
+        /** 整个 broker tick */
+        TICK("tick"),
+        /** 画像游标推进 + 路由 / 流刷新 */
+        NETWORK("network"),
+        /** VM 进索引 + 节点动态列 */
+        SYNC("sync"),
+        /** 刚完成的任务：下行计费、送回、结果记录、释放 */
+        FINISHED("finished"),
+        BUILD_STATE("build_state"),
+        /** state 编码 + 交给传输层（流水线模式下只是交给后台线程） */
+        WRITE_STATE("write_state"),
+        /** 等 action（ActionReader，含解析） */
+        BRIDGE_WAIT("bridge_wait"),
+        /** 进程内策略前向（setPolicy 时代替 WRITE_STATE + BRIDGE_WAIT） */
+        INFERENCE("inference"),
+        /** assign + link_patch */
+        APPLY("apply"),
+        /** 任务生成器的 tick 回调（含采样与提交） */
+        GENERATOR("generator"),
+        /** 能耗计量的事件处理（Cloudlet 开始 / 结束时重新积分） */
+        ENERGY("energy");
+
+        public final String key;
+        Phase(String key){ this.key = key; }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final QuantileSketch[] hist = new QuantileSketch[PHASES.length];
+    private final long[] count = new long[PHASES.length];
+    private final long[] totalNanos = new long[PHASES.length];
+    private final long[] maxNanos = new long[PHASES.length];
+
+    private long ticks;
+    private final QuantileSketch allocPerTick = new QuantileSketch(0.01, 1.0);
+    private long allocTotal;
+    /** 本 tick 开始时线程已分配的字节数；-1 = 不支持 */
+    private long allocAtTickStart = -1;
+
+    private long bridgeWaits;
+    private long bridgeTimeouts;
+    private long bridgeRetries;
+    private long malformedActions;
+    private long actionFallbacks;
+
+    private ObjectName jmxName;
+
+    public TickMetrics(){
+        for (int i = 0; i < hist.length; i++) hist[i] = new QuantileSketch();
+    }
+
+    /* ======================= 写入 ======================= */
+
+    /** tick 开始：返回计时起点，并记下线程已分配的字节数 */
+    public long beginTick(){
+        allocAtTickStart = threadAllocatedBytes();
+        return System.nanoTime();
+    }
+
+    /** tick 结束：记整个 tick 的耗时与分配量 */
+    public synchronized void endTick(long t0){
+        record0(Phase.TICK, System.nanoTime() - t0);
+        ticks++;
+        if (allocAtTickStart >= 0) {
+            long b = threadAllocatedBytes() - allocAtTickStart;
+            if (b >= 0) {
+                allocPerTick.add(b);
+                allocTotal += b;
+            }
+        }
+    }
+
+    /** 记 t0 → 现在为 p 的一次耗时，返回现在（作为下一段的起点） */
+    public long lap(Phase p, long t0){
+        long t = System.nanoTime();
+        record(p, t - t0);
+        return t;
+    }
+
+    public synchronized void record(Phase p, long nanos){
+        record0(p, nanos);
+    }
+
+    /** 一次等 action：耗时、是否超时、等待期间因载荷不完整重试的次数 */
+    public synchronized void bridgeWait(long nanos, boolean timedOut, int retries){
+        record0(Phase.BRIDGE_WAIT, nanos);
+        bridgeWaits++;
+        if (timedOut) bridgeTimeouts++;
+        bridgeRetries += retries;
+    }
+
+    /** 收到的 action 解析失败且无法重读（帧已被消费） */
+    public synchronized void malformedAction(){ malformedActions++; }
+
+    /** broker 本 tick 没有可用的 action，按空动作继续 */
+    public synchronized void actionFallback(){ actionFallbacks++; }
+
+    private void record0(Phase p, long nanos){
+        int i = p.ordinal();
+        if (nanos < 0) nanos = 0;
+        hist[i].add(nanos);
+        count[i]++;
+        totalNanos[i] += nanos;
+        if (nanos > maxNanos[i]) maxNanos[i] = nanos;
+    }
+
+    /* ======================= 读取 ======================= */
+
+    /** 一个阶段的统计（时间单位微秒） */
+    public static final class PhaseStats {
+        private final String name;
+        private final long count;
+        private final double meanMicros, p50Micros, p95Micros, p99Micros, maxMicros, totalMillis;
+
+        @ConstructorParameters({"name", "count", "meanMicros", "p50Micros", "p95Micros", "p99Micros", "maxMicros", "totalMillis"})
+        public PhaseStats(String name, long count, double meanMicros, double p50Micros, double p95Micros,
+                          double p99Micros, double maxMicros, double totalMillis){
+            this.name = name; this.count = count; this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros; this.p95Micros = p95Micros; this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros; this.totalMillis = totalMillis;
+        }
+
+        public String getName(){ return name; }
+        public long getCount(){ return count; }
+        public double getMeanMicros(){ return meanMicros; }
+        public double getP50Micros(){ return p50Micros; }
+        public double getP95Micros(){ return p95Micros; }
+        public double getP99Micros(){ return p99Micros; }
+        public double getMaxMicros(){ return maxMicros; }
+        public double getTotalMillis(){ return totalMillis; }
+
+        @Override public String toString(){
+            return String.format("%-12s n=%-8d mean=%9.2f p50=%9.2f p95=%9.2f p99=%9.2f max=%10.2f us  total=%.1f ms",
+                    name, count, meanMicros, p50Micros, p95Micros, p99Micros, maxMicros, totalMillis);
+        }
+    }
+
+    public synchronized PhaseStats phase(Phase p){
+        int i = p.ordinal();
+        QuantileSketch h = hist[i];
+        long n = count[i];
+        return new PhaseStats(p.key, n,
+                n == 0 ? 0.0 : totalNanos[i] / (double) n / 1e3,
+                n == 0 ? 0.0 : h.quantile(0.50) / 1e3,
+                n == 0 ? 0.0 : h.quantile(0.95) / 1e3,
+                n == 0 ? 0.0 : h.quantile(0.99) / 1e3,
+                maxNanos[i] / 1e3, totalNanos[i] / 1e6);
+    }
+
+    @Override
+    public synchronized PhaseStats[] getPhases(){
+        PhaseStats[] out = new PhaseStats[PHASES.length];
+        for (int i = 0; i < out.length; i++) out[i] = phase(PHASES[i]);
+        return out;
+    }
+
+    @Override public synchronized long getTicks(){ return ticks; }
+    @Override public synchronized long getBridgeWaits(){ return bridgeWaits; }
+    @Override public synchronized long getBridgeTimeouts(){ return bridgeTimeouts; }
+    @Override public synchronized long getBridgeRetries(){ return bridgeRetries; }
+    @Override public synchronized long getMalformedActions(){ return malformedActions; }
+    @Override public synchronized long getActionFallbacks(){ return actionFallbacks; }
+
+    @Override public synchronized double getAllocBytesPerTickMean(){
+        return allocPerTick.count() == 0 ? Double.NaN : allocTotal / (double) allocPerTick.count();
+    }
+    @Override public synchronized double getAllocBytesPerTickP50(){ return allocPerTick.quantile(0.50); }
+    @Override public synchronized double getAllocBytesPerTickP99(){ return allocPerTick.quantile(0.99); }
+    @Override public synchronized long getAllocBytesTotal(){ return allocTotal; }
+
+    /** 清零所有统计（例如跳过预热段） */
+    @Override
+    public synchronized void reset(){
+        for (int i = 0; i < hist.length; i++) {
+            hist[i].clear();
+            count[i] = totalNanos[i] = maxNanos[i] = 0;
+        }
+        ticks = allocTotal = 0;
+        allocPerTick.clear();
+        bridgeWaits = bridgeTimeouts = bridgeRetries = malformedActions = actionFallbacks = 0;
+    }
+
+    /** 多行汇总（每阶段一行） */
+    public synchronized String summary(){
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("ticks=%d  alloc/tick mean=%.0f p99=%.0f B  bridge waits=%d timeouts=%d retries=%d malformed=%d  fallbacks=%d%n",
+                ticks, getAllocBytesPerTickMean(), getAllocBytesPerTickP99(),
+                bridgeWaits, bridgeTimeouts, bridgeRetries, malformedActions, actionFallbacks));
+        for (Phase p : PHASES) {
+            if (count[p.ordinal()] > 0) sb.append(phase(p)).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /* ======================= JMX ======================= */
+
+    /** 注册到平台 MBeanServer：com.yourorg.sagin:type=TickMetrics,name={name}；同名已存在时先替换 */
+    public synchronized ObjectName registerJmx(String name){
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName("com.yourorg.sagin:type=TickMetrics,name=" + ObjectName.quote(name));
+            try {
+                server.registerMBean(this, on);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(on);
+                server.registerMBean(this, on);
+            }
+            jmxName = on;
+            return on;
+        } catch (JMException e) {
+            throw new RuntimeException("cannot register metrics MBean: " + name, e);
+        }
+    }
+
+    public synchronized void unregisterJmx(){
+        if (jmxName == null) return;
+        try { ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName); }
+        catch (JMException ignored) {}
+        jmxName = null;
+    }
+
+    private static long threadAllocatedBytes(){
+        if (THREADS instanceof com.sun.management.ThreadMXBean t && t.isThreadAllocatedMemoryEnabled()) {
+            return t.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    @Override public String toString(){
+        return "TickMetrics{ticks=" + ticks + ", bridgeWaits=" + bridgeWaits + ", timeouts=" + bridgeTimeouts +
+                ", fallbacks=" + actionFallbacks + "}";
+    }
+}
@@ -0,0 +1,23 @@
+package com.yourorg.sagin.metrics;
+
+/** TickMetrics 的 JMX 视图（jconsole / jmc 里在 com.yourorg.sagin → TickMetrics 下） */
+public interface TickMetricsMXBean {
+
+    long getTicks();
+
+    /** 每阶段：次数、均值 / p50 / p95 / p99 / 最大耗时（µs）、总耗时（ms） */
+    TickMetrics.PhaseStats[] getPhases();
+
+    long getBridgeWaits();
+    long getBridgeTimeouts();
+    long getBridgeRetries();
+    long getMalformedActions();
+    long getActionFallbacks();
+
+    double getAllocBytesPerTickMean();
+    double getAllocBytesPerTickP50();
+    double getAllocBytesPerTickP99();
+    long getAllocBytesTotal();
+
+    void reset();
+}
@@ -0,0 +1,224 @@
+package com.yourorg.sagin.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.yourorg.sagin.util.LongIntHashMap;
+import org.yaml.snakeyaml.LoaderOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 卫星 / 地面站 / 边缘节点注册表：按稠密下标 0..size()-1 存成原生列（struct-of-arrays），
+ * 几万个节点也只是几条连续数组；SAGNode 是其上的轻量视图。
+ *
+ * 由 mapping.yaml（与 Python 侧共用）加载，负责 Java 的 VM / Cloudlet id ↔ 节点 id 的 O(1) 解析：
+ * <pre>
+ * nodes:
+ *   - {id: 101, type: ground, name: gs-0, vm: 101, host: 1, mips: 20000, lat: 39.9, lon: 116.4, alt_km: 0.05}
+ *   - {id: 201, type: satellite, vm: 201, mips: 10000, alt_km: 550, cache_hit: 0.3}
+ * cloudlets:
+ *   sources: [1, 2, 3]      # Cloudlet 来源节点：按 cloudletId % n 轮转
+ *   explicit: {1000: 1}     # 个别 Cloudlet 固定来源（优先于 sources）
+ * </pre>
+ * 映射里没有的 VM / Cloudlet 退回旧的占位规则（id % 10000），空注册表与原来的行为一致。
+ */
+public class NodeRegistry {
+
+    public static final byte TYPE_SATELLITE = 0;
+    public static final byte TYPE_GROUND    = 1;
+    public static final byte TYPE_EDGE      = 2;
+
+    /** 未映射时的占位规则（与早期 broker 一致） */
+    private static final int LEGACY_MOD = 10_000;
+
+    /* ---------- 静态列（来自 mapping）---------- */
+    private int size;
+    private int[] nodeId = new int[16];
+    private byte[] type = new byte[16];
+    private String[] name = new String[16];
+    private double[] mips = new double[16];
+    private double[] lat = new double[16];
+    private double[] lon = new double[16];
+    private double[] altKm = new double[16];
+    private long[] vmId = new long[16];       // -1 = 不承载 VM
+    private long[] hostId = new long[16];     // -1 = 没指定主机
+
+    /* ---------- 动态列（仿真中刷新）---------- */
+    private int[] queueLen = new int[16];
+    private double[] energyJ = new double[16];
+    private double[] cacheHit = new double[16];
+
+    /* ---------- 索引 ---------- */
+    private final LongIntHashMap byNode = new LongIntHashMap(16);
+    private final LongIntHashMap byVm = new LongIntHashMap(16);
+    private final LongIntHashMap byHost = new LongIntHashMap(16);
+    private final LongIntHashMap cloudletSrc = new LongIntHashMap(16, Integer.MIN_VALUE);   // cloudletId → 节点 id
+    private int[] sources = new int[0];
+
+    /* ======================= 加载 ======================= */
+
+    public static NodeRegistry load(Path yaml) throws IOException {
+        // 大星座的映射文件可能有几十 MB，放开 SnakeYAML 默认的 3M 码点上限
+        LoaderOptions opts = new LoaderOptions();
+        opts.setCodePointLimit(Integer.MAX_VALUE);
+        YAMLFactory yf = YAMLFactory.builder().loaderOptions(opts).build();
+        JsonNode root = new ObjectMapper(yf).readTree(yaml.toFile());
+        NodeRegistry r = new NodeRegistry();
+        if (root == null) return r;
+        for (JsonNode n : root.path("nodes")) {
+            if (!n.has("id")) throw new IllegalArgumentException("mapping node without id: " + n);
+            int i = r.add(n.get("id").asInt(), parseType(n.path("type").asText("edge")), n.path("mips").asDouble(0.0));
+            r.name[i] = n.path("name").asText(null);
+            r.lat[i] = n.path("lat").asDouble(0.0);
+            r.lon[i] = n.path("lon").asDouble(0.0);
+            r.altKm[i] = n.path("alt_km").asDouble(0.0);
+            r.cacheHit[i] = n.path("cache_hit").asDouble(0.0);
+            if (n.has("vm")) r.bindVm(i, n.get("vm").asLong());
+            if (n.has("host")) r.bindHost(i, n.get("host").asLong());
+        }
+        JsonNode cl = root.path("cloudlets");
+        JsonNode src = cl.path("sources");
+        int[] s = new int[src.size()];
+        for (int i = 0; i < s.length; i++) s[i] = src.get(i).asInt();
+        r.sources(s);
+        for (Iterator<Map.Entry<String, JsonNode>> it = cl.path("explicit").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            r.cloudletSource(Long.parseLong(e.getKey().trim()), e.getValue().asInt());
+        }
+        return r;
+    }
+
+    /** 文件不存在时返回空注册表（全部走占位规则） */
+    public static NodeRegistry loadOrEmpty(Path yaml){
+        if (yaml == null || !yaml.toFile().isFile()) return new NodeRegistry();
+        try {
+            return load(yaml);
+        } catch (IOException e) {
+            throw new RuntimeException("cannot load node mapping: " + yaml, e);
+        }
+    }
+
+    public static byte parseType(String s){
+        switch (s.trim().toLowerCase()) {
+            case "satellite": case "sat": case "leo": return TYPE_SATELLITE;
+            case "ground": case "gs": case "ground_station": return TYPE_GROUND;
+            case "edge": case "user": case "ue": return TYPE_EDGE;
+            default: throw new IllegalArgumentException("unknown node type: " + s);
+        }
+    }
+
+    public static String typeName(byte t){
+        return t == TYPE_SATELLITE ? "satellite" : t == TYPE_GROUND ? "ground" : "edge";
+    }
+
+    /* ======================= 构建 ======================= */
+
+    /** 追加一个节点，返回稠密下标；节点 id 重复时报错 */
+    public int add(int id, byte nodeType, double nodeMips){
+        if (byNode.containsKey(id)) throw new IllegalArgumentException("duplicate node id " + id);
+        if (size == nodeId.length) grow(size * 2);
+        int i = size++;
+        nodeId[i] = id;
+        type[i] = nodeType;
+        mips[i] = nodeMips;
+        vmId[i] = -1;
+        hostId[i] = -1;
+        byNode.put(id, i);
+        return i;
+    }
+
+    public NodeRegistry bindVm(int idx, long vm){
+        vmId[idx] = vm;
+        byVm.put(vm, idx);
+        return this;
+    }
+
+    public NodeRegistry bindHost(int idx, long host){
+        hostId[idx] = host;
+        byHost.put(host, idx);
+        return this;
+    }
+
+    public NodeRegistry sources(int... nodeIds){ this.sources = nodeIds.clone(); return this; }
+
+    public NodeRegistry cloudletSource(long cloudletId, int node){
+        cloudletSrc.put(cloudletId, node);
+        return this;
+    }
+
+    /* ======================= id 解析 ======================= */
+
+    /** Cloudlet 的来源节点 id：explicit → sources 轮转 → 占位规则 */
+    public int srcNodeOfCloudlet(long cloudletId){
+        int n = cloudletSrc.get(cloudletId);
+        if (n != Integer.MIN_VALUE) return n;
+        if (sources.length > 0) return sources[(int) Math.floorMod(cloudletId, (long) sources.length)];
+        return (int) (cloudletId % LEGACY_MOD);
+    }
+
+    /** 承载该 VM 的节点 id；未映射时走占位规则 */
+    public int nodeOfVm(long vm){
+        int i = byVm.get(vm);
+        return i >= 0 ? nodeId[i] : (int) (vm % LEGACY_MOD);
+    }
+
+    /** 节点 id → 稠密下标；不存在返回 -1 */
+    public int indexOf(int id){ return byNode.get(id); }
+    /** VM / 主机 id → 稠密下标；未映射返回 -1 */
+    public int indexOfVm(long vm){ return byVm.get(vm); }
+    public int indexOfHost(long host){ return byHost.get(host); }
+
+    /* ======================= 列访问 ======================= */
+
+    public int size(){ return size; }
+    public boolean isEmpty(){ return size == 0; }
+    public SAGNode node(int idx){ return new SAGNode(this, idx); }
+
+    public int nodeId(int i){ return nodeId[i]; }
+    public byte type(int i){ return type[i]; }
+    public String name(int i){ return name[i]; }
+    public double mips(int i){ return mips[i]; }
+    public double lat(int i){ return lat[i]; }
+    public double lon(int i){ return lon[i]; }
+    public double altKm(int i){ return altKm[i]; }
+    public long vmId(int i){ return vmId[i]; }
+    public long hostId(int i){ return hostId[i]; }
+    public int queueLen(int i){ return queueLen[i]; }
+    public double energyJ(int i){ return energyJ[i]; }
+    public double cacheHit(int i){ return cacheHit[i]; }
+
+    public void setPosition(int i, double latDeg, double lonDeg, double alt){ lat[i] = latDeg; lon[i] = lonDeg; altKm[i] = alt; }
+    public void setQueueLen(int i, int v){ queueLen[i] = v; }
+    public void setEnergyJ(int i, double v){ energyJ[i] = v; }
+    public void setCacheHit(int i, double v){ cacheHit[i] = v; }
+
+    @Override public String toString(){
+        int sat = 0, gs = 0;
+        for (int i = 0; i < size; i++) {
+            if (type[i] == TYPE_SATELLITE) sat++;
+            else if (type[i] == TYPE_GROUND) gs++;
+        }
+        return "NodeRegistry{nodes=" + size + ", satellites=" + sat + ", ground=" + gs + ", edge=" + (size - sat - gs) +
+                ", vms=" + byVm.size() + ", sources=" + sources.length + "}";
+    }
+
+    private void grow(int n){
+        nodeId = Arrays.copyOf(nodeId, n);
+        type = Arrays.copyOf(type, n);
+        name = Arrays.copyOf(name, n);
+        mips = Arrays.copyOf(mips, n);
+        lat = Arrays.copyOf(lat, n);
+        lon = Arrays.copyOf(lon, n);
+        altKm = Arrays.copyOf(altKm, n);
+        vmId = Arrays.copyOf(vmId, n);
+        hostId = Arrays.copyOf(hostId, n);
+        queueLen = Arrays.copyOf(queueLen, n);
+        energyJ = Arrays.copyOf(energyJ, n);
+        cacheHit = Arrays.copyOf(cacheHit, n);
+    }
+}
@@ -1,4 +1,38 @@
 package com.yourorg.sagin.model;
 
-public class SAGNode {
+/**
+ * 卫星 / 地面 / 边缘统一节点：NodeRegistry 里一行的轻量视图（不持有数据，读写都落到注册表的列上）。
+ */
+public final class SAGNode {
+
+    private final NodeRegistry reg;
+    private final int idx;
+
+    SAGNode(NodeRegistry reg, int idx){
+        this.reg = reg;
+        this.idx = idx;
+    }
+
+    public int index(){ return idx; }
+    public int getId(){ return reg.nodeId(idx); }
+    public byte getType(){ return reg.type(idx); }
+    public String getName(){ return reg.name(idx); }
+    public double getMips(){ return reg.mips(idx); }
+    public double getLat(){ return reg.lat(idx); }
+    public double getLon(){ return reg.lon(idx); }
+    public double getAltKm(){ return reg.altKm(idx); }
+    /** 承载的 VM / 所在主机；-1 = 无 */
+    public long getVmId(){ return reg.vmId(idx); }
+    public long getHostId(){ return reg.hostId(idx); }
+    public int getQueueLen(){ return reg.queueLen(idx); }
+    public double getEnergyJ(){ return reg.energyJ(idx); }
+    public double getCacheHit(){ return reg.cacheHit(idx); }
+
+    public boolean isSatellite(){ return getType() == NodeRegistry.TYPE_SATELLITE; }
+
+    @Override public String toString(){
+        return "SAGNode{id=" + getId() + ", type=" + NodeRegistry.typeName(getType()) +
+                (getName() == null ? "" : ", name=" + getName()) + ", mips=" + getMips() +
+                ", vm=" + getVmId() + ", queue=" + getQueueLen() + ", energyJ=" + getEnergyJ() + "}";
+    }
 }
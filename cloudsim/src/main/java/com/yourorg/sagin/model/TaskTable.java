@@ -0,0 +1,169 @@
+package com.yourorg.sagin.model;
+
+import java.util.Arrays;
+
+/**
+ * 任务表：每个 Cloudlet 一行，按槽位存成原生列（上/下行字节、MI、到达时刻、deadline、完成 / 结果送回时刻、来源节点、VM、阶段）。
+ * 创建 / 分配 / 开始 / 完成时增量更新；未完成的行另有一个稠密的 live 列表，
+ * 导出 state 时用 TaskView 游标遍历，不为每个任务分配对象。
+ * 长时运行时已完成的行可以 release 掉（阶段变成 RETIRED，槽位进空闲栈给后来的任务复用），
+ * 完成数 / deadline 超时数 / 最后完成时刻另有累计计数，不随行释放而丢失。
+ */
+public final class TaskTable {
+
+    public static final byte SUBMITTED = 0;   // 已交给 broker（等待或已派发，还没开始跑）
+    public static final byte RUNNING   = 1;
+    public static final byte FINISHED  = 2;
+    public static final byte RETIRED   = 3;   // 已写出并释放，槽位待复用
+
+    /** 默认软截止预算（秒）：deadline = 到达时刻 + 预算 */
+    public static final double DEFAULT_DEADLINE_BUDGET_SEC = 20.0;
+
+    private int size;
+    private long[] id = new long[256];
+    private long[] lengthMi = new long[256];
+    private long[] upBytes = new long[256];
+    private long[] downBytes = new long[256];
+    private double[] arrival = new double[256];
+    private double[] deadline = new double[256];
+    private double[] finishAt = new double[256];
+    private double[] doneAt = new double[256];
+    private double[] linkBits = new double[256];
+    private int[] srcNode = new int[256];
+    private long[] vmId = new long[256];
+    private byte[] phase = new byte[256];
+
+    /** 未完成的槽位（稠密数组 + 反查位置，删除 O(1)） */
+    private int[] live = new int[256];
+    private int[] livePos = new int[256];
+    private int nLive;
+
+    /** 释放掉的槽位（栈） */
+    private int[] free = new int[256];
+    private int nFree;
+
+    /* ---------- 累计（行释放后仍保留） ---------- */
+    private long finishedCount;
+    private long deadlineMisses;
+    private long retiredCount;
+    private double lastFinishAt;
+
+    /** 追加一行（优先复用释放掉的槽位），返回槽位 */
+    public int add(long taskId, long mi, long up, long down, double arrivalT, double deadlineT, int src, long vm){
+        int s;
+        if (nFree > 0) {
+            s = free[--nFree];
+        } else {
+            if (size == id.length) grow(size * 2);
+            s = size++;
+        }
+        id[s] = taskId;
+        lengthMi[s] = mi;
+        upBytes[s] = up;
+        downBytes[s] = down;
+        arrival[s] = arrivalT;
+        deadline[s] = deadlineT;
+        finishAt[s] = Double.NaN;
+        doneAt[s] = Double.NaN;
+        linkBits[s] = 0.0;
+        srcNode[s] = src;
+        vmId[s] = vm;
+        phase[s] = SUBMITTED;
+        livePos[s] = nLive;
+        live[nLive++] = s;
+        return s;
+    }
+
+    /** 分配到 VM（还没开始跑） */
+    public void assign(int s, long vm){ vmId[s] = vm; }
+
+    public void start(int s, long vm){
+        if (phase[s] != SUBMITTED) return;
+        phase[s] = RUNNING;
+        vmId[s] = vm;
+    }
+
+    public void finish(int s, double t){
+        if (phase[s] == FINISHED) return;
+        phase[s] = FINISHED;
+        finishAt[s] = t;
+        finishedCount++;
+        if (t > lastFinishAt) lastFinishAt = t;
+        int p = livePos[s], last = live[--nLive];
+        live[p] = last;
+        livePos[last] = p;
+    }
+
+    /** 轨迹等外部来源给定的来源节点 / deadline（覆盖登记时按默认规则算的值） */
+    public void setSrcNode(int s, int node){ srcNode[s] = node; }
+    public void setDeadline(int s, double t){ deadline[s] = t; }
+
+    /** 结果经下行送回来源节点（执行完成之后）；送回晚于 deadline 记一次超时 */
+    public void deliver(int s, double t){
+        doneAt[s] = t;
+        if (t > deadline[s]) deadlineMisses++;
+    }
+
+    /** 上/下行在各跳链路上累计的比特数（多跳每跳各算一次，与 EnergyMeter 的链路计量一致） */
+    public void addLinkBits(int s, double bits){ linkBits[s] += bits; }
+
+    /** 释放已完成的行：槽位之后给新任务复用；未完成的行不能释放 */
+    public void release(int s){
+        if (phase[s] != FINISHED) throw new IllegalStateException("task row " + s + " is not finished");
+        phase[s] = RETIRED;
+        if (nFree == free.length) free = Arrays.copyOf(free, nFree * 2);
+        free[nFree++] = s;
+        retiredCount++;
+    }
+
+    /* ---------- 遍历 ---------- */
+
+    /** 分配过的槽位数（含已释放待复用的；按槽位扫描时跳过 RETIRED） */
+    public int size(){ return size; }
+    public int liveCount(){ return nLive; }
+    /** live 列表第 i 个的槽位（完成会打乱顺序） */
+    public int liveSlot(int i){ return live[i]; }
+
+    /** 累计完成数 / 结果送回时已超过 deadline 的数 / 已释放的行数 / 最后一个完成时刻（没有为 0） */
+    public long finishedCount(){ return finishedCount; }
+    public long deadlineMisses(){ return deadlineMisses; }
+    public long retiredCount(){ return retiredCount; }
+    public double lastFinishAt(){ return lastFinishAt; }
+
+    /** 新游标（调用方复用它，逐行 at(slot) 移动） */
+    public TaskView view(){ return new TaskView(this); }
+
+    /* ---------- 列 ---------- */
+
+    public long id(int s){ return id[s]; }
+    public long lengthMi(int s){ return lengthMi[s]; }
+    public long upBytes(int s){ return upBytes[s]; }
+    public long downBytes(int s){ return downBytes[s]; }
+    public double arrival(int s){ return arrival[s]; }
+    public double deadline(int s){ return deadline[s]; }
+    /** 未完成为 NaN */
+    public double finishAt(int s){ return finishAt[s]; }
+    /** 结果还没送回为 NaN */
+    public double doneAt(int s){ return doneAt[s]; }
+    public double linkBits(int s){ return linkBits[s]; }
+    public int srcNode(int s){ return srcNode[s]; }
+    public long vmId(int s){ return vmId[s]; }
+    public byte phase(int s){ return phase[s]; }
+
+    private void grow(int n){
+        id = Arrays.copyOf(id, n);
+        lengthMi = Arrays.copyOf(lengthMi, n);
+        upBytes = Arrays.copyOf(upBytes, n);
+        downBytes = Arrays.copyOf(downBytes, n);
+        arrival = Arrays.copyOf(arrival, n);
+        deadline = Arrays.copyOf(deadline, n);
+        finishAt = Arrays.copyOf(finishAt, n);
+        doneAt = Arrays.copyOf(doneAt, n);
+        linkBits = Arrays.copyOf(linkBits, n);
+        srcNode = Arrays.copyOf(srcNode, n);
+        vmId = Arrays.copyOf(vmId, n);
+        phase = Arrays.copyOf(phase, n);
+        live = Arrays.copyOf(live, n);
+        livePos = Arrays.copyOf(livePos, n);
+    }
+}
@@ -0,0 +1,49 @@
+package com.yourorg.sagin.model;
+
+/**
+ * Cloudlet 轻量视图：TaskTable 上的可复用游标（flyweight），at(slot) 移到某一行后读各列。
+ * 不持有数据，遍历几万个任务也只用这一个对象。
+ */
+public final class TaskView {
+
+    private final TaskTable table;
+    private int slot = -1;
+
+    TaskView(TaskTable table){
+        this.table = table;
+    }
+
+    /** 移到槽位 s */
+    public TaskView at(int s){
+        this.slot = s;
+        return this;
+    }
+
+    /** 移到 live 列表第 i 个（未完成任务） */
+    public TaskView live(int i){
+        return at(table.liveSlot(i));
+    }
+
+    public int slot(){ return slot; }
+    public long getId(){ return table.id(slot); }
+    public long getLengthMi(){ return table.lengthMi(slot); }
+    public long getUpBytes(){ return table.upBytes(slot); }
+    public long getDownBytes(){ return table.downBytes(slot); }
+    public double getArrival(){ return table.arrival(slot); }
+    public double getDeadline(){ return table.deadline(slot); }
+    public double getFinishAt(){ return table.finishAt(slot); }
+    public double getDoneAt(){ return table.doneAt(slot); }
+    public int getSrcNode(){ return table.srcNode(slot); }
+    /** -1 = 还没分配 */
+    public long getVmId(){ return table.vmId(slot); }
+    public byte getPhase(){ return table.phase(slot); }
+
+    public boolean isFinished(){ return getPhase() == TaskTable.FINISHED; }
+    public boolean isLate(double now){ return (isFinished() ? getFinishAt() : now) > getDeadline(); }
+
+    @Override public String toString(){
+        return slot < 0 ? "TaskView{}" : "TaskView{id=" + getId() + ", mi=" + getLengthMi() + ", up=" + getUpBytes() +
+                ", down=" + getDownBytes() + ", src=" + getSrcNode() + ", vm=" + getVmId() +
+                ", phase=" + getPhase() + ", deadline=" + getDeadline() + "}";
+    }
+}
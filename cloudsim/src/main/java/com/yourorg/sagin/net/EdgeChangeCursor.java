@@ -0,0 +1,158 @@
+package com.yourorg.sagin.net;
+
+import java.util.Arrays;
+
+/**
+ * 变化边游标：随仿真时钟推进，报告自上次 poll 以来生效值可能变了的画像边（NetworkProfile 的边下标，
+ * 与 edgeKeyAt 一致），代替每 tick 逐边 link() 比对。
+ *
+ * - 时间线：每条边在小顶堆里挂一个“下一行开始生效”的时刻（nextChangeAfter），到点弹出、报告、挂下一个
+ * - 写入：put / link_patch / 追加行由画像调 markDirty，下一次 poll 报告并重挂该边的时刻
+ * - 报告的是“可能变了”：调用方自己比对前后 LinkMetrics（例如覆盖层盖住了文件里的新行）
+ *
+ * 由 NetworkProfile.changeCursor() 创建并登记；只在仿真线程里用，一个消费者一个游标。
+ */
+public final class EdgeChangeCursor {
+
+    private final NetworkProfile profile;
+
+    /** 每条边当前挂在堆里的时刻（+∞ = 没挂）；堆里与之不等的条目已过期，弹出时跳过 */
+    private double[] pendingAt = new double[0];
+    private int nEdges;
+
+    /* ---------- 小顶堆（懒删除）---------- */
+    private double[] heapT = new double[64];
+    private int[] heapE = new int[64];
+    private int heapSize;
+
+    /* ---------- 写入标记 ---------- */
+    private boolean[] dirty = new boolean[0];
+    private int[] dirtyList = new int[16];
+    private int nDirty;
+
+    /* ---------- 本次 poll 的结果 ---------- */
+    private int[] out = new int[16];
+    private int nOut;
+    private int[] stamp = new int[0];
+    private int curStamp;
+
+    private double lastT = Double.NaN;
+
+    EdgeChangeCursor(NetworkProfile profile){
+        this.profile = profile;
+    }
+
+    /** 从 t 起跟踪全部边（建图或时间回退后调用）；之前攒的变化丢弃 */
+    public void reset(double t){
+        heapSize = 0;
+        nDirty = 0;
+        nEdges = 0;
+        ensure(profile.edgeCount());
+        Arrays.fill(dirty, false);
+        for (int i = 0; i < nEdges; i++) schedule(i, t);
+        lastT = t;
+    }
+
+    /**
+     * 推进到 t，返回 (上次 poll, t] 里生效值可能变了的边数，edge(i) 取第 i 条；每条边最多报一次。
+     * 新出现的边也会报告。t 早于上一次（新一轮仿真）或还没 reset 时返回 -1，调用方须全量比对后 reset。
+     */
+    public int poll(double t){
+        if (Double.isNaN(lastT) || t < lastT) return -1;
+        nOut = 0;
+        if (++curStamp == Integer.MAX_VALUE) { Arrays.fill(stamp, 0); curStamp = 1; }
+
+        int pe = profile.edgeCount();
+        for (int i = nEdges; i < pe; i++) markDirty(i);
+
+        for (int j = 0; j < nDirty; j++) {
+            int e = dirtyList[j];
+            dirty[e] = false;
+            report(e);
+            schedule(e, t);
+        }
+        nDirty = 0;
+
+        while (heapSize > 0 && heapT[0] <= t) {
+            double at = heapT[0];
+            int e = heapE[0];
+            pop();
+            if (pendingAt[e] != at) continue;
+            report(e);
+            schedule(e, t);
+        }
+        lastT = t;
+        return nOut;
+    }
+
+    /** 本次 poll 报告的第 i 条边（画像边下标） */
+    public int edge(int i){ return out[i]; }
+
+    /** 画像写入了边 e（新行 / 覆盖快照 / 新边） */
+    void markDirty(int e){
+        ensure(e + 1);
+        if (dirty[e]) return;
+        dirty[e] = true;
+        if (nDirty == dirtyList.length) dirtyList = Arrays.copyOf(dirtyList, nDirty * 2);
+        dirtyList[nDirty++] = e;
+    }
+
+    private void report(int e){
+        if (stamp[e] == curStamp) return;
+        stamp[e] = curStamp;
+        if (nOut == out.length) out = Arrays.copyOf(out, nOut * 2);
+        out[nOut++] = e;
+    }
+
+    private void schedule(int e, double t){
+        double next = profile.nextChangeAfter(e, t);
+        pendingAt[e] = next;
+        if (next < Double.POSITIVE_INFINITY) push(next, e);
+    }
+
+    private void ensure(int n){
+        if (n <= nEdges) return;
+        if (n > pendingAt.length) {
+            int cap = Math.max(n, pendingAt.length * 2);
+            pendingAt = Arrays.copyOf(pendingAt, cap);
+            dirty = Arrays.copyOf(dirty, cap);
+            stamp = Arrays.copyOf(stamp, cap);
+        }
+        Arrays.fill(pendingAt, nEdges, n, Double.POSITIVE_INFINITY);
+        nEdges = n;
+    }
+
+    private void push(double at, int e){
+        if (heapSize == heapT.length) {
+            heapT = Arrays.copyOf(heapT, heapSize * 2);
+            heapE = Arrays.copyOf(heapE, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (heapT[p] <= at) break;
+            heapT[i] = heapT[p];
+            heapE[i] = heapE[p];
+            i = p;
+        }
+        heapT[i] = at;
+        heapE[i] = e;
+    }
+
+    private void pop(){
+        double at = heapT[--heapSize];
+        int e = heapE[heapSize];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= heapSize) break;
+            if (c + 1 < heapSize && heapT[c + 1] < heapT[c]) c++;
+            if (at <= heapT[c]) break;
+            heapT[i] = heapT[c];
+            heapE[i] = heapE[c];
+            i = c;
+        }
+        heapT[i] = at;
+        heapE[i] = e;
+    }
+}
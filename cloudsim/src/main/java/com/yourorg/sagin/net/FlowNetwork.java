@@ -0,0 +1,435 @@
+package com.yourorg.sagin.net;
+
+import com.yourorg.sagin.util.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * 流级（flow-level）带宽共享模型：并发传输按 max-min 公平分享路径上每条链路的有效带宽。
+ *
+ * - 资源：每条有向边的上行 / 下行各算一个资源，容量取 NetworkProfile 当前的 effUp/effDownMbps
+ * - 流：沿一条路径（Router.Route 或直连边）传 bits；上行流占用各边的上行资源，下行流占用下行资源
+ * - 速率：progressive filling（逐个找最紧的瓶颈资源，把上面未定速的流冻结在公平份额上）
+ * - 增量：流开始 / 结束、链路容量变化时，只在受影响的连通分量（共享资源的流，传递闭包）里重算
+ * - 完成：按预计完成时刻维护一个小顶堆，调用方只需在 nextCompletionTime() 安排一个事件，
+ *   到点调 pollCompleted(now) 取出完成的流
+ *
+ * 只模拟发送时间；传播时延（RTT）由调用方在交付时另加。非线程安全。
+ */
+public class FlowNetwork {
+
+    /** 完成时刻比较的容差（秒） */
+    private static final double EPS = 1e-9;
+
+    private final NetworkProfile profile;
+
+    /* ---------- 资源（边 × 方向）---------- */
+    private final LongIntHashMap edgeIndex = new LongIntHashMap(64);
+    private long[] edgeKeys = new long[16];
+    private int nEdges;
+    /** 资源 r = 2 * edge + (down ? 1 : 0) */
+    private double[] capacity = new double[32];      // Mbps
+    private int[][] resFlows = new int[32][];        // 资源上的活动流
+    private int[] resCount = new int[32];
+    /** 有活动流的资源列表（refresh 只看这些） */
+    private int[] busy = new int[32];
+    private int nBusy;
+    private int[] busyPos = new int[32];
+
+    /* ---------- 流（槽位 + 空闲链）---------- */
+    private int[][] flowRes = new int[64][];
+    private double[] remaining = new double[64];     // bit
+    private double[] rate = new double[64];          // bit/s
+    private double[] lastUpdate = new double[64];
+    private double[] finishAt = new double[64];
+    private double[] startedAt = new double[64];
+    private Object[] payload = new Object[64];
+    /** 最近一次 pollCompleted 取出的流的 payload（槽位释放时已清空，免得空闲槽位钉住调用方对象） */
+    private Object completed;
+    private int[] freeList = new int[64];
+    private int nFree, nSlots, nActive;
+
+    /* ---------- 完成时刻小顶堆（按槽位索引）---------- */
+    private int[] heap = new int[64];
+    private int[] heapPos = new int[64];
+    private int heapSize;
+
+    /* ---------- 重算工作区 ---------- */
+    private int[] compFlows = new int[64], compRes = new int[32];
+    private int nCompFlows, nCompRes;
+    private int[] flowMark = new int[64], resMark = new int[32];
+    private int mark;
+    private double[] resLeft = new double[32];
+    private int[] resUnfrozen = new int[32];
+    private boolean[] frozen = new boolean[64];
+    private int[] pending = new int[16];
+    private int nPending;
+
+    /* ---------- 计数 ---------- */
+    private long flowsStarted, flowsCompleted, recomputes, recomputedFlows;
+    private double bitsDelivered;
+
+    public FlowNetwork(NetworkProfile profile){
+        this.profile = profile;
+    }
+
+    /* ======================= 流 ======================= */
+
+    /** 沿路由启动一条传输；返回流 id（槽位，完成后复用）。src == dst 的路由立即完成 */
+    public int start(Router.Route route, boolean downlink, double bits, double now, Object payload){
+        int hops = route.getHops();
+        int[] res = new int[hops];
+        for (int i = 0; i < hops; i++) res[i] = resource(route.node(i), route.node(i + 1), downlink, now);
+        return start(res, bits, now, payload);
+    }
+
+    /** 直连边 (u,v) 上启动一条传输 */
+    public int start(int u, int v, boolean downlink, double bits, double now, Object payload){
+        return start(new int[]{ resource(u, v, downlink, now) }, bits, now, payload);
+    }
+
+    private int start(int[] res, double bits, double now, Object p){
+        int f = allocFlow();
+        flowRes[f] = res;
+        remaining[f] = Math.max(0.0, bits);
+        rate[f] = 0.0;
+        lastUpdate[f] = now;
+        startedAt[f] = now;
+        finishAt[f] = Double.POSITIVE_INFINITY;
+        payload[f] = p;
+        nActive++;
+        flowsStarted++;
+        for (int r : res) attach(r, f);
+        heapInsert(f);
+
+        if (res.length == 0 || remaining[f] == 0.0) {
+            setFinish(f, now);
+        } else {
+            nPending = 0;
+            pushPending(f);
+            recompute(now);
+        }
+        return f;
+    }
+
+    /**
+     * 取出一个 finishAt <= now 的流（没有返回 -1）；调用方循环调用直到 -1。
+     * 取出的流从资源上摘下、剩余流的速率随之重算；它的 payload 用 completedPayload() 取，
+     * startedAt(f) 在下一次 start 前有效。
+     */
+    public int pollCompleted(double now){
+        if (heapSize == 0 || finishAt[heap[0]] > now + EPS) return -1;
+        int f = heap[0];
+        heapRemove(f);
+        settle(f, now);
+        bitsDelivered += remaining[f];   // 浮点残差算作已送达
+        remaining[f] = 0.0;
+        nActive--;
+        flowsCompleted++;
+
+        nPending = 0;
+        for (int r : flowRes[f]) {
+            detach(r, f);
+            for (int i = 0; i < resCount[r]; i++) pushPending(resFlows[r][i]);
+        }
+        completed = payload[f];
+        freeFlow(f);
+        if (nPending > 0) recompute(now);
+        return f;
+    }
+
+    /** 下一个完成时刻；没有活动流（或都卡在断链上）时为 +∞ */
+    public double nextCompletionTime(){
+        return heapSize == 0 ? Double.POSITIVE_INFINITY : finishAt[heap[0]];
+    }
+
+    /**
+     * 按时刻 t 重读有流经过的链路容量；有变化的资源上的流重算速率。
+     * 返回容量发生变化的资源数。
+     */
+    public int refresh(double t){
+        nPending = 0;
+        int changed = 0;
+        for (int i = 0; i < nBusy; i++) {
+            int r = busy[i];
+            double c = readCapacity(r, t);
+            if (c == capacity[r]) continue;
+            capacity[r] = c;
+            changed++;
+            for (int j = 0; j < resCount[r]; j++) pushPending(resFlows[r][j]);
+        }
+        if (nPending > 0) recompute(t);
+        return changed;
+    }
+
+    /* ======================= 查询 ======================= */
+
+    /** 活动流的 payload */
+    public Object payload(int f){ return payload[f]; }
+    /** 最近一次 pollCompleted 取出的流的 payload（到下一次 pollCompleted 为止） */
+    public Object completedPayload(){ return completed; }
+    /** 当前速率（Mbps） */
+    public double rateMbps(int f){ return rate[f] / 1e6; }
+    public double startedAt(int f){ return startedAt[f]; }
+    public double finishAt(int f){ return finishAt[f]; }
+    public int activeFlows(){ return nActive; }
+    /** 资源上的活动流数（0 = 该方向当前空闲） */
+    public int flowsOn(int u, int v, boolean downlink){
+        int e = edgeIndex.get(NetworkProfile.edgeKey(u, v));
+        return e < 0 ? 0 : resCount[2 * e + (downlink ? 1 : 0)];
+    }
+
+    public long getFlowsStarted(){ return flowsStarted; }
+    public long getFlowsCompleted(){ return flowsCompleted; }
+    public long getRecomputes(){ return recomputes; }
+    /** 累计参与重算的流数（/ recomputes = 平均分量大小） */
+    public long getRecomputedFlows(){ return recomputedFlows; }
+    /** 已结算的送达量（bit，按速率积分，重算 / 完成时结算） */
+    public double getBitsDelivered(){ return bitsDelivered; }
+
+    @Override public String toString(){
+        return "FlowNetwork{active=" + nActive + ", started=" + flowsStarted + ", completed=" + flowsCompleted +
+                ", links=" + nEdges + ", recomputes=" + recomputes + ", recomputedFlows=" + recomputedFlows + "}";
+    }
+
+    /* ======================= max-min 公平分配 ======================= */
+
+    /**
+     * 从 pending 里的流出发，沿“流—资源”二部图找出整个连通分量，在分量内做 progressive filling。
+     * 分量外的流速率不受影响，不动。
+     */
+    private void recompute(double now){
+        recomputes++;
+        if (++mark == Integer.MAX_VALUE) { Arrays.fill(flowMark, 0); Arrays.fill(resMark, 0); mark = 1; }
+        nCompFlows = 0;
+        nCompRes = 0;
+
+        // 1) 连通分量（pending 当作栈）
+        for (int i = 0; i < nPending; i++) {
+            int f = pending[i];
+            if (flowMark[f] != mark) { flowMark[f] = mark; addCompFlow(f); }
+        }
+        for (int k = 0; k < nCompFlows; k++) {
+            for (int r : flowRes[compFlows[k]]) {
+                if (resMark[r] == mark) continue;
+                resMark[r] = mark;
+                addCompRes(r);
+                for (int j = 0; j < resCount[r]; j++) {
+                    int g = resFlows[r][j];
+                    if (flowMark[g] != mark) { flowMark[g] = mark; addCompFlow(g); }
+                }
+            }
+        }
+        recomputedFlows += nCompFlows;
+
+        // 2) 先按旧速率把进度结到 now
+        for (int k = 0; k < nCompFlows; k++) {
+            int f = compFlows[k];
+            settle(f, now);
+            frozen[f] = false;
+            rate[f] = 0.0;
+        }
+        for (int k = 0; k < nCompRes; k++) {
+            int r = compRes[k];
+            resLeft[r] = capacity[r] * 1e6;
+            resUnfrozen[r] = resCount[r];
+        }
+
+        // 3) progressive filling：每轮冻结最紧资源上的全部未定速流
+        int left = nCompFlows;
+        while (left > 0) {
+            int best = -1;
+            double share = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < nCompRes; k++) {
+                int r = compRes[k];
+                if (resUnfrozen[r] == 0) continue;
+                double s = Math.max(0.0, resLeft[r]) / resUnfrozen[r];
+                if (s < share) { share = s; best = r; }
+            }
+            if (best < 0) break;
+            for (int j = 0; j < resCount[best]; j++) {
+                int f = resFlows[best][j];
+                if (frozen[f]) continue;
+                frozen[f] = true;
+                rate[f] = share;
+                left--;
+                for (int r : flowRes[f]) {
+                    resLeft[r] -= share;
+                    resUnfrozen[r]--;
+                }
+            }
+        }
+
+        // 4) 新的预计完成时刻
+        for (int k = 0; k < nCompFlows; k++) {
+            int f = compFlows[k];
+            double at = rate[f] > 0.0 ? now + remaining[f] / rate[f] : Double.POSITIVE_INFINITY;
+            setFinish(f, at);
+        }
+    }
+
+    /** 按当前速率把 [lastUpdate, now] 的进度扣掉 */
+    private void settle(int f, double now){
+        double dt = now - lastUpdate[f];
+        if (dt > 0.0 && rate[f] > 0.0) {
+            double sent = Math.min(remaining[f], rate[f] * dt);
+            remaining[f] -= sent;
+            bitsDelivered += sent;
+        }
+        lastUpdate[f] = now;
+    }
+
+    private void setFinish(int f, double at){
+        if (at == finishAt[f]) return;
+        double old = finishAt[f];
+        finishAt[f] = at;
+        if (at < old) heapUp(heapPos[f]); else heapDown(heapPos[f]);
+    }
+
+    /* ======================= 资源 ======================= */
+
+    private int resource(int u, int v, boolean downlink, double t){
+        long key = NetworkProfile.edgeKey(u, v);
+        int e = edgeIndex.get(key);
+        if (e < 0) {
+            e = nEdges++;
+            edgeIndex.put(key, e);
+            if (e == edgeKeys.length) edgeKeys = Arrays.copyOf(edgeKeys, e * 2);
+            edgeKeys[e] = key;
+            int nr = 2 * nEdges;
+            if (nr > capacity.length) growResources(Math.max(nr, capacity.length * 2));
+            capacity[2 * e] = readCapacity(2 * e, t);
+            capacity[2 * e + 1] = readCapacity(2 * e + 1, t);
+        }
+        int r = 2 * e + (downlink ? 1 : 0);
+        // 闲置期间链路可能变了：重新有流时按当前时刻取一次
+        if (resCount[r] == 0) capacity[r] = readCapacity(r, t);
+        return r;
+    }
+
+    private double readCapacity(int r, double t){
+        long key = edgeKeys[r >> 1];
+        LinkMetrics m = profile.link(NetworkProfile.edgeSrc(key), NetworkProfile.edgeDst(key), t);
+        if (m == null || !m.isUp()) return 0.0;
+        return (r & 1) == 0 ? m.effUpMbps() : m.effDownMbps();
+    }
+
+    private void growResources(int n){
+        capacity = Arrays.copyOf(capacity, n);
+        resFlows = Arrays.copyOf(resFlows, n);
+        resCount = Arrays.copyOf(resCount, n);
+        busyPos = Arrays.copyOf(busyPos, n);
+        busy = Arrays.copyOf(busy, n);
+        resMark = Arrays.copyOf(resMark, n);
+        resLeft = Arrays.copyOf(resLeft, n);
+        resUnfrozen = Arrays.copyOf(resUnfrozen, n);
+        compRes = Arrays.copyOf(compRes, n);
+    }
+
+    private void attach(int r, int f){
+        int[] fl = resFlows[r];
+        if (fl == null) fl = resFlows[r] = new int[4];
+        else if (resCount[r] == fl.length) fl = resFlows[r] = Arrays.copyOf(fl, fl.length * 2);
+        fl[resCount[r]++] = f;
+        if (resCount[r] == 1) { busyPos[r] = nBusy; busy[nBusy++] = r; }
+    }
+
+    private void detach(int r, int f){
+        int[] fl = resFlows[r];
+        int n = resCount[r];
+        for (int i = 0; i < n; i++) {
+            if (fl[i] == f) { fl[i] = fl[n - 1]; break; }
+        }
+        if (--resCount[r] == 0) {
+            int p = busyPos[r], last = busy[--nBusy];
+            busy[p] = last;
+            busyPos[last] = p;
+        }
+    }
+
+    /* ======================= 槽位 & 工作区 ======================= */
+
+    private int allocFlow(){
+        if (nFree > 0) return freeList[--nFree];
+        int f = nSlots++;
+        if (f == remaining.length) {
+            int n = f * 2;
+            flowRes = Arrays.copyOf(flowRes, n);
+            remaining = Arrays.copyOf(remaining, n);
+            rate = Arrays.copyOf(rate, n);
+            lastUpdate = Arrays.copyOf(lastUpdate, n);
+            finishAt = Arrays.copyOf(finishAt, n);
+            startedAt = Arrays.copyOf(startedAt, n);
+            payload = Arrays.copyOf(payload, n);
+            freeList = Arrays.copyOf(freeList, n);
+            heap = Arrays.copyOf(heap, n);
+            heapPos = Arrays.copyOf(heapPos, n);
+            compFlows = Arrays.copyOf(compFlows, n);
+            flowMark = Arrays.copyOf(flowMark, n);
+            frozen = Arrays.copyOf(frozen, n);
+        }
+        return f;
+    }
+
+    private void freeFlow(int f){
+        flowRes[f] = null;
+        payload[f] = null;
+        freeList[nFree++] = f;
+    }
+
+    private void pushPending(int f){
+        if (nPending == pending.length) pending = Arrays.copyOf(pending, nPending * 2);
+        pending[nPending++] = f;
+    }
+
+    private void addCompFlow(int f){ compFlows[nCompFlows++] = f; }
+    private void addCompRes(int r){ compRes[nCompRes++] = r; }
+
+    /* ======================= 索引小顶堆 ======================= */
+
+    private void heapInsert(int f){
+        heap[heapSize] = f;
+        heapPos[f] = heapSize++;
+        heapUp(heapPos[f]);
+    }
+
+    private void heapRemove(int f){
+        int p = heapPos[f];
+        int last = heap[--heapSize];
+        if (p == heapSize) return;
+        heap[p] = last;
+        heapPos[last] = p;
+        heapUp(p);
+        heapDown(heapPos[last]);
+    }
+
+    private void heapUp(int i){
+        int f = heap[i];
+        double key = finishAt[f];
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (finishAt[heap[p]] <= key) break;
+            heap[i] = heap[p];
+            heapPos[heap[i]] = i;
+            i = p;
+        }
+        heap[i] = f;
+        heapPos[f] = i;
+    }
+
+    private void heapDown(int i){
+        int f = heap[i];
+        double key = finishAt[f];
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= heapSize) break;
+            if (c + 1 < heapSize && finishAt[heap[c + 1]] < finishAt[heap[c]]) c++;
+            if (key <= finishAt[heap[c]]) break;
+            heap[i] = heap[c];
+            heapPos[heap[i]] = i;
+            i = c;
+        }
+        heap[i] = f;
+        heapPos[f] = i;
+    }
+}
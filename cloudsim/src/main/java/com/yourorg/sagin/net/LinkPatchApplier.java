@@ -46,10 +46,22 @@ public class LinkPatchApplier {
             double t = e.containsKey("t_start") ? toD(e.get("t_start"), 0.0)
                     : toD(e.get("t"),       0.0);
 
-            profile.put(src, dst, t, new LinkMetrics(rtt, up, dn, loss, ok));
+            LinkMetrics m = new LinkMetrics(rtt, up, dn, loss, ok);
+            Integer u = toI(src), v = toI(dst);
+            // 数字节点 id 打到 int 时间序列上（broker / Router 查的是这一份），其余走 String 表
+            if (u != null && v != null) profile.put(u, v, t, m);
+            else profile.put(src, dst, t, m);
         }
     }
 
+    private static Integer toI(String s) {
+        try {
+            double d = Double.parseDouble(s.trim());   // JSON 里的 101 / 101.0 都算
+            return d == Math.rint(d) && Math.abs(d) <= Integer.MAX_VALUE ? (int) d : null;
+        }
+        catch (Exception ignore) { return null; }
+    }
+
     private static double toD(Object o, double def) {
         if (o == null) return def;
         try { return Double.parseDouble(o.toString()); }
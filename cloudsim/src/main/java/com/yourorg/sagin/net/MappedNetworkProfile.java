@@ -0,0 +1,267 @@
+package com.yourorg.sagin.net;
+
+import com.yourorg.sagin.util.LongIntHashMap;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 直接在预编译的二进制画像（ProfileCompiler 生成的 *.sgnp）上查询：文件只读映射，
+ * 不解析、不拷到堆上；多个并行仿真打开同一文件时共享页缓存。
+ *
+ * 文件布局（小端）：
+ * <pre>
+ * [0, 64)   文件头：magic 'SGNP'(i32) | version(i32) | n_edges(i32) | row_bytes(i32) | n_rows(i64)
+ *                   | dir_offset(i64) | rows_offset(i64) | t_min(f64) | t_max(f64) | 保留
+ * 边目录     n_edges × [ key(i64，见 NetworkProfile.edgeKey，升序) | first_row(i32) | n_rows(i32) ]
+ * 行区       n_rows × [ t(f64) | rtt_ms(f64) | up_mbps(f64) | down_mbps(f64) | loss(f64) | up_flag(i32) | 0(i32) ]
+ *           同一条边的行连续存放，按 t 升序
+ * </pre>
+ * 运行期 put（link_patch）写进堆上的覆盖层（NetworkProfileCsv），查询时与文件里的时间线合并：
+ * 取两边中 t_start 较晚的那一行，覆盖层的 put(u,v,m) 快照优先。
+ * 查询走每边一个时间游标（与 NetworkProfileCsv 相同，乱序查询回退二分），边目录查找结果缓存在堆上的小哈希表里。
+ * 单个映射上限 2 GiB（约 4400 万行）。
+ */
+public class MappedNetworkProfile extends NetworkProfile {
+
+    public static final String EXT = ".sgnp";
+
+    public static final int MAGIC        = 0x504E4753; // 'SGNP'
+    public static final int VERSION      = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int DIR_BYTES    = 16;
+    public static final int ROW_BYTES    = 48;
+
+    private final Path file;
+    private final MappedByteBuffer map;
+    private final int nEdges;
+    private final long nRows;
+    private final int dirOffset;
+    private final int rowsOffset;
+    private final double tMin, tMax;
+
+    /** 每条边上一次命中的行及其 LinkMetrics（查询同一行时不再分配） */
+    private final int[] lastRow;
+    private final LinkMetrics[] lastMetrics;
+
+    /** 时间游标（全局行号，-1 = 还没有）+ 自上次 advanceAll 以来查询过的边（工作集），advanceAll 只推进这些 */
+    private final int[] cursor;
+    private final boolean[] isActive;
+    private int[] active = new int[16];
+    private int activeCount;
+    private boolean timeCursor = true;
+    private static final int CURSOR_WALK = 8;
+
+    /** 边键 → 边下标（含未命中，记为 -1）；缺省值 -2 表示还没查过目录 */
+    private final LongIntHashMap edgeIds = new LongIntHashMap(64, -2);
+
+    /** 运行期补丁；第一次 put 时才建 */
+    private NetworkProfileCsv overlay;
+
+    private static final LinkMetrics UNAVAILABLE = new LinkMetrics(0.0, 0.0, 0.0, 0.0, false);
+
+    private MappedNetworkProfile(Path file, MappedByteBuffer map){
+        this.file = file;
+        this.map = map;
+        if (map.getInt(0) != MAGIC) throw new IllegalArgumentException("not a compiled network profile: " + file);
+        if (map.getInt(4) != VERSION) throw new IllegalArgumentException("unsupported profile version " + map.getInt(4) + ": " + file);
+        if (map.getInt(12) != ROW_BYTES) throw new IllegalArgumentException("unexpected row size " + map.getInt(12) + ": " + file);
+        this.nEdges = map.getInt(8);
+        this.nRows = map.getLong(16);
+        this.dirOffset = (int) map.getLong(24);
+        this.rowsOffset = (int) map.getLong(32);
+        this.tMin = map.getDouble(40);
+        this.tMax = map.getDouble(48);
+        this.lastRow = new int[nEdges];
+        Arrays.fill(lastRow, -1);
+        this.lastMetrics = new LinkMetrics[nEdges];
+        this.cursor = new int[nEdges];
+        Arrays.fill(cursor, -1);
+        this.isActive = new boolean[nEdges];
+    }
+
+    public static MappedNetworkProfile open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("profile too large to map (" + size + " bytes): " + file);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedNetworkProfile(file, map);   // 映射在通道关闭后仍然有效
+        }
+    }
+
+    /* ------------------ 实现抽象方法 ------------------ */
+
+    @Override
+    public LinkMetrics link(int u, int v, double t){
+        double overlayT = Double.NEGATIVE_INFINITY;
+        if (overlay != null) {
+            int oe = overlay.edgeOf(u, v);
+            if (oe >= 0) {
+                if (overlay.hasOverride(oe)) return overlay.link(u, v, t);
+                int orow = overlay.rowAt(oe, t);
+                if (orow >= 0) overlayT = overlay.rowT(oe, orow);
+            }
+        }
+
+        int e = edgeOf(u, v);
+        int row = e < 0 ? -1 : (timeCursor ? seek(e, t) : rowAt(e, t));
+        // 同一时刻两边都有行时覆盖层（后写入的）生效
+        if (row < 0 || rowT(row) <= overlayT) {
+            return overlayT > Double.NEGATIVE_INFINITY ? overlay.link(u, v, t) : UNAVAILABLE;
+        }
+        if (lastRow[e] == row) return lastMetrics[e];
+        LinkMetrics m = metrics(row);
+        lastRow[e] = row;
+        lastMetrics[e] = m;
+        return m;
+    }
+
+    /** 文件只读：按时间的补丁进覆盖层 */
+    @Override
+    public void put(int u, int v, double tStart, LinkMetrics m){
+        overlay().put(u, v, tStart, m);
+        edgeChanged(nEdges + overlay.edgeOf(u, v));
+    }
+
+    /** 运行期覆盖写入（不带时间），与 NetworkProfileCsv.put(u,v,m) 相同 */
+    public void put(int u, int v, LinkMetrics m){
+        overlay().put(u, v, m);
+        edgeChanged(nEdges + overlay.edgeOf(u, v));
+    }
+
+    private NetworkProfileCsv overlay(){
+        if (overlay == null) overlay = new NetworkProfileCsv();
+        return overlay;
+    }
+
+    /* ------------------ 时间游标 ------------------ */
+
+    /** 切换查询模式：true = 时间游标（默认），false = 每次二分 */
+    public MappedNetworkProfile timeCursor(boolean on){ this.timeCursor = on; return this; }
+
+    /** 上一 tick 查询过的边的游标推进到 t；其余边下次查询时自己追 */
+    @Override
+    public void advanceAll(double t){
+        if (overlay != null) overlay.advanceAll(t);
+        if (!timeCursor) return;
+        for (int i = 0; i < activeCount; i++) {
+            int e = active[i];
+            isActive[e] = false;
+            advance(e, t);
+        }
+        activeCount = 0;
+    }
+
+    /** 游标查询：从上次的行往前走，走远了改二分；比游标还早的查询回退二分（游标跟着回退） */
+    public int seek(int e, double t){
+        if (!isActive[e]) {
+            isActive[e] = true;
+            if (activeCount == active.length) active = Arrays.copyOf(active, activeCount * 2);
+            active[activeCount++] = e;
+        }
+        return advance(e, t);
+    }
+
+    private int advance(int e, double t){
+        int c = cursor[e];
+        if (c < 0 || rowT(c) > t) return cursor[e] = rowAt(e, t);
+        int end = firstRow(e) + rows(e);
+        for (int steps = 0; c + 1 < end && rowT(c + 1) <= t; c++) {
+            if (++steps == CURSOR_WALK) { c = floor(c + 1, end - 1, t); break; }
+        }
+        return cursor[e] = c;
+    }
+
+    /* ------------------ 原生访问 ------------------ */
+
+    /** 边下标（目录查找结果缓存）；不存在返回 -1 */
+    public int edgeOf(int u, int v){
+        long key = edgeKey(u, v);
+        int e = edgeIds.get(key);
+        if (e == -2) {
+            e = findEdge(key);
+            edgeIds.put(key, e);
+        }
+        return e;
+    }
+
+    /** 文件里的边 + 覆盖层的边（覆盖层可能与文件重复） */
+    @Override
+    public int edgeCount(){ return nEdges + (overlay == null ? 0 : overlay.edgeCount()); }
+
+    @Override
+    public long edgeKeyAt(int i){
+        return i < nEdges ? map.getLong(dirOffset + i * DIR_BYTES) : overlay.edgeKeyAt(i - nEdges);
+    }
+
+    @Override
+    public EdgeChangeCursor changeCursor(){ return newChangeCursor(); }
+
+    /** 文件里的边看下一行；覆盖层的边（下标 >= 文件边数）交给覆盖层 */
+    @Override
+    public double nextChangeAfter(int i, double t){
+        if (i >= nEdges) return overlay.nextChangeAfter(i - nEdges, t);
+        int first = firstRow(i), end = first + rows(i);
+        int r = floor(first, end - 1, t);
+        return r + 1 < end ? rowT(r + 1) : Double.POSITIVE_INFINITY;
+    }
+
+    public long rowCount(){ return nRows; }
+    public double getTMin(){ return tMin; }
+    public double getTMax(){ return tMax; }
+    public Path getFile(){ return file; }
+
+    /** 按打包键二分边目录；不存在返回 -1 */
+    public int findEdge(long key){
+        int lo = 0, hi = nEdges - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = map.getLong(dirOffset + mid * DIR_BYTES);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public int firstRow(int e){ return map.getInt(dirOffset + e * DIR_BYTES + 8); }
+    public int rows(int e){ return map.getInt(dirOffset + e * DIR_BYTES + 12); }
+
+    /** 边 e 在 t 时刻生效的全局行号；没有返回 -1 */
+    public int rowAt(int e, double t){
+        int first = firstRow(e);
+        int hi = floor(first, first + rows(e) - 1, t);
+        return hi >= first ? hi : -1;
+    }
+
+    /** [lo, hi] 里最后一个 t_start <= t 的行；都晚于 t 时返回 lo - 1 */
+    private int floor(int lo, int hi, double t){
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rowT(mid) <= t) lo = mid + 1; else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    public double rowT(int row){ return map.getDouble(rowsOffset + row * ROW_BYTES); }
+    public double rttMs(int row){ return map.getDouble(rowsOffset + row * ROW_BYTES + 8); }
+    public double upMbps(int row){ return map.getDouble(rowsOffset + row * ROW_BYTES + 16); }
+    public double downMbps(int row){ return map.getDouble(rowsOffset + row * ROW_BYTES + 24); }
+    public double loss(int row){ return map.getDouble(rowsOffset + row * ROW_BYTES + 32); }
+    public boolean isUp(int row){ return map.getInt(rowsOffset + row * ROW_BYTES + 40) != 0; }
+
+    private LinkMetrics metrics(int row){
+        return new LinkMetrics(rttMs(row), upMbps(row), downMbps(row), loss(row), isUp(row));
+    }
+
+    @Override public String toString(){
+        return "MappedNetworkProfile{" + file + ", edges=" + nEdges + ", rows=" + nRows +
+                ", t=[" + tMin + ", " + tMax + "]}";
+    }
+}
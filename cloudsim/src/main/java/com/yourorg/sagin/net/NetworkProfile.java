@@ -15,6 +15,42 @@ public abstract class NetworkProfile {
 
     public abstract LinkMetrics link(int u, int v, double t);
 
+    /** 仿真时钟推进到 t（broker 每 tick 调一次）；带时间游标的实现借此把各边游标批量前移 */
+    public void advanceAll(double t){ }
+
+    /** 有时间序列的 int 边条数（供 Router 建图）；只有 String 表的实现返回 0 */
+    public int edgeCount(){ return 0; }
+
+    /** 第 i 条边的打包键（见 edgeKey），0 <= i < edgeCount()；允许重复 */
+    public long edgeKeyAt(int i){ throw new IndexOutOfBoundsException(String.valueOf(i)); }
+
+    /** 第 i 条边在 t 之后下一次有新行生效的时刻；+∞ = 之后不再变（变化游标用） */
+    public double nextChangeAfter(int i, double t){ return Double.POSITIVE_INFINITY; }
+
+    /** 新建一个变化边游标（见 EdgeChangeCursor）；null = 本实现不跟踪变化，调用方只能逐边比对 */
+    public EdgeChangeCursor changeCursor(){ return null; }
+
+    /** 已登记的变化游标；写入边时逐个标记 */
+    private EdgeChangeCursor[] cursors = new EdgeChangeCursor[0];
+
+    /** 子类的 changeCursor() 用：建一个游标并登记，之后 edgeChanged 会通知它 */
+    protected final EdgeChangeCursor newChangeCursor(){
+        EdgeChangeCursor c = new EdgeChangeCursor(this);
+        cursors = Arrays.copyOf(cursors, cursors.length + 1);
+        cursors[cursors.length - 1] = c;
+        return c;
+    }
+
+    /** 子类写入第 i 条边（追加行 / 覆盖快照）后调用 */
+    protected final void edgeChanged(int i){
+        for (EdgeChangeCursor c : cursors) c.markDirty(i);
+    }
+
+    /** 有向边 (u,v) 打包成一个 long 键（高 32 位 u，低 32 位 v），供原生哈希表使用 */
+    public static long edgeKey(int u, int v){ return ((long) u << 32) | (v & 0xFFFFFFFFL); }
+    public static int edgeSrc(long key){ return (int) (key >> 32); }
+    public static int edgeDst(long key){ return (int) key; }
+
     /** 键：src->dst */
     private static final class Key {
         final String s, d;
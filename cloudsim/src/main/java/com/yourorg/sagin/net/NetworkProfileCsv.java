@@ -1,9 +1,11 @@
 package com.yourorg.sagin.net;
 
+import com.yourorg.sagin.util.LongIntHashMap;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.*;
+import java.util.Arrays;
 
 /**
  * 从 CSV 加载网络画像，并支持：
@@ -15,76 +17,294 @@ import java.util.*;
  * 0, 101, 201, 35,  300,  900, 0.01, 1
  * 5, 101, 201, 40,  250,  700, 0.02, 1
  * 0, 201, 101, 50,  100,  100, 0.10, 0
+ *
+ * 存储：(u,v) 打包成 long 键 → LongIntHashMap → 边下标；每条边一组连续的原生列 t/rtt/up/down/loss/flag。
+ * 批量追加（append，CSV / 轨迹加载）乱序时只标记待排序，加载完必须调用 seal() 一次性排好；
+ * 单条 put（link_patch）当场插到有序位置。查询路径不排序，查询时不分配对象
+ * （每行的 LinkMetrics 首次命中时建好缓存，之后直接复用；并发读时重复建也是等值对象）。
+ * 时间游标会在查询时移动：多个线程共享同一个画像只读查询时用 timeCursor(false)。
  */
 public class NetworkProfileCsv extends NetworkProfile {
 
-    /** 有向边 (u,v) 的键（int 版本，与你的抽象类一致） */
-    private static final class Key {
-        final int u, v;
-        Key(int u, int v){ this.u = u; this.v = v; }
-        @Override public boolean equals(Object o){
-            if(this == o) return true;
-            if(!(o instanceof Key k)) return false;
-            return u == k.u && v == k.v;
+    /** 一条有向边的时间序列，按 t 升序（sorted=false 时待排序） */
+    private static final class Series {
+        double[] t    = new double[4];
+        double[] rtt  = new double[4];
+        double[] up   = new double[4];
+        double[] down = new double[4];
+        double[] loss = new double[4];
+        double[] flag = new double[4];   // 1 = 可用, 0 = 断链
+        int n;
+        boolean sorted = true;
+        /** 时间游标：上一次顺序查询返回的行（-1 = 还没有） */
+        int cursor = -1;
+        /** 自上次 advanceAll 以来被查询过（在活跃表里） */
+        boolean active;
+        /** 行号 → LinkMetrics 缓存（懒建） */
+        LinkMetrics[] cache;
+        /** 运行期覆盖的“当前快照”，非空时优先 */
+        LinkMetrics override;
+
+        void add(double ts, double r, double u, double d, double l, double f){
+            if (n == t.length) grow(n * 2);
+            if (n > 0 && ts < t[n - 1]) sorted = false;
+            t[n] = ts; rtt[n] = r; up[n] = u; down[n] = d; loss[n] = l; flag[n] = f;
+            n++;
+            cache = null;
+        }
+
+        /** 插到有序位置（同一时刻排在已有行之后）；序列须已有序 */
+        void insert(double ts, double r, double u, double d, double l, double f){
+            if (!sorted) sort();
+            add(ts, r, u, d, l, f);
+            if (sorted) return;
+            int i = n - 1;
+            while (i > 0 && t[i - 1] > ts) {
+                t[i] = t[i - 1]; rtt[i] = rtt[i - 1]; up[i] = up[i - 1];
+                down[i] = down[i - 1]; loss[i] = loss[i - 1]; flag[i] = flag[i - 1];
+                i--;
+            }
+            t[i] = ts; rtt[i] = r; up[i] = u; down[i] = d; loss[i] = l; flag[i] = f;
+            sorted = true;
+            cursor = -1;
+        }
+
+        void grow(int cap){
+            t = Arrays.copyOf(t, cap);       rtt  = Arrays.copyOf(rtt, cap);
+            up = Arrays.copyOf(up, cap);     down = Arrays.copyOf(down, cap);
+            loss = Arrays.copyOf(loss, cap); flag = Arrays.copyOf(flag, cap);
+        }
+
+        /** 按 t 稳定排序（同一时刻后写入的排在后面，查询时生效） */
+        void sort(){
+            if (sorted) return;
+            int[] idx = new int[n];
+            for (int i = 0; i < n; i++) idx[i] = i;
+            mergeSort(idx, new int[n], 0, n, t);
+            t = permute(t, idx, n);       rtt  = permute(rtt, idx, n);
+            up = permute(up, idx, n);     down = permute(down, idx, n);
+            loss = permute(loss, idx, n); flag = permute(flag, idx, n);
+            sorted = true;
+            cursor = -1;
+            cache = null;
+        }
+
+        /** 最后一个 t[i] <= ts 的行；全部晚于 ts 时返回 -1 */
+        int floor(double ts){ return floor(0, ts); }
+
+        /** 同 floor，只在 [from, n) 里找（调用方保证 t[from] <= ts） */
+        int floor(int from, double ts){
+            int lo = from, hi = n - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (t[mid] <= ts) lo = mid + 1; else hi = mid - 1;
+            }
+            return hi;
+        }
+
+        /**
+         * 游标查询：ts 不早于游标所在行时从游标往前走（通常 0~1 步，走远了改二分）；
+         * 更早的查询（乱序，或新一轮仿真从头开始）回退二分。两种情况游标都停在结果上。
+         */
+        int seek(double ts){
+            int c = cursor;
+            if (c < 0 || t[c] > ts) return cursor = floor(ts);
+            for (int steps = 0; c + 1 < n && t[c + 1] <= ts; c++) {
+                if (++steps == CURSOR_WALK) { c = floor(c + 1, ts); break; }
+            }
+            return cursor = c;
+        }
+
+        void checkSorted(){
+            if (!sorted) throw new IllegalStateException("network profile has unsorted rows; call seal() after append");
+        }
+
+        /** 丢掉 ts 之前的行，保留 ts 时刻生效的那一行作锚点；返回丢掉的行数 */
+        int evictBefore(double ts){
+            if (!sorted) sort();
+            int i = floor(ts);
+            if (i <= 0) return 0;
+            int keep = n - i;
+            System.arraycopy(t, i, t, 0, keep);       System.arraycopy(rtt, i, rtt, 0, keep);
+            System.arraycopy(up, i, up, 0, keep);     System.arraycopy(down, i, down, 0, keep);
+            System.arraycopy(loss, i, loss, 0, keep); System.arraycopy(flag, i, flag, 0, keep);
+            n = keep;
+            cursor = Math.max(-1, cursor - i);
+            if (t.length > 64 && n < t.length / 4) grow(Math.max(4, n * 2)); // 收缩，驻留内存随窗口走
+            cache = null;
+            return i;
+        }
+
+        LinkMetrics metrics(int i){
+            if (cache == null) cache = new LinkMetrics[t.length];
+            LinkMetrics m = cache[i];
+            if (m == null) cache[i] = m = new LinkMetrics(rtt[i], up[i], down[i], loss[i], flag[i] >= 0.5);
+            return m;
         }
-        @Override public int hashCode(){ return 31 * u + v; }
     }
 
-    /** 时间序列：每条 {t, rtt, up, down, loss, upFlag(1/0)}，按 t 升序保存 */
-    private final Map<Key, List<double[]>> series = new HashMap<>();
+    private static final LinkMetrics UNAVAILABLE = new LinkMetrics(0.0, 0.0, 0.0, 0.0, false);
 
-    /** 运行期覆盖的“当前快照” */
-    private final Map<Key, LinkMetrics> overrides = new HashMap<>();
+    /** 游标线性前进的最大步数，超过就改二分 */
+    private static final int CURSOR_WALK = 8;
+
+    /** true = 时间游标查询（仿真时间单调前进时均摊 O(1)）；false = 每次二分 */
+    private boolean timeCursor = true;
+    /** 自上次 advanceAll 以来查询过的边；advanceAll 只推进这些（工作集），其余边下次查询时再追 */
+    private int[] active = new int[16];
+    private int activeCount;
+
+    /** 边键 → edges 下标 */
+    private final LongIntHashMap index = new LongIntHashMap(64);
+    private Series[] edges = new Series[16];
+    private long[] keys = new long[16];
+    private int edgeCount;
 
     /* ------------------ 实现抽象方法 ------------------ */
 
     @Override
     public LinkMetrics link(int u, int v, double t){
+        int e = index.get(edgeKey(u, v));
+        if (e < 0) return defaults();
+        Series s = edges[e];
+
         // 1) 运行期覆盖优先
-        LinkMetrics ov = overrides.get(new Key(u, v));
-        if(ov != null) return ov;
-
-        // 2) 时间序列查询：最近不超过 t 的一条
-        List<double[]> lst = series.get(new Key(u, v));
-        if(lst == null || lst.isEmpty()) return defaults();
-
-        int i = Collections.binarySearch(
-                lst,
-                new double[]{t,0,0,0,0,1},
-                Comparator.comparingDouble(a -> a[0])
-        );
-        if(i < 0) i = -i - 2;     // 插入点的左侧 = 最后一个 <= t
-        if(i < 0) return defaults();
-
-        double[] a = lst.get(i);
-        double rtt  = a[1];
-        double up   = a[2];
-        double down = a[3];
-        double loss = a[4];
-        boolean ok  = a.length > 5 ? a[5] >= 0.5 : true;
-        return new LinkMetrics(rtt, up, down, loss, ok);
-    }
-
-    /** 按时间写入（实现抽象方法）：把该时间点的指标加入时间序列 */
+        if (s.override != null) return s.override;
+
+        // 2) 时间序列查询：最近不超过 t 的一条（只读：排序在写入时做完）
+        s.checkSorted();
+        int i = timeCursor ? seek(e, s, t) : s.floor(t);
+        if (i < 0) return defaults();
+        return s.metrics(i);
+    }
+
+    /** 按时间写入（实现抽象方法）：把该时间点的指标插进时间序列，写完仍有序 */
     @Override
     public void put(int src, int dst, double t, LinkMetrics m){
-        final Key k = new Key(src, dst);
-        final double[] row = new double[]{
-                t,
-                m.getRttMs(),
-                m.getBwUpMbps(),
-                m.getBwDownMbps(),
-                m.getLoss(),
-                m.isUp() ? 1.0 : 0.0
-        };
-        series.computeIfAbsent(k, __ -> new ArrayList<>()).add(row);
-        // 为防止调用顺序无序，这里保持 series 有序性（量小影响可忽略；量大可延迟到 load 完成后 sort）
-        series.get(k).sort(Comparator.comparingDouble(a -> a[0]));
+        int e = edge(src, dst);
+        edges[e].insert(t, m.getRttMs(), m.getBwUpMbps(), m.getBwDownMbps(), m.getLoss(), m.isUp() ? 1.0 : 0.0);
+        edgeChanged(e);
     }
 
     /** 运行期覆盖写入：把“当前快照”打补丁（不带时间） */
     public void put(int src, int dst, LinkMetrics m){
-        overrides.put(new Key(src, dst), m);
+        int e = edge(src, dst);
+        edges[e].override = m;
+        edgeChanged(e);
+    }
+
+    /** 对所有乱序追加过的边排序（append 批量加载结束时必须调用一次，查询路径不再补排） */
+    public NetworkProfileCsv seal(){
+        for (int e = 0; e < edgeCount; e++) edges[e].sort();
+        return this;
+    }
+
+    @Override
+    public EdgeChangeCursor changeCursor(){ return newChangeCursor(); }
+
+    @Override
+    public double nextChangeAfter(int e, double t){
+        Series s = edges[e];
+        s.checkSorted();
+        int r = s.floor(t);
+        return r + 1 < s.n ? s.t[r + 1] : Double.POSITIVE_INFINITY;
+    }
+
+    /** 切换查询模式（见 timeCursor） */
+    public NetworkProfileCsv timeCursor(boolean on){ this.timeCursor = on; return this; }
+
+    /**
+     * 游标批量推进到 t（broker 每 tick 调一次）：推进上一 tick 查询过的边，本 tick 的查询基本不用再走。
+     * 没在工作集里的边不动，下次查询时由 seek 自己追上（走几步或二分）。
+     */
+    @Override
+    public void advanceAll(double t){
+        if (!timeCursor) return;
+        for (int i = 0; i < activeCount; i++) {
+            Series s = edges[active[i]];
+            s.active = false;
+            if (s.n == 0) continue;
+            s.checkSorted();
+            s.seek(t);
+        }
+        activeCount = 0;
+    }
+
+    private int seek(int e, Series s, double t){
+        if (!s.active) {
+            s.active = true;
+            if (activeCount == active.length) active = Arrays.copyOf(active, activeCount * 2);
+            active[activeCount++] = e;
+        }
+        return s.seek(t);
+    }
+
+    /** 流式加载用：丢掉每条边在 t 之前的行（保留 t 时刻生效的一行），返回丢掉的总行数 */
+    public long evictBefore(double t){
+        long n = 0;
+        for (int e = 0; e < edgeCount; e++) n += edges[e].evictBefore(t);
+        return n;
+    }
+
+    /** 当前驻留的总行数 */
+    public long rowCount(){
+        long n = 0;
+        for (int e = 0; e < edgeCount; e++) n += edges[e].n;
+        return n;
+    }
+
+    /* ------------------ 原生访问（热路径，无分配） ------------------ */
+
+    /** 边下标；不存在返回 -1 */
+    public int edgeOf(int u, int v){ return index.get(edgeKey(u, v)); }
+
+    @Override
+    public int edgeCount(){ return edgeCount; }
+
+    /** 边 e 的打包键（见 NetworkProfile.edgeKey）；边下标与 edgeOf 一致 */
+    @Override
+    public long edgeKeyAt(int e){ return keys[e]; }
+
+    /** 边 e 当前是否被 put(u,v,m) 覆盖 */
+    public boolean hasOverride(int e){ return edges[e].override != null; }
+
+    /** 边 e 在 t 时刻生效的行号；没有返回 -1 */
+    public int rowAt(int e, double t){
+        Series s = edges[e];
+        s.checkSorted();
+        return timeCursor ? seek(e, s, t) : s.floor(t);
+    }
+
+    public int rows(int e){ return edges[e].n; }
+    public double rowT(int e, int row){ return edges[e].t[row]; }
+    public double rttMs(int e, int row){ return edges[e].rtt[row]; }
+    public double upMbps(int e, int row){ return edges[e].up[row]; }
+    public double downMbps(int e, int row){ return edges[e].down[row]; }
+    public double loss(int e, int row){ return edges[e].loss[row]; }
+    public boolean isUp(int e, int row){ return edges[e].flag[row] >= 0.5; }
+
+    /** 直接追加一行原始列（调用方保证取值已截断到合法范围；追加完调用 seal()） */
+    void append(int src, int dst, double t, double rtt, double up, double down, double loss, boolean ok){
+        int e = edge(src, dst);
+        edges[e].add(t, rtt, up, down, loss, ok ? 1.0 : 0.0);
+        edgeChanged(e);
+    }
+
+    /** (src,dst) 的边下标，没有就新建 */
+    private int edge(int src, int dst){
+        long key = edgeKey(src, dst);
+        int e = index.get(key);
+        if (e < 0) {
+            if (edgeCount == edges.length) {
+                edges = Arrays.copyOf(edges, edgeCount * 2);
+                keys = Arrays.copyOf(keys, edgeCount * 2);
+            }
+            e = edgeCount++;
+            edges[e] = new Series();
+            keys[e] = key;
+            index.put(key, e);
+        }
+        return e;
     }
 
     /* ------------------ CSV 读入 ------------------ */
@@ -108,10 +328,12 @@ public class NetworkProfileCsv extends NetworkProfile {
                         double ls = parseDouble(f[6], 0.0);
                         boolean ok = (f.length >= 8) ? !"0".equals(f[7].trim()) : true;
 
-                        np.put(src, dst, t, new LinkMetrics(r, up, dn, ls, ok));
+                        // 与 LinkMetrics 构造时的截断保持一致
+                        np.append(src, dst, t, r, Math.max(0.0, up), Math.max(0.0, dn),
+                                Math.min(1.0, Math.max(0.0, ls)), ok);
                     });
         }
-        return np;
+        return np.seal();
     }
 
     /* ------------------ 小工具 ------------------ */
@@ -128,6 +350,25 @@ public class NetworkProfileCsv extends NetworkProfile {
 
     private static LinkMetrics defaults(){
         // 兜底：不可用、0 带宽、0 RTT/LOSS
-        return new LinkMetrics(0.0, 0.0, 0.0, 0.0, false);
+        return UNAVAILABLE;
+    }
+
+    private static void mergeSort(int[] a, int[] tmp, int lo, int hi, double[] key){
+        if (hi - lo < 2) return;
+        int mid = (lo + hi) >>> 1;
+        mergeSort(a, tmp, lo, mid, key);
+        mergeSort(a, tmp, mid, hi, key);
+        if (key[a[mid - 1]] <= key[a[mid]]) return;
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi) tmp[k++] = key[a[j]] < key[a[i]] ? a[j++] : a[i++];
+        while (i < mid) tmp[k++] = a[i++];
+        while (j < hi) tmp[k++] = a[j++];
+        System.arraycopy(tmp, lo, a, lo, hi - lo);
+    }
+
+    private static double[] permute(double[] col, int[] idx, int n){
+        double[] out = new double[col.length];
+        for (int i = 0; i < n; i++) out[i] = col[idx[i]];
+        return out;
     }
 }
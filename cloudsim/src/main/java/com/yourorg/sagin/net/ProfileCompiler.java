@@ -0,0 +1,119 @@
+package com.yourorg.sagin.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 网络画像 CSV → 二进制画像（*.sgnp，布局见 MappedNetworkProfile）。
+ * 同一场景只需编译一次，之后用 MappedNetworkProfile.open 直接映射。
+ *
+ * 用法：java ... com.yourorg.sagin.net.ProfileCompiler network_profile.csv [out.sgnp]
+ */
+public final class ProfileCompiler {
+
+    private ProfileCompiler(){}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: ProfileCompiler <profile.csv> [out.sgnp]");
+            System.exit(2);
+        }
+        Path csv = Paths.get(args[0]);
+        Path out = args.length > 1 ? Paths.get(args[1]) : defaultOutput(csv);
+        long t0 = System.nanoTime();
+        compile(csv, out);
+        System.out.printf("[ProfileCompiler] %s -> %s (%.1f ms)%n", csv, out, (System.nanoTime() - t0) / 1e6);
+    }
+
+    /** csv 同目录、同名、扩展名换成 .sgnp */
+    public static Path defaultOutput(Path csv){
+        String name = csv.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + MappedNetworkProfile.EXT);
+    }
+
+    /** 编译产物不存在或比 CSV 旧时重新编译，返回产物路径 */
+    public static Path compileIfStale(Path csv) throws IOException {
+        Path out = defaultOutput(csv);
+        if (!Files.exists(out) || Files.getLastModifiedTime(out).compareTo(Files.getLastModifiedTime(csv)) < 0) {
+            compile(csv, out);
+        }
+        return out;
+    }
+
+    public static void compile(Path csv, Path out) throws IOException {
+        write(NetworkProfileCsv.loadCsv(csv), out);
+    }
+
+    /** 把内存中的画像（时间序列部分，不含 put(u,v,m) 覆盖）写成二进制画像 */
+    public static void write(NetworkProfileCsv np, Path out) throws IOException {
+        np.seal();
+        int nEdges = np.edgeCount();
+
+        // 边目录按打包键升序
+        Integer[] order = new Integer[nEdges];
+        for (int e = 0; e < nEdges; e++) order[e] = e;
+        Arrays.sort(order, (a, b) -> Long.compare(np.edgeKeyAt(a), np.edgeKeyAt(b)));
+
+        long nRows = 0;
+        double tMin = Double.POSITIVE_INFINITY, tMax = Double.NEGATIVE_INFINITY;
+        for (int e = 0; e < nEdges; e++) {
+            int n = np.rows(e);
+            nRows += n;
+            if (n > 0) {
+                tMin = Math.min(tMin, np.rowT(e, 0));
+                tMax = Math.max(tMax, np.rowT(e, n - 1));
+            }
+        }
+        long dirOffset = MappedNetworkProfile.HEADER_BYTES;
+        long rowsOffset = dirOffset + (long) nEdges * MappedNetworkProfile.DIR_BYTES;
+        long total = rowsOffset + nRows * MappedNetworkProfile.ROW_BYTES;
+        if (total > Integer.MAX_VALUE) throw new IOException("profile too large (" + total + " bytes)");
+
+        if (out.toAbsolutePath().getParent() != null) Files.createDirectories(out.toAbsolutePath().getParent());
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        ByteBuffer b = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel ch = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            b.putInt(MappedNetworkProfile.MAGIC).putInt(MappedNetworkProfile.VERSION)
+             .putInt(nEdges).putInt(MappedNetworkProfile.ROW_BYTES)
+             .putLong(nRows).putLong(dirOffset).putLong(rowsOffset)
+             .putDouble(nRows > 0 ? tMin : 0.0).putDouble(nRows > 0 ? tMax : 0.0)
+             .putLong(0L);
+
+            int first = 0;
+            for (int i = 0; i < nEdges; i++) {
+                int e = order[i];
+                if (b.remaining() < MappedNetworkProfile.DIR_BYTES) flush(ch, b);
+                b.putLong(np.edgeKeyAt(e)).putInt(first).putInt(np.rows(e));
+                first += np.rows(e);
+            }
+            for (int i = 0; i < nEdges; i++) {
+                int e = order[i];
+                for (int r = 0, n = np.rows(e); r < n; r++) {
+                    if (b.remaining() < MappedNetworkProfile.ROW_BYTES) flush(ch, b);
+                    b.putDouble(np.rowT(e, r)).putDouble(np.rttMs(e, r))
+                     .putDouble(np.upMbps(e, r)).putDouble(np.downMbps(e, r))
+                     .putDouble(np.loss(e, r)).putInt(np.isUp(e, r) ? 1 : 0).putInt(0);
+                }
+            }
+            flush(ch, b);
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer b) throws IOException {
+        b.flip();
+        while (b.hasRemaining()) ch.write(b);
+        b.clear();
+    }
+}
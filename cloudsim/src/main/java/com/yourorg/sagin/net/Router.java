@@ -0,0 +1,378 @@
+package com.yourorg.sagin.net;
+
+import com.yourorg.sagin.util.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * 时变链路图上的多跳路由（卫星中继 / 地面转发）。
+ *
+ * - 图：NetworkProfile 里所有 int 边；refresh(t) 每 tick 调一次，只比对画像变化游标（EdgeChangeCursor）
+ *   报告的边（新行生效 / link_patch），有变化才进入新的拓扑 epoch；出现新边时整图重建。
+ *   画像不提供游标时退回逐边比对
+ * - 路径：按源节点懒算一棵最短路树（Dijkstra），同一 epoch 内同源的所有查询共用
+ *   LATENCY = 最小 RTT 之和；WIDEST = 最大瓶颈有效上行带宽
+ * - 增量：边变化时只作废受影响的树——该边是树边，或新权值能改进树里的某个节点；其余树保留
+ * - (src,dst) → Route 缓存：对象复用，树没变就直接返回，查询不分配
+ */
+public class Router {
+
+    public enum Metric { LATENCY, WIDEST }
+
+    /** 一条路由（属于 Router，下次查询前有效） */
+    public static final class Route {
+        private int[] nodes = new int[8];
+        private int hops;              // 边数；0 = src == dst
+        private double rttMs;
+        private double upMbps, downMbps;
+        private double rawUpMbps, rawDownMbps;
+        private double loss;
+        private boolean available;
+        private long treeVersion = -1;
+
+        public int getHops(){ return hops; }
+        /** 第 i 个节点（0 = src，getHops() = dst） */
+        public int node(int i){ return nodes[i]; }
+        public double getRttMs(){ return rttMs; }
+        /** 路径上最小的有效上行/下行带宽（Mbps，已扣丢包） */
+        public double getBottleneckUpMbps(){ return upMbps; }
+        public double getBottleneckDownMbps(){ return downMbps; }
+        /** 端到端丢包率 1 - Π(1 - loss_i) */
+        public double getLoss(){ return loss; }
+        public boolean isAvailable(){ return available; }
+
+        /** 路径上最小的原始上行/下行带宽（Mbps，不扣丢包） */
+        public double getRawBottleneckUpMbps(){ return rawUpMbps; }
+        public double getRawBottleneckDownMbps(){ return rawDownMbps; }
+
+        /** 与 broker 原来的单跳估算同一口径：bits / 原始瓶颈带宽（不扣丢包）+ 总 RTT */
+        public double upSeconds(double bits){ return (bits / 1e6) / Math.max(1e-6, rawUpMbps) + rttMs / 1000.0; }
+        public double downSeconds(double bits){ return (bits / 1e6) / Math.max(1e-6, rawDownMbps) + rttMs / 1000.0; }
+
+        @Override public String toString(){
+            StringBuilder sb = new StringBuilder("Route{");
+            for (int i = 0; i <= hops; i++) sb.append(i == 0 ? "" : "->").append(nodes[i]);
+            return sb.append(", rttMs=").append(rttMs).append(", upMbps=").append(upMbps)
+                     .append(", downMbps=").append(downMbps).append(", up=").append(available).append('}').toString();
+        }
+    }
+
+    /** 以某源节点为根的最短路树 */
+    private static final class Tree {
+        double[] score;     // 越小越好（LATENCY: RTT 和；WIDEST: -瓶颈带宽）
+        int[] parentEdge;   // -1 = 根或不可达
+        boolean valid;
+        long version;
+    }
+
+    private final NetworkProfile profile;
+    private final Metric metric;
+    /** null = 画像不跟踪变化，refresh 逐边比对 */
+    private final EdgeChangeCursor changes;
+
+    /* ---------- 图（CSR）---------- */
+    private final LongIntHashMap nodeIndex = new LongIntHashMap(64);
+    private int[] nodeId = new int[0];
+    private int nNodes;
+    private final LongIntHashMap edgeIndex = new LongIntHashMap(64);
+    private int[] edgeFrom = new int[0], edgeTo = new int[0];
+    private LinkMetrics[] edgeMetrics = new LinkMetrics[0];
+    private int nEdges;
+    private int[] adjStart = new int[1], adjEdge = new int[0];
+    private int profileEdgesSeen = -1;
+
+    /* ---------- 树 & 路由缓存 ---------- */
+    private Tree[] trees = new Tree[0];
+    private final LongIntHashMap routeIndex = new LongIntHashMap(256);
+    private Route[] routes = new Route[64];
+    private int nRoutes;
+
+    /* ---------- Dijkstra 工作区 ---------- */
+    private int[] heapNode = new int[64];
+    private double[] heapKey = new double[64];
+    private int heapSize;
+    private boolean[] settled = new boolean[0];
+
+    /* ---------- 计数 ---------- */
+    private long epoch, rebuilds, treeComputes, treeInvalidations, queries, routeRebuilds;
+
+    public Router(NetworkProfile profile){ this(profile, Metric.LATENCY); }
+
+    public Router(NetworkProfile profile, Metric metric){
+        this.profile = profile;
+        this.metric = metric;
+        this.changes = profile.changeCursor();
+    }
+
+    /* ======================= 每 tick ======================= */
+
+    /** 按时刻 t 同步链路状态；返回本次是否进入了新的拓扑 epoch */
+    public boolean refresh(double t){
+        int pe = profile.edgeCount();
+        if (pe != profileEdgesSeen) {
+            rebuild(t);
+            profileEdgesSeen = pe;
+            if (changes != null) changes.reset(t);
+            epoch++;
+            return true;
+        }
+        int nChanged = 0;
+        int n = changes == null ? -1 : changes.poll(t);
+        if (n >= 0) {
+            for (int i = 0; i < n; i++) {
+                int e = edgeIndex.get(profile.edgeKeyAt(changes.edge(i)));
+                if (e >= 0 && update(e, t)) nChanged++;
+            }
+        } else {
+            // 没有游标，或时间回退（新一轮仿真）：逐边比对
+            for (int e = 0; e < nEdges; e++) if (update(e, t)) nChanged++;
+            if (changes != null) changes.reset(t);
+        }
+        if (nChanged == 0) return false;
+        epoch++;
+        return true;
+    }
+
+    /** 边 e 取 t 时刻的值；变了就作废受影响的树并返回 true */
+    private boolean update(int e, double t){
+        LinkMetrics now = profile.link(nodeId[edgeFrom[e]], nodeId[edgeTo[e]], t);
+        LinkMetrics old = edgeMetrics[e];
+        if (now == old || same(now, old)) return false;
+        invalidateFor(e, now);
+        edgeMetrics[e] = now;
+        return true;
+    }
+
+    /** src → dst 的路由；两端有一个不在图里时返回 null */
+    public Route route(int src, int dst){
+        queries++;
+        int s = nodeIndex.get(src), d = nodeIndex.get(dst);
+        if (s < 0 || d < 0) return null;
+
+        Tree tr = tree(s);
+        long key = NetworkProfile.edgeKey(src, dst);
+        int ri = routeIndex.get(key);
+        if (ri < 0) {
+            if (nRoutes == routes.length) routes = Arrays.copyOf(routes, nRoutes * 2);
+            ri = nRoutes++;
+            routes[ri] = new Route();
+            routeIndex.put(key, ri);
+        }
+        Route r = routes[ri];
+        if (r.treeVersion != tr.version) {
+            fill(r, tr, s, d);
+            r.treeVersion = tr.version;
+            routeRebuilds++;
+        }
+        return r;
+    }
+
+    /* ======================= 建图 ======================= */
+
+    private void rebuild(double t){
+        rebuilds++;
+        nodeIndex.clear();
+        edgeIndex.clear();
+        nNodes = 0;
+        nEdges = 0;
+        int pe = profile.edgeCount();
+        int[] from = new int[pe], to = new int[pe];
+        for (int i = 0; i < pe; i++) {
+            long key = profile.edgeKeyAt(i);
+            if (edgeIndex.containsKey(key)) continue;
+            edgeIndex.put(key, nEdges);
+            from[nEdges] = node(NetworkProfile.edgeSrc(key));
+            to[nEdges] = node(NetworkProfile.edgeDst(key));
+            nEdges++;
+        }
+        edgeFrom = Arrays.copyOf(from, nEdges);
+        edgeTo = Arrays.copyOf(to, nEdges);
+        edgeMetrics = new LinkMetrics[nEdges];
+        for (int e = 0; e < nEdges; e++) edgeMetrics[e] = profile.link(nodeId[edgeFrom[e]], nodeId[edgeTo[e]], t);
+
+        adjStart = new int[nNodes + 1];
+        for (int e = 0; e < nEdges; e++) adjStart[edgeFrom[e] + 1]++;
+        for (int i = 0; i < nNodes; i++) adjStart[i + 1] += adjStart[i];
+        adjEdge = new int[nEdges];
+        int[] fill = Arrays.copyOf(adjStart, nNodes);
+        for (int e = 0; e < nEdges; e++) adjEdge[fill[edgeFrom[e]]++] = e;
+
+        trees = new Tree[nNodes];
+        settled = new boolean[nNodes];
+        for (int i = 0; i < nRoutes; i++) routes[i].treeVersion = -1;
+    }
+
+    private int node(int id){
+        int i = nodeIndex.get(id);
+        if (i >= 0) return i;
+        if (nNodes == nodeId.length) nodeId = Arrays.copyOf(nodeId, Math.max(16, nNodes * 2));
+        nodeId[nNodes] = id;
+        nodeIndex.put(id, nNodes);
+        return nNodes++;
+    }
+
+    /* ======================= 最短路树 ======================= */
+
+    private Tree tree(int s){
+        Tree tr = trees[s];
+        if (tr == null) {
+            tr = trees[s] = new Tree();
+            tr.score = new double[nNodes];
+            tr.parentEdge = new int[nNodes];
+        }
+        if (!tr.valid) {
+            dijkstra(s, tr);
+            tr.valid = true;
+            tr.version++;
+            treeComputes++;
+        }
+        return tr;
+    }
+
+    private void dijkstra(int s, Tree tr){
+        Arrays.fill(tr.score, Double.POSITIVE_INFINITY);
+        Arrays.fill(tr.parentEdge, -1);
+        Arrays.fill(settled, false);
+        heapSize = 0;
+        tr.score[s] = metric == Metric.LATENCY ? 0.0 : Double.NEGATIVE_INFINITY;
+        push(s, tr.score[s]);
+        while (heapSize > 0) {
+            int u = heapNode[0];
+            double du = heapKey[0];
+            pop();
+            if (settled[u] || du > tr.score[u]) continue;
+            settled[u] = true;
+            for (int j = adjStart[u]; j < adjStart[u + 1]; j++) {
+                int e = adjEdge[j];
+                double cand = extend(du, edgeMetrics[e]);
+                int v = edgeTo[e];
+                if (cand < tr.score[v]) {
+                    tr.score[v] = cand;
+                    tr.parentEdge[v] = e;
+                    push(v, cand);
+                }
+            }
+        }
+    }
+
+    /** 沿边 e 把分数从 su 延伸出去；不可用的边返回 +∞ */
+    private double extend(double su, LinkMetrics m){
+        if (!m.available()) return Double.POSITIVE_INFINITY;
+        if (metric == Metric.LATENCY) return su + m.getRttMs();
+        return Math.max(su, -m.effUpMbps());
+    }
+
+    /** 边 e 换成 now：作废以它为树边、或能被它改进的树 */
+    private void invalidateFor(int e, LinkMetrics now){
+        int u = edgeFrom[e], v = edgeTo[e];
+        for (Tree tr : trees) {
+            if (tr == null || !tr.valid) continue;
+            if (tr.parentEdge[v] == e || extend(tr.score[u], now) < tr.score[v]) {
+                tr.valid = false;
+                treeInvalidations++;
+            }
+        }
+    }
+
+    private void fill(Route r, Tree tr, int s, int d){
+        r.nodes[0] = nodeId[s];
+        r.rttMs = 0.0;
+        r.loss = 0.0;
+        r.hops = 0;
+        if (s == d) {
+            r.available = true;
+            r.upMbps = r.downMbps = r.rawUpMbps = r.rawDownMbps = Double.POSITIVE_INFINITY;
+            return;
+        }
+        if (tr.parentEdge[d] < 0) {
+            r.available = false;
+            r.upMbps = r.downMbps = r.rawUpMbps = r.rawDownMbps = 0.0;
+            return;
+        }
+        // 先数跳数，再从 dst 倒着填
+        int hops = 0;
+        for (int x = d; x != s; x = edgeFrom[tr.parentEdge[x]]) hops++;
+        if (r.nodes.length < hops + 1) r.nodes = new int[Math.max(hops + 1, r.nodes.length * 2)];
+        r.nodes[0] = nodeId[s];
+        r.hops = hops;
+        r.available = true;
+        double up = Double.POSITIVE_INFINITY, dn = Double.POSITIVE_INFINITY, keep = 1.0, rtt = 0.0;
+        double rawUp = Double.POSITIVE_INFINITY, rawDn = Double.POSITIVE_INFINITY;
+        int i = hops;
+        for (int x = d; x != s; x = edgeFrom[tr.parentEdge[x]]) {
+            LinkMetrics m = edgeMetrics[tr.parentEdge[x]];
+            r.nodes[i--] = nodeId[x];
+            rtt += m.getRttMs();
+            up = Math.min(up, m.effUpMbps());
+            dn = Math.min(dn, m.effDownMbps());
+            rawUp = Math.min(rawUp, m.getBwUpMbps());
+            rawDn = Math.min(rawDn, m.getBwDownMbps());
+            keep *= 1.0 - m.getLoss();
+        }
+        r.rttMs = rtt;
+        r.upMbps = up;
+        r.downMbps = dn;
+        r.rawUpMbps = rawUp;
+        r.rawDownMbps = rawDn;
+        r.loss = 1.0 - keep;
+    }
+
+    /* ======================= 小顶堆（懒删除） ======================= */
+
+    private void push(int node, double key){
+        if (heapSize == heapNode.length) {
+            heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+            heapKey = Arrays.copyOf(heapKey, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (heapKey[p] <= key) break;
+            heapNode[i] = heapNode[p];
+            heapKey[i] = heapKey[p];
+            i = p;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+    }
+
+    private void pop(){
+        int node = heapNode[--heapSize];
+        double key = heapKey[heapSize];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= heapSize) break;
+            if (c + 1 < heapSize && heapKey[c + 1] < heapKey[c]) c++;
+            if (key <= heapKey[c]) break;
+            heapNode[i] = heapNode[c];
+            heapKey[i] = heapKey[c];
+            i = c;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+    }
+
+    private static boolean same(LinkMetrics a, LinkMetrics b){
+        if (a == null || b == null) return false;
+        return a.isUp() == b.isUp() && a.getRttMs() == b.getRttMs() && a.getLoss() == b.getLoss()
+                && a.getBwUpMbps() == b.getBwUpMbps() && a.getBwDownMbps() == b.getBwDownMbps();
+    }
+
+    /* ======================= 统计 ======================= */
+
+    public Metric getMetric(){ return metric; }
+    public long getEpoch(){ return epoch; }
+    public int getNodeCount(){ return nNodes; }
+    public int getEdgeCount(){ return nEdges; }
+    public long getTreeComputes(){ return treeComputes; }
+    public long getTreeInvalidations(){ return treeInvalidations; }
+    public long getQueries(){ return queries; }
+    public long getRouteRebuilds(){ return routeRebuilds; }
+
+    @Override public String toString(){
+        return "Router{metric=" + metric + ", nodes=" + nNodes + ", edges=" + nEdges + ", epoch=" + epoch +
+                ", rebuilds=" + rebuilds + ", trees=" + treeComputes + ", invalidated=" + treeInvalidations +
+                ", queries=" + queries + ", routeRebuilds=" + routeRebuilds + "}";
+    }
+}
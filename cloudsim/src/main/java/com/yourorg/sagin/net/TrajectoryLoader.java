@@ -0,0 +1,216 @@
+package com.yourorg.sagin.net;
+
+import org.cloudsimplus.core.Simulation;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 星座轨迹（Celestial / Hypatia 导出，转成 NetworkProfileCsv 同样的 8 列 CSV，按 t_start 升序）流式加载：
+ * 只把滑动窗口 [t - keepPast, t + horizon] 内的链路行放进 NetworkProfileCsv，
+ * 后台线程提前解析下一段，过去的行按窗口淘汰（每条边保留当前生效的一行作锚点）。
+ * 驻留内存 ≈ 窗口内行数 + 每边一行 + 两段预取，和轨迹总长度无关。
+ *
+ * 用法：
+ *   NetworkProfileCsv np = new NetworkProfileCsv();
+ *   TrajectoryLoader tl = new TrajectoryLoader(trace, np, 300, 10).attach(sim);  // 随仿真时钟推进
+ *   ... new STHGNNBroker(sim, dir, tick, transport, np) ...
+ *   sim.start(); tl.close();
+ */
+public class TrajectoryLoader implements Closeable {
+
+    /** 一段预解析好的行（原生列），覆盖 [t0, tEnd) */
+    private static final class Chunk {
+        int n;
+        int[] src, dst;
+        double[] t, rtt, up, down, loss;
+        boolean[] ok;
+        double tEnd;
+        final boolean eof;
+
+        Chunk(int cap, boolean eof){
+            this.eof = eof;
+            src = new int[cap]; dst = new int[cap];
+            t = new double[cap]; rtt = new double[cap]; up = new double[cap];
+            down = new double[cap]; loss = new double[cap]; ok = new boolean[cap];
+        }
+
+        void add(double ts, int u, int v, double r, double bu, double bd, double l, boolean f){
+            if (n == t.length) {
+                int cap = n * 2;
+                src = Arrays.copyOf(src, cap); dst = Arrays.copyOf(dst, cap);
+                t = Arrays.copyOf(t, cap); rtt = Arrays.copyOf(rtt, cap); up = Arrays.copyOf(up, cap);
+                down = Arrays.copyOf(down, cap); loss = Arrays.copyOf(loss, cap); ok = Arrays.copyOf(ok, cap);
+            }
+            src[n] = u; dst[n] = v; t[n] = ts; rtt[n] = r; up[n] = bu; down[n] = bd; loss[n] = l; ok[n] = f;
+            n++;
+        }
+    }
+
+    private static final Chunk EOF = new Chunk(0, true);
+
+    private final Path trace;
+    private final NetworkProfileCsv target;
+    private final double horizon;
+    private final double keepPast;
+    /** 每段覆盖的时长（秒） */
+    private final double chunkSeconds;
+
+    private final BlockingQueue<Chunk> ready = new ArrayBlockingQueue<>(2);
+    private final Thread reader;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    /** 已并入 target 的数据覆盖到的时刻（不含） */
+    private double loadedUntil = Double.NEGATIVE_INFINITY;
+    private boolean exhausted;
+    private double lastEvictT = Double.NEGATIVE_INFINITY;
+
+    private long rowsLoaded, rowsEvicted;
+    /** 后台线程计数 */
+    private volatile long rowsOutOfOrder, badRows;
+
+    /**
+     * @param horizon  预载到 t + horizon（秒），应不小于一个 tick
+     * @param keepPast 保留 t 之前多少秒的行（秒）
+     */
+    public TrajectoryLoader(Path trace, NetworkProfileCsv target, double horizon, double keepPast){
+        this.trace = trace;
+        this.target = target;
+        this.horizon = Math.max(1e-9, horizon);
+        this.keepPast = Math.max(0.0, keepPast);
+        this.chunkSeconds = Math.max(1e-9, horizon / 2);
+
+        this.reader = new Thread(this::readLoop, "trajectory-loader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+
+        advanceTo(0.0);
+    }
+
+    /** 挂到仿真时钟上：每个 tick 自动 advanceTo(clock) */
+    public TrajectoryLoader attach(Simulation sim){
+        sim.addOnClockTickListener(ev -> advanceTo(ev.getTime()));
+        return this;
+    }
+
+    /**
+     * 推进到 t：保证 target 已含 (t + horizon) 之前的所有行，并淘汰 t - keepPast 之前的行。
+     * 只能在仿真线程调用（target 只由这里修改）。
+     */
+    public void advanceTo(double t){
+        while (!exhausted && loadedUntil <= t + horizon) {
+            Chunk c = take();
+            if (c.eof) { exhausted = true; break; }
+            for (int i = 0; i < c.n; i++) {
+                target.append(c.src[i], c.dst[i], c.t[i], c.rtt[i], c.up[i], c.down[i], c.loss[i], c.ok[i]);
+            }
+            rowsLoaded += c.n;
+            loadedUntil = c.tEnd;
+            target.seal();
+        }
+        // 淘汰不必每 tick 做：走过 keepPast/2（至少一段）再整体扫一遍
+        double cut = t - keepPast;
+        if (cut - lastEvictT >= Math.max(keepPast / 2, chunkSeconds)) {
+            rowsEvicted += target.evictBefore(cut);
+            lastEvictT = cut;
+        }
+    }
+
+    private Chunk take(){
+        while (true) {
+            if (failure != null) throw new RuntimeException("trajectory read failed: " + trace, failure);
+            try {
+                Chunk c = ready.poll(100, TimeUnit.MILLISECONDS);
+                if (c != null) return c;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return EOF;
+            }
+        }
+    }
+
+    /* ======================= 后台读取 ======================= */
+
+    private void readLoop(){
+        try (BufferedReader br = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            Chunk cur = null;
+            double chunkEnd = 0;
+            double lastT = Double.NEGATIVE_INFINITY;
+            String line;
+            while (!closed && (line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split(",");
+                if (f.length < 7) { badRows++; continue; }
+                double t;
+                try { t = Double.parseDouble(f[0].trim()); }
+                catch (NumberFormatException e) { badRows++; continue; } // 表头等
+
+                if (t < lastT) rowsOutOfOrder++;   // 乱序行仍然并入（target 会补排序），只计数
+                lastT = Math.max(lastT, t);
+
+                if (cur == null) {
+                    cur = new Chunk(4096, false);
+                    chunkEnd = (Math.floor(t / chunkSeconds) + 1) * chunkSeconds;
+                } else if (t >= chunkEnd) {
+                    cur.tEnd = chunkEnd;
+                    ready.put(cur);
+                    cur = new Chunk(Math.max(4096, cur.n), false);
+                    chunkEnd = (Math.floor(t / chunkSeconds) + 1) * chunkSeconds;
+                }
+                cur.add(t, parseInt(f[1]), parseInt(f[2]), parseDouble(f[3]),
+                        Math.max(0.0, parseDouble(f[4])), Math.max(0.0, parseDouble(f[5])),
+                        Math.min(1.0, Math.max(0.0, parseDouble(f[6]))),
+                        f.length < 8 || !"0".equals(f[7].trim()));
+            }
+            if (cur != null) { cur.tEnd = Double.POSITIVE_INFINITY; ready.put(cur); }
+            ready.put(EOF);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure = e;
+        }
+    }
+
+    private static double parseDouble(String s){
+        try { return Double.parseDouble(s.trim()); }
+        catch (Exception ignore){ return 0.0; }
+    }
+
+    private static int parseInt(String s){
+        try { return Integer.parseInt(s.trim()); }
+        catch (Exception ignore){ return 0; }
+    }
+
+    @Override
+    public void close(){
+        closed = true;
+        reader.interrupt();
+        try { reader.join(1_000); } catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
+    }
+
+    /* ======================= 统计 ======================= */
+
+    public double getLoadedUntil(){ return loadedUntil; }
+    public boolean isExhausted(){ return exhausted; }
+    public long getRowsLoaded(){ return rowsLoaded; }
+    public long getRowsEvicted(){ return rowsEvicted; }
+    public long getRowsResident(){ return target.rowCount(); }
+    public long getRowsOutOfOrder(){ return rowsOutOfOrder; }
+    public long getBadRows(){ return badRows; }
+
+    @Override public String toString(){
+        return "TrajectoryLoader{loadedUntil=" + loadedUntil + ", loaded=" + rowsLoaded +
+                ", evicted=" + rowsEvicted + ", resident=" + target.rowCount() +
+                ", outOfOrder=" + rowsOutOfOrder + ", bad=" + badRows + "}";
+    }
+}
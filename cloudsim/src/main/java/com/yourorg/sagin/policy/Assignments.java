@@ -0,0 +1,29 @@
+package com.yourorg.sagin.policy;
+
+import java.util.Arrays;
+
+/** 一个 tick 的分配结果（任务 id → VM id），原生数组，跨 tick 复用 */
+public final class Assignments {
+
+    private long[] cloudlet = new long[64];
+    private long[] vm = new long[64];
+    private int size;
+
+    public void clear(){ size = 0; }
+
+    public void add(long cloudletId, long vmId){
+        if (size == cloudlet.length) {
+            cloudlet = Arrays.copyOf(cloudlet, size * 2);
+            vm = Arrays.copyOf(vm, size * 2);
+        }
+        cloudlet[size] = cloudletId;
+        vm[size] = vmId;
+        size++;
+    }
+
+    public int size(){ return size; }
+    public long cloudletId(int i){ return cloudlet[i]; }
+    public long vmId(int i){ return vm[i]; }
+
+    @Override public String toString(){ return "Assignments{n=" + size + "}"; }
+}
@@ -0,0 +1,69 @@
+package com.yourorg.sagin.policy;
+
+/**
+ * 推理用的 float 内核（行主序矩阵、带偏移的平铺数组，不分配）。
+ *
+ * 逐元素的循环写成 C2 能自动向量化（SuperWord）的形式：计数循环、无分支、同下标读写；
+ * 点积用 4 路独立累加器展开（浮点加法不满足结合律，C2 不会自己重排归约）。
+ * JDK 17 的 Vector API 还是孵化模块（jdk.incubator.vector），在 --release 17 下编译不到，
+ * 所以没有直接用；热点全在这个类里，以后要换成 Vector API 只改这里。
+ */
+public final class FloatOps {
+
+    private FloatOps(){ }
+
+    /** Σ a[ao+k]·b[bo+k]，k ∈ [0, n) */
+    public static float dot(float[] a, int ao, float[] b, int bo, int n){
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int k = 0;
+        for (; k + 3 < n; k += 4) {
+            s0 += a[ao + k]     * b[bo + k];
+            s1 += a[ao + k + 1] * b[bo + k + 1];
+            s2 += a[ao + k + 2] * b[bo + k + 2];
+            s3 += a[ao + k + 3] * b[bo + k + 3];
+        }
+        for (; k < n; k++) s0 += a[ao + k] * b[bo + k];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** y[yo..] = W·x[xo..]（W 为 rows × cols，从 wo 起） */
+    public static void matVec(float[] w, int wo, int rows, int cols, float[] x, int xo, float[] y, int yo){
+        for (int r = 0; r < rows; r++) y[yo + r] = dot(w, wo + r * cols, x, xo, cols);
+    }
+
+    /** y[yo..] += W·x[xo..] */
+    public static void matVecAcc(float[] w, int wo, int rows, int cols, float[] x, int xo, float[] y, int yo){
+        for (int r = 0; r < rows; r++) y[yo + r] += dot(w, wo + r * cols, x, xo, cols);
+    }
+
+    /** y[yo..] += b[bo..] */
+    public static void add(float[] b, int bo, float[] y, int yo, int n){
+        for (int k = 0; k < n; k++) y[yo + k] += b[bo + k];
+    }
+
+    /** y[yo..] += alpha·x[xo..] */
+    public static void axpy(float alpha, float[] x, int xo, float[] y, int yo, int n){
+        for (int k = 0; k < n; k++) y[yo + k] += alpha * x[xo + k];
+    }
+
+    /** out[oo..] = a[ao..] + b[bo..] */
+    public static void sum(float[] a, int ao, float[] b, int bo, float[] out, int oo, int n){
+        for (int k = 0; k < n; k++) out[oo + k] = a[ao + k] + b[bo + k];
+    }
+
+    public static void scale(float[] y, int yo, int n, float alpha){
+        for (int k = 0; k < n; k++) y[yo + k] *= alpha;
+    }
+
+    public static void relu(float[] y, int yo, int n){
+        for (int k = 0; k < n; k++) y[yo + k] = Math.max(0f, y[yo + k]);
+    }
+
+    public static void tanh(float[] y, int yo, int n){
+        for (int k = 0; k < n; k++) y[yo + k] = (float) Math.tanh(y[yo + k]);
+    }
+
+    public static void sigmoid(float[] y, int yo, int n){
+        for (int k = 0; k < n; k++) y[yo + k] = (float) (1.0 / (1.0 + Math.exp(-y[yo + k])));
+    }
+}
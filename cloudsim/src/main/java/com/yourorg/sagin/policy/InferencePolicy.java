@@ -0,0 +1,25 @@
+package com.yourorg.sagin.policy;
+
+import com.yourorg.sagin.io.StateSnapshot;
+
+/**
+ * 进程内策略：直接看 broker 的状态快照出分配，替代 StateWriter → 策略进程 → ActionReader 的往返（零 IPC）。
+ * 只在仿真线程里调用。
+ */
+public interface InferencePolicy {
+
+    /**
+     * 按快照 s 决策，分配结果追加进 out（调用前已清空）。
+     * s 是 broker 复用的缓冲区，返回后内容会变，不能持有。
+     */
+    void decide(StateSnapshot s, Assignments out);
+
+    /**
+     * decide 给出的某条分配没有生效（任务或 VM 已不在 broker 里），策略应在下一次 decide 里重新考虑该任务。
+     * 在同一个 tick 的 decide 之后调用。
+     */
+    default void rejected(long cloudletId){ }
+
+    /** 新的一轮（episode）开始：清掉跨 tick 的状态（LSTM 隐状态等） */
+    default void reset(){ }
+}
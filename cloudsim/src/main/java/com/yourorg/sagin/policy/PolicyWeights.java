@@ -0,0 +1,208 @@
+package com.yourorg.sagin.policy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 导出的策略权重：名字 → float32 张量（行主序）。两种文件：
+ *
+ * 1) *.npz：numpy.savez / savez_compressed 的输出，每个 name.npy 一个张量；
+ *    dtype 只认 &lt;f4 / &lt;f8（f8 读入时转成 float），不支持 fortran_order。Python 侧：
+ * <pre>
+ *   np.savez("policy.npz", **{k: v.detach().cpu().numpy().astype("&lt;f4") for k, v in model.state_dict().items()})
+ * </pre>
+ * 2) *.sgpw（其余扩展名都按它读），小端：
+ * <pre>
+ *  0 u32 magic 'SGPW'   4 u16 version(=1)   6 u16 保留   8 i32 n_tensors   12 i32 保留
+ *  之后每个张量：u16 name_len | name (UTF-8) | u8 ndim | i32 dims[ndim] | f32 data[∏dims]
+ * </pre>
+ */
+public final class PolicyWeights {
+
+    public static final int MAGIC = 0x57504753; // 小端字节序即 "SGPW"
+    public static final short VERSION = 1;
+
+    /** 一个张量：形状 + 平铺数据 */
+    public static final class Tensor {
+        public final int[] shape;
+        public final float[] data;
+
+        Tensor(int[] shape, float[] data){
+            this.shape = shape;
+            this.data = data;
+        }
+
+        @Override public String toString(){ return Arrays.toString(shape); }
+    }
+
+    private final Map<String, Tensor> tensors = new LinkedHashMap<>();
+
+    /* ======================= 读写 ======================= */
+
+    /** 按扩展名：*.npz → numpy 归档，其余 → SGPW */
+    public static PolicyWeights load(Path file) throws IOException {
+        return file.getFileName().toString().toLowerCase().endsWith(".npz") ? readNpz(file) : readSgpw(file);
+    }
+
+    public static PolicyWeights readSgpw(Path file) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (b.remaining() < 16 || b.getInt(0) != MAGIC) throw new IOException("not a SGPW weight file: " + file);
+        int version = b.getShort(4) & 0xFFFF;
+        if (version != VERSION) throw new IOException("unsupported SGPW version " + version + ": " + file);
+        int n = b.getInt(8);
+        b.position(16);
+        PolicyWeights w = new PolicyWeights();
+        for (int t = 0; t < n; t++) {
+            byte[] name = new byte[b.getShort() & 0xFFFF];
+            b.get(name);
+            int[] shape = new int[b.get() & 0xFF];
+            for (int d = 0; d < shape.length; d++) shape[d] = b.getInt();
+            float[] data = new float[numel(shape)];
+            b.asFloatBuffer().get(data);
+            b.position(b.position() + 4 * data.length);
+            w.put(new String(name, StandardCharsets.UTF_8), shape, data);
+        }
+        return w;
+    }
+
+    public void saveSgpw(Path file) throws IOException {
+        int bytes = 16;
+        for (Map.Entry<String, Tensor> e : tensors.entrySet()) {
+            bytes += 2 + e.getKey().getBytes(StandardCharsets.UTF_8).length + 1
+                    + 4 * e.getValue().shape.length + 4 * e.getValue().data.length;
+        }
+        ByteBuffer b = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(tensors.size()).putInt(0);
+        for (Map.Entry<String, Tensor> e : tensors.entrySet()) {
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            Tensor t = e.getValue();
+            b.putShort((short) name.length).put(name).put((byte) t.shape.length);
+            for (int d : t.shape) b.putInt(d);
+            b.asFloatBuffer().put(t.data);
+            b.position(b.position() + 4 * t.data.length);
+        }
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        try (OutputStream os = Files.newOutputStream(file)) {
+            os.write(b.array());
+        }
+    }
+
+    public static PolicyWeights readNpz(Path file) throws IOException {
+        PolicyWeights w = new PolicyWeights();
+        try (ZipInputStream zin = new ZipInputStream(Files.newInputStream(file))) {
+            ZipEntry e;
+            while ((e = zin.getNextEntry()) != null) {
+                String name = e.getName();
+                if (e.isDirectory() || !name.endsWith(".npy")) continue;
+                name = name.substring(0, name.length() - 4);
+                readNpy(w, name, readAll(zin), file);
+            }
+        }
+        return w;
+    }
+
+    private static final Pattern DESCR = Pattern.compile("'descr'\\s*:\\s*'([^']*)'");
+    private static final Pattern FORTRAN = Pattern.compile("'fortran_order'\\s*:\\s*(True|False)");
+    private static final Pattern SHAPE = Pattern.compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+    /** .npy v1–v3：魔数 \x93NUMPY，主/次版本，头长度（v1 u16，v2+ u32），再是 Python 字典字面量 */
+    private static void readNpy(PolicyWeights w, String name, byte[] raw, Path file) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        if (raw.length < 10 || (raw[0] & 0xFF) != 0x93 || raw[1] != 'N' || raw[2] != 'U') {
+            throw new IOException("bad .npy entry " + name + " in " + file);
+        }
+        int major = raw[6];
+        int headerLen = major == 1 ? b.getShort(8) & 0xFFFF : b.getInt(8);
+        int dataAt = (major == 1 ? 10 : 12) + headerLen;
+        String header = new String(raw, major == 1 ? 10 : 12, headerLen, StandardCharsets.ISO_8859_1);
+
+        String descr = group(DESCR, header, name, file);
+        if ("True".equals(group(FORTRAN, header, name, file))) {
+            throw new IOException("fortran_order arrays not supported (" + name + " in " + file + ")");
+        }
+        String dims = group(SHAPE, header, name, file).trim();
+        int[] shape = dims.isEmpty() ? new int[0] : Arrays.stream(dims.split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+
+        float[] data = new float[numel(shape)];
+        b.position(dataAt);
+        switch (descr) {
+            case "<f4": b.asFloatBuffer().get(data); break;
+            case "<f8": for (int i = 0; i < data.length; i++) data[i] = (float) b.getDouble(); break;
+            default: throw new IOException("unsupported dtype " + descr + " (" + name + " in " + file + "), export as <f4");
+        }
+        w.put(name, shape, data);
+    }
+
+    private static String group(Pattern p, String header, String name, Path file) throws IOException {
+        Matcher m = p.matcher(header);
+        if (!m.find()) throw new IOException("bad .npy header for " + name + " in " + file + ": " + header);
+        return m.group(1);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream(1 << 16);
+        in.transferTo(bo);
+        return bo.toByteArray();
+    }
+
+    /* ======================= 访问 ======================= */
+
+    public PolicyWeights put(String name, int[] shape, float[] data){
+        if (numel(shape) != data.length) {
+            throw new IllegalArgumentException(name + ": shape " + Arrays.toString(shape) + " needs " + numel(shape) +
+                    " values, got " + data.length);
+        }
+        tensors.put(name, new Tensor(shape.clone(), data));
+        return this;
+    }
+
+    public boolean contains(String name){ return tensors.containsKey(name); }
+
+    public Tensor tensor(String name){
+        Tensor t = tensors.get(name);
+        if (t == null) throw new IllegalArgumentException("missing weight: " + name + " (have " + tensors.keySet() + ")");
+        return t;
+    }
+
+    /** 取数据并检查形状 */
+    public float[] get(String name, int... shape){
+        Tensor t = tensor(name);
+        if (!Arrays.equals(t.shape, shape)) {
+            throw new IllegalArgumentException("weight " + name + ": expected shape " + Arrays.toString(shape) +
+                    ", got " + Arrays.toString(t.shape));
+        }
+        return t.data;
+    }
+
+    public Set<String> names(){ return Collections.unmodifiableSet(tensors.keySet()); }
+
+    private static int numel(int[] shape){
+        long n = 1;
+        for (int d : shape) {
+            if (d < 0) throw new IllegalArgumentException("negative dimension: " + Arrays.toString(shape));
+            n *= d;
+        }
+        if (n > Integer.MAX_VALUE) throw new IllegalArgumentException("tensor too large: " + Arrays.toString(shape));
+        return (int) n;
+    }
+
+    @Override public String toString(){ return "PolicyWeights" + tensors; }
+}
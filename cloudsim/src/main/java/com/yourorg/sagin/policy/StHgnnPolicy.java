@@ -0,0 +1,335 @@
+package com.yourorg.sagin.policy;
+
+import com.yourorg.sagin.io.StateSnapshot;
+import com.yourorg.sagin.util.LongIntHashMap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.yourorg.sagin.policy.FloatOps.*;
+
+/**
+ * ST-HGNN 策略的 Java 前向（只推理、贪心取 argmax），每 tick 一次：
+ *
+ * 1) 节点特征（F = 8，顺序须与导出方训练时一致）：
+ * <pre>
+ *   VM  : [1, 0, ln(1+mips)/10, pes/8, cpu_util, 运行任务数/pes, ln(1+energy_j)/10, 0]
+ *   任务: [0, 1, ln(1+len)/10, ln(1+in_bytes)/20, ln(1+out_bytes)/20, WAITING?1:0, 已在 VM 上?1:0, 0]
+ * </pre>
+ * 2) 时序：每个 VM 一个 LSTMCell，隐状态跨 tick 保留（按 vmId）；任务用一层 ReLU 编码
+ * 3) 超图注意力：超边 = 每个来源节点的任务集合 + 每个 VM（VM 自己 + 在它上面的任务）
+ *    节点 → 超边：s_i = a_n·tanh(W_n z_i)，按超边 softmax 加权求和得 m_e
+ *    超边 → 节点：β_ie = softmax_e( a_e·tanh(W_e [z_i ; m_e]) )，z_i' = z_i + Σ_e β_ie m_e（残差）
+ * 4) 策略头：score(t, v) = v·tanh(W_t z_t' + W_v z_v' + b)，每个任务取得分最高的 VM
+ *
+ * 每个任务只在第一次出现在快照里时决策一次。
+ *
+ * 权重（PolicyWeights，名字与 PyTorch 的 LSTMCell / 线性层一致，H = 隐层宽度）：
+ * <pre>
+ *   task_enc.weight [H,F]   task_enc.bias [H]
+ *   lstm.weight_ih [4H,F]   lstm.weight_hh [4H,H]   lstm.bias_ih [4H]   lstm.bias_hh [4H]   （门顺序 i,f,g,o）
+ *   att.node.weight [H,H]   att.node.a [H]
+ *   att.edge.weight [H,2H]  att.edge.a [H]
+ *   head.task.weight [H,H]  head.vm.weight [H,H]  head.bias [H]  head.v [H]
+ * </pre>
+ * 所有中间结果放在按需扩容、跨 tick 复用的 float 数组里，稳态下每 tick 不分配。
+ */
+public final class StHgnnPolicy implements InferencePolicy {
+
+    public static final int FEATURES = 8;
+    private static final int F = FEATURES;
+
+    private final int h;
+
+    private final float[] taskW, taskB;
+    private final float[] lstmWih, lstmWhh, lstmB;
+    private final float[] nodeW, nodeA;
+    /** att.edge.weight 拆成左右两块 [H,H]（乘 z_i / 乘 m_e），各自连续 */
+    private final float[] edgeWz, edgeWm, edgeA;
+    private final float[] headTaskW, headVmW, headB, headV;
+
+    /* ---------- 跨 tick 状态 ---------- */
+    private final LongIntHashMap vmSlot = new LongIntHashMap(16);
+    private float[] lstmH, lstmC;
+    private int slots;
+    /** 上一 tick 快照里的任务 id（已决策且分配生效），与本 tick 的轮换；被 broker 拒绝的在 rejected 里移除 */
+    private LongIntHashMap seen = new LongIntHashMap(256);
+    private LongIntHashMap seenNext = new LongIntHashMap(256);
+
+    /* ---------- 每 tick 的缓冲区 ---------- */
+    private final LongIntHashMap vmIndex = new LongIntHashMap(16);
+    private final LongIntHashMap srcEdge = new LongIntHashMap(64);
+    private final float[] x = new float[F];
+    private final float[] gates;
+    private final float[] tmp, tmp2;
+    private int[] running = new int[8];
+    private float[] zv = new float[0], zt = new float[0], zv2 = new float[0], zt2 = new float[0];
+    private float[] sv = new float[0], st = new float[0];
+    private int[] taskSrcEdge = new int[0], taskVm = new int[0];
+    private float[] m = new float[0], q = new float[0], emax = new float[0], esum = new float[0];
+    private float[] pv = new float[0];
+
+    public StHgnnPolicy(PolicyWeights w){
+        this.h = w.tensor("task_enc.weight").shape[0];
+        int H = h;
+        this.taskW = w.get("task_enc.weight", H, F);
+        this.taskB = w.get("task_enc.bias", H);
+        this.lstmWih = w.get("lstm.weight_ih", 4 * H, F);
+        this.lstmWhh = w.get("lstm.weight_hh", 4 * H, H);
+        this.lstmB = w.get("lstm.bias_ih", 4 * H).clone();
+        add(w.get("lstm.bias_hh", 4 * H), 0, lstmB, 0, 4 * H);
+        this.nodeW = w.get("att.node.weight", H, H);
+        this.nodeA = w.get("att.node.a", H);
+        float[] ew = w.get("att.edge.weight", H, 2 * H);
+        this.edgeWz = new float[H * H];
+        this.edgeWm = new float[H * H];
+        for (int r = 0; r < H; r++) {
+            System.arraycopy(ew, r * 2 * H, edgeWz, r * H, H);
+            System.arraycopy(ew, r * 2 * H + H, edgeWm, r * H, H);
+        }
+        this.edgeA = w.get("att.edge.a", H);
+        this.headTaskW = w.get("head.task.weight", H, H);
+        this.headVmW = w.get("head.vm.weight", H, H);
+        this.headB = w.get("head.bias", H);
+        this.headV = w.get("head.v", H);
+
+        this.gates = new float[4 * H];
+        this.tmp = new float[H];
+        this.tmp2 = new float[H];
+        this.lstmH = new float[8 * H];
+        this.lstmC = new float[8 * H];
+    }
+
+    public static StHgnnPolicy load(Path weights) throws IOException {
+        return new StHgnnPolicy(PolicyWeights.load(weights));
+    }
+
+    public int hiddenSize(){ return h; }
+
+    @Override
+    public void rejected(long cloudletId){
+        seen.remove(cloudletId);
+    }
+
+    @Override
+    public void reset(){
+        vmSlot.clear();
+        slots = 0;
+        seen.clear();
+        seenNext.clear();
+    }
+
+    @Override
+    public void decide(StateSnapshot s, Assignments out){
+        final int H = h, nv = s.vmCount, nt = s.clCount;
+        ensure(nv, nt);
+
+        // 0) VM 下标与每 VM 的运行数
+        vmIndex.clear();
+        for (int j = 0; j < nv; j++) {
+            vmIndex.put(s.vmId[j], j);
+            running[j] = 0;
+        }
+        for (int i = 0; i < nt; i++) {
+            int j = vmIndex.get(s.clVm[i]);
+            taskVm[i] = j;
+            if (j >= 0 && s.clPhase[i] == StateSnapshot.PHASE_RUNNING) running[j]++;
+        }
+
+        // 1) VM：特征 → LSTM 一步（隐状态就是 VM 的嵌入）
+        for (int j = 0; j < nv; j++) {
+            vmFeatures(s, j);
+            lstmStep(slotOf(s.vmId[j]));
+            System.arraycopy(lstmH, vmSlot.get(s.vmId[j]) * H, zv, j * H, H);
+        }
+
+        // 2) 任务：特征 → ReLU 编码
+        for (int i = 0; i < nt; i++) {
+            taskFeatures(s, i);
+            matVec(taskW, 0, H, F, x, 0, zt, i * H);
+            add(taskB, 0, zt, i * H, H);
+            relu(zt, i * H, H);
+        }
+
+        // 3) 超边：来源节点 [0, nSrc)，VM 超边 [nSrc, nSrc + nv)
+        srcEdge.clear();
+        int nSrc = 0;
+        for (int i = 0; i < nt; i++) {
+            int e = srcEdge.get(s.clSrc[i]);
+            if (e < 0) srcEdge.put(s.clSrc[i], e = nSrc++);
+            taskSrcEdge[i] = e;
+        }
+        int ne = nSrc + nv;
+        ensureEdges(ne);
+
+        // 3a) 节点 → 超边：按超边做 softmax（先求每条超边的最大分数，再累加 exp 权重）
+        for (int i = 0; i < nt; i++) st[i] = nodeScore(zt, i);
+        for (int j = 0; j < nv; j++) sv[j] = nodeScore(zv, j);
+        Arrays.fill(emax, 0, ne, Float.NEGATIVE_INFINITY);
+        Arrays.fill(esum, 0, ne, 0f);
+        Arrays.fill(m, 0, ne * H, 0f);
+        for (int i = 0; i < nt; i++) {
+            emax[taskSrcEdge[i]] = Math.max(emax[taskSrcEdge[i]], st[i]);
+            if (taskVm[i] >= 0) emax[nSrc + taskVm[i]] = Math.max(emax[nSrc + taskVm[i]], st[i]);
+        }
+        for (int j = 0; j < nv; j++) emax[nSrc + j] = Math.max(emax[nSrc + j], sv[j]);
+        for (int i = 0; i < nt; i++) {
+            pool(taskSrcEdge[i], st[i], zt, i);
+            if (taskVm[i] >= 0) pool(nSrc + taskVm[i], st[i], zt, i);
+        }
+        for (int j = 0; j < nv; j++) pool(nSrc + j, sv[j], zv, j);
+        for (int e = 0; e < ne; e++) {
+            if (esum[e] > 0) scale(m, e * H, H, 1f / esum[e]);
+            matVec(edgeWm, 0, H, H, m, e * H, q, e * H);
+        }
+
+        // 3b) 超边 → 节点（残差）：任务最多属于两条超边，VM 只属于自己的那条（权重恒为 1）
+        for (int i = 0; i < nt; i++) {
+            System.arraycopy(zt, i * H, zt2, i * H, H);
+            matVec(edgeWz, 0, H, H, zt, i * H, tmp, 0);
+            int e1 = taskSrcEdge[i];
+            float a1 = edgeScore(e1);
+            if (taskVm[i] < 0) {
+                axpy(1f, m, e1 * H, zt2, i * H, H);
+            } else {
+                int e2 = nSrc + taskVm[i];
+                float a2 = edgeScore(e2);
+                float mx = Math.max(a1, a2);
+                float w1 = (float) Math.exp(a1 - mx), w2 = (float) Math.exp(a2 - mx);
+                float inv = 1f / (w1 + w2);
+                axpy(w1 * inv, m, e1 * H, zt2, i * H, H);
+                axpy(w2 * inv, m, e2 * H, zt2, i * H, H);
+            }
+        }
+        for (int j = 0; j < nv; j++) {
+            System.arraycopy(zv, j * H, zv2, j * H, H);
+            axpy(1f, m, (nSrc + j) * H, zv2, j * H, H);
+        }
+
+        // 4) 策略头：VM 一侧先投影好，每个新任务扫一遍所有 VM 取 argmax
+        for (int j = 0; j < nv; j++) matVec(headVmW, 0, H, H, zv2, j * H, pv, j * H);
+        for (int i = 0; i < nt; i++) {
+            long id = s.clId[i];
+            seenNext.put(id, 1);
+            if (nv == 0 || seen.containsKey(id)) continue;
+            matVec(headTaskW, 0, H, H, zt2, i * H, tmp, 0);
+            add(headB, 0, tmp, 0, H);
+            int best = 0;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int j = 0; j < nv; j++) {
+                sum(tmp, 0, pv, j * H, tmp2, 0, H);
+                FloatOps.tanh(tmp2, 0, H);
+                float sc = dot(headV, 0, tmp2, 0, H);
+                if (sc > bestScore) { bestScore = sc; best = j; }
+            }
+            out.add(id, s.vmId[best]);
+        }
+        LongIntHashMap t = seen;
+        seen = seenNext;
+        seenNext = t;
+        seenNext.clear();
+    }
+
+    /* ======================= 各层 ======================= */
+
+    private void vmFeatures(StateSnapshot s, int j){
+        int pes = Math.max(1, s.vmPes[j]);
+        x[0] = 1f; x[1] = 0f;
+        x[2] = (float) (Math.log1p(s.vmMips[j]) / 10);
+        x[3] = pes / 8f;
+        x[4] = (float) s.vmUtil[j];
+        x[5] = running[j] / (float) pes;
+        x[6] = (float) (Math.log1p(Math.max(0.0, s.vmEnergy[j])) / 10);
+        x[7] = 0f;
+    }
+
+    private void taskFeatures(StateSnapshot s, int i){
+        x[0] = 0f; x[1] = 1f;
+        x[2] = (float) (Math.log1p(Math.max(0L, s.clLen[i])) / 10);
+        x[3] = (float) (Math.log1p(Math.max(0L, s.clIn[i])) / 20);
+        x[4] = (float) (Math.log1p(Math.max(0L, s.clOut[i])) / 20);
+        x[5] = s.clPhase[i] == StateSnapshot.PHASE_WAITING ? 1f : 0f;
+        x[6] = taskVm[i] >= 0 ? 1f : 0f;
+        x[7] = 0f;
+    }
+
+    /** 槽位 slot 上的 LSTMCell 走一步（输入 x） */
+    private void lstmStep(int slot){
+        final int H = h;
+        int o = slot * H;
+        System.arraycopy(lstmB, 0, gates, 0, 4 * H);
+        matVecAcc(lstmWih, 0, 4 * H, F, x, 0, gates, 0);
+        matVecAcc(lstmWhh, 0, 4 * H, H, lstmH, o, gates, 0);
+        sigmoid(gates, 0, 2 * H);          // i, f
+        FloatOps.tanh(gates, 2 * H, H);    // g
+        sigmoid(gates, 3 * H, H);          // o
+        for (int k = 0; k < H; k++) {
+            float c = gates[H + k] * lstmC[o + k] + gates[k] * gates[2 * H + k];
+            lstmC[o + k] = c;
+            lstmH[o + k] = gates[3 * H + k] * (float) Math.tanh(c);
+        }
+    }
+
+    /** a_n·tanh(W_n z) */
+    private float nodeScore(float[] z, int row){
+        matVec(nodeW, 0, h, h, z, row * h, tmp, 0);
+        FloatOps.tanh(tmp, 0, h);
+        return dot(nodeA, 0, tmp, 0, h);
+    }
+
+    /** a_e·tanh(W_z z_i + W_m m_e)，W_z z_i 已在 tmp 里 */
+    private float edgeScore(int e){
+        sum(tmp, 0, q, e * h, tmp2, 0, h);
+        FloatOps.tanh(tmp2, 0, h);
+        return dot(edgeA, 0, tmp2, 0, h);
+    }
+
+    private void pool(int e, float score, float[] z, int row){
+        float w = (float) Math.exp(score - emax[e]);
+        esum[e] += w;
+        axpy(w, z, row * h, m, e * h, h);
+    }
+
+    /* ======================= 缓冲区 ======================= */
+
+    private int slotOf(long vmId){
+        int sl = vmSlot.get(vmId);
+        if (sl >= 0) return sl;
+        sl = slots++;
+        if (slots * h > lstmH.length) {
+            lstmH = Arrays.copyOf(lstmH, lstmH.length * 2);
+            lstmC = Arrays.copyOf(lstmC, lstmC.length * 2);
+        }
+        Arrays.fill(lstmH, sl * h, (sl + 1) * h, 0f);
+        Arrays.fill(lstmC, sl * h, (sl + 1) * h, 0f);
+        vmSlot.put(vmId, sl);
+        return sl;
+    }
+
+    private void ensure(int nv, int nt){
+        if (running.length < nv) running = new int[grow(running.length, nv)];
+        if (zv.length < nv * h) {
+            int n = grow(zv.length / h, nv);
+            zv = new float[n * h]; zv2 = new float[n * h]; pv = new float[n * h]; sv = new float[n];
+        }
+        if (zt.length < nt * h) {
+            int n = grow(zt.length / h, nt);
+            zt = new float[n * h]; zt2 = new float[n * h]; st = new float[n];
+            taskSrcEdge = new int[n]; taskVm = new int[n];
+        }
+    }
+
+    private void ensureEdges(int ne){
+        if (emax.length >= ne) return;
+        int n = grow(emax.length, ne);
+        emax = new float[n]; esum = new float[n];
+        m = new float[n * h]; q = new float[n * h];
+    }
+
+    private static int grow(int have, int need){ return Math.max(need, Math.max(16, have * 2)); }
+
+    @Override public String toString(){
+        return "StHgnnPolicy{hidden=" + h + ", vms=" + slots + "}";
+    }
+}
@@ -0,0 +1,267 @@
+package com.yourorg.sagin.sched;
+
+import com.yourorg.sagin.util.LongIntHashMap;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletExecution;
+import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerSpaceShared;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 把 T_up / T_down 纳入估时的 space-shared 调度器：任务按 上行 → 执行 → 下行 三段建模，
+ * 执行段仍交给 CloudletSchedulerSpaceShared，本类只在旁边维护一份“每个 PE 何时空闲”的估计。
+ *
+ * - lanes：每个 PE 的预计空闲时刻，升序排列；占 k 个 PE 的任务最早在 max(就绪时刻, lanes[k-1]) 开始
+ * - 预约（reserve）：派发时按“上行完成时刻”登记，把最早空闲的 k 条 lane 推到预计完成时刻（二分 + 平移，O(log P + P)）
+ * - 查询（estimateCompletion）：只读 lanes[k-1]，O(1)，策略每 tick 对成千上万个候选问也不贵
+ * - 纠偏：lane 的总量就是待做的工作量，单个任务被插队只是换了顺序、不改总量；所以任务完成时只把
+ *   “实际执行时长 − 估计执行时长”（CloudSim 的事件粒度等），取消 / 失败时把没做完的部分，
+ *   平移到它所在的 lane 上，不往前模拟整条队列；没预约过就到达的任务在到达时按“就绪 = 现在”补登记
+ *
+ * 执行时长按 CloudSim Plus 的约定：Cloudlet 长度是每个 PE 上的 MI，时长 = length / VM 每 PE 的 MIPS。
+ * 估计按先到先服务；CloudSim 的 space-shared 会让刚到达的任务占用刚空出的 PE、宽任务（k > 1）会被窄任务插队，
+ * 单个任务的估计因此可能偏早或偏晚，但每个 VM 的排空时刻（drainTime）与新任务的估计仍跟着总工作量走。
+ * 只在仿真线程里用。
+ */
+public class CloudletSchedulerX extends CloudletSchedulerSpaceShared {
+    private static final long serialVersionUID = 1L;
+
+    /** 每个 PE 的预计空闲时刻（升序）；第一次用到时按 VM 的 PE 数建 */
+    private double[] lanes;
+
+    /** cloudletId → 预约槽位（预计完成时刻 + 占用 PE 数），槽位用空闲链表复用 */
+    private final LongIntHashMap resv = new LongIntHashMap(64);
+    private double[] resvFinish = new double[64];
+    private int[] resvPes = new int[64];
+    private int[] freeSlots = new int[64];
+    private int nFree;
+    private int nSlots;
+
+    private long reservations;
+    private long corrections;
+
+    /** “已交回”集合：接管 addCloudletToReturnedList，父类那份（只读、只增不减）不再使用，purgeReturned 可以删 */
+    private final Set<Cloudlet> returned = new HashSet<>();
+
+    /* ======================= 估时 ======================= */
+
+    /** 执行段时长（秒） */
+    public double execSeconds(long lengthMi){
+        double mips = getVm().getMips();
+        return mips <= 0 ? Double.POSITIVE_INFINITY : lengthMi / mips;
+    }
+
+    /** 需要 pes 个 PE、readyAt 到达的任务最早何时能开始执行（now 之前空闲的 PE 按 now 计） */
+    public double earliestStart(int pes, double readyAt, double now){
+        double[] l = lanes();
+        int k = Math.max(1, Math.min(pes, l.length));
+        return Math.max(Math.max(readyAt, now), l[k - 1]);
+    }
+
+    /** 预计执行完成时刻（不含下行） */
+    public double estimateFinish(long lengthMi, int pes, double readyAt, double now){
+        return earliestStart(pes, readyAt, now) + execSeconds(lengthMi);
+    }
+
+    /**
+     * 预计结果送回时刻 = 上行完成 → 排队 → 执行 → 下行。
+     * upSec / downSec 由调用方按路由算好（此处不碰网络）；O(1)，不改状态。
+     */
+    public double estimateCompletion(long lengthMi, int pes, double now, double upSec, double downSec){
+        return estimateFinish(lengthMi, pes, now + upSec, now) + downSec;
+    }
+
+    /** 全部 PE 都空下来的预计时刻 */
+    public double drainTime(double now){
+        double[] l = lanes();
+        return Math.max(now, l[l.length - 1]);
+    }
+
+    /* ======================= 预约 ======================= */
+
+    /**
+     * 登记一个已派发到本 VM、将在 readyAt 到达（上行完成）的任务，返回其预计执行完成时刻。
+     * 同一个 Cloudlet 重复登记直接返回原估计。
+     */
+    public double reserve(Cloudlet c, double readyAt){
+        int s = resv.get(c.getId());
+        if (s >= 0) return resvFinish[s];
+
+        double now = getVm().getSimulation().clock();
+        int k = Math.max(1, Math.min((int) c.getPesNumber(), lanes().length));
+        double finish = estimateFinish(c.getLength(), k, readyAt, now);
+        // 最早空闲的 k 条 lane 被占到 finish：删掉前 k 个，再把 k 个 finish 插回有序位置
+        double[] l = lanes;
+        int pos = upperBound(l, k, l.length, finish);
+        System.arraycopy(l, k, l, 0, pos - k);
+        Arrays.fill(l, pos - k, pos, finish);
+
+        s = newSlot();
+        resvFinish[s] = finish;
+        resvPes[s] = k;
+        resv.put(c.getId(), s);
+        reservations++;
+        return finish;
+    }
+
+    /**
+     * 撤掉 c 在本 VM 上的预约（改派到别的 VM 时由 broker 调用）：它还没执行的部分从 lane 上退回。
+     * 没登记过返回 false。
+     */
+    public boolean cancel(Cloudlet c){
+        if (!resv.containsKey(c.getId())) return false;
+        double t = getVm().getSimulation().clock();
+        release(c, t, -unexecutedSeconds(c, t));
+        return true;
+    }
+
+    /** 已登记的、还没完成的任务数 */
+    public int getReservedCount(){ return resv.size(); }
+
+    /** 累计预约 / 纠偏次数 */
+    public long getReservations(){ return reservations; }
+    public long getCorrections(){ return corrections; }
+
+    /* ======================= CloudSim 钩子 ======================= */
+
+    /** 没经 broker 预约就到达的任务（例如默认映射），按“就绪 = 现在”补登记 */
+    @Override
+    protected double cloudletSubmitInternal(CloudletExecution ce, double fileTransferTime){
+        Cloudlet c = ce.getCloudlet();
+        if (!resv.containsKey(c.getId())) reserve(c, getVm().getSimulation().clock() + fileTransferTime);
+        return super.cloudletSubmitInternal(ce, fileTransferTime);
+    }
+
+    @Override
+    protected void cloudletFinish(CloudletExecution ce){
+        super.cloudletFinish(ce);
+        Cloudlet c = ce.getCloudlet();
+        double t = getVm().getSimulation().clock();
+        release(c, t, (t - c.getExecStartTime()) - execSeconds(c.getLength()));
+    }
+
+    @Override
+    public Cloudlet cloudletCancel(Cloudlet c){
+        double t = getVm().getSimulation().clock();
+        double left = unexecutedSeconds(c, t);
+        Cloudlet r = super.cloudletCancel(c);
+        release(c, t, -left);
+        return r;
+    }
+
+    @Override
+    public Cloudlet cloudletFail(Cloudlet c){
+        double t = getVm().getSimulation().clock();
+        double left = unexecutedSeconds(c, t);
+        Cloudlet r = super.cloudletFail(c);
+        release(c, t, -left);
+        return r;
+    }
+
+    /**
+     * 丢掉已交回 broker 的完成记录：CloudSim 的完成列表与“已交回”集合只增不减，长时运行时由 broker 定期调用。
+     * 返回丢掉的条数。
+     */
+    public int purgeReturned(){
+        if (returned.isEmpty()) return 0;
+        List<CloudletExecution> done = getCloudletFinishedList();
+        int before = done.size();
+        // 两边都有的才删：交回了但还没进完成列表的留到下一次
+        done.removeIf(ce -> returned.remove(ce.getCloudlet()));
+        return before - done.size();
+    }
+
+    @Override
+    public void addCloudletToReturnedList(Cloudlet c){ returned.add(c); }
+
+    @Override
+    protected Set<Cloudlet> getCloudletReturnedList(){ return Collections.unmodifiableSet(returned); }
+
+    @Override
+    public void clear(){
+        super.clear();
+        returned.clear();
+        lanes = null;
+        resv.clear();
+        nSlots = nFree = 0;
+    }
+
+    /* ======================= 内部 ======================= */
+
+    /** 没开始的按整段算，开始了的扣掉已执行的部分 */
+    private double unexecutedSeconds(Cloudlet c, double t){
+        double exec = execSeconds(c.getLength());
+        double start = c.getExecStartTime();
+        return start > 0 || c.getStatus() == Cloudlet.Status.INEXEC ? Math.max(0.0, exec - (t - start)) : exec;
+    }
+
+    /**
+     * 任务在 t 离开 VM，工作量比预约时多了 delta 秒（负数 = 少了）：
+     * 它占的 lane（值 ≥ 预计完成时刻的最前 k 条，接在它后面的任务也在这几条上）整体平移 delta，下限 t；平移后重新排好序。
+     */
+    private void release(Cloudlet c, double t, double delta){
+        int s = resv.remove(c.getId());
+        if (s < 0) return;
+        double est = resvFinish[s];
+        int k = resvPes[s];
+        freeSlots[nFree++] = s;
+
+        if (Math.abs(delta) < 1e-9) return;
+        corrections++;
+        double[] l = lanes;
+        int from = lowerBound(l, 0, l.length, est);
+        int to = Math.min(l.length, from + k);
+        for (int i = from; i < to; i++) l[i] = Math.max(t, l[i] + delta);
+        // 只有被平移的一段可能乱序，插入排序即可（P 很小）
+        for (int i = 1; i < l.length; i++) {
+            double v = l[i];
+            int j = i - 1;
+            while (j >= 0 && l[j] > v) { l[j + 1] = l[j]; j--; }
+            l[j + 1] = v;
+        }
+    }
+
+    private double[] lanes(){
+        if (lanes == null) lanes = new double[(int) Math.max(1, getVm().getPesNumber())];
+        return lanes;
+    }
+
+    private int newSlot(){
+        if (nFree > 0) return freeSlots[--nFree];
+        int s = nSlots++;
+        if (s == resvFinish.length) {
+            resvFinish = Arrays.copyOf(resvFinish, s * 2);
+            resvPes = Arrays.copyOf(resvPes, s * 2);
+            freeSlots = Arrays.copyOf(freeSlots, s * 2);
+        }
+        return s;
+    }
+
+    /** [from, to) 里第一个 >= x 的位置 */
+    private static int lowerBound(double[] a, int from, int to, double x){
+        while (from < to) {
+            int m = (from + to) >>> 1;
+            if (a[m] < x) from = m + 1; else to = m;
+        }
+        return from;
+    }
+
+    /** [from, to) 里第一个 > x 的位置 */
+    private static int upperBound(double[] a, int from, int to, double x){
+        while (from < to) {
+            int m = (from + to) >>> 1;
+            if (a[m] <= x) from = m + 1; else to = m;
+        }
+        return from;
+    }
+
+    @Override public String toString(){
+        return "CloudletSchedulerX{vm=" + getVm().getId() + ", lanes=" + Arrays.toString(lanes) +
+                ", reserved=" + resv.size() + ", reservations=" + reservations + ", corrections=" + corrections + "}";
+    }
+}
@@ -0,0 +1,144 @@
+package com.yourorg.sagin.util;
+
+import java.util.Arrays;
+
+/**
+ * long → int 开放寻址哈希表（线性探测，原生数组，无装箱）。
+ * 缺失时 get 返回 missingValue（默认 -1）；remove 用后移删除（不留墓碑），探测链不会越删越长。
+ */
+public final class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean hasEmptyKey;   // Long.MIN_VALUE 本身作为键时单独存
+    private int emptyKeyValue;
+    private final int missingValue;
+
+    public LongIntHashMap(){ this(16, -1); }
+
+    public LongIntHashMap(int expected){ this(expected, -1); }
+
+    public LongIntHashMap(int expected, int missingValue){
+        int cap = tableSizeFor(Math.max(4, expected * 2));
+        this.keys = new long[cap];
+        this.values = new int[cap];
+        this.mask = cap - 1;
+        this.missingValue = missingValue;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size(){ return size; }
+
+    public int get(long key){
+        if (key == EMPTY) return hasEmptyKey ? emptyKeyValue : missingValue;
+        int i = slot(key);
+        while (true) {
+            long k = keys[i];
+            if (k == key) return values[i];
+            if (k == EMPTY) return missingValue;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key){
+        if (key == EMPTY) return hasEmptyKey;
+        int i = slot(key);
+        while (true) {
+            long k = keys[i];
+            if (k == key) return true;
+            if (k == EMPTY) return false;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /** 写入；返回旧值（没有则返回 missingValue） */
+    public int put(long key, int value){
+        if (key == EMPTY) {
+            int old = hasEmptyKey ? emptyKeyValue : missingValue;
+            if (!hasEmptyKey) { hasEmptyKey = true; size++; }
+            emptyKeyValue = value;
+            return old;
+        }
+        int i = slot(key);
+        while (true) {
+            long k = keys[i];
+            if (k == key) { int old = values[i]; values[i] = value; return old; }
+            if (k == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) rehash(keys.length * 2);
+                return missingValue;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /** 删除；返回旧值（没有则返回 missingValue） */
+    public int remove(long key){
+        if (key == EMPTY) {
+            if (!hasEmptyKey) return missingValue;
+            hasEmptyKey = false;
+            size--;
+            return emptyKeyValue;
+        }
+        int i = slot(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY) return missingValue;
+            if (k == key) break;
+            i = (i + 1) & mask;
+        }
+        int old = values[i];
+        size--;
+        // 把后面同一探测链上的键往前挪，补上空位
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            // home 不在 (gap, j] 之间（环形）才能挪到 gap
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+        return old;
+    }
+
+    public void clear(){
+        if (size == 0) return;
+        Arrays.fill(keys, EMPTY);
+        hasEmptyKey = false;
+        size = 0;
+    }
+
+    private int slot(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash(int cap){
+        long[] ok = keys;
+        int[] ov = values;
+        keys = new long[cap];
+        values = new int[cap];
+        mask = cap - 1;
+        Arrays.fill(keys, EMPTY);
+        for (int j = 0; j < ok.length; j++) {
+            long k = ok[j];
+            if (k == EMPTY) continue;
+            int i = slot(k);
+            while (keys[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = ov[j];
+        }
+    }
+
+    private static int tableSizeFor(int n){
+        return Integer.highestOneBit(n - 1) << 1;
+    }
+}
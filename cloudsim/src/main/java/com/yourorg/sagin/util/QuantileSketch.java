@@ -0,0 +1,105 @@
+package com.yourorg.sagin.util;
+
+import java.util.Arrays;
+
+/**
+ * 流式分位数草图（对数分桶，相对误差有界）：x 落在第 ceil(log_γ x) 个桶，γ = (1+α)/(1−α)，
+ * 返回的分位数与真值的相对误差不超过 α。插入 O(1)；查询按桶扫描，桶数只跟取值的量级跨度有关
+ * （α = 1%、1 ms ~ 1 天约 570 个桶），与样本数无关。
+ * 只接受非负值；小于 minValue 的都记进“零桶”。
+ */
+public final class QuantileSketch {
+
+    private final double alpha;
+    private final double gamma;
+    private final double logGamma;
+    private final double minValue;
+
+    /** counts[i] 对应桶号 offset + i */
+    private long[] counts = new long[64];
+    private int offset;
+    private int lo = Integer.MAX_VALUE, hi = Integer.MIN_VALUE;   // 已用桶号范围
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+    /** 相对误差 1%，1 µs 以下按 0 计 */
+    public QuantileSketch(){ this(0.01, 1e-6); }
+
+    public QuantileSketch(double relativeAccuracy, double minValue){
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("relative accuracy must be in (0, 1): " + relativeAccuracy);
+        }
+        this.alpha = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.minValue = minValue;
+    }
+
+    public void add(double x){
+        if (!(x >= 0)) return;   // NaN / 负数忽略
+        count++;
+        if (x < min) min = x;
+        if (x > max) max = x;
+        if (x < minValue) { zeroCount++; return; }
+        int k = (int) Math.ceil(Math.log(x) / logGamma);
+        if (lo == Integer.MAX_VALUE) offset = k - counts.length / 2;   // 第一个非零样本居中
+        int i = k - offset;
+        if (i < 0 || i >= counts.length) { grow(k); i = k - offset; }
+        counts[i]++;
+        if (k < lo) lo = k;
+        if (k > hi) hi = k;
+    }
+
+    public long count(){ return count; }
+    public double min(){ return count == 0 ? Double.NaN : min; }
+    public double max(){ return count == 0 ? Double.NaN : max; }
+    public double relativeAccuracy(){ return alpha; }
+
+    /** q ∈ [0, 1] 分位数；没有样本时为 NaN */
+    public double quantile(double q){
+        if (count == 0) return Double.NaN;
+        if (q <= 0) return min;
+        if (q >= 1) return max;
+        long rank = (long) (q * (count - 1));
+        if (rank < zeroCount) return 0.0;
+        long seen = zeroCount;
+        for (int k = lo; k <= hi; k++) {
+            seen += counts[k - offset];
+            if (seen > rank) {
+                // 桶 (γ^(k-1), γ^k] 的代表值，相对误差 ≤ α；再夹到实际的 [min, max]
+                double v = 2 * Math.pow(gamma, k) / (gamma + 1);
+                return Math.max(min, Math.min(max, v));
+            }
+        }
+        return max;
+    }
+
+    public void clear(){
+        Arrays.fill(counts, 0L);
+        lo = Integer.MAX_VALUE;
+        hi = Integer.MIN_VALUE;
+        zeroCount = count = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /** 让桶号 k 落进数组：按需向两头扩（至少翻倍） */
+    private void grow(int k){
+        int newLo = Math.min(k, lo == Integer.MAX_VALUE ? k : lo);
+        int newHi = Math.max(k, hi == Integer.MIN_VALUE ? k : hi);
+        int n = counts.length;
+        while (n < newHi - newLo + 1) n *= 2;
+        n *= 2;
+        int newOffset = newLo - (n - (newHi - newLo + 1)) / 2;
+        long[] c = new long[n];
+        if (lo <= hi) System.arraycopy(counts, lo - offset, c, lo - newOffset, hi - lo + 1);
+        counts = c;
+        offset = newOffset;
+    }
+
+    @Override public String toString(){
+        return "QuantileSketch{n=" + count + ", p50=" + quantile(0.5) + ", p99=" + quantile(0.99) +
+                ", buckets=" + (lo <= hi ? hi - lo + 1 : 0) + ", alpha=" + alpha + "}";
+    }
+}
@@ -0,0 +1,117 @@
+package com.yourorg.sagin.broker;
+
+import com.yourorg.sagin.energy.EnergyMeter;
+import com.yourorg.sagin.io.NullBridgeTransport;
+import com.yourorg.sagin.model.TaskTable;
+import com.yourorg.sagin.net.LinkMetrics;
+import com.yourorg.sagin.net.NetworkProfileCsv;
+import com.yourorg.sagin.sched.CloudletSchedulerX;
+
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.DatacenterSimple;
+import org.cloudsimplus.hosts.HostSimple;
+import org.cloudsimplus.power.models.PowerModelHostSimple;
+import org.cloudsimplus.resources.Pe;
+import org.cloudsimplus.resources.PeSimple;
+import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private static CloudletSimple cloudlet(long id){
+        CloudletSimple c = new CloudletSimple(10_000, 1);
+        c.setFileSize(1000).setOutputSize(1000);
+        c.setId(id);
+        return c;
+    }
+
+    @Test
+    void registersOnceAndRejectsADuplicateId(){
+        BrokerIndex index = new BrokerIndex(new EnergyMeter());
+        CloudletSimple a = cloudlet(7);
+        index.register(a, 3, 1.0, 20.0);
+        index.register(a, 3, 2.0, 20.0);   // 重新分配：同一个对象，不算重号
+
+        int s = index.slotOf(a);
+        assertEquals(0, s);
+        assertEquals(1, index.tasks().liveCount());
+        assertEquals(1.0, index.tasks().arrival(s));
+        assertEquals(21.0, index.tasks().deadline(s));
+        assertSame(a, index.findUnfinished(7));
+        assertEquals(3, index.srcNode(7));
+
+        index.annotate(7, 9, 5.0);
+        assertEquals(9, index.srcNode(7));
+        assertEquals(5.0, index.tasks().deadline(s));
+
+        assertThrows(IllegalArgumentException.class, () -> index.register(cloudlet(7), 3, 2.0, 20.0));
+        assertNull(index.findUnfinished(8));
+        assertEquals(Integer.MIN_VALUE, index.srcNode(8));
+    }
+
+    @Test
+    void unfinishedTasksAreNotRetired(){
+        BrokerIndex index = new BrokerIndex(new EnergyMeter());
+        CloudletSimple a = cloudlet(1);
+        index.register(a, 1, 0.0, 20.0);
+        assertFalse(index.retire(a));
+        assertFalse(index.isRetired(a));
+        assertTrue(index.isRetired(cloudlet(2)), "never registered counts as retired");
+    }
+
+    @Test
+    void listenersTrackTheLifecycleThroughARun(){
+        CloudSimPlus sim = new CloudSimPlus();
+        List<Pe> pes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) pes.add(new PeSimple(10_000));
+        HostSimple host = new HostSimple(64_000, 1_000_000, 1_000_000, pes);
+        host.setPowerModel(new PowerModelHostSimple(250, 125));
+        new DatacenterSimple(sim, List.of(host), new VmAllocationPolicySimple());
+
+        // 占位规则下 Cloudlet i 的来源节点是 i，VM 101 在节点 101
+        NetworkProfileCsv profile = new NetworkProfileCsv();
+        for (int i = 1; i <= 4; i++) profile.put(i, 101, new LinkMetrics(20, 50, 50, 0, true));
+        STHGNNBroker broker = new STHGNNBroker(sim, dir, 1.0, new NullBridgeTransport(), profile);
+
+        Vm vm = new VmSimple(10_000, 2).setRam(1024).setBw(1000).setSize(1000)
+                .setCloudletScheduler(new CloudletSchedulerX());
+        vm.setId(101);
+        broker.submitVmList(List.of(vm));
+        List<Cloudlet> cls = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            CloudletSimple c = cloudlet(i);
+            c.setSubmissionDelay(i);
+            cls.add(c);
+        }
+        broker.submitCloudletList(cls);
+
+        sim.terminateAt(60);
+        sim.start();
+
+        TaskTable t = broker.getTaskTable();
+        assertEquals(4, t.size());
+        assertEquals(4, t.finishedCount());
+        for (int s = 0; s < t.size(); s++) {
+            assertEquals(TaskTable.FINISHED, t.phase(s));
+            assertEquals(101, t.vmId(s));
+            assertTrue(t.doneAt(s) > t.finishAt(s), "result delivered after execution");
+        }
+        assertEquals(4, broker.getResultsDelivered());
+        assertEquals(4, broker.getCloudletFinishedList().size());
+        broker.closeBridge();
+    }
+}
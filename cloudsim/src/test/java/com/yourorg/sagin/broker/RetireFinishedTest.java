@@ -0,0 +1,103 @@
+package com.yourorg.sagin.broker;
+
+import com.yourorg.sagin.io.NullBridgeTransport;
+import com.yourorg.sagin.io.ResultsSink;
+import com.yourorg.sagin.model.TaskTable;
+import com.yourorg.sagin.net.LinkMetrics;
+import com.yourorg.sagin.net.NetworkProfileCsv;
+import com.yourorg.sagin.sched.CloudletSchedulerX;
+
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.DatacenterSimple;
+import org.cloudsimplus.hosts.HostSimple;
+import org.cloudsimplus.power.models.PowerModelHostSimple;
+import org.cloudsimplus.resources.Pe;
+import org.cloudsimplus.resources.PeSimple;
+import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetireFinishedTest {
+
+    private static final int TASKS = 6;
+
+    @TempDir
+    Path dir;
+
+    /** 一台 2 PE 的 VM（节点 101），TASKS 个 Cloudlet 从占位节点 1..TASKS 依次到达；跑完后关桥 */
+    private static final class Run {
+        final STHGNNBroker broker;
+        final Vm vm;
+
+        Run(Path dir, boolean retire){
+            CloudSimPlus sim = new CloudSimPlus();
+            List<Pe> pes = new ArrayList<>();
+            for (int i = 0; i < 2; i++) pes.add(new PeSimple(10_000));
+            HostSimple host = new HostSimple(64_000, 1_000_000, 1_000_000, pes);
+            host.setPowerModel(new PowerModelHostSimple(250, 125));
+            new DatacenterSimple(sim, List.of(host), new VmAllocationPolicySimple());
+
+            NetworkProfileCsv profile = new NetworkProfileCsv();
+            for (int i = 1; i <= TASKS; i++) profile.put(i, 101, new LinkMetrics(20, 50, 50, 0, true));
+            broker = new STHGNNBroker(sim, dir, 1.0, new NullBridgeTransport(), profile);
+            broker.setResultsSink(new ResultsSink()).setRetireFinished(retire);
+
+            vm = new VmSimple(10_000, 2).setRam(1024).setBw(1000).setSize(1000)
+                    .setCloudletScheduler(new CloudletSchedulerX());
+            vm.setId(101);
+            broker.submitVmList(List.of(vm));
+            List<Cloudlet> cls = new ArrayList<>();
+            for (int i = 1; i <= TASKS; i++) {
+                CloudletSimple c = new CloudletSimple(10_000, 1);
+                c.setFileSize(1000).setOutputSize(1000);
+                c.setId(i);
+                c.setSubmissionDelay(i);
+                cls.add(c);
+            }
+            broker.submitCloudletList(cls);
+
+            sim.terminateAt(60);
+            sim.start();
+            broker.closeBridge();
+        }
+    }
+
+    @Test
+    void retiredTasksLeaveEveryListButAreStillRecorded(){
+        Run run = new Run(dir, true);
+        STHGNNBroker broker = run.broker;
+        TaskTable t = broker.getTaskTable();
+
+        assertEquals(TASKS, broker.getResultsSink().getStats().count());
+        assertEquals(0, broker.getResultsSink().getStats().undelivered());
+        assertEquals(TASKS, t.retiredCount());
+        assertEquals(0, t.liveCount());
+        assertTrue(broker.getCloudletFinishedList().isEmpty());
+        assertTrue(broker.getCloudletSubmittedList().isEmpty());
+        assertTrue(broker.getCloudletCreatedList().isEmpty());
+        assertTrue(run.vm.getCloudletScheduler().getCloudletFinishedList().isEmpty());
+    }
+
+    @Test
+    void withoutRetirementTheListsKeepEveryTask(){
+        Run run = new Run(dir, false);
+        STHGNNBroker broker = run.broker;
+
+        assertEquals(TASKS, broker.getResultsSink().getStats().count());
+        TaskTable t = broker.getTaskTable();
+        assertEquals(0, t.retiredCount());
+        assertEquals(TASKS, t.size());
+        for (int s = 0; s < t.size(); s++) assertEquals(TaskTable.FINISHED, t.phase(s));
+        assertEquals(TASKS, broker.getCloudletFinishedList().size());
+    }
+}
@@ -0,0 +1,139 @@
+package com.yourorg.sagin.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryStateEncoderTest {
+
+    /** 按类注释里的布局顺着读列，和 Python 侧 numpy.frombuffer 的读法一致 */
+    private static final class Reader {
+        final ByteBuffer b;
+        int p = BinaryStateEncoder.HEADER_BYTES;
+
+        Reader(ByteBuffer b){ this.b = b.order(ByteOrder.LITTLE_ENDIAN); }
+
+        long[] longs(int n){
+            long[] a = new long[n];
+            for (int i = 0; i < n; i++) a[i] = b.getLong(p + 8 * i);
+            p += 8 * n;
+            return a;
+        }
+
+        double[] doubles(int n){
+            double[] a = new double[n];
+            for (int i = 0; i < n; i++) a[i] = b.getDouble(p + 8 * i);
+            p += 8 * n;
+            return a;
+        }
+
+        int[] ints(int n){
+            int[] a = new int[n];
+            for (int i = 0; i < n; i++) a[i] = b.getInt(p + 4 * i);
+            p += (4 * n + 7) & ~7;
+            return a;
+        }
+
+        byte[] bytes(int n){
+            byte[] a = new byte[n];
+            for (int i = 0; i < n; i++) a[i] = b.get(p + i);
+            p += (n + 7) & ~7;
+            return a;
+        }
+    }
+
+    private static StateSnapshot snapshot(int nVm, int nCl){
+        StateSnapshot s = new StateSnapshot().clear(42, 12.5);
+        s.netEnergyJ = 3.25;
+        for (int i = 0; i < nVm; i++) {
+            s.addVm(100 + i, 1000.0 * (i + 1), i + 1, 10L * i, 20L * i, 30L * i, 0.1 * i, 0.5 * i, 7 + i);
+        }
+        for (int i = 0; i < nCl; i++) {
+            s.addCloudlet(1000 + i, 5000L + i, 100L * i, 200L * i, i % 2 == 0 ? 100 : -1,
+                    i % 3 == 0 ? StateSnapshot.PHASE_RUNNING : StateSnapshot.PHASE_WAITING, i % 4);
+        }
+        return s;
+    }
+
+    private static void assertDecodes(StateSnapshot s, ByteBuffer out){
+        int nVm = s.vmCount, nCl = s.clCount;
+        ByteBuffer b = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(BinaryStateEncoder.encodedSize(nVm, nCl, s.vmRemovedCount, s.clRemovedCount), b.remaining());
+
+        assertEquals(BinaryStateEncoder.MAGIC, b.getInt(0));
+        assertEquals(BinaryStateEncoder.VERSION, b.getShort(4));
+        assertEquals(s.kind, b.getShort(6));
+        assertEquals(s.k, b.getLong(8));
+        assertEquals(s.time, b.getDouble(16));
+        assertEquals(s.netEnergyJ, b.getDouble(24));
+        assertEquals(nVm, b.getInt(32));
+        assertEquals(nCl, b.getInt(36));
+        assertEquals(BinaryStateEncoder.HEADER_BYTES, b.getInt(40));
+        assertEquals(b.remaining(), b.getInt(44));
+        assertEquals(s.vmRemovedCount, b.getInt(48));
+        assertEquals(s.clRemovedCount, b.getInt(52));
+
+        Reader r = new Reader(b);
+        assertArrayEquals(slice(s.vmId, nVm), r.longs(nVm));
+        assertArrayEquals(slice(s.vmMips, nVm), r.doubles(nVm));
+        assertArrayEquals(slice(s.vmPes, nVm), r.ints(nVm));
+        assertArrayEquals(slice(s.vmRam, nVm), r.longs(nVm));
+        assertArrayEquals(slice(s.vmBw, nVm), r.longs(nVm));
+        assertArrayEquals(slice(s.vmSize, nVm), r.longs(nVm));
+        assertArrayEquals(slice(s.vmUtil, nVm), r.doubles(nVm));
+        assertArrayEquals(slice(s.vmEnergy, nVm), r.doubles(nVm));
+        assertArrayEquals(slice(s.vmNode, nVm), r.ints(nVm));
+
+        assertArrayEquals(slice(s.clId, nCl), r.longs(nCl));
+        assertArrayEquals(slice(s.clLen, nCl), r.longs(nCl));
+        assertArrayEquals(slice(s.clIn, nCl), r.longs(nCl));
+        assertArrayEquals(slice(s.clOut, nCl), r.longs(nCl));
+        assertArrayEquals(slice(s.clVm, nCl), r.longs(nCl));
+        assertArrayEquals(slice(s.clSrc, nCl), r.ints(nCl));
+        byte[] phase = new byte[nCl];
+        System.arraycopy(s.clPhase, 0, phase, 0, nCl);
+        assertArrayEquals(phase, r.bytes(nCl));
+
+        assertArrayEquals(slice(s.vmRemoved, s.vmRemovedCount), r.longs(s.vmRemovedCount));
+        assertArrayEquals(slice(s.clRemoved, s.clRemovedCount), r.longs(s.clRemovedCount));
+        assertEquals(b.remaining(), r.p);
+    }
+
+    private static long[] slice(long[] a, int n){ return Arrays.copyOf(a, n); }
+    private static double[] slice(double[] a, int n){ return Arrays.copyOf(a, n); }
+    private static int[] slice(int[] a, int n){ return Arrays.copyOf(a, n); }
+
+    @Test
+    void oddCountsArePaddedToEightByteColumns(){
+        StateSnapshot s = snapshot(3, 5);
+        s.kind = StateSnapshot.KIND_DELTA;
+        s.addVmRemoved(99);
+        s.addCloudletRemoved(7);
+        s.addCloudletRemoved(8);
+        assertDecodes(s, new BinaryStateEncoder().encode(s));
+    }
+
+    @Test
+    void emptyFrameIsJustTheHeader(){
+        StateSnapshot s = snapshot(0, 0);
+        ByteBuffer out = new BinaryStateEncoder().encode(s);
+        assertEquals(BinaryStateEncoder.HEADER_BYTES, out.remaining());
+        assertDecodes(s, out);
+    }
+
+    @Test
+    void bufferGrowsAndIsReusedAcrossFrames(){
+        BinaryStateEncoder enc = new BinaryStateEncoder();
+        StateSnapshot big = snapshot(16, 4000);   // 远大于初始的 64 KiB
+        assertDecodes(big, enc.encode(big));
+
+        StateSnapshot small = snapshot(2, 3);
+        ByteBuffer a = enc.encode(small);
+        assertDecodes(small, a);
+        assertSame(a, enc.encode(small), "the encoder hands back its reused buffer");
+    }
+}
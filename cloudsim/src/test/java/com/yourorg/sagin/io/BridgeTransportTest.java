@@ -0,0 +1,113 @@
+package com.yourorg.sagin.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BridgeTransportTest {
+
+    @TempDir
+    Path dir;
+
+    private static ByteBuffer utf8(String s){
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String utf8(ByteBuffer b){
+        byte[] a = new byte[b.remaining()];
+        b.duplicate().get(a);
+        return new String(a, StandardCharsets.UTF_8);
+    }
+
+    /** 按 MmapBridgeTransport 文档的布局扮演 Python 侧：映射同一个文件 */
+    private static MappedByteBuffer peer(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+            m.order(ByteOrder.LITTLE_ENDIAN);
+            return m;
+        }
+    }
+
+    @Test
+    void fileTransportWritesStateAndPollsForAction() throws IOException {
+        FileBridgeTransport t = new FileBridgeTransport(dir);
+        t.publishState(3, StateFormat.JSON, utf8("{\"k\":3}"));
+        assertEquals("{\"k\":3}", Files.readString(dir.resolve("state_000003.json")));
+        assertFalse(Files.exists(dir.resolve("tmp").resolve("state_000003.json.tmp")));
+
+        assertNull(t.awaitAction(3, 30));
+        Files.writeString(dir.resolve("action_000003.json"), "{\"k\":3,\"assign\":[]}");
+        assertEquals("{\"k\":3,\"assign\":[]}", utf8(t.awaitAction(3, 100)));
+    }
+
+    @Test
+    void mmapStateSlotFollowsTheSeqlockLayout() throws IOException {
+        Path file = dir.resolve(MmapBridgeTransport.FILE_NAME);
+        try (MmapBridgeTransport t = new MmapBridgeTransport(file, 1024, 256)) {
+            MappedByteBuffer m = peer(file);
+            assertEquals(MmapBridgeTransport.MAGIC, m.getInt(0));
+            assertEquals(MmapBridgeTransport.VERSION, m.getInt(4));
+            assertEquals(1024, m.getInt(8));
+            assertEquals(256, m.getInt(12));
+            int state = MmapBridgeTransport.HEADER_BYTES;
+            assertEquals(MmapBridgeTransport.SEQ_EMPTY, m.getLong(state));
+
+            t.publishState(5, StateFormat.BINARY, utf8("hello"));
+            assertEquals(5L, m.getLong(state));
+            assertEquals(5, m.getInt(state + 8));
+            assertEquals(StateFormat.BINARY.code, m.getInt(state + 12));
+            byte[] got = new byte[5];
+            m.get(state + MmapBridgeTransport.SLOT_HEAD_BYTES, got);
+            assertEquals("hello", new String(got, StandardCharsets.UTF_8));
+
+            assertThrows(IOException.class, () -> t.publishState(6, StateFormat.JSON, ByteBuffer.allocate(2048)));
+        }
+    }
+
+    @Test
+    void mmapActionIsReadOnlyForTheMatchingSeq() throws IOException {
+        Path file = dir.resolve(MmapBridgeTransport.FILE_NAME);
+        try (MmapBridgeTransport t = new MmapBridgeTransport(file, 1024, 256)) {
+            MappedByteBuffer m = peer(file);
+            int action = MmapBridgeTransport.HEADER_BYTES + MmapBridgeTransport.SLOT_HEAD_BYTES + 1024;
+            byte[] a = "{\"k\":7}".getBytes(StandardCharsets.UTF_8);
+
+            m.putLong(action, MmapBridgeTransport.SEQ_WRITING);
+            m.put(action + MmapBridgeTransport.SLOT_HEAD_BYTES, a);
+            m.putInt(action + 8, a.length);
+            assertNull(t.awaitAction(7, 20), "a slot that is being written must not be read");
+
+            m.putLong(action, 7L);
+            assertEquals("{\"k\":7}", utf8(t.awaitAction(7, 100)));
+            assertNull(t.awaitAction(8, 20), "an older action must not answer a newer tick");
+        }
+    }
+
+    @Test
+    void reopeningNeverShrinksAMappedFile() throws IOException {
+        Path file = dir.resolve(MmapBridgeTransport.FILE_NAME);
+        new MmapBridgeTransport(file, 64 * 1024, 1024).close();
+        long big = Files.size(file);
+        MappedByteBuffer m = peer(file);
+
+        try (MmapBridgeTransport t = new MmapBridgeTransport(file, 1024, 256)) {
+            assertEquals(big, Files.size(file));
+            // 对端的旧映射仍然可读写到末尾，头里换成了新的容量
+            m.put((int) big - 1, (byte) 1);
+            assertEquals(1024, m.getInt(8));
+            assertEquals(256, m.getInt(12));
+            assertEquals(MmapBridgeTransport.SEQ_EMPTY, m.getLong(MmapBridgeTransport.HEADER_BYTES));
+        }
+    }
+}
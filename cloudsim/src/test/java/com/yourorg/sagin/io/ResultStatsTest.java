@@ -0,0 +1,59 @@
+package com.yourorg.sagin.io;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultStatsTest {
+
+    private static ResultRecord rec(long id, double arrival, double finish, double done, double deadline){
+        ResultRecord r = new ResultRecord();
+        r.id = id;
+        r.vmId = 101;
+        r.arrival = arrival;
+        r.start = arrival;
+        r.finish = finish;
+        r.done = done;
+        r.deadline = deadline;
+        r.energyJ = 1.0;
+        return r;
+    }
+
+    @Test
+    void latencyAndDeadlineUseTheDeliveryTime(){
+        ResultStats s = new ResultStats();
+        s.add(rec(1, 0, 5, 8, 20));     // 时延 8，按时
+        s.add(rec(2, 0, 15, 25, 20));   // 执行在 deadline 前完成，但结果送回晚了
+        assertEquals(2, s.delivered());
+        assertEquals(1, s.deadlineMisses());
+        assertEquals(0.5, s.missRate(), 1e-12);
+        assertEquals(16.5, s.meanLatency(), 1e-9);
+        assertEquals(25.0, s.maxLatency(), 1e-9);
+    }
+
+    @Test
+    void undeliveredRecordsAreCountedApart(){
+        ResultStats s = new ResultStats();
+        s.add(rec(1, 0, 5, 6, 20));
+        s.add(rec(2, 0, 5, Double.NaN, 20));
+        s.add(rec(3, 0, 5, Double.POSITIVE_INFINITY, 20));
+        assertEquals(3, s.count());
+        assertEquals(2, s.undelivered());
+        assertEquals(1, s.delivered());
+        assertEquals(0, s.deadlineMisses());
+        assertEquals(6.0, s.meanLatency(), 1e-9);
+        assertEquals(6.0, s.p99(), 6.0 * 0.01);
+        // 执行过的都算进 VM 的完成数与能耗
+        assertEquals(3, s.vmFinished(0));
+        assertEquals(3.0, s.energyJ(), 1e-12);
+    }
+
+    @Test
+    void nothingDeliveredMeansNoLatency(){
+        ResultStats s = new ResultStats();
+        s.add(rec(1, 0, 5, Double.NaN, 20));
+        assertTrue(Double.isNaN(s.meanLatency()));
+        assertTrue(Double.isNaN(s.p50()));
+        assertEquals(0.0, s.missRate());
+    }
+}
@@ -0,0 +1,82 @@
+package com.yourorg.sagin.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketBridgeTransportTest {
+
+    @TempDir
+    Path dir;
+
+    private static String utf8(ByteBuffer b){
+        byte[] a = new byte[b.remaining()];
+        b.duplicate().get(a);
+        return new String(a, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer state(int bytes){
+        return ByteBuffer.wrap(new byte[bytes]);
+    }
+
+    /** EchoAgent 在后台线程里当对端，每帧 STATE(k) 回 ACTION(k) */
+    private Thread startEcho(SocketAddress addr){
+        Thread t = new Thread(() -> {
+            try { EchoAgent.serve(addr); } catch (IOException ignored) {}
+        }, "echo-agent");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private SocketAddress unixAddress(){
+        return UnixDomainSocketAddress.of(dir.resolve("bridge.sock"));
+    }
+
+    @Test
+    void framesRoundTripThroughTheEchoAgent() throws Exception {
+        SocketAddress addr = unixAddress();
+        Thread echo = startEcho(addr);
+        try (SocketBridgeTransport t = new SocketBridgeTransport(addr)) {
+            for (long k = 1; k <= 3; k++) {
+                t.publishState(k, StateFormat.JSON, state(100));
+                assertEquals("{\"k\":" + k + ",\"assign\":[]}", utf8(t.awaitAction(k, 5_000)));
+            }
+            // 比两块缓冲区的初始容量都大的帧：两边都得扩容
+            t.publishState(4, StateFormat.BINARY, state(1 << 20));
+            assertEquals("{\"k\":4,\"assign\":[]}", utf8(t.awaitAction(4, 5_000)));
+        }
+        echo.join(5_000);
+        assertFalse(echo.isAlive(), "the agent returns once the transport closes");
+    }
+
+    @Test
+    void staleActionsAreSkippedAndCounted() throws Exception {
+        SocketAddress addr = unixAddress();
+        startEcho(addr);
+        try (SocketBridgeTransport t = new SocketBridgeTransport(addr)) {
+            t.publishState(1, StateFormat.JSON, state(10));
+            t.publishState(2, StateFormat.JSON, state(10));
+            assertEquals("{\"k\":2,\"assign\":[]}", utf8(t.awaitAction(2, 5_000)));
+            assertEquals(1, t.getStaleActions());
+            assertNull(t.awaitAction(3, 50));
+        }
+    }
+
+    @Test
+    void parsesTcpAndUnixAddresses(){
+        assertEquals(new InetSocketAddress("127.0.0.1", 7788), SocketBridgeTransport.parseAddress(null));
+        assertEquals(new InetSocketAddress("127.0.0.1", 9000), SocketBridgeTransport.parseAddress("9000"));
+        assertEquals(new InetSocketAddress("localhost", 9001), SocketBridgeTransport.parseAddress("localhost:9001"));
+        assertEquals(UnixDomainSocketAddress.of("/tmp/x.sock"), SocketBridgeTransport.parseAddress("unix:/tmp/x.sock"));
+    }
+}
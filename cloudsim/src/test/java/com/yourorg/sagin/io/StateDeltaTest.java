@@ -0,0 +1,103 @@
+package com.yourorg.sagin.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateDeltaTest {
+
+    /** 按 StateDelta 文档里 Python 侧的规则重建：KEYFRAME 整体替换，DELTA 按 id upsert 再删 removed */
+    private static final class Receiver {
+        final Map<Long, Long> clVm = new LinkedHashMap<>();
+        final Map<Long, Double> vmUtil = new LinkedHashMap<>();
+
+        void apply(StateSnapshot f){
+            if (f.kind != StateSnapshot.KIND_DELTA) { clVm.clear(); vmUtil.clear(); }
+            for (int i = 0; i < f.vmCount; i++) vmUtil.put(f.vmId[i], f.vmUtil[i]);
+            for (int i = 0; i < f.clCount; i++) clVm.put(f.clId[i], f.clVm[i]);
+            for (int i = 0; i < f.vmRemovedCount; i++) vmUtil.remove(f.vmRemoved[i]);
+            for (int i = 0; i < f.clRemovedCount; i++) clVm.remove(f.clRemoved[i]);
+        }
+    }
+
+    private static StateSnapshot frame(long k, double util, long... clVmPairs){
+        StateSnapshot s = new StateSnapshot().clear(k, k);
+        s.addVm(101, 10_000, 2, 1, 1, 1, util, 0, 1);
+        s.addVm(201, 10_000, 1, 1, 1, 1, 0.5, 0, 2);
+        for (int i = 0; i < clVmPairs.length; i += 2) {
+            s.addCloudlet(clVmPairs[i], 1000, 10, 10, clVmPairs[i + 1], StateSnapshot.PHASE_WAITING, 1);
+        }
+        return s;
+    }
+
+    private static void assertRebuilt(StateSnapshot truth, Receiver r){
+        Receiver full = new Receiver();
+        full.apply(truth);
+        assertEquals(full.clVm, r.clVm);
+        assertEquals(full.vmUtil, r.vmUtil);
+    }
+
+    @Test
+    void deltasCarryOnlyChangesAndRemovals(){
+        StateDelta d = new StateDelta(100);
+        Receiver r = new Receiver();
+
+        StateSnapshot f0 = frame(0, 0.1, 1, -1, 2, -1);
+        StateSnapshot out = d.diff(f0);
+        assertEquals(StateSnapshot.KIND_KEYFRAME, out.kind);
+        r.apply(out);
+
+        StateSnapshot f1 = frame(1, 0.1, 2, 201, 3, -1);   // 1 完成，2 改派，3 新到
+        out = d.diff(f1);
+        assertEquals(StateSnapshot.KIND_DELTA, out.kind);
+        assertEquals(0, out.vmCount);
+        assertEquals(2, out.clCount);
+        assertEquals(1, out.clRemovedCount);
+        assertEquals(1L, out.clRemoved[0]);
+        r.apply(out);
+        assertRebuilt(f1, r);
+    }
+
+    @Test
+    void keyframeEveryNFrames(){
+        StateDelta d = new StateDelta(3);
+        int[] kinds = new int[7];
+        for (int k = 0; k < kinds.length; k++) kinds[k] = d.diff(frame(k, 0.1 * k, k, -1)).kind;
+        assertArrayEquals(new int[]{1, 2, 2, 1, 2, 2, 1}, kinds);
+    }
+
+    @Test
+    void requestedKeyframeRecoversFromALostDelta(){
+        StateDelta d = new StateDelta(100);
+        Receiver r = new Receiver();
+
+        r.apply(d.diff(frame(0, 0.1, 1, -1, 2, -1)));
+        d.diff(frame(1, 0.2, 2, 101, 3, -1));           // 这一帧对端没收到
+        StateSnapshot f2 = frame(2, 0.3, 2, 101, 3, 201, 4, -1);
+        Receiver stale = new Receiver();
+        stale.clVm.putAll(r.clVm);
+        stale.vmUtil.putAll(r.vmUtil);
+        stale.apply(d.diff(f2));
+        Receiver truth = new Receiver();
+        truth.apply(f2);
+        assertNotEquals(truth.clVm, stale.clVm, "a lost delta leaves the peer on a stale base");
+
+        // 超时后 broker 要一帧关键帧：对端整体替换，回到与真值一致
+        d.requestKeyframe();
+        StateSnapshot f3 = frame(3, 0.4, 3, 201, 4, 101);
+        StateSnapshot out = d.diff(f3);
+        assertEquals(StateSnapshot.KIND_KEYFRAME, out.kind);
+        stale.apply(out);
+        assertRebuilt(f3, stale);
+
+        // 之后的 delta 又在正确的基线上叠加
+        StateSnapshot f4 = frame(4, 0.4, 4, 101, 5, -1);
+        out = d.diff(f4);
+        assertEquals(StateSnapshot.KIND_DELTA, out.kind);
+        stale.apply(out);
+        assertRebuilt(f4, stale);
+    }
+}
@@ -0,0 +1,94 @@
+package com.yourorg.sagin.net;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowNetworkTest {
+
+    private static final double EPS = 1e-9;
+
+    private static LinkMetrics link(double mbps){
+        return new LinkMetrics(0, mbps, mbps, 0, true);
+    }
+
+    @Test
+    void flowsOnOneLinkSplitItEvenly(){
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        p.put(1, 2, link(100));
+        FlowNetwork fn = new FlowNetwork(p);
+
+        int a = fn.start(1, 2, false, 50e6, 0.0, "a");
+        int b = fn.start(1, 2, false, 100e6, 0.0, "b");
+        assertEquals(50.0, fn.rateMbps(a), EPS);
+        assertEquals(50.0, fn.rateMbps(b), EPS);
+
+        // a 在 t=1 传完，b 剩 50 Mbit 独占 100 Mbps，t=1.5 传完
+        assertEquals(1.0, fn.nextCompletionTime(), EPS);
+        assertEquals(a, fn.pollCompleted(1.0));
+        assertEquals("a", fn.completedPayload());
+        assertNull(fn.payload(a), "freed slot must not keep the payload");
+        assertEquals(-1, fn.pollCompleted(1.0));
+        assertEquals(100.0, fn.rateMbps(b), EPS);
+        assertEquals(1.5, fn.nextCompletionTime(), EPS);
+        assertEquals(b, fn.pollCompleted(1.5));
+        assertEquals(0, fn.activeFlows());
+    }
+
+    @Test
+    void bottleneckedFlowLeavesItsShareToOthers(){
+        // 1 → 2 → 3：第二跳 30 Mbps 是 x 的瓶颈，y 只走第一跳，拿到剩下的 70
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        p.put(1, 2, link(100));
+        p.put(2, 3, link(30));
+        Router router = new Router(p);
+        router.refresh(0.0);
+        Router.Route r = router.route(1, 3);
+        assertEquals(2, r.getHops());
+
+        FlowNetwork fn = new FlowNetwork(p);
+        int x = fn.start(r, false, 1e9, 0.0, null);
+        int y = fn.start(1, 2, false, 1e9, 0.0, null);
+        assertEquals(30.0, fn.rateMbps(x), EPS);
+        assertEquals(70.0, fn.rateMbps(y), EPS);
+    }
+
+    @Test
+    void uplinkAndDownlinkAreSeparateResources(){
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        p.put(1, 2, new LinkMetrics(0, 40, 80, 0, true));
+        FlowNetwork fn = new FlowNetwork(p);
+
+        int up = fn.start(1, 2, false, 1e9, 0.0, null);
+        int down = fn.start(1, 2, true, 1e9, 0.0, null);
+        assertEquals(40.0, fn.rateMbps(up), EPS);
+        assertEquals(80.0, fn.rateMbps(down), EPS);
+    }
+
+    @Test
+    void capacityChangeIsPickedUpOnRefresh(){
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        p.put(1, 2, 0.0, link(100));
+        p.put(1, 2, 10.0, link(20));
+        FlowNetwork fn = new FlowNetwork(p);
+
+        int a = fn.start(1, 2, false, 1e10, 0.0, null);
+        int b = fn.start(1, 2, false, 1e10, 0.0, null);
+        assertEquals(50.0, fn.rateMbps(a), EPS);
+
+        assertEquals(1, fn.refresh(10.0));
+        assertEquals(10.0, fn.rateMbps(a), EPS);
+        assertEquals(10.0, fn.rateMbps(b), EPS);
+    }
+
+    @Test
+    void flowOnDownedLinkNeverCompletes(){
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        p.put(1, 2, link(100).withUp(false));
+        FlowNetwork fn = new FlowNetwork(p);
+
+        int a = fn.start(1, 2, false, 1e6, 0.0, null);
+        assertEquals(0.0, fn.rateMbps(a), EPS);
+        assertEquals(Double.POSITIVE_INFINITY, fn.nextCompletionTime());
+    }
+}
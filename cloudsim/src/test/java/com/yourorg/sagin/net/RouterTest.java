@@ -0,0 +1,138 @@
+package com.yourorg.sagin.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+
+    private static LinkMetrics rtt(double ms){
+        return new LinkMetrics(ms, 100, 100, 0, true);
+    }
+
+    /**
+     * 1 → 2 → 4（10 + 10）、1 → 3 → 4（5 + 30）、1 → 4 直连 50，外加一条回边 4 → 1。
+     * t=10 时 2 → 4 断开，t=20 时直连降到 12；回边在 t=5 变化，但不在任何最短路上
+     */
+    private static NetworkProfileCsv diamond(){
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        p.put(1, 2, 0, rtt(10));
+        p.put(2, 4, 0, rtt(10));
+        p.put(2, 4, 10, rtt(10).withUp(false));
+        p.put(1, 3, 0, rtt(5));
+        p.put(3, 4, 0, rtt(30));
+        p.put(1, 4, 0, rtt(50));
+        p.put(1, 4, 20, rtt(12));
+        p.put(4, 1, 0, rtt(100));
+        p.put(4, 1, 5, rtt(90));
+        return p.seal();
+    }
+
+    @Test
+    void followsTheLowestRttPathAsLinksChange(){
+        Router router = new Router(diamond());
+        assertTrue(router.refresh(0));
+
+        Router.Route r = router.route(1, 4);
+        assertTrue(r.isAvailable());
+        assertEquals(2, r.getHops());
+        assertEquals(2, r.node(1));
+        assertEquals(20.0, r.getRttMs());
+        assertEquals(100.0, r.getRawBottleneckUpMbps());
+
+        router.refresh(10);
+        r = router.route(1, 4);
+        assertEquals(3, r.node(1));
+        assertEquals(35.0, r.getRttMs());
+
+        router.refresh(20);
+        r = router.route(1, 4);
+        assertEquals(1, r.getHops());
+        assertEquals(12.0, r.getRttMs());
+
+        assertNull(router.route(1, 99), "nodes outside the graph have no route");
+        assertFalse(router.route(2, 1).isAvailable(), "2 has no path back to 1");
+    }
+
+    @Test
+    void unchangedOrIrrelevantEdgesKeepCachedTrees(){
+        Router router = new Router(diamond());
+        router.refresh(0);
+        Router.Route r = router.route(1, 4);
+        long computes = router.getTreeComputes();
+        long rebuilds = router.getRouteRebuilds();
+
+        assertFalse(router.refresh(1), "nothing changes between t=0 and t=1");
+        long epoch = router.getEpoch();
+        assertSame(r, router.route(1, 4));
+        assertEquals(rebuilds, router.getRouteRebuilds());
+
+        // 回边 4 → 1 变了：拓扑进入新 epoch，但它既不是树边也改进不了 1 的树
+        assertTrue(router.refresh(5));
+        assertEquals(epoch + 1, router.getEpoch());
+        assertEquals(20.0, router.route(1, 4).getRttMs());
+        assertEquals(computes, router.getTreeComputes());
+        assertEquals(0, router.getTreeInvalidations());
+
+        // 树边 2 → 4 断开：只有这时才重算
+        router.refresh(10);
+        router.route(1, 4);
+        assertEquals(1, router.getTreeInvalidations());
+        assertEquals(computes + 1, router.getTreeComputes());
+    }
+
+    @Test
+    void rewindingTimeRestoresEarlierRoutes(){
+        Router router = new Router(diamond());
+        router.refresh(25);
+        assertEquals(12.0, router.route(1, 4).getRttMs());
+        router.refresh(0);   // 新一轮仿真从头开始
+        assertEquals(20.0, router.route(1, 4).getRttMs());
+    }
+
+    @Test
+    void widestMetricMaximisesTheBottleneck(){
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        p.put(1, 2, new LinkMetrics(1, 10, 10, 0, true));
+        p.put(1, 3, new LinkMetrics(50, 80, 80, 0, true));
+        p.put(3, 2, new LinkMetrics(50, 60, 60, 0, true));
+        Router router = new Router(p, Router.Metric.WIDEST);
+        router.refresh(0);
+        Router.Route r = router.route(1, 2);
+        assertEquals(2, r.getHops());
+        assertEquals(60.0, r.getBottleneckUpMbps());
+    }
+
+    @Test
+    void incrementalRefreshMatchesAFreshRouter(){
+        Random rnd = new Random(5);
+        int nodes = 12;
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        for (int i = 0; i < 40; i++) {
+            int u = 1 + rnd.nextInt(nodes), v = 1 + rnd.nextInt(nodes);
+            if (u == v) continue;
+            for (int k = 0; k < 20; k++) {
+                p.put(u, v, k * 3 + rnd.nextInt(3), new LinkMetrics(1 + rnd.nextInt(40), 50, 50, 0, rnd.nextInt(4) != 0));
+            }
+        }
+        p.seal();
+
+        Router incremental = new Router(p);
+        for (double t = 0; t < 70; t += 0.5) {
+            incremental.refresh(t);
+            Router fresh = new Router(p);
+            fresh.refresh(t);
+            for (int s = 1; s <= nodes; s++) {
+                for (int d = 1; d <= nodes; d++) {
+                    Router.Route a = incremental.route(s, d), b = fresh.route(s, d);
+                    if (b == null) { assertNull(a); continue; }
+                    assertEquals(b.isAvailable(), a.isAvailable(), s + "->" + d + " t=" + t);
+                    assertEquals(b.getRttMs(), a.getRttMs(), 1e-9, s + "->" + d + " t=" + t);
+                }
+            }
+        }
+        assertTrue(incremental.getTreeComputes() < 140 * nodes, "trees are not recomputed every step");
+    }
+}
@@ -0,0 +1,98 @@
+package com.yourorg.sagin.net;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeCursorTest {
+
+    private static final int EDGES = 3;
+    private static final int ROWS = 400;
+
+    @TempDir
+    Path dir;
+
+    /** 第 e 条边 (e, e+1) 的第 r 行在 rowTime(e, r) 生效，rtt 编码成 e*10000 + r，查询结果能直接认出是哪一行 */
+    private static double rowTime(int e, int r){ return r * 0.5 + e * 0.125; }
+
+    private static NetworkProfileCsv profile(){
+        NetworkProfileCsv p = new NetworkProfileCsv();
+        for (int e = 0; e < EDGES; e++) {
+            for (int r = 0; r < ROWS; r++) {
+                p.put(e, e + 1, rowTime(e, r), new LinkMetrics(e * 10000 + r, 10, 20, 0, r % 7 != 3));
+            }
+        }
+        return p.seal();
+    }
+
+    /** 真值：不晚于 t 的最后一行；一行都没有时 -1 */
+    private static int expectedRow(int e, double t){
+        int r = -1;
+        while (r + 1 < ROWS && rowTime(e, r + 1) <= t) r++;
+        return r;
+    }
+
+    private static void assertRow(NetworkProfile p, int e, double t){
+        LinkMetrics m = p.link(e, e + 1, t);
+        int r = expectedRow(e, t);
+        if (r < 0) {
+            assertFalse(m.isUp(), "before the first row the edge is unavailable, t=" + t);
+            return;
+        }
+        assertEquals(e * 10000 + r, m.getRttMs(), 0.0, "edge " + e + " t=" + t);
+        assertEquals(r % 7 != 3, m.isUp());
+    }
+
+    /** 单调小步、越过 CURSOR_WALK 的大步、回到开头（新一轮）、再乱序查 */
+    private static void exercise(NetworkProfile p){
+        for (double t = -1; t < 60; t += 0.25) {
+            p.advanceAll(t);
+            for (int e = 0; e < EDGES; e++) assertRow(p, e, t);
+        }
+        for (double t = 60; t < ROWS * 0.5 + 5; t += 13.7) {
+            for (int e = 0; e < EDGES; e++) assertRow(p, e, t);
+        }
+        p.advanceAll(0);
+        for (double t = 0; t < 10; t += 0.125) {
+            for (int e = 0; e < EDGES; e++) assertRow(p, e, t);
+        }
+        Random rnd = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            double t = rnd.nextDouble() * (ROWS * 0.5 + 2) - 1;
+            assertRow(p, rnd.nextInt(EDGES), t);
+        }
+    }
+
+    @Test
+    void cursorLookupsMatchBinarySearch(){
+        exercise(profile());
+        exercise(profile().timeCursor(false));
+    }
+
+    @Test
+    void exactRowTimesAndUnqueriedEdgesCatchUp(){
+        NetworkProfileCsv p = profile();
+        assertRow(p, 0, rowTime(0, 5));
+        assertRow(p, 0, Math.nextDown(rowTime(0, 6)));
+        // 只查 0 号边，advanceAll 不碰其余边；它们第一次被查时自己追上
+        for (double t = 0; t < 100; t += 1) {
+            p.advanceAll(t);
+            assertRow(p, 0, t);
+        }
+        assertRow(p, 2, 100);
+        assertRow(p, 1, 150.3);
+    }
+
+    @Test
+    void mappedProfileAnswersTheSame() throws IOException {
+        Path sgnp = dir.resolve("p" + MappedNetworkProfile.EXT);
+        ProfileCompiler.write(profile(), sgnp);
+        exercise(MappedNetworkProfile.open(sgnp));
+        exercise(MappedNetworkProfile.open(sgnp).timeCursor(false));
+    }
+}
@@ -0,0 +1,131 @@
+package com.yourorg.sagin.policy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicyWeightsTest {
+
+    @TempDir
+    Path dir;
+
+    /** 按 numpy 的 .npy 格式拼一个条目：header 用空格补齐到 64 字节对齐，以 \n 结尾 */
+    private static byte[] npy(int major, String descr, boolean fortran, String shape, double... values){
+        String dict = "{'descr': '" + descr + "', 'fortran_order': " + (fortran ? "True" : "False") +
+                ", 'shape': " + shape + ", }";
+        int pre = major == 1 ? 10 : 12;
+        int len = dict.length() + 1;
+        len += (64 - (pre + len) % 64) % 64;
+        String header = (dict + " ".repeat(len - dict.length() - 1)) + "\n";
+
+        int width = descr.endsWith("8") ? 8 : 4;
+        ByteBuffer b = ByteBuffer.allocate(pre + len + width * values.length).order(ByteOrder.LITTLE_ENDIAN);
+        b.put((byte) 0x93).put("NUMPY".getBytes(StandardCharsets.ISO_8859_1)).put((byte) major).put((byte) 0);
+        if (major == 1) b.putShort((short) len); else b.putInt(len);
+        b.put(header.getBytes(StandardCharsets.ISO_8859_1));
+        for (double v : values) {
+            if (width == 8) b.putDouble(v); else b.putFloat((float) v);
+        }
+        return b.array();
+    }
+
+    private Path npz(String file, int method, Object... nameAndBytes) throws IOException {
+        Path p = dir.resolve(file);
+        try (OutputStream os = Files.newOutputStream(p); ZipOutputStream zip = new ZipOutputStream(os)) {
+            zip.setMethod(method);
+            for (int i = 0; i < nameAndBytes.length; i += 2) {
+                byte[] data = (byte[]) nameAndBytes[i + 1];
+                ZipEntry e = new ZipEntry(nameAndBytes[i] + ".npy");
+                if (method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    e.setSize(data.length);
+                    e.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(e);
+                zip.write(data);
+                zip.closeEntry();
+            }
+        }
+        return p;
+    }
+
+    @Test
+    void readsSavezAndSavezCompressed() throws IOException {
+        for (int method : new int[]{ZipEntry.STORED, ZipEntry.DEFLATED}) {
+            Path p = npz("w" + method + ".npz", method,
+                    "task_enc.weight", npy(1, "<f4", false, "(2, 3)", 1, 2, 3, 4, 5, 6),
+                    "task_enc.bias", npy(1, "<f4", false, "(2,)", -0.5, 0.25));
+            PolicyWeights w = PolicyWeights.load(p);
+
+            assertEquals(2, w.names().size());
+            assertArrayEquals(new int[]{2, 3}, w.tensor("task_enc.weight").shape);
+            assertArrayEquals(new float[]{1, 2, 3, 4, 5, 6}, w.get("task_enc.weight", 2, 3));
+            assertArrayEquals(new float[]{-0.5f, 0.25f}, w.get("task_enc.bias", 2));
+        }
+    }
+
+    @Test
+    void readsFloat64ScalarsAndVersion2Headers() throws IOException {
+        Path p = npz("w.npz", ZipEntry.DEFLATED,
+                "head.v", npy(2, "<f8", false, "(3,)", 0.1, 0.2, 0.3),
+                "scale", npy(1, "<f8", false, "()", 2.5));
+        PolicyWeights w = PolicyWeights.load(p);
+
+        assertArrayEquals(new float[]{0.1f, 0.2f, 0.3f}, w.get("head.v", 3));
+        assertEquals(0, w.tensor("scale").shape.length);
+        assertArrayEquals(new float[]{2.5f}, w.tensor("scale").data);
+    }
+
+    @Test
+    void rejectsFortranOrderAndUnsupportedDtypes() throws IOException {
+        Path fortran = npz("f.npz", ZipEntry.DEFLATED, "w", npy(1, "<f4", true, "(2, 2)", 1, 2, 3, 4));
+        IOException e = assertThrows(IOException.class, () -> PolicyWeights.load(fortran));
+        assertTrue(e.getMessage().contains("fortran_order"), e.getMessage());
+
+        Path half = npz("h.npz", ZipEntry.DEFLATED, "w", npy(1, "<f2", false, "(1,)"));
+        e = assertThrows(IOException.class, () -> PolicyWeights.load(half));
+        assertTrue(e.getMessage().contains("<f2"), e.getMessage());
+
+        Path junk = npz("j.npz", ZipEntry.DEFLATED, "w", "not an npy".getBytes(StandardCharsets.ISO_8859_1));
+        assertThrows(IOException.class, () -> PolicyWeights.load(junk));
+    }
+
+    @Test
+    void shapeMismatchNamesTheTensor() throws IOException {
+        Path p = npz("w.npz", ZipEntry.DEFLATED, "head.bias", npy(1, "<f4", false, "(4,)", 0, 0, 0, 0));
+        PolicyWeights w = PolicyWeights.load(p);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> w.get("head.bias", 8));
+        assertTrue(e.getMessage().contains("head.bias"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> w.tensor("missing"));
+    }
+
+    @Test
+    void npzAndSgpwLoadTheSameTensors() throws IOException {
+        Path p = npz("w.npz", ZipEntry.DEFLATED,
+                "a", npy(1, "<f4", false, "(2, 2)", 1, -2, 3, -4),
+                "b", npy(1, "<f8", false, "(1,)", 0.125));
+        PolicyWeights w = PolicyWeights.load(p);
+        Path sgpw = dir.resolve("w.sgpw");
+        w.saveSgpw(sgpw);
+        PolicyWeights back = PolicyWeights.load(sgpw);
+
+        assertEquals(w.names(), back.names());
+        for (String n : w.names()) {
+            assertArrayEquals(w.tensor(n).shape, back.tensor(n).shape, n);
+            assertArrayEquals(w.tensor(n).data, back.tensor(n).data, n);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.yourorg.sagin.sched;
+
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
+import org.cloudsimplus.brokers.DatacenterBrokerSimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.DatacenterSimple;
+import org.cloudsimplus.hosts.HostSimple;
+import org.cloudsimplus.resources.Pe;
+import org.cloudsimplus.resources.PeSimple;
+import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CloudletSchedulerXTest {
+
+    private static final double EPS = 1e-9;
+
+    /** 2 PE、每 PE 1000 MIPS 的 VM，挂在一个还没开始跑的仿真上（clock = 0） */
+    private static Vm vm(CloudSimPlus sim, CloudletSchedulerX x){
+        Vm vm = new VmSimple(1000, 2).setCloudletScheduler(x);
+        vm.setBroker(new DatacenterBrokerSimple(sim));
+        return vm;
+    }
+
+    /** length MI 在 1000 MIPS 上跑 length / 1000 秒 */
+    private static Cloudlet cloudlet(long id, long length, int pes){
+        CloudletSimple c = new CloudletSimple(length, pes);
+        c.setId(id);
+        return c;
+    }
+
+    @Test
+    void reservationsFillTheEarliestFreeLanes(){
+        CloudletSchedulerX x = new CloudletSchedulerX();
+        vm(new CloudSimPlus(), x);
+        assertEquals(0.0, x.drainTime(0));
+
+        Cloudlet a = cloudlet(1, 10_000, 1), b = cloudlet(2, 10_000, 1), c = cloudlet(3, 10_000, 1);
+        assertEquals(10.0, x.reserve(a, 0), EPS);
+        assertEquals(12.0, x.reserve(b, 2), EPS, "the second lane is free, so b starts when it arrives");
+        assertEquals(20.0, x.reserve(c, 0), EPS, "both lanes are busy, c queues behind a");
+        assertEquals(20.0, x.reserve(c, 5), EPS, "reserving twice keeps the first estimate");
+        assertEquals(3, x.getReservedCount());
+        assertEquals(3, x.getReservations());
+
+        // 上行 1 s → 等最早空闲的 lane（12）→ 执行 5 s → 下行 2 s
+        assertEquals(19.0, x.estimateCompletion(5_000, 1, 0, 1, 2), EPS);
+        assertEquals(20.0, x.earliestStart(2, 0, 0), EPS, "a two-PE task waits for both lanes");
+        assertEquals(25.0, x.earliestStart(1, 25, 0), EPS, "arriving after the lanes free up starts on arrival");
+        assertEquals(20.0, x.drainTime(0), EPS);
+        assertEquals(30.0, x.drainTime(30), EPS);
+        assertEquals(0, x.getCorrections(), "estimates never move the lanes");
+    }
+
+    @Test
+    void cancellingGivesTheUnexecutedWorkBack(){
+        CloudletSchedulerX x = new CloudletSchedulerX();
+        vm(new CloudSimPlus(), x);
+        Cloudlet a = cloudlet(1, 10_000, 1), b = cloudlet(2, 10_000, 1), c = cloudlet(3, 10_000, 1);
+        x.reserve(a, 0);
+        x.reserve(b, 0);
+        x.reserve(c, 0);
+        assertEquals(20.0, x.drainTime(0), EPS);
+
+        assertTrue(x.cancel(c));
+        assertEquals(10.0, x.drainTime(0), EPS);
+        assertEquals(2, x.getReservedCount());
+        assertEquals(1, x.getCorrections());
+        assertFalse(x.cancel(c), "already cancelled");
+        assertFalse(x.cancel(cloudlet(9, 1_000, 1)), "never reserved");
+
+        // 撤掉的槽位被复用
+        assertEquals(20.0, x.reserve(cloudlet(4, 10_000, 1), 0), EPS);
+        assertEquals(3, x.getReservedCount());
+    }
+
+    @Test
+    void finishedTasksReleaseTheirReservationsAndCanBePurged(){
+        CloudSimPlus sim = new CloudSimPlus();
+        List<Pe> pes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) pes.add(new PeSimple(1000));
+        new DatacenterSimple(sim, List.of(new HostSimple(16_000, 100_000, 100_000, pes)), new VmAllocationPolicySimple());
+        DatacenterBrokerSimple broker = new DatacenterBrokerSimple(sim);
+
+        CloudletSchedulerX x = new CloudletSchedulerX();
+        Vm vm = new VmSimple(1000, 2).setRam(1024).setBw(1000).setSize(1000).setCloudletScheduler(x);
+        broker.submitVmList(List.of(vm));
+        // 没经 broker 预约的任务在到达时补登记；全是单 PE 任务，不会插队，估计与实际顺序一致
+        List<Cloudlet> cls = List.of(cloudlet(1, 10_000, 1), cloudlet(2, 4_000, 1), cloudlet(3, 10_000, 1),
+                cloudlet(4, 6_000, 1));
+        broker.submitCloudletList(cls);
+        sim.start();
+
+        double last = 0;
+        for (Cloudlet c : cls) {
+            assertEquals(Cloudlet.Status.SUCCESS, c.getStatus());
+            last = Math.max(last, c.getFinishTime());
+        }
+        assertEquals(cls.size(), x.getReservations());
+        assertEquals(0, x.getReservedCount());
+        // 执行时长与估计一致、顺序也一致：全部跑完后 lane 的排空时刻就是最后一个任务的完成时刻
+        assertEquals(last, x.drainTime(0), 0.5, x.toString());
+
+        assertEquals(cls.size(), x.getCloudletFinishedList().size());
+        assertEquals(cls.size(), x.purgeReturned());
+        assertTrue(x.getCloudletFinishedList().isEmpty());
+        assertEquals(0, x.purgeReturned());
+    }
+}
@@ -0,0 +1,84 @@
+package com.yourorg.sagin.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    private static final double[] QS = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999};
+
+    /** 与排序后同一 rank 的真值比，相对误差不超过 α */
+    private static void assertWithinAlpha(QuantileSketch s, double[] xs){
+        double[] sorted = xs.clone();
+        Arrays.sort(sorted);
+        double alpha = s.relativeAccuracy();
+        for (double q : QS) {
+            double truth = sorted[(int) (q * (sorted.length - 1))];
+            double got = s.quantile(q);
+            assertTrue(Math.abs(got - truth) <= alpha * truth + 1e-12,
+                    "q=" + q + " truth=" + truth + " got=" + got);
+        }
+    }
+
+    @Test
+    void lognormalSamplesStayWithinRelativeError(){
+        Random rnd = new Random(7);
+        double[] xs = new double[100_000];
+        QuantileSketch s = new QuantileSketch(0.01, 1e-9);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = Math.exp(rnd.nextGaussian() * 3);   // 跨十几个数量级
+            s.add(xs[i]);
+        }
+        assertEquals(xs.length, s.count());
+        assertWithinAlpha(s, xs);
+    }
+
+    @Test
+    void coarserAccuracyStillHolds(){
+        Random rnd = new Random(11);
+        double[] xs = new double[20_000];
+        QuantileSketch s = new QuantileSketch(0.05, 1e-9);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = 1 + rnd.nextDouble() * 1e6;
+            s.add(xs[i]);
+        }
+        assertWithinAlpha(s, xs);
+    }
+
+    @Test
+    void extremesAreExactAndEmptyIsNaN(){
+        QuantileSketch s = new QuantileSketch();
+        assertTrue(Double.isNaN(s.quantile(0.5)));
+        for (double x : new double[]{3.0, 1e-3, 42.0, 7.5}) s.add(x);
+        assertEquals(1e-3, s.quantile(0.0));
+        assertEquals(42.0, s.quantile(1.0));
+        assertEquals(1e-3, s.min());
+        assertEquals(42.0, s.max());
+    }
+
+    @Test
+    void valuesBelowMinCountAsZeroAndNegativesAreIgnored(){
+        QuantileSketch s = new QuantileSketch(0.01, 1.0);
+        s.add(-5);
+        s.add(Double.NaN);
+        for (int i = 0; i < 9; i++) s.add(0.5);
+        s.add(100);
+        assertEquals(10, s.count());
+        assertEquals(0.0, s.quantile(0.5));
+        assertEquals(100.0, s.quantile(1.0));
+    }
+
+    @Test
+    void clearForgetsEverything(){
+        QuantileSketch s = new QuantileSketch();
+        for (int i = 1; i <= 1000; i++) s.add(i);
+        s.clear();
+        assertEquals(0, s.count());
+        s.add(5);
+        assertEquals(5.0, s.quantile(0.5), 5 * s.relativeAccuracy());
+    }
+}